@@ -0,0 +1,131 @@
+package com.rallytac.engageandroid;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+// A mission shared as a binary (version 2) QR code has to come back with everything it went out
+// with - otherwise it's shared in the legacy form.  Runs on a device since turning a mission into
+// an ActiveConfiguration needs the app's settings.
+@RunWith(AndroidJUnit4.class)
+public class MissionShareRoundTripTest {
+    private static DatabaseGroup group(int n, boolean crypto) {
+        DatabaseGroup g = new DatabaseGroup();
+        g._id = "{0f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f" + n + "}";
+        g._name = "Group " + n;
+        g._useCrypto = crypto;
+        g._cryptoPassword = (crypto ? "0123456789abcdef0123456789abcdef" : "");
+        g._rxAddress = "239.42.43." + n;
+        g._rxPort = 49000 + n;
+        g._txAddress = "239.42.44." + n;
+        g._txPort = 50000 + n;
+        g._txCodecId = 25;
+        g._txFramingMs = 60;
+        g._noHdrExt = (n % 2 == 0);
+        g._fdx = (n % 2 == 1);
+        g._maxTxSecs = 120;
+        g._ept = n;
+        g._anonymousAlias = (n % 2 == 0);
+        return g;
+    }
+
+    private static DatabaseMission fullMission() {
+        DatabaseMission m = new DatabaseMission();
+        m._id = "{6c2b7e4a-0c51-4d7e-9a2f-3b8e1d5c7a90}";
+        m._name = "Round Trip";
+        m._description = "Every field set";
+        m._modPin = "4321";
+        m._certStoreId = "{a0b1c2d3-e4f5-4607-8819-2a3b4c5d6e7f}";
+        m._useRp = true;
+        m._rpAddress = "rp.example.com";
+        m._rpPort = 7443;
+        m._rpProtocol = 1;
+        m._multicastFailoverPolicy = 2;
+        m._mcId = "{ead2d373-7bca-472c-8732-7e1c27a69b27}";
+        m._mcAddress = "239.42.42.1";
+        m._mcPort = 48999;
+        m._mcCryptoPassword = "03718654a5663427";
+        m._groups.add(group(1, true));
+        m._groups.add(group(2, false));
+        m._groups.add(group(3, true));
+        return m;
+    }
+
+    private static String qrString(byte[] binaryMission) {
+        return Constants.QR_CODE_HEADER + Constants.QR_BINARY_VERSION
+                + new String(Base91.encode(binaryMission), Charset.forName("UTF-8"));
+    }
+
+    @Test
+    public void fullMission_survivesEncodeParseAndLoad() throws Exception {
+        ActiveConfiguration ac = ActiveConfiguration.loadFromDatabaseMission(fullMission());
+        assertNotNull(ac);
+
+        byte[] binary = ActiveConfiguration.makeLosslessBinaryMission(ac);
+        assertNotNull(binary);
+
+        ActiveConfiguration back = ActiveConfiguration.parseEncryptedQrCodeString(qrString(binary), null);
+        assertNotNull(back);
+
+        assertEquals(ac.getMissionId(), back.getMissionId());
+        assertEquals(ac.getMissionName(), back.getMissionName());
+        assertEquals(ac.getMissionDescription(), back.getMissionDescription());
+        assertEquals(ac.getMissionModPin(), back.getMissionModPin());
+        assertEquals(ac.getMissionCertStoreId(), back.getMissionCertStoreId());
+        assertEquals(ac.getUseRp(), back.getUseRp());
+        assertEquals(ac.getRpAddress(), back.getRpAddress());
+        assertEquals(ac.getRpPort(), back.getRpPort());
+        assertEquals(ac.getRpProtocol(), back.getRpProtocol());
+        assertEquals(ac.getMulticastFailoverPolicy(), back.getMulticastFailoverPolicy());
+        assertEquals(ac.getMissionGroups().size(), back.getMissionGroups().size());
+
+        for (int x = 0; x < ac.getMissionGroups().size(); x++) {
+            GroupDescriptor a = ac.getMissionGroups().get(x);
+            GroupDescriptor b = back.getMissionGroups().get(x);
+            assertEquals(a.id, b.id);
+            assertEquals(a.name, b.name);
+            assertEquals(a.type, b.type);
+            assertEquals(a.ept, b.ept);
+            assertEquals(a.anonymousAlias, b.anonymousAlias);
+            assertTrue(Utils.jsonEquals(new JSONObject(a.jsonConfiguration), new JSONObject(b.jsonConfiguration)));
+        }
+
+        assertTrue(Utils.jsonEquals(ac.makeTemplate(), back.makeTemplate()));
+    }
+
+    @Test
+    public void unknownGroupElement_fallsBackToLegacy() throws Exception {
+        ActiveConfiguration ac = ActiveConfiguration.loadFromDatabaseMission(fullMission());
+        GroupDescriptor gd = ac.getMissionGroups().get(ac.getMissionGroups().size() - 1);
+
+        JSONObject jo = new JSONObject(gd.jsonConfiguration);
+        jo.put("timeline", new JSONObject().put("enabled", true));
+        gd.jsonConfiguration = jo.toString();
+
+        assertNull(ActiveConfiguration.makeLosslessBinaryMission(ac));
+    }
+
+    @Test
+    public void rawGroup_fallsBackToLegacy() throws Exception {
+        ActiveConfiguration ac = ActiveConfiguration.loadFromDatabaseMission(fullMission());
+
+        GroupDescriptor raw = new GroupDescriptor();
+        raw.id = "{11111111-2222-3333-4444-555555555555}";
+        raw.name = "Raw";
+        raw.type = GroupDescriptor.Type.gtRaw;
+        raw.jsonConfiguration = new JSONObject()
+                .put("id", raw.id)
+                .put("name", raw.name)
+                .put("type", GroupDescriptor.Type.gtRaw.ordinal())
+                .toString();
+        ac.getMissionGroups().add(raw);
+
+        assertNull(ActiveConfiguration.makeLosslessBinaryMission(ac));
+    }
+}
@@ -0,0 +1,138 @@
+package com.rallytac.engageandroid;
+
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.rallytac.engage.engine.Engine;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+// Compares the bytes allocated per rediscovery event by the JSONObject-based deserialize() +
+// updateFromPresenceDescriptor() path against the streaming PresenceJsonParser path.
+@RunWith(AndroidJUnit4.class)
+public class PresenceParsingAllocationTest {
+    private static final String TAG = "PresenceParsingAlloc";
+    private static final int WARMUP = 500;
+    private static final int ITERATIONS = 5000;
+
+    private static final String PD_JSON = buildJson();
+
+    private static String q(String s) {
+        return "\"" + s + "\"";
+    }
+
+    private static String buildJson() {
+        return "{"
+                + q(Engine.JsonFields.PresenceDescriptor.self) + ":false,"
+                + q(Engine.JsonFields.PresenceDescriptor.comment) + ":\"\","
+                + q(Engine.JsonFields.PresenceDescriptor.custom) + ":\"\","
+                + q(Engine.JsonFields.Identity.objectName) + ":{"
+                    + q(Engine.JsonFields.Identity.nodeId) + ":\"{5c2f6ad9-9a0a-4bde-8a8e-0e2a55d1c001}\","
+                    + q(Engine.JsonFields.Identity.userId) + ":\"alpha@example.com\","
+                    + q(Engine.JsonFields.Identity.displayName) + ":\"Alpha 1\","
+                    + q(Engine.JsonFields.Identity.type) + ":1,"
+                    + q(Engine.JsonFields.Identity.format) + ":\"\"},"
+                + q(Engine.JsonFields.Location.objectName) + ":{"
+                    + q(Engine.JsonFields.Location.latitude) + ":38.897957,"
+                    + q(Engine.JsonFields.Location.longitude) + ":-77.036560,"
+                    + q(Engine.JsonFields.Location.altitude) + ":15.2,"
+                    + q(Engine.JsonFields.Location.speed) + ":0.5,"
+                    + q(Engine.JsonFields.Location.direction) + ":270.0},"
+                + q(Engine.JsonFields.Power.objectName) + ":{"
+                    + q(Engine.JsonFields.Power.source) + ":2,"
+                    + q(Engine.JsonFields.Power.state) + ":1,"
+                    + q(Engine.JsonFields.Power.level) + ":87},"
+                + q(Engine.JsonFields.Connectivity.objectName) + ":{"
+                    + q(Engine.JsonFields.Connectivity.type) + ":2,"
+                    + q(Engine.JsonFields.Connectivity.strength) + ":-67,"
+                    + q(Engine.JsonFields.Connectivity.rating) + ":4},"
+                + q(Engine.JsonFields.PresenceDescriptor.GroupItem.arrayName) + ":["
+                    + groupItem("{G1}", 1) + ","
+                    + groupItem("{G2}", 3) + ","
+                    + groupItem("{G3}", 1) + "]"
+                + "}";
+    }
+
+    private static String groupItem(String id, int status) {
+        return "{" + q(Engine.JsonFields.PresenceDescriptor.GroupItem.id) + ":" + q(id) + ","
+                + q(Engine.JsonFields.PresenceDescriptor.GroupItem.status) + ":" + status + "}";
+    }
+
+    @SuppressWarnings("deprecation")
+    private static long allocatedBytes(Runnable r, int count) {
+        Debug.resetThreadAllocSize();
+        Debug.startAllocCounting();
+        for (int x = 0; x < count; x++) {
+            r.run();
+        }
+        Debug.stopAllocCounting();
+        return Debug.getThreadAllocSize();
+    }
+
+    @Test
+    public void streamingParserAllocatesLessPerUnchangedRediscovery() {
+        final PresenceDescriptor legacyExisting = new PresenceDescriptor();
+        assertTrue(legacyExisting.deserialize(PD_JSON));
+
+        final Runnable legacy = new Runnable() {
+            @Override
+            public void run() {
+                PresenceDescriptor discovered = new PresenceDescriptor();
+                discovered.deserialize(PD_JSON);
+                legacyExisting.updateFromPresenceDescriptor(discovered);
+            }
+        };
+
+        final PresenceJsonParser parser = new PresenceJsonParser();
+        final PresenceDescriptor streamingExisting = new PresenceDescriptor();
+        assertTrue(parser.parse(PD_JSON));
+        assertNotEquals(PresenceJsonParser.APPLY_FAILED, parser.applyTo(streamingExisting));
+
+        final Runnable streaming = new Runnable() {
+            @Override
+            public void run() {
+                parser.parse(PD_JSON);
+                assertEquals(PresenceJsonParser.CHANGED_NONE, parser.applyTo(streamingExisting));
+            }
+        };
+
+        allocatedBytes(legacy, WARMUP);
+        allocatedBytes(streaming, WARMUP);
+
+        long legacyBytes = allocatedBytes(legacy, ITERATIONS);
+        long streamingBytes = allocatedBytes(streaming, ITERATIONS);
+
+        Log.i(TAG, "bytes/event: deserialize=" + (legacyBytes / ITERATIONS)
+                + ", streaming=" + (streamingBytes / ITERATIONS));
+
+        assertTrue(streamingBytes < legacyBytes);
+    }
+
+    @Test
+    public void streamingParserMatchesDeserialize() {
+        PresenceDescriptor legacy = new PresenceDescriptor();
+        assertTrue(legacy.deserialize(PD_JSON));
+
+        PresenceJsonParser parser = new PresenceJsonParser();
+        PresenceDescriptor streaming = new PresenceDescriptor();
+        assertTrue(parser.parse(PD_JSON));
+        assertNotEquals(PresenceJsonParser.APPLY_FAILED, parser.applyTo(streaming));
+
+        assertEquals(legacy.nodeId, streaming.nodeId);
+        assertEquals(legacy.userId, streaming.userId);
+        assertEquals(legacy.displayName, streaming.displayName);
+        assertEquals(legacy.type, streaming.type);
+        assertEquals(legacy.location.getLatitude(), streaming.location.getLatitude(), 0.0);
+        assertEquals(legacy.location.getLongitude(), streaming.location.getLongitude(), 0.0);
+        assertEquals(legacy.location.getBearing(), streaming.location.getBearing(), 0.0f);
+        assertEquals(legacy.power.level, streaming.power.level);
+        assertEquals(legacy.connectivity.strength, streaming.connectivity.strength);
+        assertEquals(legacy.groupMembership.keySet(), streaming.groupMembership.keySet());
+        assertEquals(legacy.groupMembership.get("{G2}")._statusFlags, streaming.groupMembership.get("{G2}")._statusFlags);
+    }
+}
@@ -14,7 +14,9 @@ import com.rallytac.engage.engine.Engine;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 
 public class ActiveConfiguration
@@ -208,6 +210,55 @@ public class ActiveConfiguration
         return rc;
     }
 
+    // Only touches the groups named in the diff rather than walking every mission group
+    public ArrayList<GroupDescriptor> applyPresenceDiff(String nodeId, PresenceStore.Diff diff)
+    {
+        ArrayList<GroupDescriptor> rc = new ArrayList<>();
+
+        if(diff == null || !diff.hasMembershipChanges())
+        {
+            return rc;
+        }
+
+        HashMap<String, GroupMembershipTracker> membership = (diff.pd != null ? diff.pd.groupMembership : null);
+
+        if(membership != null)
+        {
+            for(String groupId : diff.joinedGroups)
+            {
+                addOrUpdatePresenceMember(groupId, membership.get(groupId), rc);
+            }
+
+            for(String groupId : diff.updatedGroups)
+            {
+                addOrUpdatePresenceMember(groupId, membership.get(groupId), rc);
+            }
+        }
+
+        for(String groupId : diff.leftGroups)
+        {
+            GroupDescriptor gd = getGroupDescriptor(groupId);
+            if(gd != null && gd.removeMember(nodeId))
+            {
+                rc.add(gd);
+            }
+        }
+
+        return rc;
+    }
+
+    private void addOrUpdatePresenceMember(String groupId, GroupMembershipTracker gmt, ArrayList<GroupDescriptor> changed)
+    {
+        if(gmt != null)
+        {
+            GroupDescriptor gd = getGroupDescriptor(groupId);
+            if(gd != null && gd.addOrUpdateMember(gmt))
+            {
+                changed.add(gd);
+            }
+        }
+    }
+
     public int getPriorityTxLevel()
     {
         return _priorityTxLevel;
@@ -593,6 +644,12 @@ public class ActiveConfiguration
         return _missionMcFailoverPolicy;
     }
 
+    // As it goes into the template
+    public int getMulticastFailoverPolicy()
+    {
+        return _multicastFailoverPolicy;
+    }
+
     public String getMissionCertStoreId()
     {
         return _missionCertStoreId;
@@ -1534,30 +1591,12 @@ public class ActiveConfiguration
 
     public static void deleteMissionById(String id)
     {
-        MissionDatabase database = MissionDatabase.load(Globals.getSharedPreferences(), Constants.MISSION_DATABASE_NAME);
-        if(database != null)
-        {
-            DatabaseMission dbm = database.getMissionById(id);
-            if(dbm != null)
-            {
-                database.deleteMissionById(id);
-                database.save(Globals.getSharedPreferences(), Constants.MISSION_DATABASE_NAME);
-            }
-        }
+        MissionDatabase.getInstance().deleteMissionById(id);
     }
 
     public static boolean doesMissionByIdExistInDatabase(String id)
     {
-        boolean rc = false;
-
-        MissionDatabase database = MissionDatabase.load(Globals.getSharedPreferences(), Constants.MISSION_DATABASE_NAME);
-        if(database != null)
-        {
-            DatabaseMission dbm = database.getMissionById(id);
-            rc = (dbm != null);
-        }
-
-        return rc;
+        return MissionDatabase.getInstance().doesMissionExist(id);
     }
 
     public static boolean doesMissionExistInDatabase(String json)
@@ -1567,12 +1606,7 @@ public class ActiveConfiguration
         ActiveConfiguration ac = new ActiveConfiguration();
         if (ac.parseTemplate(json))
         {
-            MissionDatabase database = MissionDatabase.load(Globals.getSharedPreferences(), Constants.MISSION_DATABASE_NAME);
-            if(database != null)
-            {
-                DatabaseMission dbm = database.getMissionById(ac.getMissionId());
-                rc = (dbm != null);
-            }
+            rc = MissionDatabase.getInstance().doesMissionExist(ac.getMissionId());
         }
 
         return rc;
@@ -1580,17 +1614,7 @@ public class ActiveConfiguration
 
     public static String getMissionNameForId(String id)
     {
-        MissionDatabase database = MissionDatabase.load(Globals.getSharedPreferences(), Constants.MISSION_DATABASE_NAME);
-        if(database != null)
-        {
-            DatabaseMission dbm = database.getMissionById(id);
-            if(dbm != null)
-            {
-                return dbm.getName();
-            }
-        }
-
-        return null;
+        return MissionDatabase.getInstance().getMissionName(id);
     }
 
     public static boolean installMissionJson(Context ctx, String json, boolean allowOverwrite)
@@ -1601,16 +1625,14 @@ public class ActiveConfiguration
         if(ac.parseTemplate(json))
         {
             // Open the mission database
-            MissionDatabase database = MissionDatabase.load(Globals.getSharedPreferences(), Constants.MISSION_DATABASE_NAME);
+            MissionDatabase database = MissionDatabase.getInstance();
             if(database != null)
             {
                 // Find the mission.
-                DatabaseMission dbm = database.getMissionById(ac.getMissionId());
-                if(allowOverwrite || dbm == null)
+                if(allowOverwrite || !database.doesMissionExist(ac.getMissionId()))
                 {
                     if( database.addOrUpdateMissionFromActiveConfiguration(ac) )
                     {
-                        database.save(Globals.getSharedPreferences(), Constants.MISSION_DATABASE_NAME);
                         rc = true;
                         if(ctx != null)
                         {
@@ -1659,7 +1681,7 @@ public class ActiveConfiguration
         }
 
         // Now we have a string with is Base91 encoded, we need to decode that
-        byte[] base91DecodedBytes = Base91.decode(encryptedString.getBytes(Utils.getEngageCharSet()));
+        byte[] base91DecodedBytes = Utils.base91Decode(encryptedString);
         if (base91DecodedBytes == null)
         {
             throw new SimpleMessageException(Globals.getEngageApplication().getString(R.string.qr_scan_decode_failed));
@@ -1717,30 +1739,80 @@ public class ActiveConfiguration
         return ac;
     }
 
-    private static ActiveConfiguration parseNewQrCode(String str, String pwd) throws Exception
+    // Offset of the binary (version 2) QR code header in the string or -1 if it isn't one.  The
+    // header is either right at the start or follows a deflection URL.
+    private static int findBinaryQrCodeHeader(String str)
     {
-        return null;
-        /* TODO: parseNewQrCode
-        String workingStr = str;
+        String hdr = (Constants.QR_CODE_HEADER + Constants.QR_BINARY_VERSION);
+        int ofs = str.indexOf(hdr);
 
-        // Strip off the header
-        workingStr = workingStr.substring(Constants.QR_CODE_HEADER.length() + Constants.QR_VERSION.length());
+        if(ofs == 0)
+        {
+            return 0;
+        }
+        else if(ofs > 0 && str.substring(0, ofs).endsWith(Constants.QR_DEFLECTION_URL_SEP))
+        {
+            return ofs;
+        }
 
-        // The rest is a byte array, put our chars into it
-        byte[] ba = workingStr.get
+        return -1;
+    }
 
-        // Look for the "/??" to see if there's a deflection URL
-        int endOfDeflection = encryptedString.indexOf("/??");
+    public static boolean isBinaryQrCodeString(String str)
+    {
+        return (str != null && findBinaryQrCodeHeader(str) >= 0);
+    }
 
-        // If it's there, strip it off
-        if (endOfDeflection > 0)
+    // The mission in the binary (version 2) QR code form, or null if that form can't carry all of
+    // it - groups other than audio and presence, group elements a DatabaseGroup doesn't have and so
+    // on.  The caller then shares it in the legacy form which carries the template as-is.
+    public static byte[] makeLosslessBinaryMission(ActiveConfiguration ac)
+    {
+        try
+        {
+            JSONObject original = ac.makeTemplate();
+            DatabaseMission mission = MissionDatabase.makeDatabaseMission(ac);
+            if(original == null || mission == null)
+            {
+                return null;
+            }
+
+            byte[] encoded = MissionCodec.encode(mission);
+            if(encoded == null)
+            {
+                return null;
+            }
+
+            ActiveConfiguration back = loadFromDatabaseMission(MissionCodec.decode(encoded));
+            JSONObject roundTripped = (back == null ? null : back.makeTemplate());
+            if(roundTripped == null || !Utils.jsonEquals(original, roundTripped))
+            {
+                Globals.getLogger().i(TAG, "mission " + ac.getMissionId() + " does not survive the binary QR code form");//NON-NLS
+                return null;
+            }
+
+            return encoded;
+        }
+        catch (Exception e)
         {
-            encryptedString = encryptedString.substring(endOfDeflection + 3);
+            e.printStackTrace();
+            return null;
         }
+    }
 
-        // Now we have a string with is Base91 encoded, we need to decode that
-        byte[] base91DecodedBytes = Base91.decode(encryptedString.getBytes(Utils.getEngageCharSet()));
-        if (base91DecodedBytes == null)
+    private static ActiveConfiguration parseNewQrCode(String str, String pwd) throws Exception
+    {
+        int ofs = findBinaryQrCodeHeader(str);
+        if(ofs < 0)
+        {
+            throw new SimpleMessageException(Globals.getEngageApplication().getString(R.string.qr_scn_invalid_version));
+        }
+
+        // Everything after the header and version is Base91
+        String encodedString = str.substring(ofs + Constants.QR_CODE_HEADER.length() + Constants.QR_BINARY_VERSION.length());
+
+        byte[] base91DecodedBytes = Utils.base91Decode(encodedString);
+        if (base91DecodedBytes == null || base91DecodedBytes.length == 0)
         {
             throw new SimpleMessageException(Globals.getEngageApplication().getString(R.string.qr_scan_decode_failed));
         }
@@ -1757,50 +1829,40 @@ public class ActiveConfiguration
             }
         }
 
-        // Next, we decompress the data
-        byte[] decompressed = Utils.inflate(base91DecodedBytes);
-        if (decompressed == null)
+        // What's left is the binary mission - that goes straight into a DatabaseMission
+        DatabaseMission mission;
+
+        try
         {
-            throw new SimpleMessageException(Globals.getEngageApplication().getString(R.string.qr_scan_decompress_failed));
+            mission = MissionCodec.decode(ByteBuffer.wrap(base91DecodedBytes));
         }
-
-        // Now we have a string which should have a valid header
-        String qrCodeDataString = new String(decompressed, Utils.getEngageCharSet());
-
-        // Make sure it has our header
-        if (!qrCodeDataString.startsWith(Constants.QR_CODE_HEADER))
+        catch (Exception e)
         {
-            throw new SimpleMessageException(Globals.getEngageApplication().getString(R.string.qr_scan_invalid));
+            Globals.getLogger().e(TAG, "cannot decode binary mission: " + e.getMessage());//NON-NLS
+            throw new SimpleMessageException(Globals.getEngageApplication().getString(R.string.qr_cannot_parse));
         }
 
-        // Strip the first part of the header
-        qrCodeDataString = qrCodeDataString.substring(Constants.QR_CODE_HEADER.length());
-
-        // Now, check the version - its "nnn"
-        int checkVersion = Integer.parseInt(Constants.QR_VERSION);
-        int qrVersion = Integer.parseInt(qrCodeDataString.substring(0, 3));
-        if (qrVersion != checkVersion)
+        ActiveConfiguration ac = loadFromDatabaseMission(mission);
+        if (ac == null)
         {
-            throw new SimpleMessageException(Globals.getEngageApplication().getString(R.string.qr_scn_invalid_version));
+            throw new SimpleMessageException(Globals.getEngageApplication().getString(R.string.qr_cannot_parse));
         }
 
-        // Strip the version
-        qrCodeDataString = qrCodeDataString.substring(3);
-
-        // Finally, we have our JSON data as a string, create that object and handle it
-        ActiveConfiguration ac = new ActiveConfiguration();
-        if (!ac.parseTemplate(qrCodeDataString))
+        // Whoever activates this will want the template
+        JSONObject template = ac.makeTemplate();
+        if (template == null)
         {
             throw new SimpleMessageException(Globals.getEngageApplication().getString(R.string.qr_cannot_parse));
         }
 
+        ac._inputJson = template.toString();
+
         return ac;
-        */
     }
 
     public static ActiveConfiguration parseEncryptedQrCodeString(String str, String pwd) throws Exception
     {
-        if(str.startsWith(Constants.QR_CODE_HEADER))
+        if(isBinaryQrCodeString(str))
         {
             return parseNewQrCode(str, pwd);
         }
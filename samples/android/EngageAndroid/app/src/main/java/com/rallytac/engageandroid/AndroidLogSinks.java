@@ -0,0 +1,134 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import android.util.Log;
+
+import com.rallytac.engage.engine.Engine;
+
+// The AsyncLogger sinks that need Android or the engine
+public class AndroidLogSinks
+{
+    public static class Logcat implements AsyncLogger.ISink
+    {
+        private final StringBuilder _sb = new StringBuilder(256);
+
+        @Override
+        public void write(AsyncLogger.Record rec)
+        {
+            _sb.setLength(0);
+            _sb.append('[').append(rec.uptimeMs).append("] ").append(rec.getMessage());//NON-NLS
+            String msg = _sb.toString();
+
+            switch(rec.level)
+            {
+                case AsyncLogger.LEVEL_DEBUG:
+                    Log.d(rec.tag, msg);
+                    break;
+
+                case AsyncLogger.LEVEL_INFO:
+                    Log.i(rec.tag, msg);
+                    break;
+
+                case AsyncLogger.LEVEL_WARNING:
+                    Log.w(rec.tag, msg);
+                    break;
+
+                case AsyncLogger.LEVEL_ERROR:
+                    Log.e(rec.tag, msg);
+                    break;
+
+                default:
+                    Log.wtf(rec.tag, msg);
+                    break;
+            }
+        }
+
+        @Override
+        public void flush()
+        {
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+
+    // Hands our log messages to the engine so that they end up in its log too
+    public static class Engage implements AsyncLogger.ISink
+    {
+        private volatile boolean _enabled = false;
+        private final StringBuilder _sb = new StringBuilder(256);
+
+        public void setEnabled(boolean enabled)
+        {
+            _enabled = enabled;
+        }
+
+        public boolean isEnabled()
+        {
+            return _enabled;
+        }
+
+        @Override
+        public void write(AsyncLogger.Record rec)
+        {
+            if(!_enabled)
+            {
+                return;
+            }
+
+            EngageApplication app = Globals.getEngageApplication();
+            if(app == null)
+            {
+                return;
+            }
+
+            Engine engine = app.getEngine();
+            if(engine == null)
+            {
+                return;
+            }
+
+            _sb.setLength(0);
+            _sb.append('[').append(rec.uptimeMs).append("] ").append(rec.getMessage());//NON-NLS
+
+            engine.engageLogMsg(toEngineLevel(rec.level).toInt(), rec.tag, _sb.toString());
+        }
+
+        @Override
+        public void flush()
+        {
+        }
+
+        @Override
+        public void close()
+        {
+        }
+
+        private static Engine.LoggingLevel toEngineLevel(int level)
+        {
+            switch(level)
+            {
+                case AsyncLogger.LEVEL_DEBUG:
+                    return Engine.LoggingLevel.debug;
+
+                case AsyncLogger.LEVEL_INFO:
+                    return Engine.LoggingLevel.information;
+
+                case AsyncLogger.LEVEL_WARNING:
+                    return Engine.LoggingLevel.warning;
+
+                case AsyncLogger.LEVEL_ERROR:
+                    return Engine.LoggingLevel.error;
+
+                default:
+                    return Engine.LoggingLevel.fatal;
+            }
+        }
+    }
+}
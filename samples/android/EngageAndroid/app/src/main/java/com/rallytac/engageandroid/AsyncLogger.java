@@ -0,0 +1,661 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+// A logger that does as little as possible on the caller's thread.  Messages below the current level
+// are thrown away before anything is built from them; the rest go into a fixed ring of records that
+// was allocated up front and a background thread takes them from there to the sinks - logcat, the
+// engine, a file and so on.  Callers that pass a format and arguments only pay for the formatting if
+// (and when) the record is actually written.  Arguments that could change before then (anything
+// other than strings, boxed primitives and enums) are turned into strings when the record is taken.
+//
+// If the ring is full the record is dropped and counted rather than holding up the caller.
+public class AsyncLogger implements ILogger
+{
+    private static String TAG = AsyncLogger.class.getSimpleName();
+
+    public final static int LEVEL_DEBUG = 0;
+    public final static int LEVEL_INFO = 1;
+    public final static int LEVEL_WARNING = 2;
+    public final static int LEVEL_ERROR = 3;
+    public final static int LEVEL_FATAL = 4;
+
+    private final static String LEVEL_LETTERS = "DIWEF";//NON-NLS
+
+    public interface ISink
+    {
+        // Called on the logger's thread only
+        void write(Record rec);
+        void flush();
+        void close();
+    }
+
+    public static class Record
+    {
+        public int level;
+        public String tag;
+        public long timeMs;
+        public long uptimeMs;
+
+        private String _msg;
+        private String _format;
+        private Object[] _args;
+
+        public String getMessage()
+        {
+            if(_format != null)
+            {
+                try
+                {
+                    _msg = String.format(Locale.US, _format, _args);
+                }
+                catch (Exception e)
+                {
+                    _msg = _format;
+                }
+
+                _format = null;
+                _args = null;
+            }
+
+            return _msg;
+        }
+
+        public char getLevelLetter()
+        {
+            return LEVEL_LETTERS.charAt(Math.max(0, Math.min(level, LEVEL_FATAL)));
+        }
+
+        private void clear()
+        {
+            tag = null;
+            _msg = null;
+            _format = null;
+            _args = null;
+        }
+    }
+
+    public static class Stats
+    {
+        public long accepted;
+        public long filtered;
+        public long dropped;
+        public long written;
+        public long sinkErrors;
+        public int highWater;
+        public long[] droppedByLevel = new long[LEVEL_FATAL + 1];
+
+        Stats copy()
+        {
+            Stats rc = new Stats();
+
+            rc.accepted = accepted;
+            rc.filtered = filtered;
+            rc.dropped = dropped;
+            rc.written = written;
+            rc.sinkErrors = sinkErrors;
+            rc.highWater = highWater;
+            rc.droppedByLevel = droppedByLevel.clone();
+
+            return rc;
+        }
+    }
+
+    private final Object _lock = new Object();
+    private final Record[] _ring;
+    private int _tail = 0;
+    private int _count = 0;
+    private boolean _idle = true;
+    private boolean _running = true;
+    private volatile int _level = LEVEL_DEBUG;
+    private volatile ISink[] _sinks = new ISink[0];
+    private final Stats _stats = new Stats();
+    private final AtomicLong _filtered = new AtomicLong();
+    private final long _startedNanos = System.nanoTime();
+    private final Thread _thread;
+
+    public AsyncLogger(int capacity)
+    {
+        _ring = new Record[Math.max(1, capacity)];
+        for(int x = 0; x < _ring.length; x++)
+        {
+            _ring[x] = new Record();
+        }
+
+        _thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                drainLoop();
+            }
+        }, "AsyncLogger");//NON-NLS
+
+        _thread.setDaemon(true);
+        _thread.start();
+    }
+
+    // Override to timestamp records with something other than time since the logger was created
+    protected long getUptimeMs()
+    {
+        return ((System.nanoTime() - _startedNanos) / 1000000);
+    }
+
+    public void setLevel(int level)
+    {
+        _level = level;
+    }
+
+    public int getLevel()
+    {
+        return _level;
+    }
+
+    public boolean isLoggable(int level)
+    {
+        return (level >= _level);
+    }
+
+    public synchronized void addSink(ISink sink)
+    {
+        ISink[] sinks = new ISink[_sinks.length + 1];
+        System.arraycopy(_sinks, 0, sinks, 0, _sinks.length);
+        sinks[_sinks.length] = sink;
+        _sinks = sinks;
+    }
+
+    public synchronized void removeSink(ISink sink)
+    {
+        int index = -1;
+        for(int x = 0; x < _sinks.length; x++)
+        {
+            if(_sinks[x] == sink)
+            {
+                index = x;
+                break;
+            }
+        }
+
+        if(index >= 0)
+        {
+            ISink[] sinks = new ISink[_sinks.length - 1];
+            System.arraycopy(_sinks, 0, sinks, 0, index);
+            System.arraycopy(_sinks, index + 1, sinks, index, _sinks.length - index - 1);
+            _sinks = sinks;
+        }
+    }
+
+    public Stats getStats()
+    {
+        synchronized (_stats)
+        {
+            Stats rc = _stats.copy();
+            rc.filtered = _filtered.get();
+            return rc;
+        }
+    }
+
+    // Waits (up to a point) for everything logged so far to have gone to the sinks
+    public void flush(long timeoutMs)
+    {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+
+        synchronized (_lock)
+        {
+            while(_running && (_count > 0 || !_idle))
+            {
+                long left = deadline - System.currentTimeMillis();
+                if(left <= 0)
+                {
+                    break;
+                }
+
+                try
+                {
+                    _lock.wait(left);
+                }
+                catch (InterruptedException e)
+                {
+                    break;
+                }
+            }
+        }
+    }
+
+    public void stop()
+    {
+        flush(1000);
+
+        synchronized (_lock)
+        {
+            _running = false;
+            _lock.notifyAll();
+        }
+
+        try
+        {
+            _thread.join(1000);
+        }
+        catch (InterruptedException e)
+        {
+            e.printStackTrace();
+        }
+
+        for(ISink sink : _sinks)
+        {
+            sink.close();
+        }
+    }
+
+    @Override
+    public void d(String tag, String msg)
+    {
+        enqueue(LEVEL_DEBUG, tag, msg, null, null);
+    }
+
+    @Override
+    public void i(String tag, String msg)
+    {
+        enqueue(LEVEL_INFO, tag, msg, null, null);
+    }
+
+    @Override
+    public void w(String tag, String msg)
+    {
+        enqueue(LEVEL_WARNING, tag, msg, null, null);
+    }
+
+    @Override
+    public void e(String tag, String msg)
+    {
+        enqueue(LEVEL_ERROR, tag, msg, null, null);
+    }
+
+    @Override
+    public void f(String tag, String msg)
+    {
+        enqueue(LEVEL_FATAL, tag, msg, null, null);
+    }
+
+    @Override
+    public void d(String tag, String format, Object... args)
+    {
+        enqueue(LEVEL_DEBUG, tag, null, format, args);
+    }
+
+    @Override
+    public void i(String tag, String format, Object... args)
+    {
+        enqueue(LEVEL_INFO, tag, null, format, args);
+    }
+
+    @Override
+    public void w(String tag, String format, Object... args)
+    {
+        enqueue(LEVEL_WARNING, tag, null, format, args);
+    }
+
+    @Override
+    public void e(String tag, String format, Object... args)
+    {
+        enqueue(LEVEL_ERROR, tag, null, format, args);
+    }
+
+    @Override
+    public void f(String tag, String format, Object... args)
+    {
+        enqueue(LEVEL_FATAL, tag, null, format, args);
+    }
+
+    private void enqueue(int level, String tag, String msg, String format, Object[] args)
+    {
+        if(level < _level)
+        {
+            // Kept off the stats lock - this is the path that has to cost next to nothing
+            _filtered.incrementAndGet();
+            return;
+        }
+
+        long timeMs = System.currentTimeMillis();
+        long uptimeMs = getUptimeMs();
+        boolean dropped = false;
+        int depth;
+
+        synchronized (_lock)
+        {
+            if(_count == _ring.length || !_running)
+            {
+                dropped = true;
+                depth = _count;
+            }
+            else
+            {
+                Record rec = _ring[(_tail + _count) % _ring.length];
+
+                rec.level = level;
+                rec.tag = tag;
+                rec.timeMs = timeMs;
+                rec.uptimeMs = uptimeMs;
+                rec._msg = msg;
+                rec._format = format;
+                rec._args = snapshotArgs(args);
+
+                _count++;
+                depth = _count;
+
+                if(_idle)
+                {
+                    _lock.notifyAll();
+                }
+            }
+        }
+
+        synchronized (_stats)
+        {
+            if(dropped)
+            {
+                _stats.dropped++;
+                _stats.droppedByLevel[Math.max(0, Math.min(level, LEVEL_FATAL))]++;
+            }
+            else
+            {
+                _stats.accepted++;
+                if(depth > _stats.highWater)
+                {
+                    _stats.highWater = depth;
+                }
+            }
+        }
+    }
+
+    // The caller is free to change (say) a JSONObject it passed us as soon as we return, so anything
+    // mutable is rendered now.  The caller's array is left alone.
+    private static Object[] snapshotArgs(Object[] args)
+    {
+        if(args == null)
+        {
+            return null;
+        }
+
+        Object[] rc = args;
+
+        for(int x = 0; x < args.length; x++)
+        {
+            Object arg = args[x];
+
+            if(arg == null
+                    || arg instanceof String
+                    || arg instanceof Number
+                    || arg instanceof Boolean
+                    || arg instanceof Character
+                    || arg instanceof Enum)
+            {
+                continue;
+            }
+
+            if(rc == args)
+            {
+                rc = args.clone();
+            }
+
+            try
+            {
+                rc[x] = String.valueOf(arg);
+            }
+            catch (Exception e)
+            {
+                rc[x] = arg.getClass().getSimpleName();
+            }
+        }
+
+        return rc;
+    }
+
+    private void drainLoop()
+    {
+        while(true)
+        {
+            int start;
+            int count;
+
+            synchronized (_lock)
+            {
+                while(_count == 0 && _running)
+                {
+                    _idle = true;
+                    _lock.notifyAll();
+
+                    try
+                    {
+                        _lock.wait();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return;
+                    }
+                }
+
+                if(_count == 0)
+                {
+                    return;
+                }
+
+                _idle = false;
+                start = _tail;
+                count = _count;
+            }
+
+            // The records we're working on still count as occupied so nobody will write over them
+            ISink[] sinks = _sinks;
+            long errors = 0;
+
+            for(int x = 0; x < count; x++)
+            {
+                Record rec = _ring[(start + x) % _ring.length];
+
+                for(ISink sink : sinks)
+                {
+                    try
+                    {
+                        sink.write(rec);
+                    }
+                    catch (Exception e)
+                    {
+                        errors++;
+                    }
+                }
+
+                rec.clear();
+            }
+
+            for(ISink sink : sinks)
+            {
+                try
+                {
+                    sink.flush();
+                }
+                catch (Exception e)
+                {
+                    errors++;
+                }
+            }
+
+            synchronized (_stats)
+            {
+                _stats.written += count;
+                _stats.sinkErrors += errors;
+            }
+
+            synchronized (_lock)
+            {
+                _tail = (start + count) % _ring.length;
+                _count -= count;
+            }
+        }
+    }
+
+    // Writes to a file that is rolled over to file.1, file.2 ... once it reaches a certain size.  Debug
+    // records stay out of the file unless asked for - they carry things like raw node and presence
+    // JSON that have no business sitting on the device.
+    public static class RotatingFileSink implements ISink
+    {
+        private final File _file;
+        private final long _maxBytes;
+        private final int _maxFiles;
+        private volatile int _minLevel = LEVEL_INFO;
+        private final SimpleDateFormat _dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);//NON-NLS
+        private final Date _date = new Date();
+        private final StringBuilder _sb = new StringBuilder(256);
+        private BufferedWriter _writer = null;
+        private long _size = 0;
+
+        public RotatingFileSink(File file, long maxBytes, int maxFiles)
+        {
+            _file = file;
+            _maxBytes = maxBytes;
+            _maxFiles = Math.max(1, maxFiles);
+        }
+
+        public File getFile()
+        {
+            return _file;
+        }
+
+        public void setMinLevel(int level)
+        {
+            _minLevel = level;
+        }
+
+        public int getMinLevel()
+        {
+            return _minLevel;
+        }
+
+        @Override
+        public void write(Record rec)
+        {
+            if(rec.level < _minLevel)
+            {
+                return;
+            }
+
+            try
+            {
+                if(_writer == null)
+                {
+                    open();
+                }
+
+                _date.setTime(rec.timeMs);
+                _sb.setLength(0);
+                _sb.append(_dateFormat.format(_date))
+                   .append(' ')
+                   .append(rec.getLevelLetter())
+                   .append('/')
+                   .append(rec.tag)
+                   .append(": [")//NON-NLS
+                   .append(rec.uptimeMs)
+                   .append("] ")//NON-NLS
+                   .append(rec.getMessage())
+                   .append('\n');
+
+                _writer.append(_sb);
+
+                // Close enough - exact for ASCII which is what nearly all of our logging is
+                _size += _sb.length();
+                if(_size >= _maxBytes)
+                {
+                    rotate();
+                }
+            }
+            catch (IOException e)
+            {
+                close();
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void flush()
+        {
+            if(_writer != null)
+            {
+                try
+                {
+                    _writer.flush();
+                }
+                catch (IOException e)
+                {
+                    close();
+                }
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            if(_writer != null)
+            {
+                try
+                {
+                    _writer.close();
+                }
+                catch (IOException e)
+                {
+                    e.printStackTrace();
+                }
+
+                _writer = null;
+            }
+        }
+
+        private void open() throws IOException
+        {
+            File dir = _file.getParentFile();
+            if(dir != null && !dir.exists())
+            {
+                dir.mkdirs();
+            }
+
+            _size = (_file.exists() ? _file.length() : 0);
+            _writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(_file, true), StandardCharsets.UTF_8), 8192);
+        }
+
+        private void rotate() throws IOException
+        {
+            close();
+
+            File oldest = new File(_file.getPath() + "." + _maxFiles);
+            if(oldest.exists())
+            {
+                oldest.delete();
+            }
+
+            for(int x = _maxFiles - 1; x >= 1; x--)
+            {
+                File from = new File(_file.getPath() + "." + x);
+                if(from.exists())
+                {
+                    from.renameTo(new File(_file.getPath() + "." + (x + 1)));
+                }
+            }
+
+            _file.renameTo(new File(_file.getPath() + ".1"));
+            open();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+// Re-blocks a stream of PCM arriving in arbitrary sized chunks into fixed-size frames.
+//
+// Not thread-safe.
+public class AudioFrameSlicer
+{
+    private static String TAG = AudioFrameSlicer.class.getSimpleName();
+
+    public interface IFrameSink
+    {
+        void onFrame(short[] frame, int samples);
+    }
+
+    private final short[] _frame;
+    private int _fill = 0;
+
+    public AudioFrameSlicer(int frameSamples)
+    {
+        _frame = new short[frameSamples];
+    }
+
+    public int getFrameSamples()
+    {
+        return _frame.length;
+    }
+
+    // Samples waiting for the rest of their frame
+    public int getBufferedSamples()
+    {
+        return _fill;
+    }
+
+    public void reset()
+    {
+        _fill = 0;
+    }
+
+    // Returns the number of complete frames handed to the sink
+    public int push(short[] src, int ofs, int len, IFrameSink sink)
+    {
+        int frames = 0;
+
+        while(len > 0)
+        {
+            int n = Math.min(len, _frame.length - _fill);
+            System.arraycopy(src, ofs, _frame, _fill, n);
+            _fill += n;
+            ofs += n;
+            len -= n;
+
+            if(_fill == _frame.length)
+            {
+                sink.onFrame(_frame, _fill);
+                _fill = 0;
+                frames++;
+            }
+        }
+
+        return frames;
+    }
+}
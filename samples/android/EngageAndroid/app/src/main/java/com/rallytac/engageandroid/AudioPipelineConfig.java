@@ -0,0 +1,114 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import android.media.MediaRecorder;
+
+import org.json.JSONObject;
+
+// How the application audio provider should set up capture and playout - built from the JSON
+// parameters the Engine hands to createAudioSubsystem().  Anything missing or out of range falls
+// back to the defaults (8kHz mono, 20ms frames).
+public class AudioPipelineConfig
+{
+    private static String TAG = AudioPipelineConfig.class.getSimpleName();
+
+    public final static String JSON_SAMPLE_RATE = "sampleRate";//NON-NLS
+    public final static String JSON_CHANNELS = "channels";//NON-NLS
+    public final static String JSON_FRAME_MS = "frameMs";//NON-NLS
+    public final static String JSON_BUFFER_MULTIPLIER = "bufferMultiplier";//NON-NLS
+    public final static String JSON_USE_PLATFORM_EFFECTS = "usePlatformEffects";//NON-NLS
+    public final static String JSON_HARDWARE_SAMPLE_RATE = "hardwareSampleRate";//NON-NLS
+    public final static String JSON_AUDIO_SOURCE = "audioSource";//NON-NLS
+
+    public final static int DEF_SAMPLE_RATE = 8000;
+    public final static int DEF_CHANNELS = 1;
+    public final static int DEF_BUFFER_MULTIPLIER = 1;
+    public final static int MAX_BUFFER_MULTIPLIER = 8;
+
+    // What the Engine wants to send and receive
+    public int sampleRate = DEF_SAMPLE_RATE;
+    public int channels = DEF_CHANNELS;
+    public int frameMs = Constants.DEF_ANDROID_AUDIO_FRAME_MS;
+
+    // How the hardware side is set up.  A hardware rate of 0 means "the Engine's rate" unless the
+    // native rate has been opted into, in which case it's whatever the device runs at.
+    public int hardwareSampleRate = 0;
+    public int bufferMultiplier = DEF_BUFFER_MULTIPLIER;
+    public boolean usePlatformEffects = true;
+    public int audioSource = MediaRecorder.AudioSource.MIC;
+
+    public static boolean isSupportedSampleRate(int rate)
+    {
+        return (rate == 8000 || rate == 16000 || rate == 48000);
+    }
+
+    public static AudioPipelineConfig fromJson(String jsonParams, int defaultFrameMs)
+    {
+        AudioPipelineConfig rc = new AudioPipelineConfig();
+        rc.frameMs = (defaultFrameMs <= 10 ? 10 : 20);
+
+        if(Utils.isEmptyString(jsonParams))
+        {
+            return rc;
+        }
+
+        try
+        {
+            JSONObject root = new JSONObject(jsonParams);
+
+            int i;
+
+            i = root.optInt(JSON_SAMPLE_RATE, DEF_SAMPLE_RATE);
+            if(isSupportedSampleRate(i))
+            {
+                rc.sampleRate = i;
+            }
+            else
+            {
+                Globals.getLogger().w(TAG, "unsupported sample rate " + i + ", using " + DEF_SAMPLE_RATE);//NON-NLS
+            }
+
+            i = root.optInt(JSON_CHANNELS, DEF_CHANNELS);
+            rc.channels = (i == 2 ? 2 : 1);
+
+            i = root.optInt(JSON_FRAME_MS, rc.frameMs);
+            rc.frameMs = (i <= 10 ? 10 : 20);
+
+            i = root.optInt(JSON_HARDWARE_SAMPLE_RATE, 0);
+            rc.hardwareSampleRate = (isSupportedSampleRate(i) ? i : 0);
+
+            i = root.optInt(JSON_BUFFER_MULTIPLIER, DEF_BUFFER_MULTIPLIER);
+            rc.bufferMultiplier = Math.max(1, Math.min(i, MAX_BUFFER_MULTIPLIER));
+
+            rc.usePlatformEffects = root.optBoolean(JSON_USE_PLATFORM_EFFECTS, true);
+            rc.audioSource = root.optInt(JSON_AUDIO_SOURCE, MediaRecorder.AudioSource.MIC);
+        }
+        catch (Exception e)
+        {
+            Globals.getLogger().w(TAG, "cannot parse audio parameters, using defaults: " + e.getMessage());//NON-NLS
+        }
+
+        return rc;
+    }
+
+    public int getFrameSamples(int rate)
+    {
+        return ((rate * frameMs) / 1000) * channels;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "sampleRate=" + sampleRate//NON-NLS
+                + ", channels=" + channels//NON-NLS
+                + ", frameMs=" + frameMs//NON-NLS
+                + ", hardwareSampleRate=" + hardwareSampleRate//NON-NLS
+                + ", bufferMultiplier=" + bufferMultiplier//NON-NLS
+                + ", usePlatformEffects=" + usePlatformEffects//NON-NLS
+                + ", audioSource=" + audioSource;//NON-NLS
+    }
+}
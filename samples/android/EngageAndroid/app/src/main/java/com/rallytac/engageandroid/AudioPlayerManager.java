@@ -21,8 +21,25 @@ public class AudioPlayerManager
         void onAudioPlayCompleted(int id, Object tag);
     }
 
+    // Decoded into memory at start so that they play without any setup delay
+    private final static int[] PRELOADED_TONES =
+            {
+                    R.raw.engage_keyup,
+                    R.raw.engage_incoming_rx,
+                    R.raw.engage_error,
+                    R.raw.engage_network_up,
+                    R.raw.engage_network_down,
+                    R.raw.engage_member_join,
+                    R.raw.engage_member_leave,
+                    R.raw.asset_discovered,
+                    R.raw.asset_undiscovered,
+                    R.raw.tx_on
+            };
+
     private Context _ctx;
     private HashMap<Integer, MediaPlayer> _cache = new HashMap<>();
+    private volatile ToneEngine _toneEngine = null;
+    private int _toneEngineGeneration = 0;
 
     AudioPlayerManager(Context ctx)
     {
@@ -31,13 +48,112 @@ public class AudioPlayerManager
 
     public void start()
     {
+        final int generation;
+
+        synchronized (this)
+        {
+            generation = ++_toneEngineGeneration;
+        }
+
+        // Decoding takes a little while so don't hold up whoever is starting us.  Until it's done
+        // we simply play through MediaPlayer as before.  It blocks on the codec so it gets a thread
+        // of its own rather than one of the scheduler's.
+        new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ToneEngine te = new ToneEngine(_ctx);
+                if(!te.start(PRELOADED_TONES))
+                {
+                    te.stop();
+                    return;
+                }
+
+                synchronized (AudioPlayerManager.this)
+                {
+                    // Only keep it if we haven't been stopped (or restarted) in the meantime
+                    if(generation == _toneEngineGeneration)
+                    {
+                        _toneEngine = te;
+                        te = null;
+                    }
+                }
+
+                if(te != null)
+                {
+                    te.stop();
+                }
+            }
+        }, "ToneEngineStart").start();//NON-NLS
     }
 
     public void stop()
     {
+        ToneEngine te;
+
+        synchronized (this)
+        {
+            _toneEngineGeneration++;
+            te = _toneEngine;
+            _toneEngine = null;
+        }
+
+        if(te != null)
+        {
+            te.stop();
+        }
+
         clear();
     }
 
+    // Cuts short a tone that's still playing - its completion still fires
+    public void stopResource(int id)
+    {
+        ToneEngine te = _toneEngine;
+        if(te != null)
+        {
+            te.stop(id);
+        }
+    }
+
+    public ToneMixer.LatencyStats getToneLatencyStats(int id)
+    {
+        ToneEngine te = _toneEngine;
+        return (te != null ? te.getLatencyStats(id) : null);
+    }
+
+    // One line per tone that has been played, for the developer diagnostics
+    public String getToneLatencyReport()
+    {
+        ToneEngine te = _toneEngine;
+        if(te == null)
+        {
+            return "tone engine not running";//NON-NLS
+        }
+
+        StringBuilder sb = new StringBuilder();
+
+        for(int id : PRELOADED_TONES)
+        {
+            ToneMixer.LatencyStats ls = te.getLatencyStats(id);
+            if(ls == null)
+            {
+                continue;
+            }
+
+            sb.append(String.format("%s: count=%d last=%dus min=%dus avg=%dus max=%dus\n",//NON-NLS
+                    _ctx.getResources().getResourceEntryName(id), ls.count, ls.lastUs, ls.minUs, ls.getAverageUs(), ls.maxUs));
+        }
+
+        if(sb.length() == 0)
+        {
+            sb.append("no tones played yet");//NON-NLS
+        }
+
+        return sb.toString();
+    }
+
     private float scaleVolume(int minIndex, int maxIndex, int index)
     {
         int MAX_VOLUME = ((maxIndex - minIndex) + 1);
@@ -95,6 +211,36 @@ public class AudioPlayerManager
 
         Globals.getLogger().d(TAG, "playResource: play starting id=" + id + ", left=" + leftVolume + ", right=" + rightVolume);//NON-NLS
 
+        // Preloaded tones go through the tone engine, anything else (or everything until the
+        // engine is up) through a MediaPlayer
+        ToneEngine te = _toneEngine;
+        if(te != null && te.hasTone(id))
+        {
+            ToneMixer.IToneListener listener = new ToneMixer.IToneListener()
+            {
+                @Override
+                public void onToneFinished(int toneId, Object toneTag, boolean interrupted)
+                {
+                    Globals.getLogger().d(TAG, "playResource: play complete id=" + toneId + ", interrupted=" + interrupted);//NON-NLS
+
+                    if(pcl != null)
+                    {
+                        pcl.onAudioPlayCompleted(toneId, tag);
+                    }
+
+                    if(onPlayComplete != null)
+                    {
+                        Globals.getEngageApplication().runOnUiThread(onPlayComplete);
+                    }
+                }
+            };
+
+            if(te.play(id, Math.max(leftVolume, rightVolume), false, listener, null))
+            {
+                return;
+            }
+        }
+
         final MediaPlayer p = getPlayer(id);
         if(p != null)
         {
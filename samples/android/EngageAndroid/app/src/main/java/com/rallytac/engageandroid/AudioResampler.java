@@ -0,0 +1,167 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+// Streaming sample-rate converter for interleaved 16-bit PCM.  Uses linear interpolation and,
+// when going down in rate, a moving-average pre-filter as a (cheap) anti-aliasing stage.  That's
+// plenty for voice between 8, 16 and 48 kHz.  State is carried between calls so that blocks of
+// any size can be fed in without clicks at the boundaries.
+//
+// Not thread-safe - use one per direction.
+public class AudioResampler
+{
+    private static String TAG = AudioResampler.class.getSimpleName();
+
+    private final int _inRate;
+    private final int _outRate;
+    private final int _channels;
+    private final double _step;
+
+    // Position of the next output sample, in input frames, relative to the start of the next
+    // input block.  -1 refers to the last frame of the previous block.
+    private double _pos = 0;
+    private final int[] _lastFrame;
+
+    // Moving-average pre-filter (only used when downsampling)
+    private final int _filterLen;
+    private final int[] _filterSum;
+    private final short[] _filterHistory;
+    private int _filterIdx = 0;
+
+    private int[] _scratch = new int[0];
+
+    public AudioResampler(int inRate, int outRate, int channels)
+    {
+        _inRate = inRate;
+        _outRate = outRate;
+        _channels = channels;
+        _step = ((double) inRate / (double) outRate);
+        _lastFrame = new int[channels];
+
+        _filterLen = (inRate > outRate ? (int) Math.round(_step) : 1);
+        _filterSum = new int[channels];
+        _filterHistory = new short[_filterLen * channels];
+    }
+
+    public boolean isPassthrough()
+    {
+        return (_inRate == _outRate);
+    }
+
+    public int getInRate()
+    {
+        return _inRate;
+    }
+
+    public int getOutRate()
+    {
+        return _outRate;
+    }
+
+    // The most samples process() can produce for the given number of input samples
+    public int getMaxOutputSamples(int inSamples)
+    {
+        int inFrames = (inSamples / _channels);
+        return ((int) Math.ceil(inFrames / _step) + 2) * _channels;
+    }
+
+    public void reset()
+    {
+        _pos = 0;
+        _filterIdx = 0;
+        for(int c = 0; c < _channels; c++)
+        {
+            _lastFrame[c] = 0;
+            _filterSum[c] = 0;
+        }
+        for(int x = 0; x < _filterHistory.length; x++)
+        {
+            _filterHistory[x] = 0;
+        }
+    }
+
+    // Returns the number of samples written to out which must have room for
+    // getMaxOutputSamples(inSamples) samples from outOfs
+    public int process(short[] in, int inOfs, int inSamples, short[] out, int outOfs)
+    {
+        if(isPassthrough())
+        {
+            System.arraycopy(in, inOfs, out, outOfs, inSamples);
+            return inSamples;
+        }
+
+        int frames = (inSamples / _channels);
+        if(frames == 0)
+        {
+            return 0;
+        }
+
+        int[] src = filter(in, inOfs, frames);
+        int written = 0;
+        double p = _pos;
+
+        // We need frame i and i + 1 so stop before the last one - it becomes "previous" next time
+        while(p < (frames - 1))
+        {
+            int i = (int) Math.floor(p);
+            double frac = (p - i);
+
+            for(int c = 0; c < _channels; c++)
+            {
+                int a = (i < 0 ? _lastFrame[c] : src[(i * _channels) + c]);
+                int b = src[((i + 1) * _channels) + c];
+                out[outOfs + written++] = (short) Math.round(a + ((b - a) * frac));
+            }
+
+            p += _step;
+        }
+
+        _pos = (p - frames);
+
+        for(int c = 0; c < _channels; c++)
+        {
+            _lastFrame[c] = src[((frames - 1) * _channels) + c];
+        }
+
+        return written;
+    }
+
+    private int[] filter(short[] in, int inOfs, int frames)
+    {
+        int samples = (frames * _channels);
+        if(_scratch.length < samples)
+        {
+            _scratch = new int[samples];
+        }
+
+        if(_filterLen <= 1)
+        {
+            for(int x = 0; x < samples; x++)
+            {
+                _scratch[x] = in[inOfs + x];
+            }
+        }
+        else
+        {
+            for(int f = 0; f < frames; f++)
+            {
+                for(int c = 0; c < _channels; c++)
+                {
+                    short s = in[inOfs + (f * _channels) + c];
+                    int h = (_filterIdx * _channels) + c;
+
+                    _filterSum[c] += (s - _filterHistory[h]);
+                    _filterHistory[h] = s;
+                    _scratch[(f * _channels) + c] = (_filterSum[c] / _filterLen);
+                }
+
+                _filterIdx = ((_filterIdx + 1) % _filterLen);
+            }
+        }
+
+        return _scratch;
+    }
+}
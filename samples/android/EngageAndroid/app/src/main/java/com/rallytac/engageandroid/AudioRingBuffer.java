@@ -0,0 +1,274 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// A preallocated, lock-free ring of 16-bit PCM samples for exactly one producer thread and one
+// consumer thread.  The consumer can wait for samples and is woken as soon as the producer writes
+// rather than polling on a timer.
+//
+// Positions only ever increase - the index into the buffer is (position & mask) - so "full" and
+// "empty" never look the same.
+public class AudioRingBuffer
+{
+    private static String TAG = AudioRingBuffer.class.getSimpleName();
+
+    // Gaps longer than this many frames are treated as the start of a new talk spurt rather than
+    // an irregular write or a consumer that ran dry too early
+    private final static int TALK_SPURT_GAP_FRAMES = 10;
+
+    public static class Stats
+    {
+        public long samplesWritten;
+        public long samplesRead;
+        public long samplesDropped;
+        public long overruns;
+        public long underruns;
+        public int highWaterMark;
+
+        // How irregularly the producer writes - on playout that's our own pump's cadence, not
+        // network arrival (the engine's jitter buffer sits in front of the pump)
+        public long writeJitterUs;
+        public long maxWriteJitterUs;
+    }
+
+    private final short[] _buffer;
+    private final int _mask;
+    private final int _frameSamples;
+    private final int _sampleRate;
+    private final long _frameIntervalNanos;
+
+    private final AtomicLong _writePos = new AtomicLong(0);
+    private final AtomicLong _readPos = new AtomicLong(0);
+    private volatile Thread _waitingReader = null;
+
+    // Producer-side state
+    private volatile long _samplesWritten = 0;
+    private volatile long _samplesDropped = 0;
+    private volatile long _overruns = 0;
+    private volatile int _highWaterMark = 0;
+    private long _lastWriteNanos = 0;
+    private long _lastWriteSamples = 0;
+    private double _writeJitterNanos = 0;
+    private volatile long _maxWriteJitterNanos = 0;
+
+    // Consumer-side state
+    private volatile long _samplesRead = 0;
+    private volatile long _underruns = 0;
+    private long _ranDryNanos = 0;
+
+    // The capacity is rounded up to a power of two
+    public AudioRingBuffer(int capacitySamples, int frameSamples, int sampleRate)
+    {
+        int capacity = Integer.highestOneBit(Math.max(capacitySamples, frameSamples * 2) - 1) << 1;
+
+        _buffer = new short[capacity];
+        _mask = capacity - 1;
+        _frameSamples = frameSamples;
+        _sampleRate = sampleRate;
+        _frameIntervalNanos = ((long) frameSamples * 1000000000L) / sampleRate;
+    }
+
+    public int getCapacity()
+    {
+        return _buffer.length;
+    }
+
+    public int getFrameSamples()
+    {
+        return _frameSamples;
+    }
+
+    public long getFrameIntervalNanos()
+    {
+        return _frameIntervalNanos;
+    }
+
+    public int available()
+    {
+        return (int) (_writePos.get() - _readPos.get());
+    }
+
+    public int free()
+    {
+        return _buffer.length - available();
+    }
+
+    // How much audio is sitting in the buffer right now
+    public long getBufferedNanos()
+    {
+        return ((long) available() * 1000000000L) / _sampleRate;
+    }
+
+    // Producer only.  Whatever doesn't fit is dropped (and counted as an overrun) - we never block
+    // the producer.
+    public int write(short[] src, int ofs, int len)
+    {
+        long w = _writePos.get();
+        int free = _buffer.length - (int) (w - _readPos.get());
+        int n = Math.min(len, free);
+
+        if(n < len)
+        {
+            _samplesDropped += (len - n);
+            _overruns++;
+        }
+
+        if(n > 0)
+        {
+            int start = (int) (w & _mask);
+            int first = Math.min(n, _buffer.length - start);
+            System.arraycopy(src, ofs, _buffer, start, first);
+            if(first < n)
+            {
+                System.arraycopy(src, ofs + first, _buffer, 0, n - first);
+            }
+
+            _writePos.set(w + n);
+            _samplesWritten += n;
+
+            int depth = (int) (w + n - _readPos.get());
+            if(depth > _highWaterMark)
+            {
+                _highWaterMark = depth;
+            }
+
+            trackArrival(n);
+
+            Thread waiter = _waitingReader;
+            if(waiter != null)
+            {
+                LockSupport.unpark(waiter);
+            }
+        }
+
+        return n;
+    }
+
+    // Consumer only
+    public int read(short[] dst, int ofs, int len)
+    {
+        long r = _readPos.get();
+        int n = Math.min(len, (int) (_writePos.get() - r));
+
+        if(n > 0)
+        {
+            int start = (int) (r & _mask);
+            int first = Math.min(n, _buffer.length - start);
+            System.arraycopy(_buffer, start, dst, ofs, first);
+            if(first < n)
+            {
+                System.arraycopy(_buffer, 0, dst, ofs + first, n - first);
+            }
+
+            _readPos.set(r + n);
+            _samplesRead += n;
+        }
+
+        return n;
+    }
+
+    // Consumer only.  Returns false if the samples did not show up in time.
+    public boolean awaitAvailable(int samples, long timeoutNanos) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + timeoutNanos;
+
+        while(available() < samples)
+        {
+            long remaining = deadline - System.nanoTime();
+            if(remaining <= 0)
+            {
+                return false;
+            }
+
+            // Publish ourselves before checking again so that a write in between can't be missed
+            _waitingReader = Thread.currentThread();
+            if(available() < samples)
+            {
+                LockSupport.parkNanos(this, remaining);
+            }
+            _waitingReader = null;
+
+            if(Thread.interrupted())
+            {
+                throw new InterruptedException();
+            }
+        }
+
+        return true;
+    }
+
+    // Consumer only - called when the consumer was playing and ran out of samples.  That's either
+    // the end of a transmission or an underrun; markResumed() tells which.
+    public void markRanDry()
+    {
+        _ranDryNanos = System.nanoTime();
+    }
+
+    // Consumer only - called when the consumer starts playing again.  Samples back within a talk
+    // spurt gap of running dry mean the stream never actually stopped and we count an underrun;
+    // anything later was just the end of a transmission.
+    public void markResumed()
+    {
+        if(_ranDryNanos != 0 && (System.nanoTime() - _ranDryNanos) < (_frameIntervalNanos * TALK_SPURT_GAP_FRAMES))
+        {
+            _underruns++;
+        }
+
+        _ranDryNanos = 0;
+    }
+
+    // Consumer only - discards whatever is buffered
+    public void drain()
+    {
+        _readPos.set(_writePos.get());
+    }
+
+    public Stats getStats()
+    {
+        Stats rc = new Stats();
+
+        rc.samplesWritten = _samplesWritten;
+        rc.samplesRead = _samplesRead;
+        rc.samplesDropped = _samplesDropped;
+        rc.overruns = _overruns;
+        rc.underruns = _underruns;
+        rc.highWaterMark = _highWaterMark;
+        rc.writeJitterUs = (long) (_writeJitterNanos / 1000.0);
+        rc.maxWriteJitterUs = (_maxWriteJitterNanos / 1000);
+
+        return rc;
+    }
+
+    // Write jitter along the lines of RFC 3550's interarrival jitter - how far apart writes are
+    // compared to how far apart they should be given the number of samples in the previous write
+    private void trackArrival(int samples)
+    {
+        long now = System.nanoTime();
+
+        if(_lastWriteNanos != 0)
+        {
+            long actual = (now - _lastWriteNanos);
+            long expected = (_lastWriteSamples * 1000000000L) / _sampleRate;
+
+            if(actual < (_frameIntervalNanos * TALK_SPURT_GAP_FRAMES))
+            {
+                long d = Math.abs(actual - expected);
+                _writeJitterNanos += ((d - _writeJitterNanos) / 16.0);
+
+                if(d > _maxWriteJitterNanos)
+                {
+                    _maxWriteJitterNanos = d;
+                }
+            }
+        }
+
+        _lastWriteNanos = now;
+        _lastWriteSamples = samples;
+    }
+}
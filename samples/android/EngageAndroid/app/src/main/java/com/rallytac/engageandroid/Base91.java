@@ -1,6 +1,12 @@
 package com.rallytac.engageandroid;
 
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * basE91 encoding/decoding routines
@@ -99,12 +105,12 @@ class Base91
         ByteArrayOutputStream output = new ByteArrayOutputStream(estimatedSize);
 
         for (int i = 0; i < data.length; ++i) {
-            if (DECODING_TABLE[data[i]] == -1)
+            if (DECODING_TABLE[data[i] & 255] == -1)
                 continue;
             if (dv == -1)
-                dv = DECODING_TABLE[data[i]];
+                dv = DECODING_TABLE[data[i] & 255];
             else {
-                dv += DECODING_TABLE[data[i]] * BASE;
+                dv += DECODING_TABLE[data[i] & 255] * BASE;
                 dbq |= dv << dn;
                 dn += (dv & 8191) > 88 ? 13 : 14;
                 do {
@@ -122,4 +128,303 @@ class Base91
 
         return output.toByteArray();
     }
+
+    // Streaming versions of the above.  An Encoder/Decoder carries the bit queue across calls so
+    // data can be fed to it in pieces of any size, straight from and to caller-supplied arrays or
+    // ByteBuffers; the output is identical to encode()/decode() on the whole thing.  Instances
+    // are cheap, not thread-safe and can be reset() and reused.
+
+    private static final BufferPool STREAM_BUFFERS = new BufferPool(4096, 8);
+
+    // Upper bound on what encoding len bytes can produce, including finish()
+    public static int maxEncodedLength(int len) {
+        return ((len * 16) / 13) + 4;
+    }
+
+    // Upper bound on what decoding len characters can produce, including finish()
+    public static int maxDecodedLength(int len) {
+        return len + 2;
+    }
+
+    public static final class Encoder {
+        private int ebq = 0;
+        private int en = 0;
+        private final byte[] tail = new byte[2];
+
+        public void reset() {
+            ebq = 0;
+            en = 0;
+        }
+
+        // Returns the number of bytes written to out which must have room for maxEncodedLength(len)
+        public int update(byte[] in, int ofs, int len, byte[] out, int outOfs) {
+            int pos = outOfs;
+            int end = ofs + len;
+
+            for (int i = ofs; i < end; ++i) {
+                ebq |= (in[i] & 255) << en;
+                en += 8;
+                if (en > 13) {
+                    int ev = ebq & 8191;
+
+                    if (ev > 88) {
+                        ebq >>= 13;
+                        en -= 13;
+                    } else {
+                        ev = ebq & 16383;
+                        ebq >>= 14;
+                        en -= 14;
+                    }
+                    out[pos++] = ENCODING_TABLE[ev % BASE];
+                    out[pos++] = ENCODING_TABLE[ev / BASE];
+                }
+            }
+
+            return pos - outOfs;
+        }
+
+        // Consumes src for as long as dst has room
+        public void update(ByteBuffer src, ByteBuffer dst) {
+            while (src.hasRemaining() && dst.remaining() >= 2) {
+                ebq |= (src.get() & 255) << en;
+                en += 8;
+                if (en > 13) {
+                    int ev = ebq & 8191;
+
+                    if (ev > 88) {
+                        ebq >>= 13;
+                        en -= 13;
+                    } else {
+                        ev = ebq & 16383;
+                        ebq >>= 14;
+                        en -= 14;
+                    }
+                    dst.put(ENCODING_TABLE[ev % BASE]);
+                    dst.put(ENCODING_TABLE[ev / BASE]);
+                }
+            }
+        }
+
+        // Flushes what's left in the bit queue (at most 2 bytes) and resets
+        public int finish(byte[] out, int outOfs) {
+            int pos = outOfs;
+
+            if (en > 0) {
+                out[pos++] = ENCODING_TABLE[ebq % BASE];
+                if (en > 7 || ebq > 90) {
+                    out[pos++] = ENCODING_TABLE[ebq / BASE];
+                }
+            }
+
+            reset();
+            return pos - outOfs;
+        }
+
+        // dst needs room for 2 bytes
+        public void finish(ByteBuffer dst) {
+            dst.put(tail, 0, finish(tail, 0));
+        }
+    }
+
+    public static final class Decoder {
+        private int dbq = 0;
+        private int dn = 0;
+        private int dv = -1;
+
+        public void reset() {
+            dbq = 0;
+            dn = 0;
+            dv = -1;
+        }
+
+        // Returns the number of bytes written to out which must have room for maxDecodedLength(len).
+        // Characters that aren't part of the alphabet are skipped.
+        public int update(byte[] in, int ofs, int len, byte[] out, int outOfs) {
+            int pos = outOfs;
+            int end = ofs + len;
+
+            for (int i = ofs; i < end; ++i) {
+                int d = DECODING_TABLE[in[i] & 255];
+                if (d == -1)
+                    continue;
+                if (dv == -1)
+                    dv = d;
+                else {
+                    dv += d * BASE;
+                    dbq |= dv << dn;
+                    dn += (dv & 8191) > 88 ? 13 : 14;
+                    do {
+                        out[pos++] = (byte) dbq;
+                        dbq >>= 8;
+                        dn -= 8;
+                    } while (dn > 7);
+                    dv = -1;
+                }
+            }
+
+            return pos - outOfs;
+        }
+
+        // Consumes src for as long as dst has room
+        public void update(ByteBuffer src, ByteBuffer dst) {
+            while (src.hasRemaining() && dst.remaining() >= 2) {
+                int d = DECODING_TABLE[src.get() & 255];
+                if (d == -1)
+                    continue;
+                if (dv == -1)
+                    dv = d;
+                else {
+                    dv += d * BASE;
+                    dbq |= dv << dn;
+                    dn += (dv & 8191) > 88 ? 13 : 14;
+                    do {
+                        dst.put((byte) dbq);
+                        dbq >>= 8;
+                        dn -= 8;
+                    } while (dn > 7);
+                    dv = -1;
+                }
+            }
+        }
+
+        // Flushes a trailing partial value (at most 1 byte) and resets
+        public int finish(byte[] out, int outOfs) {
+            int rc = 0;
+
+            if (dv != -1) {
+                out[outOfs] = (byte) (dbq | dv << dn);
+                rc = 1;
+            }
+
+            reset();
+            return rc;
+        }
+
+        // dst needs room for 1 byte
+        public void finish(ByteBuffer dst) {
+            if (dv != -1) {
+                dst.put((byte) (dbq | dv << dn));
+            }
+
+            reset();
+        }
+    }
+
+    // Base91-encodes everything written to it onto the underlying stream.  close() (or finish())
+    // writes the tail - without it the output is incomplete.
+    public static final class EncodingOutputStream extends FilterOutputStream {
+        private final Encoder encoder = new Encoder();
+        private byte[] buf = STREAM_BUFFERS.acquire();
+        private final int chunk = (STREAM_BUFFERS.getBufferSize() * 13) / 16 - 4;
+        private boolean finished = false;
+
+        public EncodingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (finished)
+                throw new IOException("stream finished"); //NON-NLS
+
+            while (len > 0) {
+                int n = Math.min(len, chunk);
+                out.write(buf, 0, encoder.update(b, off, n, buf, 0));
+                off += n;
+                len -= n;
+            }
+        }
+
+        public void finish() throws IOException {
+            if (!finished) {
+                out.write(buf, 0, encoder.finish(buf, 0));
+                finished = true;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                finish();
+                super.close();
+            } finally {
+                if (buf != null) {
+                    STREAM_BUFFERS.release(buf);
+                    buf = null;
+                }
+            }
+        }
+    }
+
+    // Decodes the Base91 read from the underlying stream
+    public static final class DecodingInputStream extends FilterInputStream {
+        private final Decoder decoder = new Decoder();
+        private byte[] inBuf = STREAM_BUFFERS.acquire();
+        private byte[] outBuf = new byte[maxDecodedLength(inBuf.length)];
+        private int outPos = 0;
+        private int outLim = 0;
+        private boolean eof = false;
+
+        public DecodingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return (read(one, 0, 1) == 1 ? (one[0] & 255) : -1);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return 0;
+
+            while (outPos == outLim) {
+                if (eof)
+                    return -1;
+
+                int n = in.read(inBuf, 0, inBuf.length);
+                outPos = 0;
+                if (n < 0) {
+                    eof = true;
+                    outLim = decoder.finish(outBuf, 0);
+                } else {
+                    outLim = decoder.update(inBuf, 0, n, outBuf, 0);
+                }
+            }
+
+            int n = Math.min(len, outLim - outPos);
+            System.arraycopy(outBuf, outPos, b, off, n);
+            outPos += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return outLim - outPos;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (inBuf != null) {
+                    STREAM_BUFFERS.release(inBuf);
+                    inBuf = null;
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,350 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid.Biometrics;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+// Packs several DataSeries into a single blob and unpacks them again.
+//
+// A batch looks as follows
+//  1    1    1
+// |--|  |--|  |--|  |... series ...|
+//  mk    ver   sc
+//
+// and each series as
+//  1    v    1    1    1    v    v      v   v     v   v
+// |--| |..| |--| |--| |--| |..| |..|   |..|..|   |..|..|  ...
+//  id   ts   it   im   vt   ss   fo     to dv    to dv
+//
+// where "v" fields are LEB128 varints and dv is the zigzag-encoded difference from the previous
+// value in the series (the first is relative to 0).  If every sample in the series has the same
+// time offset (the usual case) it goes in fo once and the per-sample "to" fields are left out;
+// otherwise fo is 0.  Biometric readings move slowly so most samples then take a single byte.
+//
+// The marker can't be a binary id which lets the decoder recognise - and still accept - blobs
+// made up of legacy DataSeries.toByteArray() records.
+//
+// An instance encodes into a buffer that it holds on to and reuses.  Not thread-safe.  Decoding
+// is static and hands values straight to a sink without creating anything along the way (other
+// than a copy of a direct ByteBuffer's contents, which has no array to decode from).
+public class BiometricsBatchCodec
+{
+    private static String TAG = BiometricsBatchCodec.class.getSimpleName();
+
+    public final static int BATCH_MARKER = 0xEB;
+    public final static int BATCH_VERSION = 1;
+    public final static int MAX_SERIES_PER_BATCH = 255;
+
+    private final static int LEGACY_HEADER_SIZE = 9;
+
+    public interface ISeriesSink
+    {
+        void onSeries(int binaryId, int timestamp, int incrementType, int incrementMultiplier, int elementCount);
+        void onElement(int binaryId, int timeOffset, int value);
+    }
+
+    private byte[] _buf;
+    private int _len = 0;
+    private int _seriesCount = 0;
+
+    public BiometricsBatchCodec()
+    {
+        this(256);
+    }
+
+    public BiometricsBatchCodec(int initialCapacity)
+    {
+        _buf = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public void begin()
+    {
+        _len = 0;
+        _seriesCount = 0;
+
+        putByte(BATCH_MARKER);
+        putByte(BATCH_VERSION);
+        putByte(0);
+    }
+
+    // Returns false if the batch is full
+    public boolean add(DataSeries ds)
+    {
+        if(_seriesCount >= MAX_SERIES_PER_BATCH)
+        {
+            return false;
+        }
+
+        List<SeriesElement> series = ds.getSeries();
+
+        synchronized (series)
+        {
+            putByte(ds.getBinaryId());
+            putVarint(ds.getTimestamp());
+            putByte(ds.IT_DEFAULT);
+            putByte(ds.IM_DEFAULT);
+            putByte(ds.VT_DEFAULT);
+            putVarint(series.size());
+
+            int fixedOffset = (series.isEmpty() ? 0 : series.get(0).getTimeoffset());
+            for(SeriesElement se : series)
+            {
+                if(se.getTimeoffset() != fixedOffset)
+                {
+                    fixedOffset = 0;
+                    break;
+                }
+            }
+
+            putVarint(fixedOffset);
+
+            int prev = 0;
+            for(SeriesElement se : series)
+            {
+                if(fixedOffset == 0)
+                {
+                    putVarint(se.getTimeoffset());
+                }
+                putVarint(zigzag(se.getValue() - prev));
+                prev = se.getValue();
+            }
+        }
+
+        _seriesCount++;
+
+        return true;
+    }
+
+    // Returns the number of bytes in the batch
+    public int finish()
+    {
+        _buf[2] = (byte) _seriesCount;
+        return _len;
+    }
+
+    public int getSeriesCount()
+    {
+        return _seriesCount;
+    }
+
+    // Only the first getLength() bytes are valid
+    public byte[] getBuffer()
+    {
+        return _buf;
+    }
+
+    public int getLength()
+    {
+        return _len;
+    }
+
+    private void ensure(int more)
+    {
+        if(_len + more > _buf.length)
+        {
+            byte[] tmp = new byte[Math.max(_buf.length * 2, _len + more)];
+            System.arraycopy(_buf, 0, tmp, 0, _len);
+            _buf = tmp;
+        }
+    }
+
+    private void putByte(int v)
+    {
+        ensure(1);
+        _buf[_len++] = (byte) v;
+    }
+
+    private void putVarint(int v)
+    {
+        ensure(5);
+        while((v & ~0x7f) != 0)
+        {
+            _buf[_len++] = (byte) ((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        _buf[_len++] = (byte) v;
+    }
+
+    private static int zigzag(int v)
+    {
+        return ((v << 1) ^ (v >> 31));
+    }
+
+    private static int unzigzag(int v)
+    {
+        return ((v >>> 1) ^ -(v & 1));
+    }
+
+    public static int decode(ByteBuffer bb, ISeriesSink sink)
+    {
+        if(bb.hasArray())
+        {
+            return decode(bb.array(), bb.arrayOffset() + bb.position(), bb.remaining(), sink);
+        }
+
+        byte[] tmp = new byte[bb.remaining()];
+        bb.duplicate().get(tmp);
+        return decode(tmp, 0, tmp.length, sink);
+    }
+
+    // Returns the number of series decoded or -1 if the blob is malformed.  Series decoded before
+    // a problem was found will already have gone to the sink.
+    public static int decode(byte[] ba, int ofs, int len, ISeriesSink sink)
+    {
+        if(len <= 0)
+        {
+            return 0;
+        }
+
+        if((ba[ofs] & 0xff) != BATCH_MARKER)
+        {
+            return decodeLegacy(ba, ofs, len, sink);
+        }
+
+        if(len < 3 || (ba[ofs + 1] & 0xff) != BATCH_VERSION)
+        {
+            return -1;
+        }
+
+        int seriesCount = (ba[ofs + 2] & 0xff);
+        int end = (ofs + len);
+        int pos = (ofs + 3);
+        long v;
+
+        for(int s = 0; s < seriesCount; s++)
+        {
+            if(pos + 1 > end)
+            {
+                return -1;
+            }
+
+            int binaryId = (ba[pos++] & 0xff);
+            v = getVarint(ba, pos, end);
+            int ts = varintValue(v);
+            pos = varintEnd(v);
+
+            if(pos + 3 > end)
+            {
+                return -1;
+            }
+
+            int it = (ba[pos++] & 0xff);
+            int im = (ba[pos++] & 0xff);
+            pos++;   // value type - values are always ints on the wire
+
+            v = getVarint(ba, pos, end);
+            int count = varintValue(v);
+            v = getVarint(ba, varintEnd(v), end);
+            int fixedOffset = varintValue(v);
+            pos = varintEnd(v);
+            if(count < 0 || pos > end)
+            {
+                return -1;
+            }
+
+            sink.onSeries(binaryId, ts, it, im, count);
+
+            int prev = 0;
+            for(int e = 0; e < count; e++)
+            {
+                int to = fixedOffset;
+                if(fixedOffset == 0)
+                {
+                    v = getVarint(ba, pos, end);
+                    to = varintValue(v);
+                    pos = varintEnd(v);
+                }
+
+                v = getVarint(ba, pos, end);
+                int dv = varintValue(v);
+                pos = varintEnd(v);
+                if(pos > end)
+                {
+                    return -1;
+                }
+
+                prev += unzigzag(dv);
+                sink.onElement(binaryId, to, prev);
+            }
+        }
+
+        return seriesCount;
+    }
+
+    // Back-to-back DataSeries.toByteArray() records
+    private static int decodeLegacy(byte[] ba, int ofs, int len, ISeriesSink sink)
+    {
+        int end = (ofs + len);
+        int pos = ofs;
+        int seriesCount = 0;
+
+        while(pos < end)
+        {
+            if(pos + LEGACY_HEADER_SIZE > end)
+            {
+                return -1;
+            }
+
+            int binaryId = (ba[pos] & 0xff);
+            int ts = ((ba[pos + 1] & 0xff) << 24) | ((ba[pos + 2] & 0xff) << 16) | ((ba[pos + 3] & 0xff) << 8) | (ba[pos + 4] & 0xff);
+            int it = (ba[pos + 5] & 0xff);
+            int im = (ba[pos + 6] & 0xff);
+            int vt = (ba[pos + 7] & 0xff);
+            int ss = (ba[pos + 8] & 0xff);
+
+            pos += LEGACY_HEADER_SIZE;
+
+            if(vt != 1 || pos + (ss * 2) > end)
+            {
+                return -1;
+            }
+
+            sink.onSeries(binaryId, ts, it, im, ss);
+
+            for(int e = 0; e < ss; e++)
+            {
+                sink.onElement(binaryId, (ba[pos] & 0xff), (ba[pos + 1] & 0xff));
+                pos += 2;
+            }
+
+            seriesCount++;
+        }
+
+        return seriesCount;
+    }
+
+    // Returns the value in the top half and where the varint ended in the bottom half - see
+    // varintValue()/varintEnd().  The end is past the end of the data if we ran out of bytes.
+    private static long getVarint(byte[] ba, int pos, int end)
+    {
+        int rc = 0;
+        int shift = 0;
+
+        while(pos < end && shift < 35)
+        {
+            int b = ba[pos++];
+            rc |= ((b & 0x7f) << shift);
+            if((b & 0x80) == 0)
+            {
+                return (((long) rc << 32) | (pos & 0xffffffffL));
+            }
+            shift += 7;
+        }
+
+        return (end + 1) & 0xffffffffL;
+    }
+
+    private static int varintValue(long v)
+    {
+        return (int) (v >>> 32);
+    }
+
+    private static int varintEnd(long v)
+    {
+        return (int) v;
+    }
+}
@@ -0,0 +1,89 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid.Biometrics;
+
+// The most recent biometric readings we've received from a node, kept in flat arrays indexed
+// by binary id (Engine.HumanBiometricsElement) so that merging a blob creates nothing.
+public class NodeBiometricsState implements BiometricsBatchCodec.ISeriesSink
+{
+    private static String TAG = NodeBiometricsState.class.getSimpleName();
+
+    public final static int MAX_BINARY_ID = 31;
+    public final static int NO_VALUE = Integer.MIN_VALUE;
+
+    private final int[] _latest = new int[MAX_BINARY_ID + 1];
+    private final int[] _timestamp = new int[MAX_BINARY_ID + 1];
+    private final long[] _samples = new long[MAX_BINARY_ID + 1];
+    private long _lastUpdateMs = 0;
+
+    // Scratch while merging
+    private int _seriesTs = 0;
+    private int _seriesOffset = 0;
+
+    public NodeBiometricsState()
+    {
+        for(int x = 0; x <= MAX_BINARY_ID; x++)
+        {
+            _latest[x] = NO_VALUE;
+        }
+    }
+
+    // Returns the number of series merged or -1 if the blob couldn't be decoded
+    public synchronized int merge(byte[] ba, int ofs, int len)
+    {
+        int rc = BiometricsBatchCodec.decode(ba, ofs, len, this);
+        if(rc > 0)
+        {
+            _lastUpdateMs = System.currentTimeMillis();
+        }
+
+        return rc;
+    }
+
+    @Override
+    public void onSeries(int binaryId, int timestamp, int incrementType, int incrementMultiplier, int elementCount)
+    {
+        _seriesTs = timestamp;
+        _seriesOffset = 0;
+    }
+
+    @Override
+    public void onElement(int binaryId, int timeOffset, int value)
+    {
+        if(binaryId < 0 || binaryId > MAX_BINARY_ID)
+        {
+            return;
+        }
+
+        _seriesOffset += timeOffset;
+
+        _latest[binaryId] = value;
+        _timestamp[binaryId] = (_seriesTs + _seriesOffset);
+        _samples[binaryId]++;
+    }
+
+    // NO_VALUE if we've never heard about this one
+    public synchronized int getLatest(int binaryId)
+    {
+        return ((binaryId < 0 || binaryId > MAX_BINARY_ID) ? NO_VALUE : _latest[binaryId]);
+    }
+
+    // Seconds since the epoch as reported by the sender
+    public synchronized int getTimestamp(int binaryId)
+    {
+        return ((binaryId < 0 || binaryId > MAX_BINARY_ID) ? 0 : _timestamp[binaryId]);
+    }
+
+    public synchronized long getSampleCount(int binaryId)
+    {
+        return ((binaryId < 0 || binaryId > MAX_BINARY_ID) ? 0 : _samples[binaryId]);
+    }
+
+    public synchronized long getLastUpdateMs()
+    {
+        return _lastUpdateMs;
+    }
+}
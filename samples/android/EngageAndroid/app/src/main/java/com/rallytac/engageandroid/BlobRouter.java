@@ -0,0 +1,381 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import com.rallytac.engage.engine.Engine;
+
+import org.json.JSONObject;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+
+// Routes received blobs to handlers registered for their payload type.  Every payload type gets
+// its own lane - a bounded queue and a thread - so a slow handler only holds up blobs of its own
+// type and nothing here ever runs on the UI thread.
+//
+// The Engine's byte array is handed to the handler as a ByteBuffer sliced over the valid part
+// of the array; nothing is copied on the way through.  Handlers that need the backing array
+// (for decoders that work on byte[]) can use array()/arrayOffset().  Don't hang on to the
+// buffer after onBlob() returns.
+//
+// When a lane's queue is full the blob is dropped and counted straight away - the submitting
+// thread is the Engine's callback thread and we never hold that up.
+public class BlobRouter
+{
+    private static String TAG = BlobRouter.class.getSimpleName();
+
+    public final static int DEFAULT_LANE_CAPACITY = 64;
+
+    public interface IBlobHandler
+    {
+        void onBlob(BlobInfo info, ByteBuffer payload);
+    }
+
+    public static class BlobInfo
+    {
+        public String groupId;
+        public int payloadType;
+        public String source;
+        public String target;
+        public int size;
+
+        public static BlobInfo fromJson(String groupId, String blobInfoJson, int size) throws Exception
+        {
+            JSONObject blobInfo = new JSONObject(blobInfoJson);
+
+            BlobInfo rc = new BlobInfo();
+            rc.groupId = groupId;
+            rc.payloadType = blobInfo.getInt(Engine.JsonFields.BlobInfo.payloadType);
+            rc.source = blobInfo.optString(Engine.JsonFields.BlobInfo.source, null);
+            rc.target = blobInfo.optString(Engine.JsonFields.BlobInfo.target, null);
+            rc.size = size;
+
+            return rc;
+        }
+    }
+
+    public static class Stats
+    {
+        public int payloadType;
+        public long blobsReceived;
+        public long bytesReceived;
+        public long blobsHandled;
+        public long bytesHandled;
+        public long blobsDropped;
+        public long handlerFailures;
+        public int queueHighWaterMark;
+        public long handlerNanos;
+        public long firstReceivedAtMs;
+        public long lastReceivedAtMs;
+
+        public double getBytesPerSecond()
+        {
+            long elapsedMs = (lastReceivedAtMs - firstReceivedAtMs);
+            return (elapsedMs <= 0 ? 0 : ((double) bytesHandled * 1000.0) / (double) elapsedMs);
+        }
+
+        public long getAverageHandlerMicros()
+        {
+            return (blobsHandled == 0 ? 0 : (handlerNanos / blobsHandled) / 1000);
+        }
+
+        Stats copy()
+        {
+            Stats rc = new Stats();
+
+            rc.payloadType = payloadType;
+            rc.blobsReceived = blobsReceived;
+            rc.bytesReceived = bytesReceived;
+            rc.blobsHandled = blobsHandled;
+            rc.bytesHandled = bytesHandled;
+            rc.blobsDropped = blobsDropped;
+            rc.handlerFailures = handlerFailures;
+            rc.queueHighWaterMark = queueHighWaterMark;
+            rc.handlerNanos = handlerNanos;
+            rc.firstReceivedAtMs = firstReceivedAtMs;
+            rc.lastReceivedAtMs = lastReceivedAtMs;
+
+            return rc;
+        }
+    }
+
+    private static class Item
+    {
+        final BlobInfo info;
+        final ByteBuffer payload;
+
+        Item(BlobInfo info, ByteBuffer payload)
+        {
+            this.info = info;
+            this.payload = payload;
+        }
+    }
+
+    private final int _laneCapacity;
+    private final HashMap<Integer, Lane> _lanes = new HashMap<>();
+    private final Stats _unhandled = new Stats();
+
+    public BlobRouter()
+    {
+        this(DEFAULT_LANE_CAPACITY);
+    }
+
+    public BlobRouter(int laneCapacity)
+    {
+        _laneCapacity = laneCapacity;
+        _unhandled.payloadType = -1;
+    }
+
+    public void registerHandler(Engine.BlobType type, IBlobHandler handler)
+    {
+        registerHandler(type.toInt(), handler);
+    }
+
+    // Custom application payload types go through here.  Registering for a type that already
+    // has a handler replaces it.
+    public void registerHandler(int payloadType, IBlobHandler handler)
+    {
+        Lane old;
+
+        synchronized (_lanes)
+        {
+            old = _lanes.remove(payloadType);
+
+            Lane lane = new Lane(payloadType, handler);
+            if(old != null)
+            {
+                // Carry the numbers over so metrics don't reset because of a re-registration
+                lane._stats = old.getStats();
+            }
+
+            _lanes.put(payloadType, lane);
+            lane.start();
+        }
+
+        if(old != null)
+        {
+            old.close();
+        }
+    }
+
+    public void unregisterHandler(int payloadType)
+    {
+        Lane lane;
+
+        synchronized (_lanes)
+        {
+            lane = _lanes.remove(payloadType);
+        }
+
+        if(lane != null)
+        {
+            lane.close();
+        }
+    }
+
+    // Returns false if the blob was dropped - either nobody wants it or its lane is backed up
+    public boolean route(BlobInfo info, byte[] blob, int blobSize)
+    {
+        Lane lane;
+
+        synchronized (_lanes)
+        {
+            lane = _lanes.get(info.payloadType);
+        }
+
+        int size = Math.max(0, Math.min(blobSize, (blob == null ? 0 : blob.length)));
+
+        if(lane == null)
+        {
+            synchronized (_unhandled)
+            {
+                _unhandled.blobsReceived++;
+                _unhandled.bytesReceived += size;
+                _unhandled.blobsDropped++;
+            }
+
+            return false;
+        }
+
+        ByteBuffer payload = (blob == null ? ByteBuffer.allocate(0) : ByteBuffer.wrap(blob, 0, size).slice());
+        return lane.offer(new Item(info, payload));
+    }
+
+    public void stop()
+    {
+        ArrayList<Lane> lanes;
+
+        synchronized (_lanes)
+        {
+            lanes = new ArrayList<>(_lanes.values());
+            _lanes.clear();
+        }
+
+        for(Lane lane : lanes)
+        {
+            lane.close();
+        }
+    }
+
+    // Null if nothing is registered for the type
+    public Stats getStats(int payloadType)
+    {
+        Lane lane;
+
+        synchronized (_lanes)
+        {
+            lane = _lanes.get(payloadType);
+        }
+
+        return (lane == null ? null : lane.getStats());
+    }
+
+    public ArrayList<Stats> getAllStats()
+    {
+        ArrayList<Stats> rc = new ArrayList<>();
+
+        synchronized (_lanes)
+        {
+            for(Lane lane : _lanes.values())
+            {
+                rc.add(lane.getStats());
+            }
+        }
+
+        synchronized (_unhandled)
+        {
+            rc.add(_unhandled.copy());
+        }
+
+        return rc;
+    }
+
+    private class Lane extends Thread
+    {
+        private volatile boolean _running = true;
+        private final IBlobHandler _handler;
+        private final ArrayBlockingQueue<Item> _queue;
+        private final Object _statsLock = new Object();
+        private Stats _stats = new Stats();
+
+        Lane(int payloadType, IBlobHandler handler)
+        {
+            super(BlobRouter.class.getSimpleName() + "-" + payloadType);//NON-NLS
+            _handler = handler;
+            _queue = new ArrayBlockingQueue<>(_laneCapacity);
+            _stats.payloadType = payloadType;
+        }
+
+        Stats getStats()
+        {
+            synchronized (_statsLock)
+            {
+                return _stats.copy();
+            }
+        }
+
+        boolean offer(Item item)
+        {
+            long now = System.currentTimeMillis();
+
+            synchronized (_statsLock)
+            {
+                _stats.blobsReceived++;
+                _stats.bytesReceived += item.payload.remaining();
+                if(_stats.firstReceivedAtMs == 0)
+                {
+                    _stats.firstReceivedAtMs = now;
+                }
+                _stats.lastReceivedAtMs = now;
+            }
+
+            boolean queued = (_running && _queue.offer(item));
+
+            synchronized (_statsLock)
+            {
+                if(queued)
+                {
+                    int depth = _queue.size();
+                    if(depth > _stats.queueHighWaterMark)
+                    {
+                        _stats.queueHighWaterMark = depth;
+                    }
+                }
+                else
+                {
+                    _stats.blobsDropped++;
+                }
+            }
+
+            return queued;
+        }
+
+        public void close()
+        {
+            _running = false;
+            interrupt();
+
+            try
+            {
+                join();
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+
+        public void run()
+        {
+            while(_running)
+            {
+                Item item;
+
+                try
+                {
+                    item = _queue.take();
+                }
+                catch (InterruptedException e)
+                {
+                    continue;
+                }
+
+                int bytes = item.payload.remaining();
+                long start = System.nanoTime();
+                boolean ok = true;
+
+                try
+                {
+                    _handler.onBlob(item.info, item.payload);
+                }
+                catch (Exception e)
+                {
+                    ok = false;
+                    e.printStackTrace();
+                }
+
+                long elapsed = (System.nanoTime() - start);
+
+                synchronized (_statsLock)
+                {
+                    if(ok)
+                    {
+                        _stats.blobsHandled++;
+                        _stats.bytesHandled += bytes;
+                    }
+                    else
+                    {
+                        _stats.handlerFailures++;
+                    }
+
+                    _stats.handlerNanos += elapsed;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import java.util.ArrayDeque;
+
+// A small pool of same-sized byte arrays.  acquire() hands out a pooled array if there is one
+// and a new one otherwise; release() takes it back unless the pool is already full, in which
+// case the array is simply left for the GC.  Arrays of the wrong size are never pooled.
+public class BufferPool
+{
+    private static String TAG = BufferPool.class.getSimpleName();
+
+    private final int _bufferSize;
+    private final int _maxPooled;
+    private final ArrayDeque<byte[]> _pool = new ArrayDeque<>();
+    private long _created = 0;
+    private long _reused = 0;
+
+    public BufferPool(int bufferSize, int maxPooled)
+    {
+        _bufferSize = bufferSize;
+        _maxPooled = maxPooled;
+    }
+
+    public int getBufferSize()
+    {
+        return _bufferSize;
+    }
+
+    public synchronized byte[] acquire()
+    {
+        byte[] rc = _pool.pollFirst();
+
+        if(rc == null)
+        {
+            _created++;
+            rc = new byte[_bufferSize];
+        }
+        else
+        {
+            _reused++;
+        }
+
+        return rc;
+    }
+
+    public synchronized void release(byte[] buffer)
+    {
+        if(buffer != null && buffer.length == _bufferSize && _pool.size() < _maxPooled)
+        {
+            _pool.addFirst(buffer);
+        }
+    }
+
+    public synchronized long getCreatedCount()
+    {
+        return _created;
+    }
+
+    public synchronized long getReusedCount()
+    {
+        return _reused;
+    }
+}
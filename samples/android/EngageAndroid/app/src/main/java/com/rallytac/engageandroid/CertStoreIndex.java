@@ -0,0 +1,600 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import com.rallytac.engage.engine.Engine;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+
+// Remembers what's in each certificate store in the cert store cache directory so that we don't have
+// to ask the engine to open every store with every password we know each time we need one.  Entries
+// are keyed by path and carry the file's size, modification time and content hash along with the
+// store's id, descriptor and the password that opened it.  The index is persisted so it survives a
+// restart.
+//
+// Nothing is checked up front - an entry is revalidated when it's used.  If the size and time still
+// match it's used as is, if they don't but the content hash does it's simply updated, and only a store
+// that's new or has really changed is probed, trying the password that worked last time first.  Stores
+// that couldn't be opened are remembered too, until the set of passwords changes.
+public class CertStoreIndex
+{
+    private static String TAG = CertStoreIndex.class.getSimpleName();
+
+    private final static int INDEX_VERSION = 1;
+
+    public interface IProber
+    {
+        // Returns the descriptor JSON for the store if the password opens it, otherwise null or empty
+        String queryContents(String path, String password);
+    }
+
+    public static class Entry
+    {
+        public String path;
+        public long size;
+        public long modifiedMs;
+        public String hash;
+        public String id;
+        public String password;
+        public JSONObject descriptor;
+
+        // For stores we couldn't open - the passwords we tried
+        String passwordSetHash;
+
+        public boolean isValid()
+        {
+            return (descriptor != null);
+        }
+    }
+
+    public static class Stats
+    {
+        public long lookups;
+        public long hits;
+        public long rehashes;
+        public long probes;
+        public long scans;
+        public long saves;
+
+        Stats copy()
+        {
+            Stats rc = new Stats();
+
+            rc.lookups = lookups;
+            rc.hits = hits;
+            rc.rehashes = rehashes;
+            rc.probes = probes;
+            rc.scans = scans;
+            rc.saves = saves;
+
+            return rc;
+        }
+    }
+
+    private final File _indexFile;
+    private final File _storeDir;
+    private final String _storeDirPath;
+    private final IProber _prober;
+    private final HashMap<String, Entry> _byPath = new HashMap<>();
+    private final HashMap<String, Entry> _byId = new HashMap<>();
+    private final Stats _stats = new Stats();
+    private boolean _loaded = false;
+    private boolean _dirty = false;
+    private HashSet<String> _lastPasswords = null;
+    private String _lastPasswordsHash = null;
+
+    public CertStoreIndex(File indexFile, File storeDir, IProber prober)
+    {
+        _indexFile = indexFile;
+        _storeDir = storeDir;
+        _storeDirPath = storeDir.getAbsolutePath();
+        _prober = prober;
+    }
+
+    public synchronized Stats getStats()
+    {
+        return _stats.copy();
+    }
+
+    // The descriptor (with the working password added, as the rest of the app expects) or null if none
+    // of the passwords open the store.  Stores outside the cert store directory are probed every time.
+    public JSONObject getDescriptor(File file, Collection<String> passwords)
+    {
+        Entry e = getEntry(file, passwords);
+        if(e == null || !e.isValid())
+        {
+            return null;
+        }
+
+        try
+        {
+            // The caller gets its own copy
+            return new JSONObject(e.descriptor.toString());
+        }
+        catch (Exception ex)
+        {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    public synchronized Entry getEntry(File file, Collection<String> passwords)
+    {
+        ensureLoaded();
+        _stats.lookups++;
+
+        Entry rc = revalidate(file, passwordSetHash(passwords), passwords);
+        saveIfDirty();
+
+        return rc;
+    }
+
+    // The path of the store with this id, or null if we don't have it
+    public synchronized String findPathForId(String id, Collection<String> passwords)
+    {
+        ensureLoaded();
+        _stats.lookups++;
+
+        String key = id.toLowerCase(Locale.ROOT);
+        String pwHash = passwordSetHash(passwords);
+
+        Entry e = _byId.get(key);
+        if(e != null)
+        {
+            e = revalidate(new File(e.path), pwHash, passwords);
+            if(e != null && e.isValid() && key.equals(e.id.toLowerCase(Locale.ROOT)))
+            {
+                saveIfDirty();
+                return e.path;
+            }
+        }
+
+        // Either we've never seen it or something has moved - bring the whole directory up to date
+        scanLocked(pwHash, passwords);
+
+        e = _byId.get(key);
+        saveIfDirty();
+
+        return (e != null ? e.path : null);
+    }
+
+    public synchronized ArrayList<Entry> scan(Collection<String> passwords)
+    {
+        ensureLoaded();
+        scanLocked(passwordSetHash(passwords), passwords);
+        saveIfDirty();
+
+        ArrayList<Entry> rc = new ArrayList<>();
+        for(Entry e : _byPath.values())
+        {
+            if(e.isValid())
+            {
+                rc.add(e);
+            }
+        }
+
+        return rc;
+    }
+
+    public synchronized void forget(String path)
+    {
+        ensureLoaded();
+        remove(new File(path).getAbsolutePath());
+        saveIfDirty();
+    }
+
+    public static String hashFile(File file)
+    {
+        try(InputStream is = new FileInputStream(file))
+        {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");//NON-NLS
+            byte[] buffer = new byte[16384];
+            int len;
+
+            while((len = is.read(buffer)) > 0)
+            {
+                md.update(buffer, 0, len);
+            }
+
+            return toHex(md.digest());
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+    }
+
+    public static String hashBytes(byte[] data)
+    {
+        try
+        {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");//NON-NLS
+            return toHex(md.digest(data));
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+    }
+
+    private static String toHex(byte[] b)
+    {
+        StringBuilder sb = new StringBuilder(b.length * 2);
+        for(byte x : b)
+        {
+            sb.append(Character.forDigit((x >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(x & 0xf, 16));
+        }
+
+        return sb.toString();
+    }
+
+    private String passwordSetHash(Collection<String> passwords)
+    {
+        // Nearly always the same set as last time
+        HashSet<String> set = new HashSet<>(passwords);
+        if(set.equals(_lastPasswords))
+        {
+            return _lastPasswordsHash;
+        }
+
+        ArrayList<String> sorted = new ArrayList<>(set);
+        Collections.sort(sorted);
+
+        StringBuilder sb = new StringBuilder();
+        for(String s : sorted)
+        {
+            sb.append(s).append('\n');
+        }
+
+        _lastPasswords = set;
+        _lastPasswordsHash = hashBytes(sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        return _lastPasswordsHash;
+    }
+
+    private boolean isIndexed(String path)
+    {
+        File parent = new File(path).getParentFile();
+        return (parent != null && parent.getAbsolutePath().equals(_storeDirPath));
+    }
+
+    private void scanLocked(String pwHash, Collection<String> passwords)
+    {
+        _stats.scans++;
+
+        File[] files = _storeDir.listFiles();
+        HashMap<String, Boolean> present = new HashMap<>();
+
+        if(files != null)
+        {
+            for(File f : files)
+            {
+                if(f.isFile())
+                {
+                    present.put(f.getAbsolutePath(), Boolean.TRUE);
+                    revalidate(f, pwHash, passwords);
+                }
+            }
+        }
+
+        Iterator<String> it = new ArrayList<>(_byPath.keySet()).iterator();
+        while(it.hasNext())
+        {
+            String path = it.next();
+            if(!present.containsKey(path))
+            {
+                remove(path);
+            }
+        }
+    }
+
+    private Entry revalidate(File file, String pwHash, Collection<String> passwords)
+    {
+        String path = file.getAbsolutePath();
+        boolean indexed = isIndexed(path);
+
+        if(!file.isFile())
+        {
+            if(indexed)
+            {
+                remove(path);
+            }
+
+            return null;
+        }
+
+        long size = file.length();
+        long modifiedMs = file.lastModified();
+        String hash = null;
+        Entry existing = (indexed ? _byPath.get(path) : null);
+
+        if(existing != null)
+        {
+            boolean sameContent;
+
+            if(existing.size == size && existing.modifiedMs == modifiedMs)
+            {
+                sameContent = true;
+            }
+            else
+            {
+                // Touched or copied over - only the content can tell us whether it's really different
+                _stats.rehashes++;
+                hash = hashFile(file);
+                sameContent = (hash != null && hash.equals(existing.hash));
+
+                if(sameContent)
+                {
+                    existing.size = size;
+                    existing.modifiedMs = modifiedMs;
+                    _dirty = true;
+                }
+            }
+
+            // A store we opened is good for as long as we still have its password, one we couldn't open
+            // only until we have different passwords to try
+            boolean stillGood = (existing.isValid() ? passwords.contains(existing.password) : pwHash.equals(existing.passwordSetHash));
+
+            if(sameContent && stillGood)
+            {
+                _stats.hits++;
+                return existing;
+            }
+        }
+
+        if(hash == null)
+        {
+            hash = hashFile(file);
+        }
+
+        Entry e = probe(path, passwords, ((existing != null && passwords.contains(existing.password)) ? existing.password : null));
+        e.size = size;
+        e.modifiedMs = modifiedMs;
+        e.hash = hash;
+        if(!e.isValid())
+        {
+            e.passwordSetHash = pwHash;
+        }
+
+        if(indexed)
+        {
+            remove(path);
+            _byPath.put(path, e);
+            if(e.isValid())
+            {
+                _byId.put(e.id.toLowerCase(Locale.ROOT), e);
+            }
+
+            _dirty = true;
+        }
+
+        return e;
+    }
+
+    private Entry probe(String path, Collection<String> passwords, String lastPassword)
+    {
+        Entry rc = new Entry();
+        rc.path = path;
+
+        ArrayList<String> order = new ArrayList<>(passwords.size() + 1);
+        if(lastPassword != null)
+        {
+            order.add(lastPassword);
+        }
+
+        for(String pwd : passwords)
+        {
+            if(lastPassword == null || !lastPassword.equals(pwd))
+            {
+                order.add(pwd);
+            }
+        }
+
+        for(String pwd : order)
+        {
+            _stats.probes++;
+
+            try
+            {
+                String jsonText = _prober.queryContents(path, pwd);
+                if(Utils.isEmptyString(jsonText))
+                {
+                    continue;
+                }
+
+                JSONObject descriptor = new JSONObject(jsonText);
+                if(descriptor.optInt(Engine.JsonFields.CertStoreDescriptor.version, 0) > 0)
+                {
+                    descriptor.put(Constants.CERTSTORE_JSON_INTERNAL_PASSWORD_HEX_STRING, pwd);
+
+                    rc.id = descriptor.optString(Engine.JsonFields.CertStoreDescriptor.id, "");
+                    rc.password = pwd;
+                    rc.descriptor = descriptor;
+                    break;
+                }
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+
+        return rc;
+    }
+
+    private void remove(String path)
+    {
+        Entry e = _byPath.remove(path);
+        if(e != null)
+        {
+            if(e.isValid())
+            {
+                String key = e.id.toLowerCase(Locale.ROOT);
+                if(_byId.get(key) == e)
+                {
+                    _byId.remove(key);
+                }
+            }
+
+            _dirty = true;
+        }
+    }
+
+    private void ensureLoaded()
+    {
+        if(_loaded)
+        {
+            return;
+        }
+
+        _loaded = true;
+
+        if(!_indexFile.exists())
+        {
+            return;
+        }
+
+        try
+        {
+            byte[] data = new byte[(int) _indexFile.length()];
+            try(FileInputStream fis = new FileInputStream(_indexFile))
+            {
+                int got = 0;
+                while(got < data.length)
+                {
+                    int len = fis.read(data, got, data.length - got);
+                    if(len < 0)
+                    {
+                        break;
+                    }
+                    got += len;
+                }
+            }
+
+            JSONObject root = new JSONObject(new String(data, StandardCharsets.UTF_8));
+            if(root.optInt("version", 0) != INDEX_VERSION)//NON-NLS
+            {
+                return;
+            }
+
+            JSONArray entries = root.getJSONArray("entries");//NON-NLS
+            for(int x = 0; x < entries.length(); x++)
+            {
+                JSONObject jo = entries.getJSONObject(x);
+
+                Entry e = new Entry();
+                e.path = jo.getString("path");//NON-NLS
+                e.size = jo.getLong("size");//NON-NLS
+                e.modifiedMs = jo.getLong("modifiedMs");//NON-NLS
+                e.hash = jo.optString("hash", null);//NON-NLS
+                e.descriptor = jo.optJSONObject("descriptor");//NON-NLS
+                e.passwordSetHash = jo.optString("passwordSetHash", null);//NON-NLS
+
+                if(e.descriptor != null)
+                {
+                    e.id = e.descriptor.optString(Engine.JsonFields.CertStoreDescriptor.id, "");
+                    e.password = e.descriptor.optString(Constants.CERTSTORE_JSON_INTERNAL_PASSWORD_HEX_STRING, "");
+                }
+
+                if(isIndexed(e.path))
+                {
+                    _byPath.put(e.path, e);
+                    if(e.isValid())
+                    {
+                        _byId.put(e.id.toLowerCase(Locale.ROOT), e);
+                    }
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            // Start again from nothing - everything will simply be probed once more
+            e.printStackTrace();
+            _byPath.clear();
+            _byId.clear();
+        }
+    }
+
+    private void saveIfDirty()
+    {
+        if(!_dirty)
+        {
+            return;
+        }
+
+        _dirty = false;
+        _stats.saves++;
+
+        try
+        {
+            JSONArray entries = new JSONArray();
+            for(Entry e : _byPath.values())
+            {
+                JSONObject jo = new JSONObject();
+
+                jo.put("path", e.path);//NON-NLS
+                jo.put("size", e.size);//NON-NLS
+                jo.put("modifiedMs", e.modifiedMs);//NON-NLS
+                if(e.hash != null)
+                {
+                    jo.put("hash", e.hash);//NON-NLS
+                }
+                if(e.descriptor != null)
+                {
+                    jo.put("descriptor", e.descriptor);//NON-NLS
+                }
+                if(e.passwordSetHash != null)
+                {
+                    jo.put("passwordSetHash", e.passwordSetHash);//NON-NLS
+                }
+
+                entries.put(jo);
+            }
+
+            JSONObject root = new JSONObject();
+            root.put("version", INDEX_VERSION);//NON-NLS
+            root.put("entries", entries);//NON-NLS
+
+            File dir = _indexFile.getParentFile();
+            if(dir != null && !dir.exists())
+            {
+                dir.mkdirs();
+            }
+
+            File tmp = new File(_indexFile.getPath() + ".tmp");//NON-NLS
+            try(FileOutputStream fos = new FileOutputStream(tmp, false))
+            {
+                fos.write(root.toString().getBytes(StandardCharsets.UTF_8));
+                fos.getFD().sync();
+            }
+
+            if(!tmp.renameTo(_indexFile))
+            {
+                tmp.delete();
+            }
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+
+// File handling for getting a certificate store into the engine.  Stores are read through a memory
+// mapping rather than a read loop, bundled stores are only written out to the cache directory when
+// what's there is different, and the password the index remembers for a store is tried before any
+// other.  The engine's Java binding takes a byte[] so the mapped pages are copied into one array - but
+// only once, straight from the page cache.
+public class CertStoreLoader
+{
+    private static String TAG = CertStoreLoader.class.getSimpleName();
+
+    public static class Timings
+    {
+        public String source;
+        public int bytes;
+        public int attempts;
+        public boolean opened;
+        public long lookupUs;
+        public long loadUs;
+        public long openUs;
+
+        public long getTotalUs()
+        {
+            return (lookupUs + loadUs + openUs);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s %s in %.1f ms (lookup %.1f, load %.1f, open %.1f ms), %d bytes, %d attempt(s)",//NON-NLS
+                                    source,
+                                    (opened ? "opened" : "NOT opened"),//NON-NLS
+                                    getTotalUs() / 1000.0,
+                                    lookupUs / 1000.0,
+                                    loadUs / 1000.0,
+                                    openUs / 1000.0,
+                                    bytes,
+                                    attempts);
+        }
+    }
+
+    public interface IStoreOpener
+    {
+        // True if the engine accepted the store with this password
+        boolean open(byte[] content, String password);
+    }
+
+    public static byte[] readMapped(File file) throws IOException
+    {
+        try(RandomAccessFile raf = new RandomAccessFile(file, "r");//NON-NLS
+            FileChannel ch = raf.getChannel())
+        {
+            long size = ch.size();
+            if(size > Integer.MAX_VALUE)
+            {
+                throw new IOException("file too large: " + file);//NON-NLS
+            }
+
+            MappedByteBuffer mbb = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            byte[] rc = new byte[(int) size];
+            mbb.get(rc);
+
+            return rc;
+        }
+    }
+
+    // Writes the content to the file unless the file already holds exactly that.  Returns true if the
+    // file was written.
+    public static boolean exportIfChanged(byte[] content, File file) throws IOException
+    {
+        if(file.isFile() && file.length() == content.length)
+        {
+            String existing = CertStoreIndex.hashFile(file);
+            if(existing != null && existing.equals(CertStoreIndex.hashBytes(content)))
+            {
+                return false;
+            }
+        }
+
+        File dir = file.getParentFile();
+        if(dir != null && !dir.exists())
+        {
+            dir.mkdirs();
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");//NON-NLS
+        try(FileOutputStream fos = new FileOutputStream(tmp, false))
+        {
+            fos.write(content);
+        }
+
+        if(!tmp.renameTo(file))
+        {
+            tmp.delete();
+            throw new IOException("cannot rename " + tmp + " to " + file);//NON-NLS
+        }
+
+        return true;
+    }
+
+    // Hands the store to the engine, trying the remembered password (if there is one) first.  Timings
+    // already has the lookup and load times filled in.
+    public static boolean open(byte[] content, String rememberedPassword, Collection<String> passwords, IStoreOpener opener, Timings timings)
+    {
+        long started = System.nanoTime();
+        boolean rc = false;
+
+        ArrayList<String> order = new ArrayList<>(passwords.size() + 1);
+        if(rememberedPassword != null)
+        {
+            order.add(rememberedPassword);
+        }
+
+        for(String pwd : passwords)
+        {
+            if(rememberedPassword == null || !rememberedPassword.equals(pwd))
+            {
+                order.add(pwd);
+            }
+        }
+
+        for(String pwd : order)
+        {
+            timings.attempts++;
+            if(opener.open(content, pwd))
+            {
+                rc = true;
+                break;
+            }
+        }
+
+        timings.bytes = content.length;
+        timings.opened = rc;
+        timings.openUs = ((System.nanoTime() - started) / 1000);
+
+        return rc;
+    }
+}
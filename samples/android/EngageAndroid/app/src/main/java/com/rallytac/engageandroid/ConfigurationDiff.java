@@ -0,0 +1,283 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Works out what the engine actually needs to have done to it when the active configuration is
+// reloaded.  We describe what the engine was given - the mission, policy, identity, certificate store
+// and the final JSON of every group we created - as a Snapshot, take another one from the reloaded
+// configuration and compare the two.  The resulting Plan lists groups to create, delete, reconfigure
+// in place, join and leave or, if something the engine only takes at initialization changed,
+// says that the engine has to be restarted.  A plan with nothing in it means the change was to
+// settings that only the app itself cares about (notifications, tones, UI and so on).
+public class ConfigurationDiff
+{
+    private static String TAG = ConfigurationDiff.class.getSimpleName();
+
+    // Group JSON elements the engine will take on an existing group through engageReconfigureGroup.
+    // The engine only documents reconfiguration in terms of the group's audio devices (see the
+    // GroupReconfigurationDetail statuses) so that's all we hand it.  A change to anything else
+    // (name, addressing, crypto, rallypoints, txAudio ...) means the group is deleted and created again.
+    private static final HashSet<String> RECONFIGURABLE_GROUP_ELEMENTS = new HashSet<>(Arrays.asList(
+            "audio"                         //NON-NLS
+    ));
+
+    public enum EngineAction {none, updateGroups, restart}
+
+    public static class Snapshot
+    {
+        public String missionId;
+        public String enginePolicyJson;
+        public String identityJson;
+        public String certStoreId;
+
+        // Group ID -> final group JSON, in creation order
+        public LinkedHashMap<String, String> groups = new LinkedHashMap<>();
+        public HashSet<String> selectedGroups = new HashSet<>();
+
+        public Snapshot()
+        {
+        }
+
+        public Snapshot(String enginePolicyJson, String identityJson, String certStoreId)
+        {
+            this.enginePolicyJson = enginePolicyJson;
+            this.identityJson = identityJson;
+            this.certStoreId = certStoreId;
+        }
+
+        public Snapshot copy()
+        {
+            Snapshot rc = new Snapshot(enginePolicyJson, identityJson, certStoreId);
+
+            rc.missionId = missionId;
+            rc.groups.putAll(groups);
+            rc.selectedGroups.addAll(selectedGroups);
+
+            return rc;
+        }
+    }
+
+    public static class Plan
+    {
+        public EngineAction engineAction = EngineAction.none;
+        public String restartReason = null;
+
+        public ArrayList<String> toCreate = new ArrayList<>();
+        public ArrayList<String> toDelete = new ArrayList<>();
+        public ArrayList<String> toReconfigure = new ArrayList<>();
+        public ArrayList<String> toJoin = new ArrayList<>();
+        public ArrayList<String> toLeave = new ArrayList<>();
+        public ArrayList<String> unchanged = new ArrayList<>();
+
+        public boolean requiresRestart()
+        {
+            return (engineAction == EngineAction.restart);
+        }
+
+        public boolean isEmpty()
+        {
+            return (engineAction == EngineAction.none);
+        }
+
+        @Override
+        public String toString()
+        {
+            if(requiresRestart())
+            {
+                return "restart (" + restartReason + ")";//NON-NLS
+            }
+
+            return "create=" + toCreate//NON-NLS
+                    + ", delete=" + toDelete//NON-NLS
+                    + ", reconfigure=" + toReconfigure//NON-NLS
+                    + ", join=" + toJoin//NON-NLS
+                    + ", leave=" + toLeave//NON-NLS
+                    + ", unchanged=" + unchanged.size();//NON-NLS
+        }
+    }
+
+    public static Plan compare(Snapshot before, Snapshot after)
+    {
+        Plan rc = new Plan();
+
+        if(before == null)
+        {
+            rc.engineAction = EngineAction.restart;
+            rc.restartReason = "nothing applied yet";//NON-NLS
+            return rc;
+        }
+
+        // Switching missions always gets a clean engine
+        if(!sameString(before.missionId, after.missionId))
+        {
+            rc.engineAction = EngineAction.restart;
+            rc.restartReason = "mission changed";//NON-NLS
+            return rc;
+        }
+
+        if(!sameString(before.enginePolicyJson, after.enginePolicyJson))
+        {
+            rc.engineAction = EngineAction.restart;
+            rc.restartReason = "engine policy changed";//NON-NLS
+            return rc;
+        }
+
+        if(!sameString(before.identityJson, after.identityJson))
+        {
+            rc.engineAction = EngineAction.restart;
+            rc.restartReason = "identity changed";//NON-NLS
+            return rc;
+        }
+
+        if(!sameString(before.certStoreId, after.certStoreId))
+        {
+            rc.engineAction = EngineAction.restart;
+            rc.restartReason = "certificate store changed";//NON-NLS
+            return rc;
+        }
+
+        // Groups that are gone
+        for(String id : before.groups.keySet())
+        {
+            if(!after.groups.containsKey(id))
+            {
+                if(before.selectedGroups.contains(id))
+                {
+                    rc.toLeave.add(id);
+                }
+
+                rc.toDelete.add(id);
+            }
+        }
+
+        // Groups that are new or different
+        for(Map.Entry<String, String> e : after.groups.entrySet())
+        {
+            String id = e.getKey();
+            String oldJson = before.groups.get(id);
+            boolean wasJoined = before.selectedGroups.contains(id);
+            boolean shouldBeJoined = after.selectedGroups.contains(id);
+
+            if(oldJson == null)
+            {
+                rc.toCreate.add(id);
+                if(shouldBeJoined)
+                {
+                    rc.toJoin.add(id);
+                }
+                continue;
+            }
+
+            if(oldJson.equals(e.getValue()))
+            {
+                rc.unchanged.add(id);
+            }
+            else if(canReconfigure(oldJson, e.getValue()))
+            {
+                rc.toReconfigure.add(id);
+            }
+            else
+            {
+                // Delete it and create it anew - which leaves it unjoined
+                rc.toDelete.add(id);
+                rc.toCreate.add(id);
+
+                if(wasJoined)
+                {
+                    rc.toLeave.add(id);
+                }
+
+                if(shouldBeJoined)
+                {
+                    rc.toJoin.add(id);
+                }
+                continue;
+            }
+
+            if(shouldBeJoined && !wasJoined)
+            {
+                rc.toJoin.add(id);
+            }
+            else if(!shouldBeJoined && wasJoined)
+            {
+                rc.toLeave.add(id);
+            }
+        }
+
+        if(!rc.toCreate.isEmpty() || !rc.toDelete.isEmpty() || !rc.toReconfigure.isEmpty() || !rc.toJoin.isEmpty() || !rc.toLeave.isEmpty())
+        {
+            rc.engineAction = EngineAction.updateGroups;
+        }
+
+        return rc;
+    }
+
+    // True if the only elements that differ between the two are ones the engine can change on a live group
+    public static boolean canReconfigure(String beforeJson, String afterJson)
+    {
+        try
+        {
+            JSONObject before = new JSONObject(beforeJson);
+            JSONObject after = new JSONObject(afterJson);
+
+            HashSet<String> keys = new HashSet<>();
+            addKeys(keys, before);
+            addKeys(keys, after);
+
+            for(String key : keys)
+            {
+                if(!sameValue(before.opt(key), after.opt(key)) && !RECONFIGURABLE_GROUP_ELEMENTS.contains(key))
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+        catch (Exception e)
+        {
+            return false;
+        }
+    }
+
+    private static void addKeys(HashSet<String> keys, JSONObject obj)
+    {
+        Iterator<String> it = obj.keys();
+        while(it.hasNext())
+        {
+            keys.add(it.next());
+        }
+    }
+
+    private static boolean sameValue(Object a, Object b)
+    {
+        if(a == null || b == null)
+        {
+            return (a == b);
+        }
+
+        return String.valueOf(a).equals(String.valueOf(b));
+    }
+
+    private static boolean sameString(String a, String b)
+    {
+        if(a == null)
+        {
+            return (b == null);
+        }
+
+        return a.equals(b);
+    }
+}
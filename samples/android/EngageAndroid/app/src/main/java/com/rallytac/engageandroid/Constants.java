@@ -11,6 +11,7 @@ public class Constants
 
     public static String QR_CODE_HEADER = "&*3$e1@E";//NON-NLS
     public static String QR_VERSION = "001";//NON-NLS
+    public static String QR_BINARY_VERSION = "002";//NON-NLS
     public static String QR_DEFLECTION_URL_SEP = "/??";//NON-NLS
 
     public static String CERTSTORE_JSON_INTERNAL_PASSWORD_HEX_STRING = "__app__internal__pwd_hexstring";//NON-NLS
@@ -44,6 +45,10 @@ public class Constants
     public final static int DEF_ANDROID_AUDIO_USAGE = 2;                // Voice communication
     public final static int DEF_ANDROID_AUDIO_CONTENT_TYPE = 1;         // Speech
     public final static int DEF_ANDROID_AUDIO_INPUT_PRESET = 7;         // Voice communication
+    public final static boolean DEF_ANDROID_AUDIO_LOW_LATENCY_TRANSPORT = true;
+    public final static int DEF_ANDROID_AUDIO_FRAME_MS = 20;            // 10 or 20
+    public final static boolean DEF_ANDROID_AUDIO_USE_NATIVE_RATE = false;
+    public final static int ANDROID_AUDIO_RING_BUFFER_FRAMES = 16;
 
     public final static int DEF_ENGINE_INTERNAL_AUDIO = 0;
     public final static boolean DEF_MICROPHONE_NOISE_REDUCTION = false;
@@ -90,7 +95,15 @@ public class Constants
     public final static int GROUP_HEALTH_CHECK_TIMER_INTERVAL_MS = 2000;
     public final static int GROUP_HEALTH_CHECK_NETWORK_ERROR_NOTIFICATION_MIN_INTERVAL_MS = 10000;
 
+    // 0 = refresh group UI once per display frame, otherwise at most once per this many ms
+    public final static int GROUP_UI_REFRESH_MIN_INTERVAL_MS = 0;
+
+    public final static int GROUP_STARTUP_PREPARE_THREADS = 4;
+    public final static int GROUP_STARTUP_BATCH_SIZE = 8;
+
     public final static String MISSION_DATABASE_NAME = "MissionDatabase";//NON-NLS
+    public final static String MISSION_DATABASE_JOURNAL_FILE_NAME = "missions.jnl";//NON-NLS
+    public final static long MISSION_DATABASE_COMPACT_THRESHOLD_BYTES = (64 * 1024);
     public final static String MISSION_EDIT_EXTRA_JSON = "MissionJson";//NON-NLS
     public final static String MISSION_ACTIVATED_ID = "ActivatedMissionId";//NON-NLS
 
@@ -102,6 +115,39 @@ public class Constants
 
     public final static int TX_UNMUTE_DELAY_MS_AFTER_GRANT_TONE = 120;
 
+    public final static long SETTINGS_FLUSH_DELAY_MS = 500;
+
+    public final static int TASK_SCHEDULER_THREADS = 2;
+
+    public final static int LOG_RING_CAPACITY = 2048;
+    public final static String LOG_FILE_NAME = "logs/engage.log";//NON-NLS
+    public final static long LOG_FILE_MAX_BYTES = (1024 * 1024);
+    public final static int LOG_FILE_MAX_FILES = 3;
+
+    public final static String ONSCREEN_LOG_DIR_NAME = "onscreenlog";//NON-NLS
+    public final static int ONSCREEN_LOG_MEMORY_LINES = 1000;
+    public final static int ONSCREEN_LOG_SEGMENT_LINES = 20000;
+    public final static int ONSCREEN_LOG_MAX_SEGMENTS = 10;
+
+    public final static long SELF_PRESENCE_MIN_INTERVAL_MS = 5000;
+    public final static long SELF_PRESENCE_MAX_INTERVAL_MS = 60000;
+    public final static int SELF_PRESENCE_BATTERY_STEP_PERCENT = 5;
+    public final static double SELF_PRESENCE_MIN_DISPLACEMENT_METERS = 25.0;
+    public final static double SELF_PRESENCE_MIN_HEADING_CHANGE_DEGREES = 30.0;
+
+    public final static int GROUP_STATS_HISTORY_SAMPLES = 360;
+    public final static long GROUP_STATS_DEFAULT_WINDOW_MS = 60000;
+    public final static long GROUP_STATS_QUERY_INTERVAL_MS = 5000;
+
+    public final static long RP_LINK_SLICE_MS = 60000;
+    public final static int RP_LINK_SLICES = 15;
+    public final static int RP_LINK_TIMELINE_EVENTS = 128;
+
+    public final static int TONE_ENGINE_DEF_SAMPLE_RATE = 48000;
+    public final static int TONE_ENGINE_DEF_FRAMES_PER_BURST = 256;
+    public final static long TONE_ENGINE_IDLE_PAUSE_MS = 3000;
+    public final static long TONE_ENGINE_DECODE_TIMEOUT_MS = 2000;
+
     public final static int UNLIMITED_TX_SECS = 86400;
     public final static int DEFAULT_TX_SECS = 120;
 
@@ -111,6 +157,11 @@ public class Constants
 
     public final static int MAX_TEXT_MESSAGE_INPUT_SIZE = 256;
     public final static int TEXT_MESSAGE_BLOB_RTP_PAYLOAD_TYPE = 66;
+    public final static int TEXT_MESSAGE_MAX_PER_GROUP = 500;
+    public final static long TEXT_MESSAGE_MAX_AGE_MS = (7L * 24 * 60 * 60 * 1000);
+    public final static long TEXT_MESSAGE_MAX_SEGMENT_BYTES = (2 * 1024 * 1024);
+    public final static String TEXT_MESSAGE_SEGMENT_FILE_NAME = "textmessages.seg";//NON-NLS
+    public final static long TEXT_MESSAGE_EXPIRY_INTERVAL_MS = (60L * 60 * 1000);
 
     public final static int INVALID_AUDIO_DEVICE_ID = -1;
 
@@ -135,6 +186,7 @@ public class Constants
 
     public final static String INTERNAL_DEFAULT_CERTSTORE_FN = "{7662214c-e79e-436f-8e93-7cf75cbac682}.certstore";//NON-NLS
     public final static String RTS_FACTORY_CERTSTORE_FN = "{9469eae5-3024-429b-b383-de8936a04d70}.certstore";//NON-NLS
+    public final static String CERTSTORE_INDEX_FN = "certstore-index.json";//NON-NLS
 
     public final static String EPT_ELEMENT_NAME = "ept";//NON-NLS
     public final static int EPT_STATIC_VALUE = 100;
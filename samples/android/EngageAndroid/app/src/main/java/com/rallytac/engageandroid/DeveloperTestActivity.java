@@ -21,18 +21,27 @@
 
 package com.rallytac.engageandroid;
 
+import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Switch;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.FileProvider;
 
 import com.rallytac.engage.engine.Engine;
 //import com.rallytac.engageandroid.Biometrics.DataSeries;
 
 import org.json.JSONObject;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Random;
 
 public class DeveloperTestActivity extends AppCompatActivity
@@ -51,6 +60,7 @@ public class DeveloperTestActivity extends AppCompatActivity
         ((Switch)findViewById(R.id.swKeepTxMuted)).setChecked(_app.getActiveConfiguration().getKeepTxMutedOnPtt());
 
         installDeveloperTestingMission();
+        showSchedulerStats();
     }
 
     public void onClickSendBlob(View view)
@@ -83,6 +93,122 @@ public class DeveloperTestActivity extends AppCompatActivity
         _app.getActiveConfiguration().setKeepTxMutedOnPtt(((Switch)view).isChecked());
     }
 
+    public void onClickRefreshSchedulerStats(View view)
+    {
+        showSchedulerStats();
+    }
+
+    public void onClickShareRallypointLinks(View view)
+    {
+        shareRallypointLinks();
+    }
+
+    private void showSchedulerStats()
+    {
+        ArrayList<TaskScheduler.TaskStats> list = Globals.getScheduler().getTaskStats();
+        Collections.sort(list, new Comparator<TaskScheduler.TaskStats>()
+        {
+            @Override
+            public int compare(TaskScheduler.TaskStats a, TaskScheduler.TaskStats b)
+            {
+                int rc = a.category.compareTo(b.category);
+                return (rc != 0 ? rc : a.name.compareTo(b.name));
+            }
+        });
+
+        StringBuilder sb = new StringBuilder();
+        for(TaskScheduler.TaskStats ts : list)
+        {
+            sb.append(ts.category.name()).append("/").append(ts.name).append("\n");//NON-NLS
+            sb.append(String.format("  runs=%d failed=%d run avg/max=%d/%dus late avg/max=%d/%dus\n",//NON-NLS
+                    ts.runs, ts.failures, ts.getAverageRunUs(), ts.maxRunUs, ts.getAverageLateUs(), ts.maxLateUs));
+        }
+
+        if(list.isEmpty())
+        {
+            sb.append("nothing has run yet\n");//NON-NLS
+        }
+
+        sb.append("\ntone latency (request to first sample)\n");//NON-NLS
+        sb.append(Globals.getAudioPlayerManager().getToneLatencyReport());
+
+        EngineEventDispatcher.Stats ed = _app.getEngineEventDispatcherStats();
+        sb.append("\nengine events\n");//NON-NLS
+        sb.append(String.format("  submitted=%d processed=%d failed=%d dropped=%d\n",//NON-NLS
+                ed.eventsSubmitted, ed.eventsProcessed, ed.eventsFailed, ed.eventsDropped));
+        sb.append(String.format("  queue overflows=%d high water=%d ui posts/batches=%d/%d ui us/event=%.1f\n",//NON-NLS
+                ed.queueOverflows, ed.queueHighWaterMark, ed.uiTasksPosted, ed.uiBatchesPosted, ed.getUiUsPerEvent()));
+
+        GroupUiRefreshScheduler.Stats gr = _app.getGroupUiRefreshStats();
+        sb.append("\ngroup ui refreshes\n");//NON-NLS
+        sb.append(String.format("  events=%d refreshes=%d flushes=%d coalescing=%.1f\n",//NON-NLS
+                gr.eventsReceived, gr.refreshesPerformed, gr.flushes, gr.getCoalescingRatio()));
+
+        RediscoveryFilter.Stats rd = _app.getRediscoveryStats();
+        sb.append("\nrediscoveries (suppressed/total)\n");//NON-NLS
+        sb.append(String.format("  nodes=%d/%d assets=%d/%d\n",//NON-NLS
+                rd.nodeRediscoveriesSuppressed, rd.nodeRediscoveries, rd.assetRediscoveriesSuppressed, rd.assetRediscoveries));
+
+        sb.append("\nrallypoint links\n");//NON-NLS
+        sb.append(getRallypointLinkSummary());
+
+        ((TextView)findViewById(R.id.tvSchedulerStats)).setText(sb.toString());
+    }
+
+    private String getRallypointLinkSummary()
+    {
+        RallypointLinkTracker tracker = _app.getRallypointLinkTracker();
+        StringBuilder sb = new StringBuilder();
+
+        for(String id : tracker.getRallypointIds())
+        {
+            RallypointLinkTracker.LinkSnapshot ls = tracker.getSnapshot(id);
+            if(ls != null)
+            {
+                sb.append("  ").append(ls.toString()).append("\n");//NON-NLS
+            }
+        }
+
+        if(sb.length() == 0)
+        {
+            sb.append("  none yet\n");//NON-NLS
+        }
+
+        return sb.toString();
+    }
+
+    // Hands the binary link history (see RallypointLinkTracker.exportSnapshot) to whatever the user
+    // wants to send it with, along with the text summary
+    private void shareRallypointLinks()
+    {
+        try
+        {
+            byte[] snapshot = _app.getRallypointLinkTracker().exportSnapshot();
+
+            File fd = File.createTempFile("rplinks-", ".bin", _app.getTempDir());//NON-NLS
+            FileOutputStream fos = new FileOutputStream(fd);
+            fos.write(snapshot);
+            fos.close();
+            fd.deleteOnExit();
+
+            Uri u = FileProvider.getUriForFile(this, getString(R.string.file_content_provider), fd);
+
+            Intent intent = new Intent(Intent.ACTION_SEND);
+            intent.setType("application/octet-stream");//NON-NLS
+            intent.putExtra(Intent.EXTRA_SUBJECT, getString(R.string.app_name) + " : rallypoint link history");//NON-NLS
+            intent.putExtra(Intent.EXTRA_TEXT, getRallypointLinkSummary());
+            intent.putExtra(Intent.EXTRA_STREAM, u);
+            intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+
+            startActivity(Intent.createChooser(intent, "Share rallypoint history"));//NON-NLS
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+            Toast.makeText(this, e.getMessage(), Toast.LENGTH_SHORT).show();
+        }
+    }
+
     private GroupDescriptor getFirstPresenceGroup()
     {
         ActiveConfiguration ac = _app.getActiveConfiguration();
@@ -19,7 +19,6 @@ import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.ServiceConnection;
-import android.content.SharedPreferences;
 import android.content.pm.ApplicationInfo;
 import android.location.Location;
 import android.media.AudioManager;
@@ -53,25 +52,25 @@ import androidx.appcompat.widget.PopupMenu;
 
 import com.google.zxing.integration.android.IntentIntegrator;
 import com.rallytac.engage.engine.Engine;
-//import com.rallytac.engageandroid.Biometrics.DataSeries;
-//import com.rallytac.engageandroid.Biometrics.RandomHumanBiometricGenerator;
+import com.rallytac.engageandroid.Biometrics.BiometricsBatchCodec;
+import com.rallytac.engageandroid.Biometrics.DataSeries;
+import com.rallytac.engageandroid.Biometrics.RandomHumanBiometricGenerator;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.net.NetworkInterface;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class EngageApplication
                                 extends
@@ -478,26 +477,33 @@ public class EngageApplication
         }
     }
 
-    private void notifyRegistrantOffGroupStatusChange(String id, GroupState gs)
+    private void notifyRegistrantOffGroupStatusChange(final String id, final GroupState gs)
     {
-        synchronized (_groupStatusChangeListeners)
+        _engineEventDispatcher.postToUi(new Runnable()
         {
-            for (IGroupStatusChangeListener listener : _groupStatusChangeListeners)
+            @Override
+            public void run()
             {
-                if(gs == GroupState.gsJoined) {
-                    listener.onGroupJoined(id);
-                }
-                else if(gs == GroupState.gsLeft) {
-                    listener.onGroupLeft(id);
-                }
-                else if(gs == GroupState.gsConnected) {
-                    listener.onGroupConnected(id);
-                }
-                else if(gs == GroupState.gsDisconnected) {
-                    listener.onGroupDisconnected(id);
+                synchronized (_groupStatusChangeListeners)
+                {
+                    for (IGroupStatusChangeListener listener : _groupStatusChangeListeners)
+                    {
+                        if(gs == GroupState.gsJoined) {
+                            listener.onGroupJoined(id);
+                        }
+                        else if(gs == GroupState.gsLeft) {
+                            listener.onGroupLeft(id);
+                        }
+                        else if(gs == GroupState.gsConnected) {
+                            listener.onGroupConnected(id);
+                        }
+                        else if(gs == GroupState.gsDisconnected) {
+                            listener.onGroupDisconnected(id);
+                        }
+                    }
                 }
             }
-        }
+        });
     }
 
 
@@ -728,6 +734,11 @@ public class EngageApplication
     private boolean _engineRunning = false;
     private ActiveConfiguration _activeConfiguration = null;
     private boolean _missionChangedStatus = false;
+
+    // What the engine was last given - used to work out the least we need to do when the configuration is reloaded
+    private ConfigurationDiff.Snapshot _engineConfiguration = null;
+
+    private final GroupStartupPipeline _groupStartup = new GroupStartupPipeline(Constants.GROUP_STARTUP_PREPARE_THREADS, Constants.GROUP_STARTUP_BATCH_SIZE);
     private final HashSet<IPresenceChangeListener> _presenceChangeListeners = new HashSet<>();
     private final HashSet<IUiUpdateListener> _uiUpdateListeners = new HashSet<>();
     private final HashSet<IAssetChangeListener> _assetChangeListeners = new HashSet<>();
@@ -741,23 +752,26 @@ public class EngageApplication
 
     private enum GroupState {gsUnknown, gsJoined, gsLeft, gsConnected, gsDisconnected};
 
-    private long _lastAudioActivity = 0;
-    private long _lastTxActivity = 0;
-    private boolean _delayTxUnmuteToCaterForSoundPropogation = false;
-    private Timer _groupHealthCheckTimer = null;
+    private volatile long _lastAudioActivity = 0;
+    private volatile long _lastTxActivity = 0;
+    private volatile boolean _delayTxUnmuteToCaterForSoundPropogation = false;
+    private TaskScheduler.Task _groupHealthCheckTimer = null;
+    private TaskScheduler.Task _groupStatsQueryTimer = null;
     private long _lastNetworkErrorNotificationPlayed = 0;
     private HashMap<String, GroupDescriptor> _dynamicGroups = new HashMap<>();
     private HardwareButtonManager _hardwareButtonManager = null;
+    private MyLocationManager _locationManager = null;
     private boolean _licenseExpired = false;
     private double _licenseSecondsLeft = 0;
-    private Timer _licenseActivationTimer = null;
+    private TaskScheduler.Task _licenseActivationTimer = null;
     private boolean _licenseActivationPaused = false;
 
-    private Timer _humanBiometricsReportingTimer = null;
+    private TaskScheduler.Task _humanBiometricsReportingTimer = null;
     private int _hbmTicksSoFar = 0;
     private int _hbmTicksBeforeReport = 5;
+    private final BiometricsBatchCodec _hbmCodec = new BiometricsBatchCodec();
+    private String _hbmBlobInfoJson = null;
 
-    /*
     private DataSeries _hbmHeartRate = null;
     private DataSeries _hbmSkinTemp = null;
     private DataSeries _hbmCoreTemp = null;
@@ -773,12 +787,35 @@ public class EngageApplication
     private RandomHumanBiometricGenerator _rhbmgOxygenation = null;
     private RandomHumanBiometricGenerator _rhbmgFatigueLevel = null;
     private RandomHumanBiometricGenerator _rhbmgTaskEffectiveness = null;
-    */
+
+    private CertStoreIndex _certStoreIndex = null;
+    private CertStoreLoader.Timings _lastCertStoreLoadTimings = null;
+
+    private final GroupStatsTracker _groupStats = new GroupStatsTracker(Constants.GROUP_STATS_HISTORY_SAMPLES);
+    private final RallypointLinkTracker _rpLinks = new RallypointLinkTracker(new RallypointLinkTracker.Thresholds());
 
     private JSONObject _cachedPdLocation = null;
     private JSONObject _cachedPdConnectivityInfo = null;
     private JSONObject _cachedPdPowerInfo = null;
 
+    private final SelfPresencePublisher _selfPresence = new SelfPresencePublisher(new SelfPresencePublisher.Thresholds(),
+                                                                                    Globals.getScheduler(),
+                                                                                    new SelfPresencePublisher.ISender()
+    {
+        @Override
+        public void publish()
+        {
+            runOnUiThread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    sendUpdatedPd(buildPd());
+                }
+            });
+        }
+    });
+
     private MyDeviceMonitor _deviceMonitor = null;
     private boolean _enableDevicePowerMonitor = false;
     private boolean _enableDeviceConnectivityMonitor = false;
@@ -796,11 +833,32 @@ public class EngageApplication
 
     private int[] _audioDeviceIds = null;
     private String[] _audioDeviceNames = null;
-    private HashMap<String, PresenceDescriptor> _nodes = new HashMap<String, PresenceDescriptor>();
+    private final PresenceStore _presenceStore = new PresenceStore();
+    private final PresenceJsonParser _presenceJsonParser = new PresenceJsonParser();
+    private final RediscoveryFilter _rediscoveryFilter = new RediscoveryFilter();
+    private ActiveConfiguration _presenceSyncedConfiguration = null;
     private AudioManager _audioManager = null;
     private int _audioSessionId = 0;
     private boolean _sampleMissionCreatedAndInUse = false;
     private MyAudioProvider _myAudioProvider = null;
+    private final Handler _uiHandler = new Handler(Looper.getMainLooper());
+    private final EngineEventDispatcher _engineEventDispatcher = new EngineEventDispatcher();
+    private final BlobRouter _blobRouter = new BlobRouter();
+    private final static Charset BLOB_TEXT_CHARSET = Charset.forName(Constants.CHARSET);
+    private final GroupUiRefreshScheduler _groupUiRefreshScheduler = new GroupUiRefreshScheduler(new GroupUiRefreshScheduler.IRefreshTarget()
+    {
+        @Override
+        public void onGroupRefresh(GroupDescriptor gd)
+        {
+            synchronized (_uiUpdateListeners)
+            {
+                for(IUiUpdateListener listener : _uiUpdateListeners)
+                {
+                    listener.onGroupUiRefreshNeeded(gd);
+                }
+            }
+        }
+    }, Constants.GROUP_UI_REFRESH_MIN_INTERVAL_MS);
 
     //private ArrayList<JSONObject> _certificateStoreCache = new ArrayList<JSONObject>();
 
@@ -972,7 +1030,7 @@ public class EngageApplication
         public boolean hasRpConnection;
     }
 
-    private HashMap<String, GroupConnectionTrackerInfo> _groupConnections = new HashMap<>();
+    private ConcurrentHashMap<String, GroupConnectionTrackerInfo> _groupConnections = new ConcurrentHashMap<>();
 
 	private void eraseGroupConnectionState(String id)
     {
@@ -1018,59 +1076,106 @@ public class EngageApplication
         return (chk.hasMulticastConnection || chk.hasRpConnection);
     }
 
-    private HashMap<String, ArrayList<TextMessage>> _textMessageDatabase = new HashMap<>();
+    private final TextMessageStore _textMessageStore = new TextMessageStore(Constants.TEXT_MESSAGE_MAX_PER_GROUP,
+                                                                            Constants.TEXT_MESSAGE_MAX_AGE_MS,
+                                                                            Constants.TEXT_MESSAGE_MAX_SEGMENT_BYTES);
 
-	private void wipeTextMessageDatabase()
+    private TaskScheduler.Task _textMessageExpiryTimer = null;
+
+    // Text message history is kept on disk so that it survives a restart rather than being wiped
+    // when the engine stops.  It lives in the app's private no-backup directory so
+    // that Android backup never carries it off the device, and it's deleted when we switch to a
+    // different mission - see discardTextMessageHistory().
+    private File getTextMessageSegmentFile()
+    {
+        return new File(Globals.getContext().getNoBackupFilesDir(), Constants.TEXT_MESSAGE_SEGMENT_FILE_NAME);
+    }
+
+    private void openTextMessageDatabase()
     {
-        synchronized (_textMessageDatabase)
+        try
+        {
+            File segment = getTextMessageSegmentFile();
+
+            // Earlier builds kept the segment in the (backed up) files directory
+            File legacy = new File(Globals.getContext().getFilesDir(), Constants.TEXT_MESSAGE_SEGMENT_FILE_NAME);
+            if(legacy.exists() && (segment.exists() || !legacy.renameTo(segment)))
+            {
+                legacy.delete();
+            }
+
+            _textMessageStore.open(segment);
+
+            TextMessageStore.Stats stats = _textMessageStore.getStats();
+            Globals.getLogger().i(TAG, "text message database loaded " + stats.messagesLoaded + " messages, " + stats.segmentBytes + " bytes");
+
+            if(_textMessageExpiryTimer == null)
+            {
+                _textMessageExpiryTimer = Globals.getScheduler().scheduleAtFixedRate(this, TaskScheduler.Category.general, "textMessageExpiry", new Runnable()//NON-NLS
+                {
+                    @Override
+                    public void run()
+                    {
+                        cleanupTextMessageDatabase();
+                    }
+                }, Constants.TEXT_MESSAGE_EXPIRY_INTERVAL_MS, Constants.TEXT_MESSAGE_EXPIRY_INTERVAL_MS);
+            }
+        }
+        catch (Exception e)
         {
-            _textMessageDatabase.clear();
+            e.printStackTrace();
         }
     }
 
-	private void cleanupTextMessageDatabase()
+	private void wipeTextMessageDatabase()
     {
-        synchronized (_textMessageDatabase)
+        if(_textMessageExpiryTimer != null)
         {
-            // TODO: cleanup the text messaging database to remove old stuff
+            _textMessageExpiryTimer.cancel();
+            _textMessageExpiryTimer = null;
         }
+
+        // Whatever hasn't been written yet goes to disk - then we let go of it all in memory
+        _textMessageStore.close();
     }
 
-    public ArrayList<TextMessage> getTextMessagesForGroup(String id)
+    // History belongs to the mission whose groups it came from
+    private void discardTextMessageHistory()
     {
-        ArrayList<TextMessage> rc = null;
+        Globals.getLogger().i(TAG, "discarding text message history");
+        _textMessageStore.discard(getTextMessageSegmentFile());
+    }
 
-        synchronized (_textMessageDatabase)
-        {
-            ArrayList<TextMessage> theList = _textMessageDatabase.get(id);
-            if(theList != null)
-            {
-                rc = new ArrayList<>();
-                for(TextMessage tm : theList)
-                {
-                    rc.add(tm);
-                }
-            }
-        }
+	private void cleanupTextMessageDatabase()
+    {
+        _textMessageStore.expire();
+    }
 
-        return rc;
+    // A snapshot - it doesn't change when messages are added later and is not a copy.  Only this
+    // group is checked for aged-out messages; the rest are swept by _textMessageExpiryTimer.
+    public List<TextMessage> getTextMessagesForGroup(String id)
+    {
+        return _textMessageStore.getMessages(id);
     }
 
-    public void addTextMessage(TextMessage tm)
+    public List<TextMessage> getTextMessagesForGroup(String id, int fromIndex, int count)
     {
-        synchronized (_textMessageDatabase)
-        {
-            ArrayList<TextMessage> theList = _textMessageDatabase.get(tm._groupId);
-            if(theList == null)
-            {
-                theList = new ArrayList<>();
-                _textMessageDatabase.put(tm._groupId, theList);
-            }
+        return _textMessageStore.getMessages(id, fromIndex, count);
+    }
 
-            theList.add(tm);
+    public int getTextMessageCountForGroup(String id)
+    {
+        return _textMessageStore.getMessageCount(id);
+    }
 
-            cleanupTextMessageDatabase();
-        }
+    public TextMessageStore.Stats getTextMessageStats()
+    {
+        return _textMessageStore.getStats();
+    }
+
+    public void addTextMessage(TextMessage tm)
+    {
+        _textMessageStore.append(tm);
     }
 
     private class MyApplicationIntentReceiver extends BroadcastReceiver
@@ -1524,8 +1629,21 @@ public class EngageApplication
         Globals.setContext(getApplicationContext());
         Globals.setSharedPreferences(PreferenceManager.getDefaultSharedPreferences(this));
         Globals.setAudioPlayerManager(new AudioPlayerManager(this));
+        Globals.getAudioPlayerManager().start();
 
-        ((SimpleLogger)Globals.getLogger()).setLogToEngage(false);
+        Globals.getEngageLogSink().setEnabled(false);
+        Globals.getLoggingBackend().setLevel(BuildConfig.DEBUG ? AsyncLogger.LEVEL_DEBUG : AsyncLogger.LEVEL_INFO);
+
+        // Debug output stays in logcat unless a developer asks for it in the file as well
+        AsyncLogger.RotatingFileSink fileSink = new AsyncLogger.RotatingFileSink(new File(getFilesDir(), Constants.LOG_FILE_NAME),
+                                                                                 Constants.LOG_FILE_MAX_BYTES,
+                                                                                 Constants.LOG_FILE_MAX_FILES);
+        if(Globals.getSharedPreferences().getBoolean(PreferenceKeys.DEVELOPER_MODE_ACTIVE, false)
+                && Globals.getSharedPreferences().getBoolean(PreferenceKeys.DEVELOPER_LOG_DEBUG_TO_FILE, false))
+        {
+            fileSink.setMinLevel(AsyncLogger.LEVEL_DEBUG);
+        }
+        Globals.getLoggingBackend().addSink(fileSink);
 
         Globals.getLogger().d(TAG, "onCreate");
 
@@ -1600,12 +1718,16 @@ public class EngageApplication
 
         if(Globals.getContext().getResources().getBoolean(R.bool.opt_log_to_engage))
         {
-            ((SimpleLogger) Globals.getLogger()).setLogToEngage(true);
+            Globals.getEngageLogSink().setEnabled(true);
         }
 
         // We don't want logging callbacks.  But put this code in anyway to show how its done
         //getEngine().addLoggingListener(this);
 
+        // High-rate engine events are processed off the UI thread
+        _engineEventDispatcher.start();
+        registerBlobHandlers();
+
         getEngine().addEngineListener(this);
         getEngine().addRallypointListener(this);
         getEngine().addGroupListener(this);
@@ -1671,6 +1793,7 @@ public class EngageApplication
     public void onTerminate()
     {
         Globals.getLogger().d(TAG, "onTerminate");
+        Globals.getSettings().flush();
         stopAudioDeviceManager();
         stopDeviceMonitor();
         stopAppIntentReceiver();
@@ -1685,6 +1808,14 @@ public class EngageApplication
         getEngine().removeGroupListener(this);
         getEngine().removeLicenseListener(this);
 
+        _engineEventDispatcher.stop();
+        _blobRouter.stop();
+        _groupUiRefreshScheduler.cancel();
+        _groupStartup.shutdown();
+        _selfPresence.stop();
+        Globals.getScheduler().cancelAll(this);
+        Globals.getLoggingBackend().flush(1000);
+
         super.onTerminate();
     }
 
@@ -1723,6 +1854,9 @@ public class EngageApplication
     public void onActivityPaused(Activity activity)
     {
         Globals.getLogger().d(TAG, "onActivityPaused: " + activity.toString());
+
+        // Don't leave settings sitting in memory if we might be about to go away
+        Globals.getSettings().flush();
     }
 
     @Override
@@ -1856,16 +1990,50 @@ public class EngageApplication
     public enum PowerSourceType {unknown, battery, wired}
     public enum PowerSourceState {unknown, charging, discharging, notCharging, full}
 
+    // The cached PD objects are always brought up to date but it's up to the publisher whether (and when)
+    // the change is worth sending
     public void onConnectivityChange(boolean connected, ConnectivityType type, int rssi, int qualityRating)
     {
         updateCachedPdConnectivityInfo(type, rssi, qualityRating);
-        sendUpdatedPd(buildPd());
+        if(_cachedPdConnectivityInfo != null)
+        {
+            _selfPresence.onConnectivityChanged(type.ordinal(), qualityRating);
+        }
     }
 
     public void onPowerChange(PowerSourceType source, PowerSourceState state, int level)
     {
         updateCachedPdPowerInfo(source, state, level);
-        sendUpdatedPd(buildPd());
+        if(_cachedPdPowerInfo != null)
+        {
+            _selfPresence.onPowerChanged(source.ordinal(), state.ordinal(), level);
+        }
+    }
+
+    public void onLocationChange(Location location)
+    {
+        updateCachedPdLocation(location);
+        if(location != null)
+        {
+            _selfPresence.onLocationChanged(location.getLatitude(),
+                                            location.getLongitude(),
+                                            (location.hasBearing() ? location.getBearing() : Double.NaN));
+        }
+    }
+
+    public SelfPresencePublisher.Stats getSelfPresenceStats()
+    {
+        return _selfPresence.getStats();
+    }
+
+    public GroupStatsTracker getGroupStatsTracker()
+    {
+        return _groupStats;
+    }
+
+    public RallypointLinkTracker getRallypointLinkTracker()
+    {
+        return _rpLinks;
     }
 
     private JSONObject buildPd()
@@ -1934,32 +2102,32 @@ public class EngageApplication
         return rc;
     }
 
+    public synchronized CertStoreIndex getCertStoreIndex()
+    {
+        if(_certStoreIndex == null)
+        {
+            _certStoreIndex = new CertStoreIndex(new File(getFilesDir(), Constants.CERTSTORE_INDEX_FN),
+                                                    new File(getCertStoreCacheDir()),
+                                                    new CertStoreIndex.IProber()
+            {
+                @Override
+                public String queryContents(String path, String password)
+                {
+                    return getEngine().engageQueryCertStoreContents(path, password);
+                }
+            });
+        }
+
+        return _certStoreIndex;
+    }
+
     public JSONObject getCertificateStoreDescriptorForFile(String filePath)
     {
         JSONObject rc = null;
-        String jsonText;
 
         try
         {
-            Set<String> passwords = getCertificateStoresPasswords();
-            for(String pwd : passwords)
-            {
-                jsonText = Globals.getEngageApplication().getEngine().engageQueryCertStoreContents(filePath, pwd);
-                if(!Utils.isEmptyString(jsonText))
-                {
-                    JSONObject tmp = new JSONObject(jsonText);
-                    if(tmp != null)
-                    {
-                        int version = tmp.optInt(Engine.JsonFields.CertStoreDescriptor.version, 0);
-                        if(version > 0)
-                        {
-                            tmp.put(Constants.CERTSTORE_JSON_INTERNAL_PASSWORD_HEX_STRING, Utils.isEmptyString(pwd) ? "" : pwd);
-                            rc = tmp;
-                            break;
-                        }
-                    }
-                }
-            }
+            rc = getCertStoreIndex().getDescriptor(new File(filePath), getCertificateStoresPasswords());
         }
         catch(Exception e)
         {
@@ -2046,7 +2214,7 @@ public class EngageApplication
         stopDeviceMonitor();
         stopAudioDeviceManager();
 
-        // Clear out the text messaging database so that we don't have cached stuff hanging around
+        // Get the text messaging database onto disk and out of memory so that we don't have cached stuff hanging around
         wipeTextMessageDatabase();
 
         if(getEngine() != null)
@@ -2272,10 +2440,49 @@ public class EngageApplication
 
     public void startLocationUpdates()
     {
+        stopLocationUpdates();
+
+        ActiveConfiguration ac = getActiveConfiguration();
+        if(ac == null || !ac.getLocationConfiguration().enabled)
+        {
+            return;
+        }
+
+        ActiveConfiguration.LocationConfiguration lc = ac.getLocationConfiguration();
+
+        // The accuracy setting holds the location request priority itself
+        int priority = lc.accuracy;
+        if(priority != MyLocationManager.PRIORITY_HIGH_ACCURACY
+            && priority != MyLocationManager.PRIORITY_BALANCED_POWER_ACCURACY
+            && priority != MyLocationManager.PRIORITY_LOW_POWER
+            && priority != MyLocationManager.PRIORITY_NO_POWER)
+        {
+            priority = MyLocationManager.PRIORITY_BALANCED_POWER_ACCURACY;
+        }
+
+        Globals.getLogger().d(TAG, "startLocationUpdates");//NON-NLS
+        _locationManager = new MyLocationManager(this, new MyLocationManager.ILocationUpdateNotifications()
+        {
+            @Override
+            public void onLocationUpdated(Location loc)
+            {
+                onLocationChange(loc);
+            }
+        }, priority, lc.intervalMs, lc.minIntervalMs, lc.minDisplacement);
+
+        _locationManager.start();
     }
 
     public void stopLocationUpdates()
     {
+        if(_locationManager != null)
+        {
+            _locationManager.stop();
+            _locationManager = null;
+        }
+
+        // Don't go on sending where we were once we've stopped looking
+        _cachedPdLocation = null;
     }
 
     public void setMissionChangedStatus(boolean s)
@@ -2301,12 +2508,12 @@ public class EngageApplication
         {
             if(getActiveConfiguration() != null)
             {
-                Globals.getLogger().d(TAG, "sendUpdatedPd pd=" + pd.toString());
+                String pdString = pd.toString();
+                Globals.getLogger().d(TAG, "sendUpdatedPd pd=%s", pdString);//NON-NLS
 
                 if(getActiveConfiguration().getMissionGroups() != null)
                 {
                     boolean anyPresenceGroups = false;
-                    String pdString = pd.toString();
 
                     for(GroupDescriptor gd : getActiveConfiguration().getMissionGroups())
                     {
@@ -2323,7 +2530,9 @@ public class EngageApplication
                     }
                     else
                     {
-                        Globals.getLogger().i(TAG, "sendUpdatedPd sent updated PD: " + pdString);
+                        SelfPresencePublisher.Stats st = _selfPresence.getStats();
+                        Globals.getLogger().i(TAG, "sendUpdatedPd sent updated PD (sent=%d, suppressed=%d, merged=%d): %s",//NON-NLS
+                                                st.sent, st.suppressed, st.merged, pdString);
                     }
                 }
                 else
@@ -2347,13 +2556,13 @@ public class EngageApplication
     {
         VolumeLevels vl = new VolumeLevels();
 
-        vl.left = Utils.getSafeSharedPreferencesInt(PreferenceKeys.VOLUME_LEFT_FOR_GROUP_BASE_NAME + groupId, 100);
+        vl.left = Globals.getSettings().getInt(PreferenceKeys.VOLUME_LEFT_FOR_GROUP_BASE_NAME + groupId, 100);
         if(vl.left < 0)
         {
             vl.left = 0;
         }
 
-        vl.right = Utils.getSafeSharedPreferencesInt(PreferenceKeys.VOLUME_RIGHT_FOR_GROUP_BASE_NAME + groupId, 100);
+        vl.right = Globals.getSettings().getInt(PreferenceKeys.VOLUME_RIGHT_FOR_GROUP_BASE_NAME + groupId, 100);
         if(vl.right < 0)
         {
             vl.right = 0;
@@ -2364,9 +2573,9 @@ public class EngageApplication
 
     public void saveVolumeLevels(String groupId, VolumeLevels vl)
     {
-        Globals.getSharedPreferencesEditor().putInt(PreferenceKeys.VOLUME_LEFT_FOR_GROUP_BASE_NAME + groupId, vl.left);
-        Globals.getSharedPreferencesEditor().putInt(PreferenceKeys.VOLUME_RIGHT_FOR_GROUP_BASE_NAME + groupId, vl.right);
-        Globals.getSharedPreferencesEditor().apply();
+        // Volume sliders produce a stream of these, the settings cache rolls them up into one write
+        Globals.getSettings().putInt(PreferenceKeys.VOLUME_LEFT_FOR_GROUP_BASE_NAME + groupId, vl.left);
+        Globals.getSettings().putInt(PreferenceKeys.VOLUME_RIGHT_FOR_GROUP_BASE_NAME + groupId, vl.right);
     }
 
     private GroupDescriptor getGroup(String id)
@@ -2434,7 +2643,14 @@ public class EngageApplication
 
     private String buildFinalGroupJsonConfiguration(GroupDescriptor gd)
     {
-        String rc;
+        JSONObject group = buildFinalGroupJsonObject(gd);
+
+        return FlavorSpecific.applyGroupModifications(group != null ? group.toString() : null);
+    }
+
+    private JSONObject buildFinalGroupJsonObject(GroupDescriptor gd)
+    {
+        JSONObject rc;
 
         try
         {
@@ -2544,7 +2760,7 @@ public class EngageApplication
             }
 
             // This group may be forced in multicast or rallypoint mode - check it!
-            GroupDescriptor.GroupNetworkMode networkMode = gd.getNetworkMode();
+            GroupDescriptor.GroupNetworkMode networkMode = GroupDescriptor.getNetworkMode(group);
 
             if((networkMode == GroupDescriptor.GroupNetworkMode.nothingSpecial || networkMode == GroupDescriptor.GroupNetworkMode.rallypointOnly) && _activeConfiguration.getUseRp())
             {
@@ -2595,7 +2811,7 @@ public class EngageApplication
 
             }
 
-            rc = group.toString();
+            rc = group;
         }
         catch (Exception e)
         {
@@ -2603,7 +2819,7 @@ public class EngageApplication
             rc = null;
         }
 
-        return FlavorSpecific.applyGroupModifications(rc);
+        return rc;
     }
 
     public String getDefaultCertificateIdUri()
@@ -2657,56 +2873,141 @@ public class EngageApplication
     public void createAllGroupObjects()
     {
         Globals.getLogger().d(TAG, "createAllGroupObjects");
+        runGroupStartup(false);
+    }
+
+    // Creates the mission's groups and joins those that are selected
+    public void createAndJoinAllGroups()
+    {
+        Globals.getLogger().d(TAG, "createAndJoinAllGroups");
+        runGroupStartup(true);
+    }
+
+    private void runGroupStartup(boolean joinSelected)
+    {
         try
         {
+            HashSet<String> selected = (joinSelected ? _activeConfiguration.getIdsOfSelectedGroups() : new HashSet<String>());
+            ArrayList<GroupStartupPipeline.Job> jobs = new ArrayList<>();
+
             for(GroupDescriptor gd : _activeConfiguration.getMissionGroups())
             {
-                boolean ok;
+                jobs.add(new GroupStartupPipeline.Job(gd.id, selected.contains(gd.id), gd));
+            }
 
-                String groupJson = buildFinalGroupJsonConfiguration(gd);
+            GroupStartupPipeline.Trace trace = _groupStartup.run(jobs, _groupStartupHandler);
+            Globals.getLogger().i(TAG, "group startup issued: " + trace.toString());
 
-                // Now that we have the descriptor we need to make sure that we can actually use it
-                try
-                {
-                    JSONObject jo = new JSONObject(groupJson);
-                    JSONArray rp = jo.optJSONArray(Engine.JsonFields.Rallypoint.arrayName);
+            if(trace.isComplete())
+            {
+                Globals.getLogger().i(TAG, "group startup complete: " + trace.toString());
+            }
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+    }
 
-                    // If there's no RP then see if it'll work without an RP
-                    if(rp == null)
-                    {
-                        ok = gd.couldWorkWithoutRallypoint();
-                    }
-                    else
-                    {
-                        ok = true;
-                    }
-                }
-                catch (Exception e)
-                {
-                    ok = false;
-                }
+    private final GroupStartupPipeline.IJobHandler _groupStartupHandler = new GroupStartupPipeline.IJobHandler()
+    {
+        @Override
+        public void prepare(GroupStartupPipeline.Job job)
+        {
+            GroupDescriptor gd = (GroupDescriptor) job.tag;
 
-                if(ok)
-                {
-                    Globals.getLogger().d(TAG, "creating " + gd.id + " (" + gd.name + ") of mission " + _activeConfiguration.getMissionName());
+            job.json = buildCreatableGroupJsonConfiguration(gd);
+            job.usable = (job.json != null);
 
-                    getEngine().engageCreateGroup(groupJson);
-                    if(gd.type == GroupDescriptor.Type.gtAudio)
-                    {
-                        VolumeLevels vl = loadVolumeLevels(gd.id);
-                        getEngine().engageSetGroupRxVolume(gd.id, vl.left, vl.right);
-                    }
-                }
-                else
+            if(job.usable)
+            {
+                if(gd.type == GroupDescriptor.Type.gtAudio)
                 {
-                    Globals.getLogger().w(TAG, "not creating " + gd.id + " (" + gd.name + ") of mission " + _activeConfiguration.getMissionName() + " because it's configuration is not suitable at this time");
+                    job.extra = loadVolumeLevels(gd.id);
                 }
             }
+            else
+            {
+                Globals.getLogger().w(TAG, "not creating " + gd.id + " (" + gd.name + ") of mission " + _activeConfiguration.getMissionName() + " because it's configuration is not suitable at this time");
+            }
         }
-        catch (Exception e)
+
+        @Override
+        public void create(GroupStartupPipeline.Job job)
         {
-            e.printStackTrace();
+            GroupDescriptor gd = (GroupDescriptor) job.tag;
+
+            Globals.getLogger().d(TAG, "creating " + gd.id + " (" + gd.name + ") of mission " + _activeConfiguration.getMissionName());
+            createGroup(gd, job.json, (VolumeLevels) job.extra);
+        }
+
+        @Override
+        public void join(GroupStartupPipeline.Job job)
+        {
+            joinGroup(job.id);
+        }
+    };
+
+    private void createGroup(GroupDescriptor gd, String groupJson, VolumeLevels vl)
+    {
+        getEngine().engageCreateGroup(groupJson);
+        if(gd.type == GroupDescriptor.Type.gtAudio)
+        {
+            if(vl == null)
+            {
+                vl = loadVolumeLevels(gd.id);
+            }
+
+            getEngine().engageSetGroupRxVolume(gd.id, vl.left, vl.right);
+        }
+
+        if(_engineConfiguration != null)
+        {
+            _engineConfiguration.groups.put(gd.id, groupJson);
+        }
+    }
+
+    // The final JSON for the group or null if its configuration means we can't use it right now
+    private String buildCreatableGroupJsonConfiguration(GroupDescriptor gd)
+    {
+        JSONObject group = buildFinalGroupJsonObject(gd);
+        if(group == null)
+        {
+            return null;
+        }
+
+        String groupJson = group.toString();
+        String finalJson = FlavorSpecific.applyGroupModifications(groupJson);
+        if(finalJson == null)
+        {
+            return null;
+        }
+
+        // The flavor may have changed things, in which case we have to look at what it gave us
+        if(!finalJson.equals(groupJson))
+        {
+            try
+            {
+                group = new JSONObject(finalJson);
+            }
+            catch (Exception e)
+            {
+                return null;
+            }
+        }
+
+        // If there's no RP then see if it'll work without an RP
+        boolean ok;
+        if(group.optJSONArray(Engine.JsonFields.Rallypoint.arrayName) == null)
+        {
+            ok = GroupDescriptor.couldWorkWithoutRallypoint(group);
+        }
+        else
+        {
+            ok = true;
         }
+
+        return (ok ? finalJson : null);
     }
 
     public void joinSelectedGroups()
@@ -2756,10 +3057,7 @@ public class EngageApplication
             {
                 if(gd.type == GroupDescriptor.Type.gtPresence)
                 {
-                    synchronized (_nodes)
-                    {
-                        _nodes.clear();
-                    }
+                    _presenceStore.clear();
                 }
             }
         }
@@ -2775,6 +3073,7 @@ public class EngageApplication
         try
         {
             stopGroupHealthCheckTimer();
+            stopGroupStatsQueryTimer();
             for(GroupDescriptor gd : _activeConfiguration.getMissionGroups())
             {
                 leaveGroup(gd.id);
@@ -2791,8 +3090,7 @@ public class EngageApplication
         Globals.getLogger().d(TAG, "startGroupHealthCheckerTimer");
         if(_groupHealthCheckTimer == null)
         {
-            _groupHealthCheckTimer = new Timer();
-            _groupHealthCheckTimer.scheduleAtFixedRate(new TimerTask()
+            _groupHealthCheckTimer = Globals.getScheduler().scheduleAtFixedRate(this, TaskScheduler.Category.groups, "groupHealthCheck", new Runnable()//NON-NLS
             {
                 @Override
                 public void run()
@@ -2813,16 +3111,62 @@ public class EngageApplication
         }
     }
 
-    private void checkOnGroupHealth()
+    // The engine only sends group stats and health reports when asked so we ask for both, for every
+    // joined group, once per row of GroupStatsTracker history
+    private void startGroupStatsQueryTimer()
     {
-        if(_activeConfiguration.getNotifyOnNetworkError())
+        Globals.getLogger().d(TAG, "startGroupStatsQueryTimer");
+        if(_groupStatsQueryTimer == null)
         {
-            for (GroupDescriptor gd : _activeConfiguration.getMissionGroups())
+            _groupStatsQueryTimer = Globals.getScheduler().scheduleAtFixedRate(this, TaskScheduler.Category.groups, "groupStatsQuery", new Runnable()//NON-NLS
             {
-                if (gd.created && gd.joined && !gd.isConnectedInSomeForm())
+                @Override
+                public void run()
                 {
-                    long now = Utils.nowMs();
-                    if(now - _lastNetworkErrorNotificationPlayed >= Constants.GROUP_HEALTH_CHECK_NETWORK_ERROR_NOTIFICATION_MIN_INTERVAL_MS)
+                    queryGroupStats();
+                }
+            }, Constants.GROUP_STATS_QUERY_INTERVAL_MS, Constants.GROUP_STATS_QUERY_INTERVAL_MS);
+        }
+    }
+
+    private void stopGroupStatsQueryTimer()
+    {
+        Globals.getLogger().d(TAG, "stopGroupStatsQueryTimer");
+        if(_groupStatsQueryTimer != null)
+        {
+            _groupStatsQueryTimer.cancel();
+            _groupStatsQueryTimer = null;
+        }
+    }
+
+    private void queryGroupStats()
+    {
+        ActiveConfiguration ac = _activeConfiguration;
+        if(!_engineRunning || ac == null)
+        {
+            return;
+        }
+
+        for(GroupDescriptor gd : ac.getMissionGroups())
+        {
+            if(gd.created && gd.joined)
+            {
+                getEngine().engageQueryGroupStats(gd.id);
+                getEngine().engageQueryGroupHealth(gd.id);
+            }
+        }
+    }
+
+    private void checkOnGroupHealth()
+    {
+        if(_activeConfiguration.getNotifyOnNetworkError())
+        {
+            for (GroupDescriptor gd : _activeConfiguration.getMissionGroups())
+            {
+                if (gd.created && gd.joined && !gd.isConnectedInSomeForm())
+                {
+                    long now = Utils.nowMs();
+                    if(now - _lastNetworkErrorNotificationPlayed >= Constants.GROUP_HEALTH_CHECK_NETWORK_ERROR_NOTIFICATION_MIN_INTERVAL_MS)
                     {
                         playNetworkDownNotification();
                         _lastNetworkErrorNotificationPlayed = now;
@@ -3046,11 +3390,100 @@ public class EngageApplication
         */
     }
 
-    public void restartEngine()
+    // Returns true if the change was applied to the running engine - groups have already been
+    // created, deleted, joined and left as needed.  False means the engine is being restarted.
+    public boolean restartEngine()
     {
         Globals.getLogger().d(TAG, "restartEngine");
+
+        // If the engine is up then see if we can get away with just adjusting its groups
+        if(_engineRunning && _engineConfiguration != null && applyConfigurationChanges())
+        {
+            return true;
+        }
+
         _startOnEngineStopped = true;
         stopEngine();
+
+        return false;
+    }
+
+    // Reloads the active configuration and applies whatever changed to the running engine.  Returns
+    // false if the change is one that can only be taken by restarting the engine.
+    private boolean applyConfigurationChanges()
+    {
+        try
+        {
+            ConfigurationDiff.Snapshot before = _engineConfiguration.copy();
+            before.selectedGroups = _activeConfiguration.getIdsOfSelectedGroups();
+
+            updateActiveConfiguration();
+            if(_activeConfiguration == null)
+            {
+                return false;
+            }
+
+            ConfigurationDiff.Snapshot after = new ConfigurationDiff.Snapshot(buildEnginePolicyJson(),
+                                                                                getActiveConfiguration().makeIdentityObject().toString(),
+                                                                                _activeConfiguration.getMissionCertStoreId());
+            after.missionId = _activeConfiguration.getMissionId();
+
+            HashMap<String, GroupDescriptor> descriptors = new HashMap<>();
+            for(GroupDescriptor gd : _activeConfiguration.getMissionGroups())
+            {
+                String groupJson = buildCreatableGroupJsonConfiguration(gd);
+                if(groupJson != null)
+                {
+                    after.groups.put(gd.id, groupJson);
+                    descriptors.put(gd.id, gd);
+                }
+            }
+            after.selectedGroups = _activeConfiguration.getIdsOfSelectedGroups();
+
+            ConfigurationDiff.Plan plan = ConfigurationDiff.compare(before, after);
+            Globals.getLogger().i(TAG, "configuration change plan: " + plan.toString());
+
+            if(plan.requiresRestart())
+            {
+                return false;
+            }
+
+            for(String id : plan.toLeave)
+            {
+                leaveGroup(id);
+            }
+
+            for(String id : plan.toDelete)
+            {
+                getEngine().engageDeleteGroup(id);
+                _engineConfiguration.groups.remove(id);
+            }
+
+            for(String id : plan.toCreate)
+            {
+                createGroup(descriptors.get(id), after.groups.get(id), null);
+            }
+
+            for(String id : plan.toReconfigure)
+            {
+                getEngine().engageReconfigureGroup(id, after.groups.get(id));
+                _engineConfiguration.groups.put(id, after.groups.get(id));
+            }
+
+            for(String id : plan.toJoin)
+            {
+                joinGroup(id);
+            }
+
+            setMissionChangedStatus(false);
+
+            return true;
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+            return false;
+        }
     }
 
     public String getCertStoreCacheDir()
@@ -3080,24 +3513,7 @@ public class EngageApplication
         {
             try
             {
-                File dir = new File(getCertStoreCacheDir());
-                File[] allContents = dir.listFiles();
-                if (allContents != null)
-                {
-                    for (File file : allContents)
-                    {
-                        JSONObject descriptor = Globals.getEngageApplication().getCertificateStoreDescriptorForFile(file.getAbsolutePath());
-                        if (descriptor != null)
-                        {
-                            String testId = descriptor.optString("id", "");
-                            if(testId.compareToIgnoreCase(id) == 0)
-                            {
-                                fn = file.getAbsolutePath();
-                                break;
-                            }
-                        }
-                    }
-                }
+                fn = getCertStoreIndex().findPathForId(id, getCertificateStoresPasswords());
             }
             catch (Exception e)
             {
@@ -3117,32 +3533,8 @@ public class EngageApplication
 
     }
 
-    private byte[] getCustomCertStoreContent(String id)
-    {
-        byte[] rc = null;
-
-        try
-        {
-            String fn = getCustomCertStoreFn(id);
-            if(!Utils.isEmptyString(fn))
-            {
-                RandomAccessFile raf = new RandomAccessFile(fn, "r");
-                rc = new byte[(int)raf.length()];
-                raf.readFully(rc);
-                raf.close();
-
-                Globals.getLogger().i(TAG, "Auto-importing custom certificate store '" + fn + "'");
-            }
-        }
-        catch (Exception e)
-        {
-            e.printStackTrace();
-            rc = null;
-        }
-
-        return rc;
-    }
-
+    // Only rewrites the file if its content differs from the resource - rewriting an unchanged cert store
+    // would otherwise have the index probe it all over again
     private void exportRawFile(int resId, String fn)
     {
         try
@@ -3155,12 +3547,10 @@ public class EngageApplication
                 throw new Exception("cannot load binary resource");
             }
 
-            File fd = new File(fn);
-            fd.deleteOnExit();
-
-            FileOutputStream fos = new FileOutputStream(fd);
-            fos.write(fileContent);
-            fos.close();
+            if(!CertStoreLoader.exportIfChanged(fileContent, new File(fn)))
+            {
+                Globals.getLogger().d(TAG, "exportRawFile: '%s' is unchanged", fn);//NON-NLS
+            }
         }
         catch (Exception e)
         {
@@ -3217,42 +3607,83 @@ public class EngageApplication
     }
     */
 
+    public CertStoreLoader.Timings getLastCertStoreLoadTimings()
+    {
+        return _lastCertStoreLoadTimings;
+    }
+
     private boolean openCertificateStore(String id)
     {
         boolean rc = false;
+        CertStoreLoader.Timings timings = new CertStoreLoader.Timings();
 
         // Get rid of any actively cached files
         deleteActiveCertStore();
 
         try
         {
-            byte[] certStoreContent;
+            long started = System.nanoTime();
+            Set<String> passwords = getCertificateStoresPasswords();
+            byte[] certStoreContent = null;
+            String rememberedPassword = null;
 
-            certStoreContent = getCustomCertStoreContent(id);
+            String fn = getCustomCertStoreFn(id);
+            if(Utils.isEmptyString(fn) && Utils.isEmptyString(id))
+            {
+                // The default store is normally already in the cache directory (and in the index) by now
+                File defaultStore = new File(getCertStoreCacheDir(), Constants.INTERNAL_DEFAULT_CERTSTORE_FN);
+                if(defaultStore.isFile())
+                {
+                    fn = defaultStore.getAbsolutePath();
+                }
+            }
+
+            if(!Utils.isEmptyString(fn))
+            {
+                File f = new File(fn);
+                CertStoreIndex.Entry entry = getCertStoreIndex().getEntry(f, passwords);
+                if(entry != null && entry.isValid())
+                {
+                    rememberedPassword = entry.password;
+                }
+
+                timings.lookupUs = ((System.nanoTime() - started) / 1000);
+                started = System.nanoTime();
+
+                certStoreContent = CertStoreLoader.readMapped(f);
+                timings.source = fn;
 
-            if(certStoreContent == null)
+                Globals.getLogger().i(TAG, "Auto-importing custom certificate store '" + fn + "'");
+            }
+            else
             {
                 if(!Utils.isEmptyString(id))
                 {
                     throw new Exception("cannot find certificate store for id " + id);
                 }
 
+                timings.lookupUs = ((System.nanoTime() - started) / 1000);
+                started = System.nanoTime();
+
                 certStoreContent = Utils.getBinaryResource(Globals.getContext(), R.raw.android_engage_default_certstore);
                 if(certStoreContent == null)
                 {
                     throw new Exception("cannot load binary resource");
                 }
+
+                timings.source = "resource";//NON-NLS
             }
 
-            Set<String> passwords = getCertificateStoresPasswords();
-            for(String pwd : passwords)
+            timings.loadUs = ((System.nanoTime() - started) / 1000);
+
+            rc = CertStoreLoader.open(certStoreContent, rememberedPassword, passwords, new CertStoreLoader.IStoreOpener()
             {
-                if(getEngine().engageSetCertStore(certStoreContent, certStoreContent.length, pwd) == 0)
+                @Override
+                public boolean open(byte[] content, String password)
                 {
-                    rc = true;
-                    break;
+                    return (getEngine().engageSetCertStore(content, content.length, password) == 0);
                 }
-            }
+            }, timings);
         }
         catch (Exception e)
         {
@@ -3260,6 +3691,9 @@ public class EngageApplication
             rc = false;
         }
 
+        _lastCertStoreLoadTimings = timings;
+        Globals.getLogger().i(TAG, "openCertificateStore: %s", timings);//NON-NLS
+
         return rc;
     }
 
@@ -3358,9 +3792,9 @@ public class EngageApplication
     private void deleteAllMissions()
     {
         // Wipe the active mission and database
-        Globals.getSharedPreferencesEditor().putString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_JSON, "");
-        Globals.getSharedPreferencesEditor().putString(Constants.MISSION_DATABASE_NAME, "");
-        Globals.getSharedPreferencesEditor().apply();
+        Globals.getSettings().putString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_JSON, "");
+        Globals.getSettings().putString(Constants.MISSION_DATABASE_NAME, "");
+        Globals.getSettings().flush();
     }
 
     public void deleteFixedIdSampleMission()
@@ -3520,8 +3954,8 @@ public class EngageApplication
             resultingMissionId = null;
         }
 
-        Globals.getSharedPreferencesEditor().putString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_JSON, missionJson);
-        Globals.getSharedPreferencesEditor().apply();
+        Globals.getSettings().putString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_JSON, missionJson);
+        Globals.getSettings().flush();
 
         if(!Utils.isEmptyString(missionJson))
         {
@@ -3539,8 +3973,8 @@ public class EngageApplication
         String missionJson = Utils.getStringResource(this, R.raw.public_mission_template);
 
         missionJson = FlavorSpecific.applyGeneratedMissionModifications(missionJson, true);
-        Globals.getSharedPreferencesEditor().putString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_JSON, missionJson);
-        Globals.getSharedPreferencesEditor().apply();
+        Globals.getSettings().putString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_JSON, missionJson);
+        Globals.getSettings().flush();
 
         ActiveConfiguration.installMissionJson(null, missionJson, true);
     }
@@ -3571,10 +4005,8 @@ public class EngageApplication
 
         try
         {
-            synchronized (_nodes)
-            {
-                _nodes.clear();
-            }
+            _presenceStore.clear();
+            openTextMessageDatabase();
 
             // We may need to create a sample configuration for a fixed ID - check for that
             //createOrReplaceFixedIdSampleConfiguration(false);
@@ -3599,42 +4031,7 @@ public class EngageApplication
             openCertificateStore(_activeConfiguration.getMissionCertStoreId());
 
             setMissionChangedStatus(false);
-            JSONObject policyBaseline = ActiveConfiguration.makeBaselineEnginePolicyObject(getEnginePolicy());
-
-            String enginePolicyJson = getActiveConfiguration().makeEnginePolicyObjectFromBaseline(policyBaseline).toString();
-
-            // Apply app-level fine-tuning
-            boolean devModeActive = Globals.getSharedPreferences().getBoolean(PreferenceKeys.DEVELOPER_MODE_ACTIVE, false);
-            if(devModeActive)
-            {
-                try {
-                    JSONObject policy = new JSONObject(enginePolicyJson);
-
-                    int i = Utils.getSafeSharedPreferencesInt(PreferenceKeys.DEVELOPER_RP_CONNECT_TIMEOUT_SECS, 5);
-                    System.out.println(i);
-
-                    policy.getJSONObject("internals")
-                            .put("rpConnectionTimeoutSecs",
-                                    Utils.getSafeSharedPreferencesInt(PreferenceKeys.DEVELOPER_RP_CONNECT_TIMEOUT_SECS, 5));
-                    policy.getJSONObject("internals")
-                            .put("rpTransactionTimeoutMs",
-                                    Utils.getSafeSharedPreferencesInt(PreferenceKeys.DEVELOPER_RP_TRANSACTION_TIMEOUT_MS, 5000));
-
-                    policy.getJSONObject("networking")
-                            .put("rallypointRtTestIntervalMs",
-                                    Utils.getSafeSharedPreferencesInt(PreferenceKeys.DEVELOPER_RP_RT_TEST_INTERVAL_MS, 30000));
-
-                    policy.getJSONObject("networking")
-                            .getJSONObject("rpUdpStreaming")
-                            .put("enabled",
-                                    Globals.getSharedPreferences().getBoolean(PreferenceKeys.DEVELOPER_RP_USE_UDP_STREAMING, false));
-
-                    enginePolicyJson = policy.toString();
-                }
-                catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
+            String enginePolicyJson = buildEnginePolicyJson();
 
             String identityJson = getActiveConfiguration().makeIdentityObject().toString();
 
@@ -3656,12 +4053,16 @@ public class EngageApplication
 
             getEngine().engageSetLogLevel(4);
 
+            _groupStartup.markEngineInitializing();
             int initRc = getEngine().engageInitialize(enginePolicyJson,
                     identityJson,
                     "");
 
             if(initRc  == 0)
             {
+                _engineConfiguration = new ConfigurationDiff.Snapshot(enginePolicyJson, identityJson, _activeConfiguration.getMissionCertStoreId());
+                _engineConfiguration.missionId = _activeConfiguration.getMissionId();
+
                 getEngine().engageStart();
                 startAudioDeviceManager();
 
@@ -3682,6 +4083,45 @@ public class EngageApplication
         return rc;
     }
 
+    private String buildEnginePolicyJson()
+    {
+        JSONObject policyBaseline = ActiveConfiguration.makeBaselineEnginePolicyObject(getEnginePolicy());
+
+        String enginePolicyJson = getActiveConfiguration().makeEnginePolicyObjectFromBaseline(policyBaseline).toString();
+
+        // Apply app-level fine-tuning
+        boolean devModeActive = Globals.getSharedPreferences().getBoolean(PreferenceKeys.DEVELOPER_MODE_ACTIVE, false);
+        if(devModeActive)
+        {
+            try {
+                JSONObject policy = new JSONObject(enginePolicyJson);
+
+                policy.getJSONObject("internals")
+                        .put("rpConnectionTimeoutSecs",
+                                Utils.getSafeSharedPreferencesInt(PreferenceKeys.DEVELOPER_RP_CONNECT_TIMEOUT_SECS, 5));
+                policy.getJSONObject("internals")
+                        .put("rpTransactionTimeoutMs",
+                                Utils.getSafeSharedPreferencesInt(PreferenceKeys.DEVELOPER_RP_TRANSACTION_TIMEOUT_MS, 5000));
+
+                policy.getJSONObject("networking")
+                        .put("rallypointRtTestIntervalMs",
+                                Utils.getSafeSharedPreferencesInt(PreferenceKeys.DEVELOPER_RP_RT_TEST_INTERVAL_MS, 30000));
+
+                policy.getJSONObject("networking")
+                        .getJSONObject("rpUdpStreaming")
+                        .put("enabled",
+                                Globals.getSharedPreferences().getBoolean(PreferenceKeys.DEVELOPER_RP_USE_UDP_STREAMING, false));
+
+                enginePolicyJson = policy.toString();
+            }
+            catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+
+        return enginePolicyJson;
+    }
+
     public void stopEngine()
     {
         try
@@ -3691,6 +4131,7 @@ public class EngageApplication
             stopAudioDeviceManager();
 
             _engineRunning = false;
+            _engineConfiguration = null;
             if(Engine.EngageResult.fromInt(getEngine().engageStop()) != Engine.EngageResult.ok)
             {
                 runOnUiThread(new Runnable() {
@@ -3701,10 +4142,9 @@ public class EngageApplication
                 });
             }
 
-            synchronized (_nodes)
-            {
-                _nodes.clear();
-            }
+            _presenceStore.clear();
+            _rediscoveryFilter.clear();
+            _rpLinks.clear();
         }
         catch (Exception e)
         {
@@ -3716,19 +4156,16 @@ public class EngageApplication
     {
         int rc = 0;
 
-        synchronized (_nodes)
+        if(Utils.isEmptyString(forGroupId))
         {
-            if(Utils.isEmptyString(forGroupId))
-            {
-                rc = _nodes.size();
-            }
-            else
+            rc = _presenceStore.size();
+        }
+        else
+        {
+            GroupDescriptor gd = getGroup(forGroupId);
+            if(gd != null)
             {
-                GroupDescriptor gd = getGroup(forGroupId);
-                if(gd != null)
-                {
-                    rc = gd.getMemberCountForStatus(Constants.GMT_STATUS_FLAG_CONNECTED);
-                }
+                rc = gd.getMemberCountForStatus(Constants.GMT_STATUS_FLAG_CONNECTED);
             }
         }
 
@@ -3737,58 +4174,45 @@ public class EngageApplication
 
     public ArrayList<EngageEntity> getEntities(String forGroupId, int[] flags)
     {
-        String dn;
         ArrayList<EngageEntity> rc = new ArrayList<>();
 
         if(Utils.isEmptyString(forGroupId))
         {
-            synchronized(_nodes)
+            for (PresenceDescriptor pd : _presenceStore.getNodes())
             {
-                for (PresenceDescriptor pd : _nodes.values())
-                {
-                    rc.add(new EngageEntity(pd.nodeId, pd.getFriendlyName(), 0));
-                }
+                rc.add(new EngageEntity(pd.nodeId, pd.getFriendlyName(), 0));
             }
         }
         else
         {
-            GroupDescriptor gd = getGroup(forGroupId);
-            if(gd != null)
+            for(String nodeId : _presenceStore.getGroupMembers(forGroupId))
             {
-                HashMap<String, GroupMembershipTracker> mp = gd.getMemberNodes();
-                if(mp != null)
+                PresenceDescriptor pd = _presenceStore.get(nodeId);
+                int statusFlags = _presenceStore.getStatusFlags(nodeId, forGroupId);
+
+                if(pd != null && statusFlags != -1)
                 {
-                    synchronized(_nodes)
+                    boolean addIt = false;
+                    if(flags != null)
                     {
-                        for(GroupMembershipTracker gmt: mp.values())
+                        for(int x = 0; x < flags.length; x++)
                         {
-                            PresenceDescriptor pd = _nodes.get(gmt._nodeId);
-                            if(pd != null)
+                            if( (statusFlags & flags[x]) == flags[x] )
                             {
-                                boolean addIt = false;
-                                if(flags != null)
-                                {
-                                    for(int x = 0; x < flags.length; x++)
-                                    {
-                                        if( (gmt._statusFlags & flags[x]) == flags[x] )
-                                        {
-                                            addIt = true;
-                                            break;
-                                        }
-                                    }
-                                }
-                                else
-                                {
-                                    addIt = true;
-                                }
-
-                                if(addIt)
-                                {
-                                    rc.add(new EngageEntity(pd.nodeId, pd.getFriendlyName(), gmt._statusFlags));
-                                }
+                                addIt = true;
+                                break;
                             }
                         }
                     }
+                    else
+                    {
+                        addIt = true;
+                    }
+
+                    if(addIt)
+                    {
+                        rc.add(new EngageEntity(pd.nodeId, pd.getFriendlyName(), statusFlags));
+                    }
                 }
             }
         }
@@ -3798,24 +4222,15 @@ public class EngageApplication
 
     public ArrayList<PresenceDescriptor> getMissionNodes(String forGroupId)
     {
-        ArrayList<PresenceDescriptor> rc = new ArrayList<>();
+        ArrayList<PresenceDescriptor> rc;
 
-        synchronized(_nodes)
+        if(Utils.isEmptyString(forGroupId))
         {
-            for (PresenceDescriptor pd : _nodes.values())
-            {
-                if(Utils.isEmptyString(forGroupId))
-                {
-                    rc.add(pd);
-                }
-                else
-                {
-                    if(pd.groupMembership.keySet().contains(forGroupId))
-                    {
-                        rc.add(pd);
-                    }
-                }
-            }
+            rc = new ArrayList<>(_presenceStore.getNodes());
+        }
+        else
+        {
+            rc = _presenceStore.getNodesForGroup(forGroupId);
         }
 
         return rc;
@@ -3823,58 +4238,129 @@ public class EngageApplication
 
     public PresenceDescriptor getPresenceDescriptor(String nodeId)
     {
-        PresenceDescriptor rc = null;
+        return _presenceStore.get(nodeId);
+    }
 
-        synchronized(_nodes)
+    // Group descriptors are recreated when the mission is (re)loaded so bring their membership
+    // up to date with everything in the presence store the first time we see a new configuration
+    private void syncGroupPresenceWithConfiguration(ActiveConfiguration ac)
+    {
+        if(ac == _presenceSyncedConfiguration)
         {
-            rc = _nodes.get(nodeId);
+            return;
         }
 
-        return rc;
+        _presenceSyncedConfiguration = ac;
+
+        for(PresenceDescriptor pd : _presenceStore.getNodes())
+        {
+            ArrayList<GroupDescriptor> groupsRequiringUiRefresh = ac.updateGroupMemberPresenceForNode(pd);
+            for(GroupDescriptor gd : groupsRequiringUiRefresh)
+            {
+                notifyGroupUiListeners(gd);
+            }
+        }
     }
 
     public PresenceDescriptor processNodeDiscovered(String nodeJson)
     {
-        Globals.getLogger().d(TAG, "processNodeDiscovered > nodeJson=" + nodeJson);//NON-NLS
+        return processNodeDiscovered(nodeJson, false);
+    }
 
-        PresenceDescriptor pd;
+    // With suppressIfUnchanged set, null is returned when the node is already known and nothing
+    // material about it has changed - there's nothing for anyone to do in that case
+    public PresenceDescriptor processNodeDiscovered(String nodeJson, boolean suppressIfUnchanged)
+    {
+        PresenceDescriptor pd = null;
 
         try
         {
-            PresenceDescriptor discoveredPd = new PresenceDescriptor();
-            if(discoveredPd.deserialize(nodeJson))
+            ActiveConfiguration ac = getActiveConfiguration();
+            syncGroupPresenceWithConfiguration(ac);
+
+            PresenceStore.Diff diff = null;
+            boolean unchanged = false;
+
+            // Decode straight into a copy of the descriptor we already have for the node (if any)
+            // so that a rediscovery which changes nothing costs (almost) nothing - and one that
+            // does change something never touches the descriptor other threads may be reading
+            synchronized (_presenceJsonParser)
             {
-                synchronized (_nodes)
+                if(_presenceJsonParser.parse(nodeJson))
                 {
-                    pd = _nodes.get(discoveredPd.nodeId);
+                    Globals.getLogger().d(TAG, "processNodeDiscovered > nid=%s", _presenceJsonParser.getNodeId());//NON-NLS
 
-                    if(pd != null)
-                    {
-                        pd.updateFromPresenceDescriptor(discoveredPd);
-                    }
-                    else
+                    PresenceDescriptor existing = _presenceStore.get(_presenceJsonParser.getNodeId());
+                    if(existing != null)
                     {
-                        _nodes.put(discoveredPd.nodeId, discoveredPd);
-                        pd = discoveredPd;
-                    }
-
-                    Globals.getLogger().d(TAG, "processNodeDiscovered > nid=" + discoveredPd.nodeId + ", u=" + discoveredPd.userId + ", d=" + discoveredPd.displayName);//NON-NLS
-                }
+                        PresenceDescriptor updated = existing.copy();
+                        int changes = _presenceJsonParser.applyTo(updated);
+                        if(changes != PresenceJsonParser.APPLY_FAILED)
+                        {
+                            unchanged = (changes == PresenceJsonParser.CHANGED_NONE);
 
-                ArrayList<GroupDescriptor> groupsRequiringUiRefresh = getActiveConfiguration().updateGroupMemberPresenceForNode(pd);
-
-                if(groupsRequiringUiRefresh != null)
-                {
-                    for(GroupDescriptor gd : groupsRequiringUiRefresh)
+                            if(unchanged)
+                            {
+                                pd = existing;
+                            }
+                            else
+                            {
+                                diff = _presenceStore.replace(updated);
+                                pd = diff.pd;
+                            }
+                        }
+                    }
+                    else
                     {
-                        notifyGroupUiListeners(gd);
+                        PresenceDescriptor discoveredPd = new PresenceDescriptor();
+                        if(_presenceJsonParser.applyTo(discoveredPd) != PresenceJsonParser.APPLY_FAILED)
+                        {
+                            diff = _presenceStore.put(discoveredPd);
+                            pd = diff.pd;
+                        }
                     }
                 }
             }
-            else
+
+            // Fall back to the full JSON object deserializer if the streaming parser couldn't cope
+            if(pd == null)
             {
-                Globals.getLogger().w(TAG, "failed to parse node information");//NON-NLS
-                pd = null;
+                PresenceDescriptor discoveredPd = new PresenceDescriptor();
+                if(discoveredPd.deserialize(nodeJson))
+                {
+                    diff = _presenceStore.put(discoveredPd);
+                    pd = diff.pd;
+                    unchanged = !diff.changed;
+                }
+                else
+                {
+                    Globals.getLogger().w(TAG, "failed to parse node information");//NON-NLS
+                    return null;
+                }
+            }
+
+            if(suppressIfUnchanged)
+            {
+                _rediscoveryFilter.recordNodeRediscovery(unchanged);
+                if(unchanged)
+                {
+                    return null;
+                }
+            }
+
+            if(!unchanged)
+            {
+                Globals.getLogger().d(TAG, "processNodeDiscovered > nid=%s, u=%s, d=%s", pd.nodeId, pd.userId, pd.displayName);//NON-NLS
+            }
+
+            if(diff != null)
+            {
+                ArrayList<GroupDescriptor> groupsRequiringUiRefresh = ac.applyPresenceDiff(pd.nodeId, diff);
+
+                for(GroupDescriptor gd : groupsRequiringUiRefresh)
+                {
+                    notifyGroupUiListeners(gd);
+                }
             }
         }
         catch(Exception e)
@@ -3895,17 +4381,17 @@ public class EngageApplication
             pd = new PresenceDescriptor();
             if(pd.deserialize(nodeJson))
             {
-                synchronized (_nodes)
-                {
-                    _nodes.remove(pd.nodeId);
+                ActiveConfiguration ac = getActiveConfiguration();
+                syncGroupPresenceWithConfiguration(ac);
 
-                    Globals.getLogger().d(TAG, "processNodeUndiscovered < nid=" + pd.nodeId + ", u=" + pd.userId + ", d=" + pd.displayName);//NON-NLS
-                }
+                PresenceStore.Diff diff = _presenceStore.remove(pd.nodeId);
+
+                Globals.getLogger().d(TAG, "processNodeUndiscovered < nid=" + pd.nodeId + ", u=" + pd.userId + ", d=" + pd.displayName);//NON-NLS
 
                 // Make sure there aren't any group memberships
                 pd.clearMemberships();
 
-                ArrayList<GroupDescriptor> groupsRequiringUiRefresh = getActiveConfiguration().updateGroupMemberPresenceForNode(pd);
+                ArrayList<GroupDescriptor> groupsRequiringUiRefresh = ac.applyPresenceDiff(pd.nodeId, diff);
 
                 if(groupsRequiringUiRefresh != null)
                 {
@@ -4032,13 +4518,9 @@ public class EngageApplication
             }
         }
 
-        // Make sure we have a mission database - even if it's empty
-        MissionDatabase database = MissionDatabase.load(Globals.getSharedPreferences(), Constants.MISSION_DATABASE_NAME);
-        if(database == null)
-        {
-            database = new MissionDatabase();
-            database.save(Globals.getSharedPreferences(), Constants.MISSION_DATABASE_NAME);
-        }
+        // Make sure we have a mission database - even if it's empty.  This loads it (or migrates
+        // it out of preferences) now so that later lookups don't touch storage.
+        MissionDatabase.getInstance();
 
         // We'll need a network interface for binding
         val = Globals.getSharedPreferences().getString(PreferenceKeys.NETWORK_BINDING_NIC_NAME, null);
@@ -4100,22 +4582,119 @@ public class EngageApplication
         //return (_svc != null ? _svc.getEngine() : null);
     }
 
-    private void notifyGroupUiListeners(GroupDescriptor gd)
+    private boolean isOnUiThread()
     {
-        synchronized (_uiUpdateListeners)
+        return (Thread.currentThread() == getMainLooper().getThread());
+    }
+
+    private void notifyGroupUiListeners(final GroupDescriptor gd)
+    {
+        // Refreshes are coalesced per group and flushed on the main looper at most once per frame
+        _groupUiRefreshScheduler.markDirty(gd);
+    }
+
+    private void notifyPresenceAdded(final PresenceDescriptor pd)
+    {
+        _engineEventDispatcher.postToUi(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                synchronized (_presenceChangeListeners)
+                {
+                    for (IPresenceChangeListener listener : _presenceChangeListeners)
+                    {
+                        listener.onPresenceAdded(pd);
+                    }
+                }
+            }
+        });
+    }
+
+    private void notifyPresenceChanged(final PresenceDescriptor pd)
+    {
+        _engineEventDispatcher.postToUi(new Runnable()
         {
-            for(IUiUpdateListener listener : _uiUpdateListeners)
+            @Override
+            public void run()
+            {
+                synchronized (_presenceChangeListeners)
+                {
+                    for (IPresenceChangeListener listener : _presenceChangeListeners)
+                    {
+                        listener.onPresenceChange(pd);
+                    }
+                }
+            }
+        });
+    }
+
+    private void notifyPresenceRemoved(final PresenceDescriptor pd)
+    {
+        _engineEventDispatcher.postToUi(new Runnable()
+        {
+            @Override
+            public void run()
             {
-                listener.onGroupUiRefreshNeeded(gd);
+                synchronized (_presenceChangeListeners)
+                {
+                    for (IPresenceChangeListener listener : _presenceChangeListeners)
+                    {
+                        listener.onPresenceRemoved(pd);
+                    }
+                }
             }
+        });
+    }
+
+    private void playNotificationToneOnUi(final int resId, final float volume)
+    {
+        if(volume == 0.0)
+        {
+            return;
         }
+
+        _engineEventDispatcher.postToUi(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Globals.getAudioPlayerManager().playNotification(resId, volume, null);
+                }
+                catch (Exception e)
+                {
+                }
+            }
+        });
+    }
+
+    public EngineEventDispatcher.Stats getEngineEventDispatcherStats()
+    {
+        return _engineEventDispatcher.getStats();
+    }
+
+    public RediscoveryFilter.Stats getRediscoveryStats()
+    {
+        return _rediscoveryFilter.getStats();
+    }
+
+    public GroupUiRefreshScheduler.Stats getGroupUiRefreshStats()
+    {
+        return _groupUiRefreshScheduler.getStats();
+    }
+
+    public void setGroupUiRefreshMinIntervalMs(int ms)
+    {
+        _groupUiRefreshScheduler.setMinIntervalMs(ms);
     }
 
     public final void runOnUiThread(Runnable action)
     {
-        if (Thread.currentThread() != getMainLooper().getThread())
+        if (!isOnUiThread())
         {
-            new Handler(Looper.getMainLooper()).post(action);
+            _uiHandler.post(action);
         }
         else
         {
@@ -4307,6 +4886,9 @@ public class EngageApplication
                         _groupsSelectedForTx.clear();
                     }
 
+                    // No point in finishing the grant tone if we're not going to be talking
+                    Globals.getAudioPlayerManager().stopResource(R.raw.engage_keyup);
+
                     synchronized (_uiUpdateListeners)
                     {
                         for (IUiUpdateListener listener : _uiUpdateListeners)
@@ -4327,13 +4909,12 @@ public class EngageApplication
 
     private void goIdle()
     {
-        synchronized (_nodes)
-        {
-            _nodes.clear();
-        }
+        _presenceStore.clear();
+        _rediscoveryFilter.clear();
 
         stopHardwareButtonManager();
         stopGroupHealthCheckTimer();
+        stopGroupStatsQueryTimer();
         stopLocationUpdates();
     }
 
@@ -4584,25 +5165,18 @@ public class EngageApplication
         try
         {
             // Template
-            Globals.getSharedPreferencesEditor().putString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_JSON, ac.getInputJson());
-            Globals.getSharedPreferencesEditor().apply();
+            Globals.getSettings().putString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_JSON, ac.getInputJson());
+            Globals.getSettings().flush();
 
             // See if any groups have rallypoints.  If any do, then we'll use the first one we find as the RP for the whole mission
             //JSONObject jMission = new JSONObject(ac.getInputJson());
             //JSONObject jGroups = jMission.get("groups")
 
             // Add this guy to our mission database
-            MissionDatabase database = MissionDatabase.load(Globals.getSharedPreferences(), Constants.MISSION_DATABASE_NAME);
-            if(database != null)
+            MissionDatabase database = MissionDatabase.getInstance();
+            if(!database.addOrUpdateMissionFromActiveConfiguration(ac))
             {
-                if( database.addOrUpdateMissionFromActiveConfiguration(ac) )
-                {
-                    database.save(Globals.getSharedPreferences(), Constants.MISSION_DATABASE_NAME);
-                }
-                else
-                {
-                    // TODO: how do we let the user know that we could not save into our database ??
-                }
+                // TODO: how do we let the user know that we could not save into our database ??
             }
 
             // Our mission has changed
@@ -4670,8 +5244,7 @@ public class EngageApplication
 
         try
         {
-            MissionDatabase database = MissionDatabase.load(Globals.getSharedPreferences(), Constants.MISSION_DATABASE_NAME);
-            DatabaseMission mission = database.getMissionById(id);
+            DatabaseMission mission = MissionDatabase.getInstance().getMissionById(id);
             if(mission == null)
             {
                 throw new Exception(getString(R.string.no_mission_found_with_this_id));
@@ -4693,10 +5266,16 @@ public class EngageApplication
                 }
             }
 
+            if(_activeConfiguration == null || !id.equals(_activeConfiguration.getMissionId()))
+            {
+                discardTextMessageHistory();
+                _rediscoveryFilter.clear();
+                _rpLinks.clear();
+            }
+
             String serializedAc = ac.makeTemplate().toString();
-            SharedPreferences.Editor ed = Globals.getSharedPreferencesEditor();
-            ed.putString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_JSON, serializedAc);
-            ed.apply();
+            Globals.getSettings().putString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_JSON, serializedAc);
+            Globals.getSettings().flush();
 
             rc = true;
         }
@@ -4748,12 +5327,13 @@ public class EngageApplication
                 Globals.getLogger().d(TAG, "onEngineStarted");
                 _engineRunning = true;
                 notifyEngineOfNetworkStatus(NetworkUtils.isAnyConnectivityAvailable(getApplicationContext()));
-                createAllGroupObjects();
-                joinSelectedGroups();
+                _groupStartup.markEngineStarted();
+                createAndJoinAllGroups();
                 startLocationUpdates();
                 startHardwareButtonManager();
 
                 startGroupHealthCheckerTimer();
+                startGroupStatsQueryTimer();
             }
         });
     }
@@ -4920,7 +5500,7 @@ public class EngageApplication
     @Override
     public void onGroupCreated(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -4951,7 +5531,7 @@ public class EngageApplication
     @Override
     public void onGroupCreateFailed(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -4989,7 +5569,7 @@ public class EngageApplication
     @Override
     public void onGroupDeleted(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -5005,6 +5585,8 @@ public class EngageApplication
 
                 Globals.getLogger().d(TAG, "onGroupDeleted: id='" + id + "', n='" + gd.name + "'");
 
+                _groupStats.remove(id);
+
                 gd.resetState();
                 gd.created = false;
                 gd.createError = false;
@@ -5020,7 +5602,7 @@ public class EngageApplication
     @Override
     public void onGroupConnected(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -5040,7 +5622,15 @@ public class EngageApplication
                 {
                     if (gd.type == GroupDescriptor.Type.gtAudio)
                     {
-                        sayThis(gd.getSpokenName());
+                        final String spokenName = gd.getSpokenName();
+                        _engineEventDispatcher.postToUi(new Runnable()
+                        {
+                            @Override
+                            public void run()
+                            {
+                                sayThis(spokenName);
+                            }
+                        });
                     }
                 }
 
@@ -5102,7 +5692,7 @@ public class EngageApplication
                     // TODO: If we have multiple presence groups, this will generate extra traffic
 
                     // Build whatever PD we currently have and send it
-                    sendUpdatedPd(buildPd());
+                    _selfPresence.publishNow();
                 }
 
                 notifyGroupUiListeners(gd);
@@ -5113,7 +5703,7 @@ public class EngageApplication
     @Override
     public void onGroupConnectFailed(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -5188,7 +5778,7 @@ public class EngageApplication
     @Override
     public void onGroupDisconnected(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -5263,7 +5853,7 @@ public class EngageApplication
     @Override
     public void onGroupJoined(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -5280,6 +5870,12 @@ public class EngageApplication
                 Globals.getLogger().d(TAG, "onGroupJoined: id='" + id + "', n='" + gd.name + "'");
                 notifyRegistrantOffGroupStatusChange(id, GroupState.gsJoined);
 
+                GroupStartupPipeline.Trace trace = _groupStartup.onGroupJoined(id);
+                if(trace != null)
+                {
+                    Globals.getLogger().i(TAG, "group startup complete: " + trace.toString());
+                }
+
                 gd.joined = true;
                 gd.joinError = false;
 
@@ -5291,7 +5887,7 @@ public class EngageApplication
     @Override
     public void onGroupJoinFailed(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -5308,6 +5904,12 @@ public class EngageApplication
                 Globals.getLogger().e(TAG, "onGroupJoinFailed: id='" + id + "', n='" + gd.name + "'");
                 notifyRegistrantOffGroupStatusChange(id, GroupState.gsLeft);
 
+                GroupStartupPipeline.Trace trace = _groupStartup.onGroupJoinFailed(id);
+                if(trace != null)
+                {
+                    Globals.getLogger().i(TAG, "group startup complete: " + trace.toString());
+                }
+
                 gd.resetState();
                 gd.joinError = true;
 
@@ -5319,7 +5921,7 @@ public class EngageApplication
     @Override
     public void onGroupLeft(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -5348,7 +5950,7 @@ public class EngageApplication
     @Override
     public void onGroupMemberCountChanged(final String id, final long newCount, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -5372,7 +5974,7 @@ public class EngageApplication
     @Override
     public void onGroupRxStarted(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -5395,17 +5997,7 @@ public class EngageApplication
                 {
                     if (_activeConfiguration.getNotifyOnNewAudio())
                     {
-                        float volume = _activeConfiguration.getNotificationToneNotificationLevel();
-                        if (volume != 0.0)
-                        {
-                            try
-                            {
-                                Globals.getAudioPlayerManager().playNotification(R.raw.engage_incoming_rx, volume, null);
-                            }
-                            catch (Exception e)
-                            {
-                            }
-                        }
+                        playNotificationToneOnUi(R.raw.engage_incoming_rx, _activeConfiguration.getNotificationToneNotificationLevel());
                     }
                 }
                 _lastAudioActivity = now;
@@ -5418,7 +6010,7 @@ public class EngageApplication
     @Override
     public void onGroupRxEnded(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -5445,7 +6037,7 @@ public class EngageApplication
     @Override
     public void onGroupRxSpeakersChanged(final String id, final String groupTalkerJson, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -5516,7 +6108,7 @@ public class EngageApplication
     @Override
     public void onGroupRxMuted(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -5547,7 +6139,7 @@ public class EngageApplication
     @Override
     public void onGroupRxUnmuted(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -5578,7 +6170,7 @@ public class EngageApplication
     @Override
     public void onGroupTxStarted(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -5595,7 +6187,7 @@ public class EngageApplication
                 Globals.getLogger().d(TAG, "onGroupTxStarted: id='" + id + "', n='" + gd.name + "', x=" + eventExtraJson);
 
                 // Run this task either right away or after we've played our grant tone
-                Runnable txTask = new Runnable()
+                final Runnable txTask = new Runnable()
                 {
                     @Override
                     public void run()
@@ -5619,8 +6211,7 @@ public class EngageApplication
                             // Our TX is always starting in mute, so unmute it here if we're not (still) playing a sound
                             if (_delayTxUnmuteToCaterForSoundPropogation)
                             {
-                                Timer tmr = new Timer();
-                                tmr.schedule(new TimerTask()
+                                Globals.getScheduler().schedule(EngageApplication.this, TaskScheduler.Category.audio, "txUnmuteAfterGrantTone", new Runnable()//NON-NLS
                                 {
                                     @Override
                                     public void run()
@@ -5660,24 +6251,32 @@ public class EngageApplication
                 };
 
                 long now = Utils.nowMs();
+                final boolean playGrantTone = (_activeConfiguration.getNotifyPttEveryTime() ||
+                        ((now - _lastTxActivity) > (Constants.TX_IDLE_SECS_BEFORE_NOTIFICATION * 1000)));
+
+                _lastTxActivity = now;
+                _delayTxUnmuteToCaterForSoundPropogation = true;
 
-                if (_activeConfiguration.getNotifyPttEveryTime() ||
-                        ((now - _lastTxActivity) > (Constants.TX_IDLE_SECS_BEFORE_NOTIFICATION * 1000)))
+                // The tone (or vibration) and the TX task after it are for the UI thread
+                _engineEventDispatcher.postToUi(new Runnable()
                 {
-                    _lastTxActivity = now;
-                    _delayTxUnmuteToCaterForSoundPropogation = true;
-                    if (!playTxOnNotification(txTask))
+                    @Override
+                    public void run()
                     {
-                        txTask.run();
+                        if (playGrantTone)
+                        {
+                            if (!playTxOnNotification(txTask))
+                            {
+                                txTask.run();
+                            }
+                        }
+                        else
+                        {
+                            vibrate();
+                            txTask.run();
+                        }
                     }
-                }
-                else
-                {
-                    _lastTxActivity = now;
-                    _delayTxUnmuteToCaterForSoundPropogation = true;
-                    vibrate();
-                    txTask.run();
-                }
+                });
             }
         });
     }
@@ -5685,7 +6284,7 @@ public class EngageApplication
     @Override
     public void onGroupTxEnded(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -5727,14 +6326,14 @@ public class EngageApplication
     @Override
     public void onGroupTxFailed(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
             {
                 logEvent(Analytics.GROUP_TX_FAILED);
 
-                GroupDescriptor gd = getGroup(id);
+                final GroupDescriptor gd = getGroup(id);
                 if (gd == null)
                 {
                     Globals.getLogger().d(TAG, "onGroupTxFailed: cannot find group id='" + id + "'");
@@ -5753,18 +6352,26 @@ public class EngageApplication
                 synchronized (_groupsSelectedForTx)
                 {
                     _groupsSelectedForTx.remove(gd);
-                    playGeneralErrorNotification();
                     notifyGroupUiListeners(gd);
                     checkIfAnyTxStillActiveAndNotify();
                 }
 
-                synchronized (_uiUpdateListeners)
+                _engineEventDispatcher.postToUi(new Runnable()
                 {
-                    for (IUiUpdateListener listener : _uiUpdateListeners)
+                    @Override
+                    public void run()
                     {
-                        listener.onGroupTxFailed(gd, eventExtraJson);
+                        playGeneralErrorNotification();
+
+                        synchronized (_uiUpdateListeners)
+                        {
+                            for (IUiUpdateListener listener : _uiUpdateListeners)
+                            {
+                                listener.onGroupTxFailed(gd, eventExtraJson);
+                            }
+                        }
                     }
-                }
+                });
             }
         });
     }
@@ -5772,14 +6379,14 @@ public class EngageApplication
     @Override
     public void onGroupTxUsurpedByPriority(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
             {
                 logEvent(Analytics.GROUP_TX_USURPED);
 
-                GroupDescriptor gd = getGroup(id);
+                final GroupDescriptor gd = getGroup(id);
                 if (gd == null)
                 {
                     Globals.getLogger().d(TAG, "onGroupTxUsurpedByPriority: cannot find group id='" + id + "'");
@@ -5798,18 +6405,26 @@ public class EngageApplication
                 synchronized (_groupsSelectedForTx)
                 {
                     _groupsSelectedForTx.remove(gd);
-                    playGeneralErrorNotification();
                     notifyGroupUiListeners(gd);
                     checkIfAnyTxStillActiveAndNotify();
                 }
 
-                synchronized (_uiUpdateListeners)
+                _engineEventDispatcher.postToUi(new Runnable()
                 {
-                    for (IUiUpdateListener listener : _uiUpdateListeners)
+                    @Override
+                    public void run()
                     {
-                        listener.onGroupTxUsurped(gd, eventExtraJson);
+                        playGeneralErrorNotification();
+
+                        synchronized (_uiUpdateListeners)
+                        {
+                            for (IUiUpdateListener listener : _uiUpdateListeners)
+                            {
+                                listener.onGroupTxUsurped(gd, eventExtraJson);
+                            }
+                        }
                     }
-                }
+                });
             }
         });
     }
@@ -5817,14 +6432,14 @@ public class EngageApplication
     @Override
     public void onGroupMaxTxTimeExceeded(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
             {
                 logEvent(Analytics.GROUP_TX_MAX_EXCEEDED);
 
-                GroupDescriptor gd = getGroup(id);
+                final GroupDescriptor gd = getGroup(id);
                 if (gd == null)
                 {
                     Globals.getLogger().d(TAG, "onGroupMaxTxTimeExceeded: cannot find group id='" + id + "'");
@@ -5843,18 +6458,26 @@ public class EngageApplication
                 synchronized (_groupsSelectedForTx)
                 {
                     _groupsSelectedForTx.remove(gd);
-                    playGeneralErrorNotification();
                     notifyGroupUiListeners(gd);
                     checkIfAnyTxStillActiveAndNotify();
                 }
 
-                synchronized (_uiUpdateListeners)
+                _engineEventDispatcher.postToUi(new Runnable()
                 {
-                    for (IUiUpdateListener listener : _uiUpdateListeners)
+                    @Override
+                    public void run()
                     {
-                        listener.onGroupMaxTxTimeExceeded(gd);
+                        playGeneralErrorNotification();
+
+                        synchronized (_uiUpdateListeners)
+                        {
+                            for (IUiUpdateListener listener : _uiUpdateListeners)
+                            {
+                                listener.onGroupMaxTxTimeExceeded(gd);
+                            }
+                        }
                     }
-                }
+                });
             }
         });
     }
@@ -5862,7 +6485,7 @@ public class EngageApplication
     @Override
     public void onGroupTxMuted(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -5889,7 +6512,7 @@ public class EngageApplication
     @Override
     public void onGroupTxUnmuted(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -5917,7 +6540,7 @@ public class EngageApplication
     @Override
     public void onGroupRxVolumeChanged(final String id, final int leftLevelPerc, final int rightLevelPerc, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -5941,7 +6564,7 @@ public class EngageApplication
     @Override
     public void onGroupRxDtmf(final String id, final String dtmfJson, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -5965,7 +6588,7 @@ public class EngageApplication
     @Override
     public void onGroupReconfigured(final String id, final String s1)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -5987,7 +6610,7 @@ public class EngageApplication
     @Override
     public void onGroupReconfigurationFailed(final String id, String s1)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -6001,6 +6624,20 @@ public class EngageApplication
 
                 Globals.getLogger().d(TAG, "onGroupReconfigurationFailed: id='" + id + "', n='" + gd.name + "'");
 
+                // The group still has its old configuration - make sure the next reload recreates it
+                // rather than taking it to be up to date
+                _engineEventDispatcher.postToUi(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        if(_engineConfiguration != null && _engineConfiguration.groups.containsKey(id))
+                        {
+                            _engineConfiguration.groups.put(id, "");
+                        }
+                    }
+                });
+
                 notifyGroupUiListeners(gd);
             }
         });
@@ -6009,7 +6646,7 @@ public class EngageApplication
     @Override
     public void onGroupNodeDiscovered(final String id, final String nodeJson, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -6032,28 +6669,11 @@ public class EngageApplication
                     {
                         if(_activeConfiguration.getNotifyOnNodeJoin())
                         {
-                            float volume = _activeConfiguration.getNotificationToneNotificationLevel();
-                            if (volume != 0.0)
-                            {
-                                try
-                                {
-                                    Globals.getAudioPlayerManager().playNotification(R.raw.engage_member_join, volume, null);
-                                }
-                                catch (Exception e)
-                                {
-                                }
-                            }
-                        }
-                    }
-
-                    synchronized (_presenceChangeListeners)
-                    {
-                        for (IPresenceChangeListener listener : _presenceChangeListeners)
-                        {
-                            listener.onPresenceAdded(pd);
+                            playNotificationToneOnUi(R.raw.engage_member_join, _activeConfiguration.getNotificationToneNotificationLevel());
                         }
                     }
 
+                    notifyPresenceAdded(pd);
                     notifyGroupUiListeners(gd);
                 }
             }
@@ -6063,7 +6683,7 @@ public class EngageApplication
     @Override
     public void onGroupNodeRediscovered(final String id, final String nodeJson, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -6079,17 +6699,11 @@ public class EngageApplication
 
                 Globals.getLogger().d(TAG, "onGroupNodeRediscovered: id='" + id + "', n='" + gd.name + "'");
 
-                PresenceDescriptor pd = processNodeDiscovered(nodeJson);
+                // Rediscoveries that don't change anything go no further
+                PresenceDescriptor pd = processNodeDiscovered(nodeJson, true);
                 if (pd != null)
                 {
-                    synchronized (_presenceChangeListeners)
-                    {
-                        for (IPresenceChangeListener listener : _presenceChangeListeners)
-                        {
-                            listener.onPresenceChange(pd);
-                        }
-                    }
-
+                    notifyPresenceChanged(pd);
                     notifyGroupUiListeners(gd);
                 }
             }
@@ -6099,7 +6713,7 @@ public class EngageApplication
     @Override
     public void onGroupNodeUndiscovered(final String id, final String nodeJson, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -6120,27 +6734,10 @@ public class EngageApplication
                 {
                     if (!pd.self && _activeConfiguration.getNotifyOnNodeLeave())
                     {
-                        float volume = _activeConfiguration.getNotificationToneNotificationLevel();
-                        if (volume != 0.0)
-                        {
-                            try
-                            {
-                                Globals.getAudioPlayerManager().playNotification(R.raw.engage_member_leave, volume, null);
-                            }
-                            catch (Exception e)
-                            {
-                            }
-                        }
-                    }
-
-                    synchronized (_presenceChangeListeners)
-                    {
-                        for (IPresenceChangeListener listener : _presenceChangeListeners)
-                        {
-                            listener.onPresenceRemoved(pd);
-                        }
+                        playNotificationToneOnUi(R.raw.engage_member_leave, _activeConfiguration.getNotificationToneNotificationLevel());
                     }
 
+                    notifyPresenceRemoved(pd);
                     notifyGroupUiListeners(gd);
                 }
             }
@@ -6297,7 +6894,6 @@ public class EngageApplication
 
     public void startHumanBiometricsReporting()
     {
-        /*
         if(_humanBiometricsReportingTimer == null)
         {
             if(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_EXPERIMENT_ENABLE_HBM, false))
@@ -6323,8 +6919,20 @@ public class EngageApplication
                     _rhbmgFatigueLevel = new RandomHumanBiometricGenerator(0, 10, 3, 3);
                     _rhbmgTaskEffectiveness = new RandomHumanBiometricGenerator(0, 10, 3, 3);
 
-                    _humanBiometricsReportingTimer = new Timer();
-                    _humanBiometricsReportingTimer.scheduleAtFixedRate(new TimerTask()
+                    try
+                    {
+                        // Our JSON parameters indicate that the payload is binary human biometric data in Engage format
+                        JSONObject bi = new JSONObject();
+                        bi.put(Engine.JsonFields.BlobInfo.payloadType, Engine.BlobType.engageHumanBiometrics.toInt());
+                        _hbmBlobInfoJson = bi.toString();
+                    }
+                    catch (Exception e)
+                    {
+                        e.printStackTrace();
+                        return;
+                    }
+
+                    _humanBiometricsReportingTimer = Globals.getScheduler().scheduleAtFixedRate(this, TaskScheduler.Category.biometrics, "humanBiometricsReport", new Runnable()//NON-NLS
                     {
                         @Override
                         public void run()
@@ -6335,7 +6943,6 @@ public class EngageApplication
                 }
             }
         }
-         */
     }
 
     public void stopHumanBiometricsReporting()
@@ -6347,9 +6954,16 @@ public class EngageApplication
         }
     }
 
+    private void addHbmSeriesIfEnabled(String prefKey, DataSeries ds)
+    {
+        if(Globals.getSharedPreferences().getBoolean(prefKey, false))
+        {
+            _hbmCodec.add(ds);
+        }
+    }
+
     private void onHumanBiometricsTimerTick()
     {
-        /*
         if(_hbmTicksSoFar == 0)
         {
             _hbmHeartRate.restart();
@@ -6361,13 +6975,13 @@ public class EngageApplication
             _hbmTaskEffectiveness.restart();
         }
 
-        _hbmHeartRate.addElement((byte)1, (byte)_rhbmgHeart.nextInt());
-        _hbmSkinTemp.addElement((byte)1, (byte)_rhbmgSkinTemp.nextInt());
-        _hbmCoreTemp.addElement((byte)1, (byte)_rhbmgCoreTemp.nextInt());
-        _hbmHydration.addElement((byte)1, (byte)_rhbmgHydration.nextInt());
-        _hbmBloodOxygenation.addElement((byte)1, (byte)_rhbmgOxygenation.nextInt());
-        _hbmFatigueLevel.addElement((byte)1, (byte)_rhbmgFatigueLevel.nextInt());
-        _hbmTaskEffectiveness.addElement((byte)1, (byte)_rhbmgTaskEffectiveness.nextInt());
+        _hbmHeartRate.addElement(1, _rhbmgHeart.nextInt());
+        _hbmSkinTemp.addElement(1, _rhbmgSkinTemp.nextInt());
+        _hbmCoreTemp.addElement(1, _rhbmgCoreTemp.nextInt());
+        _hbmHydration.addElement(1, _rhbmgHydration.nextInt());
+        _hbmBloodOxygenation.addElement(1, _rhbmgOxygenation.nextInt());
+        _hbmFatigueLevel.addElement(1, _rhbmgFatigueLevel.nextInt());
+        _hbmTaskEffectiveness.addElement(1, _rhbmgTaskEffectiveness.nextInt());
 
         _hbmTicksSoFar++;
 
@@ -6375,66 +6989,41 @@ public class EngageApplication
         {
             try
             {
-                ByteArrayOutputStream bas = new ByteArrayOutputStream();
-
-                if(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_EXPERIMENT_HBM_ENABLE_HEART_RATE, false))
-                {
-                    bas.write(_hbmHeartRate.toByteArray());
-                }
+                // Everything goes into one batch in the codec's (reused) buffer
+                _hbmCodec.begin();
 
-                if(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_EXPERIMENT_HBM_ENABLE_SKIN_TEMP, false))
-                {
-                    bas.write(_hbmSkinTemp.toByteArray());
-                }
-
-                if(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_EXPERIMENT_HBM_ENABLE_CORE_TEMP, false))
-                {
-                    bas.write(_hbmCoreTemp.toByteArray());
-                }
+                addHbmSeriesIfEnabled(PreferenceKeys.USER_EXPERIMENT_HBM_ENABLE_HEART_RATE, _hbmHeartRate);
+                addHbmSeriesIfEnabled(PreferenceKeys.USER_EXPERIMENT_HBM_ENABLE_SKIN_TEMP, _hbmSkinTemp);
+                addHbmSeriesIfEnabled(PreferenceKeys.USER_EXPERIMENT_HBM_ENABLE_CORE_TEMP, _hbmCoreTemp);
+                addHbmSeriesIfEnabled(PreferenceKeys.USER_EXPERIMENT_HBM_ENABLE_BLOOD_HYDRO, _hbmHydration);
+                addHbmSeriesIfEnabled(PreferenceKeys.USER_EXPERIMENT_HBM_ENABLE_BLOOD_OXY, _hbmBloodOxygenation);
+                addHbmSeriesIfEnabled(PreferenceKeys.USER_EXPERIMENT_HBM_ENABLE_FATIGUE_LEVEL, _hbmFatigueLevel);
+                addHbmSeriesIfEnabled(PreferenceKeys.USER_EXPERIMENT_HBM_ENABLE_TASK_EFFECTIVENESS_LEVEL, _hbmTaskEffectiveness);
 
-                if(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_EXPERIMENT_HBM_ENABLE_BLOOD_HYDRO, false))
-                {
-                    bas.write(_hbmHydration.toByteArray());
-                }
+                int blobSize = _hbmCodec.finish();
 
-                if(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_EXPERIMENT_HBM_ENABLE_BLOOD_OXY, false))
+                if(_hbmCodec.getSeriesCount() > 0)
                 {
-                    bas.write(_hbmBloodOxygenation.toByteArray());
-                }
-
-                if(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_EXPERIMENT_HBM_ENABLE_FATIGUE_LEVEL, false))
-                {
-                    bas.write(_hbmFatigueLevel.toByteArray());
-                }
-
-                if(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_EXPERIMENT_HBM_ENABLE_TASK_EFFECTIVENESS_LEVEL, false))
-                {
-                    bas.write(_hbmTaskEffectiveness.toByteArray());
-                }
-
-                byte[] blob = bas.toByteArray();
-
-                if(blob.length > 0)
-                {
-                    Globals.getLogger().i(TAG, "Reporting human biometrics data - blob size is " + blob.length + " bytes");
-
-                    // Our JSON parameters indicate that the payload is binary human biometric data in Engage format
-                    JSONObject bi = new JSONObject();
-                    bi.put(Engine.JsonFields.BlobInfo.payloadType, Engine.BlobType.engageHumanBiometrics.toInt());
-                    String jsonParams = bi.toString();
+                    boolean sent = false;
 
                     ActiveConfiguration ac = getActiveConfiguration();
                     for(GroupDescriptor gd : ac.getMissionGroups())
                     {
                         if(gd.type == GroupDescriptor.Type.gtPresence)
                         {
-                            getEngine().engageSendGroupBlob(gd.id, blob, blob.length, jsonParams);
+                            getEngine().engageSendGroupBlob(gd.id, _hbmCodec.getBuffer(), blobSize, _hbmBlobInfoJson);
+                            sent = true;
                         }
                     }
-                }
-                else
-                {
-                    Globals.getLogger().w(TAG, "Cannot report human biometrics data - no presence group found");
+
+                    if(sent)
+                    {
+                        Globals.getLogger().i(TAG, "Reported human biometrics data - blob size is " + blobSize + " bytes");
+                    }
+                    else
+                    {
+                        Globals.getLogger().w(TAG, "Cannot report human biometrics data - no presence group found");
+                    }
                 }
             }
             catch(Exception e)
@@ -6444,13 +7033,12 @@ public class EngageApplication
 
             _hbmTicksSoFar = 0;
         }
-         */
     }
 
     @Override
     public void onGroupAssetDiscovered(final String id, final String nodeJson, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -6459,13 +7047,7 @@ public class EngageApplication
 
                 Globals.getLogger().d(TAG, "onGroupAssetDiscovered: id='" + id + "', json='" + nodeJson + "'");
 
-                synchronized (_assetChangeListeners)
-                {
-                    for (IAssetChangeListener listener : _assetChangeListeners)
-                    {
-                        listener.onAssetDiscovered(id, nodeJson);
-                    }
-                }
+                _rediscoveryFilter.rememberAsset(id, nodeJson);
 
                 boolean notify = false;
                 synchronized (_dynamicGroups)
@@ -6488,18 +7070,34 @@ public class EngageApplication
                     }
                 }
 
-                if (notify)
+                final boolean configChanged = notify;
+                _engineEventDispatcher.postToUi(new Runnable()
                 {
-                    playAssetDiscoveredNotification();
-
-                    synchronized (_configurationChangeListeners)
+                    @Override
+                    public void run()
                     {
-                        for (IConfigurationChangeListener listener : _configurationChangeListeners)
+                        synchronized (_assetChangeListeners)
                         {
-                            listener.onCriticalConfigurationChange();
+                            for (IAssetChangeListener listener : _assetChangeListeners)
+                            {
+                                listener.onAssetDiscovered(id, nodeJson);
+                            }
+                        }
+
+                        if (configChanged)
+                        {
+                            playAssetDiscoveredNotification();
+
+                            synchronized (_configurationChangeListeners)
+                            {
+                                for (IConfigurationChangeListener listener : _configurationChangeListeners)
+                                {
+                                    listener.onCriticalConfigurationChange();
+                                }
+                            }
                         }
                     }
-                }
+                });
             }
         });
     }
@@ -6507,21 +7105,27 @@ public class EngageApplication
     @Override
     public void onGroupAssetRediscovered(final String id, final String nodeJson, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        // If we already have the asset and it hasn't changed there's no point in going any further
+        boolean known;
+        synchronized (_dynamicGroups)
+        {
+            known = _dynamicGroups.containsKey(id);
+        }
+
+        boolean suppress = (_rediscoveryFilter.isAssetRediscoveryUnchanged(id, nodeJson) && known);
+        _rediscoveryFilter.recordAssetRediscovery(suppress);
+        if(suppress)
+        {
+            return;
+        }
+
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
             {
                 //logEvent(Analytics.GROUP_ASSET_REDISCOVERED);
 
-                synchronized (_assetChangeListeners)
-                {
-                    for (IAssetChangeListener listener : _assetChangeListeners)
-                    {
-                        listener.onAssetRediscovered(id, nodeJson);
-                    }
-                }
-
                 boolean notify = false;
                 synchronized (_dynamicGroups)
                 {
@@ -6543,18 +7147,34 @@ public class EngageApplication
                     }
                 }
 
-                if (notify)
+                final boolean configChanged = notify;
+                _engineEventDispatcher.postToUi(new Runnable()
                 {
-                    playAssetDiscoveredNotification();
-
-                    synchronized (_configurationChangeListeners)
+                    @Override
+                    public void run()
                     {
-                        for (IConfigurationChangeListener listener : _configurationChangeListeners)
+                        synchronized (_assetChangeListeners)
+                        {
+                            for (IAssetChangeListener listener : _assetChangeListeners)
+                            {
+                                listener.onAssetRediscovered(id, nodeJson);
+                            }
+                        }
+
+                        if (configChanged)
                         {
-                            listener.onCriticalConfigurationChange();
+                            playAssetDiscoveredNotification();
+
+                            synchronized (_configurationChangeListeners)
+                            {
+                                for (IConfigurationChangeListener listener : _configurationChangeListeners)
+                                {
+                                    listener.onCriticalConfigurationChange();
+                                }
+                            }
                         }
                     }
-                }
+                });
             }
         });
     }
@@ -6562,20 +7182,14 @@ public class EngageApplication
     @Override
     public void onGroupAssetUndiscovered(final String id, final String nodeJson, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
             {
                 logEvent(Analytics.GROUP_ASSET_UNDISCOVERED);
 
-                synchronized (_assetChangeListeners)
-                {
-                    for (IAssetChangeListener listener : _assetChangeListeners)
-                    {
-                        listener.onAssetUndiscovered(id, nodeJson);
-                    }
-                }
+                _rediscoveryFilter.forgetAsset(id);
 
                 boolean notify = false;
                 synchronized (_dynamicGroups)
@@ -6587,17 +7201,33 @@ public class EngageApplication
                     }
                 }
 
-                if (notify)
+                final boolean configChanged = notify;
+                _engineEventDispatcher.postToUi(new Runnable()
                 {
-                    playAssetUndiscoveredNotification();
-                    synchronized (_configurationChangeListeners)
+                    @Override
+                    public void run()
                     {
-                        for (IConfigurationChangeListener listener : _configurationChangeListeners)
+                        synchronized (_assetChangeListeners)
                         {
-                            listener.onCriticalConfigurationChange();
+                            for (IAssetChangeListener listener : _assetChangeListeners)
+                            {
+                                listener.onAssetUndiscovered(id, nodeJson);
+                            }
+                        }
+
+                        if (configChanged)
+                        {
+                            playAssetUndiscoveredNotification();
+                            synchronized (_configurationChangeListeners)
+                            {
+                                for (IConfigurationChangeListener listener : _configurationChangeListeners)
+                                {
+                                    listener.onCriticalConfigurationChange();
+                                }
+                            }
                         }
                     }
-                }
+                });
             }
         });
     }
@@ -6605,7 +7235,7 @@ public class EngageApplication
     @Override
     public void onGroupBlobSent(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -6618,7 +7248,7 @@ public class EngageApplication
     @Override
     public void onGroupBlobSendFailed(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -6631,58 +7261,86 @@ public class EngageApplication
     @Override
     public void onGroupBlobReceived(final String id, final String blobInfoJson, final byte[] blob, final long blobSize, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        // Straight to the handler lane for the payload type - the blob isn't copied and never
+        // goes near the UI thread
+        try
         {
-            @Override
-            public void run()
+            BlobRouter.BlobInfo info = BlobRouter.BlobInfo.fromJson(id, blobInfoJson, (int) blobSize);
+            if(!_blobRouter.route(info, blob, (int) blobSize))
             {
-                Globals.getLogger().d(TAG, "onGroupBlobReceived: blobInfoJson=" + blobInfoJson);
+                Globals.getLogger().w(TAG, "onGroupBlobReceived: dropped blob of type " + info.payloadType + " on " + id);
+            }
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+    }
 
-                try
-                {
-                    JSONObject blobInfo = new JSONObject(blobInfoJson);
+    private PresenceDescriptor getBlobSourcePresenceDescriptor(BlobRouter.BlobInfo info)
+    {
+        PresenceDescriptor pd = getPresenceDescriptor(info.source);
 
-                    int payloadType = blobInfo.getInt(Engine.JsonFields.BlobInfo.payloadType);
-                    String source = blobInfo.getString(Engine.JsonFields.BlobInfo.source);
-                    String target = blobInfo.getString(Engine.JsonFields.BlobInfo.target);
+        // Make a super basic PD if we couldn't find one for some reason
+        if (pd == null)
+        {
+            pd = new PresenceDescriptor();
+            pd.self = false;
+            pd.nodeId = info.source;
+        }
 
-                    PresenceDescriptor pd = getPresenceDescriptor(source);
+        return pd;
+    }
 
-                    // Make a super basic PD if we couldn't find one for some reason
-                    if (pd == null)
-                    {
-                        pd = new PresenceDescriptor();
-                        pd.self = false;
-                        pd.nodeId = source;
-                    }
+    private void registerBlobHandlers()
+    {
+        _blobRouter.registerHandler(Engine.BlobType.appTextUtf8, new BlobRouter.IBlobHandler()
+        {
+            @Override
+            public void onBlob(BlobRouter.BlobInfo info, ByteBuffer payload)
+            {
+                if(Utils.isNullGuid(info.target) || info.target.equals(_activeConfiguration.getNodeId()))
+                {
+                    final String message = BLOB_TEXT_CHARSET.decode(payload).toString();
+                    final PresenceDescriptor sourcePd = getBlobSourcePresenceDescriptor(info);
 
-                    // Human biometrics ... ?
-                    if (Engine.BlobType.fromInt(payloadType) == Engine.BlobType.engageHumanBiometrics)
+                    _engineEventDispatcher.postToUi(new Runnable()
                     {
-                        /*
-                        int blobOffset = 0;
-                        int bytesLeft = (int) blobSize;
-                        boolean anythingUpdated = false;
-
-                        while (bytesLeft > 0)
+                        @Override
+                        public void run()
                         {
-                            DataSeries ds = new DataSeries();
-                            int bytesProcessed = ds.parseByteArray(blob, blobOffset, bytesLeft);
-                            if (bytesProcessed <= 0)
-                            {
-                                throw new Exception("Error processing HBM");
-                            }
-
-                            bytesLeft -= bytesProcessed;
-                            blobOffset += bytesProcessed;
-
-                            if (pd.updateBioMetrics(ds))
+                            synchronized (_groupTextMessageListeners)
                             {
-                                anythingUpdated = true;
+                                for (IGroupTextMessageListener listener : _groupTextMessageListeners)
+                                {
+                                    listener.onGroupTextMessageRx(sourcePd, message);
+                                }
                             }
                         }
+                    });
+                }
+                else
+                {
+                    Globals.getLogger().d(TAG, "ignoring message targeting node '" + info.target + "'");
+                }
+            }
+        });
+
+        _blobRouter.registerHandler(Engine.BlobType.engageHumanBiometrics, new BlobRouter.IBlobHandler()
+        {
+            @Override
+            public void onBlob(BlobRouter.BlobInfo info, ByteBuffer payload)
+            {
+                final PresenceDescriptor pd = getBlobSourcePresenceDescriptor(info);
 
-                        if (anythingUpdated)
+                // Decoded straight out of the Engine's buffer into the node's state
+                int seriesMerged = pd.biometrics.merge(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+                if(seriesMerged > 0)
+                {
+                    _engineEventDispatcher.postToUi(new Runnable()
+                    {
+                        @Override
+                        public void run()
                         {
                             synchronized (_presenceChangeListeners)
                             {
@@ -6692,40 +7350,36 @@ public class EngageApplication
                                 }
                             }
                         }
-                         */
-                    }
-                    else if (Engine.BlobType.fromInt(payloadType) == Engine.BlobType.appTextUtf8)
-                    {
-                        if(Utils.isNullGuid(target) || target.equals(_activeConfiguration.getNodeId()))
-                        {
-                            String message = new String(blob, Constants.CHARSET);
-
-                            synchronized (_groupTextMessageListeners)
-                            {
-                                for (IGroupTextMessageListener listener : _groupTextMessageListeners)
-                                {
-                                    listener.onGroupTextMessageRx(pd, message);
-                                }
-                            }
-                        }
-                        else
-                        {
-                            Globals.getLogger().d(TAG, "ignoring message targeting node '" + target + "'");
-                        }
-                    }
+                    });
                 }
-                catch (Exception e)
+                else if(seriesMerged < 0)
                 {
-                    e.printStackTrace();
+                    Globals.getLogger().w(TAG, "cannot decode human biometrics blob from " + info.source);
                 }
             }
         });
     }
 
+    // For application-defined payload types
+    public void registerBlobHandler(int payloadType, BlobRouter.IBlobHandler handler)
+    {
+        _blobRouter.registerHandler(payloadType, handler);
+    }
+
+    public void unregisterBlobHandler(int payloadType)
+    {
+        _blobRouter.unregisterHandler(payloadType);
+    }
+
+    public ArrayList<BlobRouter.Stats> getBlobRoutingStats()
+    {
+        return _blobRouter.getAllStats();
+    }
+
     @Override
     public void onGroupRtpSent(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -6738,7 +7392,7 @@ public class EngageApplication
     @Override
     public void onGroupRtpSendFailed(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -6751,7 +7405,7 @@ public class EngageApplication
     @Override
     public void onGroupRtpReceived(final String id, final String rtpHeaderJson, final byte[] payload, final long payloadSize, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -6763,7 +7417,7 @@ public class EngageApplication
 
     public void onGroupRawSent(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -6776,7 +7430,7 @@ public class EngageApplication
     @Override
     public void onGroupRawSendFailed(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -6789,7 +7443,7 @@ public class EngageApplication
     @Override
     public void onGroupRawReceived(final String id, final byte[] raw, final long rawsize, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -6802,7 +7456,7 @@ public class EngageApplication
     @Override
     public void onGroupTimelineEventStarted(final String id, final String eventJson, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -6816,13 +7470,20 @@ public class EngageApplication
                     return;
                 }
 
-                synchronized (_groupTimelineListeners)
+                _engineEventDispatcher.postToUi(new Runnable()
                 {
-                    for (IGroupTimelineListener listener : _groupTimelineListeners)
+                    @Override
+                    public void run()
                     {
-                        listener.onGroupTimelineEventStarted(gd, eventJson);
+                        synchronized (_groupTimelineListeners)
+                        {
+                            for (IGroupTimelineListener listener : _groupTimelineListeners)
+                            {
+                                listener.onGroupTimelineEventStarted(gd, eventJson);
+                            }
+                        }
                     }
-                }
+                });
             }
         });
     }
@@ -6830,7 +7491,7 @@ public class EngageApplication
     @Override
     public void onGroupTimelineEventUpdated(final String id, final String eventJson, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -6844,13 +7505,20 @@ public class EngageApplication
                     return;
                 }
 
-                synchronized (_groupTimelineListeners)
+                _engineEventDispatcher.postToUi(new Runnable()
                 {
-                    for (IGroupTimelineListener listener : _groupTimelineListeners)
+                    @Override
+                    public void run()
                     {
-                        listener.onGroupTimelineEventUpdated(gd, eventJson);
+                        synchronized (_groupTimelineListeners)
+                        {
+                            for (IGroupTimelineListener listener : _groupTimelineListeners)
+                            {
+                                listener.onGroupTimelineEventUpdated(gd, eventJson);
+                            }
+                        }
                     }
-                }
+                });
             }
         });
     }
@@ -6858,7 +7526,7 @@ public class EngageApplication
     @Override
     public void onGroupTimelineEventEnded(final String id, final String eventJson, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -6872,13 +7540,20 @@ public class EngageApplication
                     return;
                 }
 
-                synchronized (_groupTimelineListeners)
+                _engineEventDispatcher.postToUi(new Runnable()
                 {
-                    for (IGroupTimelineListener listener : _groupTimelineListeners)
+                    @Override
+                    public void run()
                     {
-                        listener.onGroupTimelineEventEnded(gd, eventJson);
+                        synchronized (_groupTimelineListeners)
+                        {
+                            for (IGroupTimelineListener listener : _groupTimelineListeners)
+                            {
+                                listener.onGroupTimelineEventEnded(gd, eventJson);
+                            }
+                        }
                     }
-                }
+                });
             }
         });
     }
@@ -6886,7 +7561,7 @@ public class EngageApplication
     @Override
     public void onGroupTimelineReport(final String id, final String reportJson, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -6902,13 +7577,20 @@ public class EngageApplication
                     return;
                 }
 
-                synchronized (_groupTimelineListeners)
+                _engineEventDispatcher.postToUi(new Runnable()
                 {
-                    for (IGroupTimelineListener listener : _groupTimelineListeners)
+                    @Override
+                    public void run()
                     {
-                        listener.onGroupTimelineReport(gd, reportJson);
+                        synchronized (_groupTimelineListeners)
+                        {
+                            for (IGroupTimelineListener listener : _groupTimelineListeners)
+                            {
+                                listener.onGroupTimelineReport(gd, reportJson);
+                            }
+                        }
                     }
-                }
+                });
             }
         });
     }
@@ -6916,7 +7598,7 @@ public class EngageApplication
     @Override
     public void onGroupTimelineReportFailed(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -6932,13 +7614,20 @@ public class EngageApplication
                     return;
                 }
 
-                synchronized (_groupTimelineListeners)
+                _engineEventDispatcher.postToUi(new Runnable()
                 {
-                    for (IGroupTimelineListener listener : _groupTimelineListeners)
+                    @Override
+                    public void run()
                     {
-                        listener.onGroupTimelineReportFailed(gd);
+                        synchronized (_groupTimelineListeners)
+                        {
+                            for (IGroupTimelineListener listener : _groupTimelineListeners)
+                            {
+                                listener.onGroupTimelineReportFailed(gd);
+                            }
+                        }
                     }
-                }
+                });
             }
         });
     }
@@ -6946,7 +7635,7 @@ public class EngageApplication
     @Override
     public void onGroupTimelineGroomed(final String id, final String eventListJson, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -6962,13 +7651,20 @@ public class EngageApplication
                     return;
                 }
 
-                synchronized (_groupTimelineListeners)
+                _engineEventDispatcher.postToUi(new Runnable()
                 {
-                    for (IGroupTimelineListener listener : _groupTimelineListeners)
+                    @Override
+                    public void run()
                     {
-                        listener.onGroupTimelineGroomed(gd, eventListJson);
+                        synchronized (_groupTimelineListeners)
+                        {
+                            for (IGroupTimelineListener listener : _groupTimelineListeners)
+                            {
+                                listener.onGroupTimelineGroomed(gd, eventListJson);
+                            }
+                        }
                     }
-                }
+                });
             }
         });
     }
@@ -6976,7 +7672,7 @@ public class EngageApplication
     @Override
     public void onGroupStatsReport(final String id, final String reportJson, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -6992,13 +7688,25 @@ public class EngageApplication
                     return;
                 }
 
-                synchronized (_groupTimelineListeners)
+                if (!_groupStats.ingestStatsReport(id, reportJson))
+                {
+                    Globals.getLogger().w(TAG, "onGroupStatsReport: cannot parse report for id='" + id + "'");
+                }
+
+                _engineEventDispatcher.postToUi(new Runnable()
                 {
-                    for (IGroupTimelineListener listener : _groupTimelineListeners)
+                    @Override
+                    public void run()
                     {
-                        listener.onGroupStatsReport(gd, reportJson);
+                        synchronized (_groupTimelineListeners)
+                        {
+                            for (IGroupTimelineListener listener : _groupTimelineListeners)
+                            {
+                                listener.onGroupStatsReport(gd, reportJson);
+                            }
+                        }
                     }
-                }
+                });
             }
         });
 
@@ -7007,7 +7715,7 @@ public class EngageApplication
     @Override
     public void onGroupStatsReportFailed(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -7023,13 +7731,20 @@ public class EngageApplication
                     return;
                 }
 
-                synchronized (_groupTimelineListeners)
+                _engineEventDispatcher.postToUi(new Runnable()
                 {
-                    for (IGroupTimelineListener listener : _groupTimelineListeners)
+                    @Override
+                    public void run()
                     {
-                        listener.onGroupStatsReportFailed(gd);
+                        synchronized (_groupTimelineListeners)
+                        {
+                            for (IGroupTimelineListener listener : _groupTimelineListeners)
+                            {
+                                listener.onGroupStatsReportFailed(gd);
+                            }
+                        }
                     }
-                }
+                });
             }
         });
     }
@@ -7038,7 +7753,7 @@ public class EngageApplication
     @Override
     public void onGroupHealthReport(final String id, final String reportJson, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -7054,13 +7769,25 @@ public class EngageApplication
                     return;
                 }
 
-                synchronized (_groupTimelineListeners)
+                if (!_groupStats.ingestHealthReport(id, reportJson))
                 {
-                    for (IGroupTimelineListener listener : _groupTimelineListeners)
+                    Globals.getLogger().w(TAG, "onGroupHealthReport: cannot parse report for id='" + id + "'");
+                }
+
+                _engineEventDispatcher.postToUi(new Runnable()
+                {
+                    @Override
+                    public void run()
                     {
-                        listener.onGroupHealthReport(gd, reportJson);
+                        synchronized (_groupTimelineListeners)
+                        {
+                            for (IGroupTimelineListener listener : _groupTimelineListeners)
+                            {
+                                listener.onGroupHealthReport(gd, reportJson);
+                            }
+                        }
                     }
-                }
+                });
             }
         });
     }
@@ -7068,7 +7795,7 @@ public class EngageApplication
     @Override
     public void onGroupHealthReportFailed(final String id, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -7084,13 +7811,20 @@ public class EngageApplication
                     return;
                 }
 
-                synchronized (_groupTimelineListeners)
+                _engineEventDispatcher.postToUi(new Runnable()
                 {
-                    for (IGroupTimelineListener listener : _groupTimelineListeners)
+                    @Override
+                    public void run()
                     {
-                        listener.onGroupHealthReportFailed(gd);
+                        synchronized (_groupTimelineListeners)
+                        {
+                            for (IGroupTimelineListener listener : _groupTimelineListeners)
+                            {
+                                listener.onGroupHealthReportFailed(gd);
+                            }
+                        }
                     }
-                }
+                });
             }
         });
     }
@@ -7104,6 +7838,7 @@ public class EngageApplication
             public void run()
             {
                 Globals.getLogger().d(TAG, "onRallypointPausingConnectionAttempt: " + id + ", " + eventExtraJson);
+                _rpLinks.onPausing(id);
                 notifyConnectivityChangeListenersOfRallypointConnectionPausing(id, eventExtraJson);
             }
         });
@@ -7118,6 +7853,7 @@ public class EngageApplication
             public void run()
             {
                 Globals.getLogger().d(TAG, "onRallypointConnecting: " + id + "," + eventExtraJson);
+                _rpLinks.onConnecting(id);
                 notifyConnectivityChangeListenersOfRallypointConnectionConnecting(id, eventExtraJson);
             }
         });
@@ -7134,6 +7870,7 @@ public class EngageApplication
                 logEvent(Analytics.GROUP_RP_CONNECTED);
 
                 Globals.getLogger().d(TAG, "onRallypointConnected: " + id + "," + eventExtraJson);
+                _rpLinks.onConnected(id);
                 notifyConnectivityChangeListenersOfRallypointConnectionConnected(id, eventExtraJson);
             }
         });
@@ -7148,6 +7885,8 @@ public class EngageApplication
                 logEvent(Analytics.GROUP_RP_DISCONNECTED);
 
                 Globals.getLogger().d(TAG, "onRallypointDisconnected: " + id + "," + eventExtraJson);
+                _rpLinks.onDisconnected(id);
+                Globals.getLogger().d(TAG, "onRallypointDisconnected: link history %s", _rpLinks.getSnapshot(id));
                 notifyConnectivityChangeListenersOfRallypointConnectionDisconnected(id, eventExtraJson);
             }
         });
@@ -7156,7 +7895,7 @@ public class EngageApplication
     @Override
     public void onRallypointRoundtripReport(final String id, final long rtMs, final long rtQualityRating, final String eventExtraJson)
     {
-        runOnUiThread(new Runnable()
+        _engineEventDispatcher.submit(new Runnable()
         {
             @Override
             public void run()
@@ -7186,11 +7925,21 @@ public class EngageApplication
                     logEvent(Analytics.GROUP_RP_RT_0);
                 }
 
+                _rpLinks.onRoundtrip(id, rtMs, rtQualityRating);
+
                 Globals.getLogger().d(TAG, "onRallypointRoundtripReport: " + id +
                         ", ms=" + rtMs +
                         ", qual=" + rtQualityRating +
                         "," + eventExtraJson);
-                notifyConnectivityChangeListenersOfRallypointRtt(id, eventExtraJson);
+
+                _engineEventDispatcher.postToUi(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        notifyConnectivityChangeListenersOfRallypointRtt(id, eventExtraJson);
+                    }
+                });
             }
         });
     }
@@ -7264,8 +8013,7 @@ public class EngageApplication
 
                 Globals.getLogger().i(TAG, "scheduling obtaining of activation code in " + (delay / 1000) + " seconds");
 
-                _licenseActivationTimer = new Timer();
-                _licenseActivationTimer.schedule(new TimerTask()
+                _licenseActivationTimer = Globals.getScheduler().schedule(EngageApplication.this, TaskScheduler.Category.license, "obtainActivationCode", new Runnable()//NON-NLS
                 {
                     @Override
                     public void run()
@@ -0,0 +1,319 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+// Processes Engine callbacks on a single background thread instead of the main looper.  Events
+// go into a bounded queue and are run, in order, by one consumer thread which does the JSON
+// parsing and model updates.  Work that has to touch the UI is handed to postToUi() where it is
+// batched so that a burst of events results in a single post to the UI executor.  Nothing here
+// ever waits for the UI thread.
+//
+// Every per-group callback comes through submit() so that events for a group are always handled
+// in the order the Engine raised them.  UI work posted while handling them runs in the order it
+// was posted.
+//
+// The submitting thread is the Engine's callback thread so submit() never blocks: if the queue
+// is full the event is dropped and counted, the same way BlobRouter treats a backed up lane.
+// Events submitted before start() wait in the queue until it's called; events submitted after
+// stop() are dropped.
+public class EngineEventDispatcher
+{
+    private static String TAG = EngineEventDispatcher.class.getSimpleName();
+
+    public final static int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    public static class Stats
+    {
+        public long eventsSubmitted;
+        public long eventsProcessed;
+        public long eventsFailed;
+        public long eventsDropped;
+        public long queueOverflows;
+        public int queueHighWaterMark;
+        public long uiTasksPosted;
+        public long uiBatchesPosted;
+        public long uiTimeNs;
+
+        // Time spent on the UI thread for each event handled
+        public double getUiUsPerEvent()
+        {
+            return (eventsProcessed == 0 ? 0.0 : ((double) uiTimeNs / 1000.0 / (double) eventsProcessed));
+        }
+    }
+
+    private final ArrayBlockingQueue<Runnable> _queue;
+    private final Executor _uiExecutor;
+    private final Object _uiLock = new Object();
+    private ArrayList<Runnable> _pendingUiWork = new ArrayList<>();
+    private ArrayList<Runnable> _drainingUiWork = new ArrayList<>();
+    private boolean _uiDrainPosted = false;
+    private volatile ProcessingThread _thread = null;
+    private volatile boolean _stopped = false;
+    private final Stats _stats = new Stats();
+
+    private final Runnable _uiDrainRunnable = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            drainUiWork();
+        }
+    };
+
+    // Posts to the main looper
+    private static class MainLooperExecutor implements Executor
+    {
+        private final Handler _handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(Runnable r)
+        {
+            _handler.post(r);
+        }
+    }
+
+    public EngineEventDispatcher()
+    {
+        this(DEFAULT_QUEUE_CAPACITY, new MainLooperExecutor());
+    }
+
+    public EngineEventDispatcher(int queueCapacity, Executor uiExecutor)
+    {
+        _queue = new ArrayBlockingQueue<>(queueCapacity);
+        _uiExecutor = uiExecutor;
+    }
+
+    public synchronized void start()
+    {
+        if(_thread == null && !_stopped)
+        {
+            _thread = new ProcessingThread();
+            _thread.start();
+        }
+    }
+
+    public synchronized void stop()
+    {
+        _stopped = true;
+
+        if(_thread != null)
+        {
+            _thread.close();
+            _thread = null;
+        }
+
+        _queue.clear();
+    }
+
+    public boolean isOnDispatcherThread()
+    {
+        return (Thread.currentThread() == _thread);
+    }
+
+    // Returns false if the event was dropped - either we've been stopped or the queue is full
+    public boolean submit(Runnable event)
+    {
+        if(_stopped)
+        {
+            countDropped();
+            return false;
+        }
+
+        boolean queued = _queue.offer(event);
+        int depth = _queue.size();
+
+        synchronized (_stats)
+        {
+            _stats.eventsSubmitted++;
+
+            if(!queued)
+            {
+                _stats.queueOverflows++;
+                _stats.eventsDropped++;
+            }
+            else if(depth > _stats.queueHighWaterMark)
+            {
+                _stats.queueHighWaterMark = depth;
+            }
+        }
+
+        return queued;
+    }
+
+    // Everything posted between two drains is run in a single batch, in the order it was posted
+    public void postToUi(Runnable work)
+    {
+        boolean postDrain = false;
+
+        synchronized (_uiLock)
+        {
+            _pendingUiWork.add(work);
+
+            if(!_uiDrainPosted)
+            {
+                _uiDrainPosted = true;
+                postDrain = true;
+            }
+        }
+
+        synchronized (_stats)
+        {
+            _stats.uiTasksPosted++;
+
+            if(postDrain)
+            {
+                _stats.uiBatchesPosted++;
+            }
+        }
+
+        if(postDrain)
+        {
+            _uiExecutor.execute(_uiDrainRunnable);
+        }
+    }
+
+    public int getQueueDepth()
+    {
+        return _queue.size();
+    }
+
+    public Stats getStats()
+    {
+        Stats rc = new Stats();
+
+        synchronized (_stats)
+        {
+            rc.eventsSubmitted = _stats.eventsSubmitted;
+            rc.eventsProcessed = _stats.eventsProcessed;
+            rc.eventsFailed = _stats.eventsFailed;
+            rc.eventsDropped = _stats.eventsDropped;
+            rc.queueOverflows = _stats.queueOverflows;
+            rc.queueHighWaterMark = _stats.queueHighWaterMark;
+            rc.uiTasksPosted = _stats.uiTasksPosted;
+            rc.uiBatchesPosted = _stats.uiBatchesPosted;
+            rc.uiTimeNs = _stats.uiTimeNs;
+        }
+
+        return rc;
+    }
+
+    private void drainUiWork()
+    {
+        long start = System.nanoTime();
+        ArrayList<Runnable> work;
+
+        synchronized (_uiLock)
+        {
+            // Swap the lists so that producers can keep adding while we run this batch
+            work = _pendingUiWork;
+            _pendingUiWork = _drainingUiWork;
+            _drainingUiWork = work;
+            _uiDrainPosted = false;
+        }
+
+        for(Runnable r : work)
+        {
+            try
+            {
+                r.run();
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+
+        work.clear();
+
+        long elapsed = (System.nanoTime() - start);
+        synchronized (_stats)
+        {
+            _stats.uiTimeNs += elapsed;
+        }
+    }
+
+    private void countDropped()
+    {
+        synchronized (_stats)
+        {
+            _stats.eventsDropped++;
+        }
+    }
+
+    private void runEvent(Runnable event)
+    {
+        try
+        {
+            event.run();
+
+            synchronized (_stats)
+            {
+                _stats.eventsProcessed++;
+            }
+        }
+        catch (Exception e)
+        {
+            synchronized (_stats)
+            {
+                _stats.eventsFailed++;
+            }
+
+            e.printStackTrace();
+        }
+    }
+
+    private class ProcessingThread extends Thread
+    {
+        private volatile boolean _running = true;
+
+        ProcessingThread()
+        {
+            super(TAG);
+        }
+
+        public void close()
+        {
+            _running = false;
+            interrupt();
+
+            try
+            {
+                join();
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+
+        public void run()
+        {
+            while(_running)
+            {
+                try
+                {
+                    Runnable event = _queue.poll(1000, TimeUnit.MILLISECONDS);
+                    if(event != null)
+                    {
+                        runEvent(event);
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    // Most likely we're being closed - the loop condition will tell
+                }
+            }
+        }
+    }
+}
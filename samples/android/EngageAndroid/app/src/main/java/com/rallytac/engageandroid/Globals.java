@@ -14,8 +14,25 @@ public class Globals
     private static EngageApplication _app = null;
     private static SharedPreferences _sp = null;
     private static SharedPreferences.Editor _spEd = null;
+    private static SettingsCache _settings = null;
     private static AudioPlayerManager _apm = null;
-    private static ILogger _logger = new SimpleLogger();
+    private static final AsyncLogger _asyncLogger = new AsyncLogger(Constants.LOG_RING_CAPACITY)
+    {
+        @Override
+        protected long getUptimeMs()
+        {
+            return Utils.getProcessUptimeMillis();
+        }
+    };
+    private static final AndroidLogSinks.Engage _engageLogSink = new AndroidLogSinks.Engage();
+    private static ILogger _logger = _asyncLogger;
+
+    static
+    {
+        _asyncLogger.addSink(new AndroidLogSinks.Logcat());
+        _asyncLogger.addSink(_engageLogSink);
+    }
+    private static final TaskScheduler _scheduler = new TaskScheduler(Constants.TASK_SCHEDULER_THREADS);
 
     public static void setContext(Context ctx)
     {
@@ -37,6 +54,16 @@ public class Globals
         return _logger;
     }
 
+    public static AsyncLogger getLoggingBackend()
+    {
+        return _asyncLogger;
+    }
+
+    public static AndroidLogSinks.Engage getEngageLogSink()
+    {
+        return _engageLogSink;
+    }
+
     public static EngageApplication getEngageApplication()
     {
         return _app;
@@ -46,6 +73,12 @@ public class Globals
     {
         _sp = sp;
         _spEd = sp.edit();
+        _settings = new SettingsCache(sp, true, Constants.SETTINGS_FLUSH_DELAY_MS, _scheduler);
+    }
+
+    public static TaskScheduler getScheduler()
+    {
+        return _scheduler;
     }
 
     public static SharedPreferences getSharedPreferences()
@@ -58,6 +91,11 @@ public class Globals
         return _spEd;
     }
 
+    public static SettingsCache getSettings()
+    {
+        return _settings;
+    }
+
     public static void setAudioPlayerManager(AudioPlayerManager apm)
     {
         _apm = apm;
@@ -185,8 +185,13 @@ public class GroupDescriptor implements Parcelable
         txUsurped = false;
         rxMuted = false;
         txSelected = false;
-        talkerList.clear();
-        memberNodes.clear();
+
+        synchronized (this)
+        {
+            talkerList.clear();
+            memberNodes.clear();
+        }
+
         lastTxStartTime = 0;
     }
 
@@ -400,14 +405,17 @@ public class GroupDescriptor implements Parcelable
     {
         int rc = 0;
 
-        if(memberNodes != null && memberNodes.size() > 0)
+        synchronized (this)
         {
-            for(GroupMembershipTracker gmt: memberNodes.values())
+            if(memberNodes != null && memberNodes.size() > 0)
             {
-                //Globals.getLogger().i(TAG, "#DBG#: getMemberCountForStatus: " + gmt._nodeId + ", status=" + gmt._statusFlags);
-                if((gmt._statusFlags & status) == status)
+                for(GroupMembershipTracker gmt: memberNodes.values())
                 {
-                    rc++;
+                    //Globals.getLogger().i(TAG, "#DBG#: getMemberCountForStatus: " + gmt._nodeId + ", status=" + gmt._statusFlags);
+                    if((gmt._statusFlags & status) == status)
+                    {
+                        rc++;
+                    }
                 }
             }
         }
@@ -415,28 +423,36 @@ public class GroupDescriptor implements Parcelable
         return rc;
     }
 
+    // A copy - the members themselves change on the engine event dispatcher thread
     public HashMap<String, GroupMembershipTracker> getMemberNodes()
     {
-        return memberNodes;
+        synchronized (this)
+        {
+            return new HashMap<>(memberNodes);
+        }
     }
 
+    // Membership is updated from the engine event dispatcher thread while the UI reads it
     public boolean addOrUpdateMember(GroupMembershipTracker gmt)
     {
         boolean rc = false;
 
-        GroupMembershipTracker existing = memberNodes.get(gmt._nodeId);
-        if(existing == null)
-        {
-            memberNodes.put(gmt._nodeId, gmt);
-            rc = true;
-        }
-        else
+        synchronized (this)
         {
-            if(existing._statusFlags != gmt._statusFlags)
+            GroupMembershipTracker existing = memberNodes.get(gmt._nodeId);
+            if(existing == null)
             {
-                existing._statusFlags = gmt._statusFlags;
+                memberNodes.put(gmt._nodeId, gmt);
                 rc = true;
             }
+            else
+            {
+                if(existing._statusFlags != gmt._statusFlags)
+                {
+                    memberNodes.put(gmt._nodeId, gmt);
+                    rc = true;
+                }
+            }
         }
 
         return rc;
@@ -444,24 +460,31 @@ public class GroupDescriptor implements Parcelable
 
     public boolean removeMember(String nodeId)
     {
-        if(memberNodes.containsKey(nodeId))
+        synchronized (this)
         {
-            memberNodes.remove(nodeId);
-            return true;
+            return (memberNodes.remove(nodeId) != null);
         }
-        else
+    }
+
+    public boolean couldWorkWithoutRallypoint()
+    {
+        try
+        {
+            return couldWorkWithoutRallypoint(new JSONObject(jsonConfiguration));
+        }
+        catch (Exception e)
         {
             return false;
         }
     }
 
-    public boolean couldWorkWithoutRallypoint()
+    // For when the group's JSON has already been parsed
+    public static boolean couldWorkWithoutRallypoint(JSONObject j)
     {
         boolean rc = false;
 
         try
         {
-            JSONObject j = new JSONObject(jsonConfiguration);
             String rxAddr = null;
             int rxPort = 0;
             String txAddr = null;
@@ -495,20 +518,19 @@ public class GroupDescriptor implements Parcelable
 
     public GroupNetworkMode getNetworkMode()
     {
-        GroupNetworkMode rc = GroupNetworkMode.nothingSpecial;
-
         try
         {
-            JSONObject j = new JSONObject(jsonConfiguration);
-
-            rc = groupNetworkModeFromInt(j.optInt("networkMode", intFromGroupNetworkMode(GroupNetworkMode.nothingSpecial)));
+            return getNetworkMode(new JSONObject(jsonConfiguration));
         }
         catch (Exception e)
         {
-            rc = GroupNetworkMode.nothingSpecial;
+            return GroupNetworkMode.nothingSpecial;
         }
+    }
 
-        return rc;
+    public static GroupNetworkMode getNetworkMode(JSONObject j)
+    {
+        return groupNetworkModeFromInt(j.optInt("networkMode", intFromGroupNetworkMode(GroupNetworkMode.nothingSpecial)));
     }
 
 
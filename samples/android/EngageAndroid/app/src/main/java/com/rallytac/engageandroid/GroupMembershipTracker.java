@@ -5,6 +5,8 @@
 
 package com.rallytac.engageandroid;
 
+// Never changed once made - a new status is a new tracker - so versions of a presence descriptor and
+// the groups a node is a member of can all share the same one
 public class GroupMembershipTracker
 {
     GroupMembershipTracker(String nodeId, String groupId, int statusFlags)
@@ -14,7 +16,7 @@ public class GroupMembershipTracker
         _statusFlags = statusFlags;
     }
 
-    public String _nodeId;
-    public String _groupId;
-    public int _statusFlags;
+    public final String _nodeId;
+    public final String _groupId;
+    public final int _statusFlags;
 }
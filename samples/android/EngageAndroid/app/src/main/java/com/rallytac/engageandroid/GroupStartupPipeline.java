@@ -0,0 +1,371 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Gets a mission's groups up when the engine starts.  Building the final JSON for each group (and
+// whatever else goes with it) is farmed out to a few worker threads while the calling thread picks
+// the results up in order and issues the engine's create and join calls a batch at a time - so the
+// first groups are being created while the rest are still being prepared.  Groups that are to be
+// joined go first so that the ones the user actually cares about become operational soonest.
+//
+// Along the way we keep a timeline from engine initialization through to the last group joined.
+public class GroupStartupPipeline
+{
+    private static String TAG = GroupStartupPipeline.class.getSimpleName();
+
+    public static class Job
+    {
+        public final String id;
+        public final boolean join;
+        public final Object tag;
+
+        // Filled in by prepare()
+        public String json;
+        public boolean usable;
+        public Object extra;
+
+        public Job(String id, boolean join, Object tag)
+        {
+            this.id = id;
+            this.join = join;
+            this.tag = tag;
+        }
+    }
+
+    public interface IJobHandler
+    {
+        // Called on a worker thread
+        void prepare(Job job);
+
+        // Called on the thread that called run()
+        void create(Job job);
+        void join(Job job);
+    }
+
+    public static class Trace
+    {
+        public int groups;
+        public int skipped;
+        public int joinsRequested;
+        public int joined;
+        public int joinsFailed;
+
+        // All in milliseconds since the engine was initialized, -1 if it hasn't happened (yet)
+        public long engineStartedMs = -1;
+        public long firstCreateMs = -1;
+        public long allCreatedMs = -1;
+        public long firstJoinedMs = -1;
+        public long allJoinedMs = -1;
+
+        // Time spent building group configurations across all workers
+        public long prepareMs;
+
+        Trace copy()
+        {
+            Trace rc = new Trace();
+
+            rc.groups = groups;
+            rc.skipped = skipped;
+            rc.joinsRequested = joinsRequested;
+            rc.joined = joined;
+            rc.joinsFailed = joinsFailed;
+            rc.engineStartedMs = engineStartedMs;
+            rc.firstCreateMs = firstCreateMs;
+            rc.allCreatedMs = allCreatedMs;
+            rc.firstJoinedMs = firstJoinedMs;
+            rc.allJoinedMs = allJoinedMs;
+            rc.prepareMs = prepareMs;
+
+            return rc;
+        }
+
+        public boolean isComplete()
+        {
+            return (allCreatedMs >= 0 && (joined + joinsFailed) >= joinsRequested);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "groups=" + groups//NON-NLS
+                    + ", skipped=" + skipped//NON-NLS
+                    + ", joined=" + joined + "/" + joinsRequested//NON-NLS
+                    + ", failed=" + joinsFailed//NON-NLS
+                    + ", prepare=" + prepareMs + "ms"//NON-NLS
+                    + ", engineStarted=" + engineStartedMs//NON-NLS
+                    + ", firstCreate=" + firstCreateMs//NON-NLS
+                    + ", allCreated=" + allCreatedMs//NON-NLS
+                    + ", firstJoined=" + firstJoinedMs//NON-NLS
+                    + ", allJoined=" + allJoinedMs;//NON-NLS
+        }
+    }
+
+    private final ThreadPoolExecutor _executor;
+    private final int _batchSize;
+
+    private Trace _trace = new Trace();
+    private long _engineInitNanos = 0;
+    private final HashSet<String> _pendingJoins = new HashSet<>();
+
+    public GroupStartupPipeline(int threads, int batchSize)
+    {
+        _batchSize = Math.max(1, batchSize);
+
+        if(threads > 0)
+        {
+            _executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+            {
+                private int _count = 0;
+
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "GroupStartup-" + (++_count));//NON-NLS
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            _executor.allowCoreThreadTimeOut(true);
+        }
+        else
+        {
+            _executor = null;
+        }
+    }
+
+    public void shutdown()
+    {
+        if(_executor != null)
+        {
+            _executor.shutdownNow();
+        }
+    }
+
+    public synchronized Trace getTrace()
+    {
+        return _trace.copy();
+    }
+
+    public synchronized void markEngineInitializing()
+    {
+        _trace = new Trace();
+        _pendingJoins.clear();
+        _engineInitNanos = System.nanoTime();
+    }
+
+    public synchronized void markEngineStarted()
+    {
+        _trace.engineStartedMs = elapsedMs();
+    }
+
+    // Returns the trace once all groups have been created and all the joins asked for have
+    // either succeeded or failed, otherwise null
+    public synchronized Trace onGroupJoined(String id)
+    {
+        if(!_pendingJoins.remove(id))
+        {
+            return null;
+        }
+
+        _trace.joined++;
+        if(_trace.firstJoinedMs < 0)
+        {
+            _trace.firstJoinedMs = elapsedMs();
+        }
+
+        return checkComplete();
+    }
+
+    public synchronized Trace onGroupJoinFailed(String id)
+    {
+        if(!_pendingJoins.remove(id))
+        {
+            return null;
+        }
+
+        _trace.joinsFailed++;
+
+        return checkComplete();
+    }
+
+    public Trace run(List<Job> jobs, final IJobHandler handler)
+    {
+        // Groups to be joined go first, otherwise keep the mission's order
+        final ArrayList<Job> ordered = new ArrayList<>(jobs.size());
+        for(Job job : jobs)
+        {
+            if(job.join)
+            {
+                ordered.add(job);
+            }
+        }
+
+        for(Job job : jobs)
+        {
+            if(!job.join)
+            {
+                ordered.add(job);
+            }
+        }
+
+        synchronized (this)
+        {
+            _trace.groups += ordered.size();
+            if(_engineInitNanos == 0)
+            {
+                _engineInitNanos = System.nanoTime();
+            }
+        }
+
+        ArrayList<Future<Long>> futures = new ArrayList<>(ordered.size());
+        if(_executor != null)
+        {
+            for(final Job job : ordered)
+            {
+                futures.add(_executor.submit(new Callable<Long>()
+                {
+                    @Override
+                    public Long call()
+                    {
+                        return prepareJob(handler, job);
+                    }
+                }));
+            }
+        }
+
+        ArrayList<Job> batch = new ArrayList<>(_batchSize);
+        long prepareNanos = 0;
+
+        for(int x = 0; x < ordered.size(); x++)
+        {
+            Job job = ordered.get(x);
+
+            if(_executor != null)
+            {
+                try
+                {
+                    prepareNanos += futures.get(x).get();
+                }
+                catch (Exception e)
+                {
+                    e.printStackTrace();
+                    job.usable = false;
+                }
+            }
+            else
+            {
+                prepareNanos += prepareJob(handler, job);
+            }
+
+            if(job.usable)
+            {
+                batch.add(job);
+            }
+            else
+            {
+                synchronized (this)
+                {
+                    _trace.skipped++;
+                }
+            }
+
+            if(batch.size() >= _batchSize)
+            {
+                issue(batch, handler);
+                batch.clear();
+            }
+        }
+
+        issue(batch, handler);
+
+        synchronized (this)
+        {
+            _trace.prepareMs += (prepareNanos / 1000000);
+            _trace.allCreatedMs = elapsedMs();
+            checkComplete();
+            return _trace.copy();
+        }
+    }
+
+    private long prepareJob(IJobHandler handler, Job job)
+    {
+        long started = System.nanoTime();
+
+        try
+        {
+            handler.prepare(job);
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+            job.usable = false;
+        }
+
+        return (System.nanoTime() - started);
+    }
+
+    // Creates everything in the batch before joining any of it so that the engine can get on with
+    // setting up the whole batch while the joins queue up behind
+    private void issue(ArrayList<Job> batch, IJobHandler handler)
+    {
+        for(Job job : batch)
+        {
+            handler.create(job);
+
+            synchronized (this)
+            {
+                if(_trace.firstCreateMs < 0)
+                {
+                    _trace.firstCreateMs = elapsedMs();
+                }
+            }
+        }
+
+        for(Job job : batch)
+        {
+            if(job.join)
+            {
+                synchronized (this)
+                {
+                    _pendingJoins.add(job.id);
+                    _trace.joinsRequested++;
+                }
+
+                handler.join(job);
+            }
+        }
+    }
+
+    private Trace checkComplete()
+    {
+        if(_trace.isComplete())
+        {
+            if(_trace.allJoinedMs < 0)
+            {
+                _trace.allJoinedMs = elapsedMs();
+            }
+
+            return _trace.copy();
+        }
+
+        return null;
+    }
+
+    private long elapsedMs()
+    {
+        return ((System.nanoTime() - _engineInitNanos) / 1000000);
+    }
+}
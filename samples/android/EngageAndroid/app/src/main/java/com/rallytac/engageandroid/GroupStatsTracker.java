@@ -0,0 +1,687 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+// Keeps the group stats and health reports the engine hands us.  Each report is parsed exactly once,
+// on arrival, into a row of primitive values in a fixed-size ring for its group - the oldest rows drop
+// off the end - and everything anyone wants to know after that (rates, percentiles, loss) is worked
+// out from the rings without going near the JSON again.
+//
+// The engine's counters are cumulative so the rings hold them as reported; rates and the per-interval
+// values behind the percentiles come from the differences between neighbouring rows.  A counter that
+// goes backwards means the group was re-created in the engine and is taken as having started again
+// from zero.  Jitter is a gauge and is taken as it is.
+public class GroupStatsTracker
+{
+    private static String TAG = GroupStatsTracker.class.getSimpleName();
+
+    // Traffic metrics, from the stats report
+    public final static int RX_PACKETS = 0;
+    public final static int RX_BYTES = 1;
+    public final static int RX_ERRORS = 2;
+    public final static int TX_PACKETS = 3;
+    public final static int TX_BYTES = 4;
+    public final static int TX_ERRORS = 5;
+    public final static int RTP_RECEIVED = 6;
+    public final static int RTP_LOST = 7;
+    public final static int RTP_DISCARDED = 8;
+    public final static int JITTER = 9;
+
+    // Health metric, the sum of the error counters in the health report
+    public final static int HEALTH_ERRORS = 10;
+
+    public final static int METRIC_COUNT = 11;
+
+    // Field names in the engine's GroupStats, TrafficCounter, InboundProcessorStats and GroupHealthReport
+    private final static String F_ID = "id";//NON-NLS
+    private final static String F_RX_TRAFFIC = "rxTraffic";//NON-NLS
+    private final static String F_TX_TRAFFIC = "txTraffic";//NON-NLS
+    private final static String F_RTP_INBOUNDS = "rtpInbounds";//NON-NLS
+    private final static String F_PACKETS = "packets";//NON-NLS
+    private final static String F_BYTES = "bytes";//NON-NLS
+    private final static String F_ERRORS = "errors";//NON-NLS
+    private final static String F_TOTAL_PACKETS_RECEIVED = "totalPacketsReceived";//NON-NLS
+    private final static String F_TOTAL_PACKETS_LOST = "totalPacketsLost";//NON-NLS
+    private final static String F_TOTAL_PACKETS_DISCARDED = "totalPacketsDiscarded";//NON-NLS
+    private final static String F_JITTER = "jitter";//NON-NLS
+    private final static String F_LAST_ERROR_TS = "lastErrorTs";//NON-NLS
+    private final static String F_DECRYPTION_ERRORS = "decryptionErrors";//NON-NLS
+    private final static String F_ENCRYPTION_ERRORS = "encryptionErrors";//NON-NLS
+    private final static String F_UNSUPPORT_DECODER_ERRORS = "unsupportDecoderErrors";//NON-NLS
+    private final static String F_DECODER_FAILURES = "decoderFailures";//NON-NLS
+    private final static String F_DECODER_START_FAILURES = "decoderStartFailures";//NON-NLS
+    private final static String F_INBOUND_RTP_PACKET_ALLOCATION_FAILURES = "inboundRtpPacketAllocationFailures";//NON-NLS
+    private final static String F_INBOUND_RTP_PACKET_LOAD_FAILURES = "inboundRtpPacketLoadFailures";//NON-NLS
+    private final static String F_LATE_PACKETS_DISCARDED = "latePacketsDiscarded";//NON-NLS
+    private final static String F_JITTER_BUFFER_INSERTION_FAILURES = "jitterBufferInsertionFailures";//NON-NLS
+    private final static String F_PRESENCE_DESERIALIZATION_FAILURES = "presenceDeserializationFailures";//NON-NLS
+    private final static String F_NOT_RTP_ERRORS = "notRtpErrors";//NON-NLS
+    private final static String F_GENERAL_ERRORS = "generalErrors";//NON-NLS
+
+    private final static int TRAFFIC_COLUMNS = 10;
+    private final static int HEALTH_COLUMNS = 1;
+
+    public static class Stats
+    {
+        public long statsReports;
+        public long healthReports;
+        public long parseFailures;
+        public long overwritten;
+        public long parseUs;
+
+        Stats copy()
+        {
+            Stats rc = new Stats();
+
+            rc.statsReports = statsReports;
+            rc.healthReports = healthReports;
+            rc.parseFailures = parseFailures;
+            rc.overwritten = overwritten;
+            rc.parseUs = parseUs;
+
+            return rc;
+        }
+    }
+
+    // The latest health report for a group
+    public static class Health
+    {
+        public long reportedMs;
+        public long lastErrorTs;
+        public long decryptionErrors;
+        public long encryptionErrors;
+        public long unsupportDecoderErrors;
+        public long decoderFailures;
+        public long decoderStartFailures;
+        public long inboundRtpPacketAllocationFailures;
+        public long inboundRtpPacketLoadFailures;
+        public long latePacketsDiscarded;
+        public long jitterBufferInsertionFailures;
+        public long presenceDeserializationFailures;
+        public long notRtpErrors;
+        public long generalErrors;
+
+        public long getTotalErrors()
+        {
+            return (decryptionErrors
+                    + encryptionErrors
+                    + unsupportDecoderErrors
+                    + decoderFailures
+                    + decoderStartFailures
+                    + inboundRtpPacketAllocationFailures
+                    + inboundRtpPacketLoadFailures
+                    + latePacketsDiscarded
+                    + jitterBufferInsertionFailures
+                    + presenceDeserializationFailures
+                    + notRtpErrors
+                    + generalErrors);
+        }
+
+        Health copy()
+        {
+            Health rc = new Health();
+
+            rc.reportedMs = reportedMs;
+            rc.lastErrorTs = lastErrorTs;
+            rc.decryptionErrors = decryptionErrors;
+            rc.encryptionErrors = encryptionErrors;
+            rc.unsupportDecoderErrors = unsupportDecoderErrors;
+            rc.decoderFailures = decoderFailures;
+            rc.decoderStartFailures = decoderStartFailures;
+            rc.inboundRtpPacketAllocationFailures = inboundRtpPacketAllocationFailures;
+            rc.inboundRtpPacketLoadFailures = inboundRtpPacketLoadFailures;
+            rc.latePacketsDiscarded = latePacketsDiscarded;
+            rc.jitterBufferInsertionFailures = jitterBufferInsertionFailures;
+            rc.presenceDeserializationFailures = presenceDeserializationFailures;
+            rc.notRtpErrors = notRtpErrors;
+            rc.generalErrors = generalErrors;
+
+            return rc;
+        }
+    }
+
+    // A metric summarized over a window.  For counters rate is per second over the whole window and the
+    // percentiles, min, max and mean are of the per-second rates between neighbouring reports; for jitter
+    // they're of the reported values and rate is NaN.
+    public static class Window
+    {
+        public int metric;
+        public long windowMs;
+        public long spanMs;
+        public int count;
+        public double rate = Double.NaN;
+        public double min = Double.NaN;
+        public double max = Double.NaN;
+        public double mean = Double.NaN;
+        public double p50 = Double.NaN;
+        public double p95 = Double.NaN;
+        public double p99 = Double.NaN;
+        public double last = Double.NaN;
+
+        @Override
+        public String toString()
+        {
+            return String.format("metric %d over %d ms: n=%d rate=%.2f min=%.2f max=%.2f mean=%.2f p50=%.2f p95=%.2f p99=%.2f last=%.2f",//NON-NLS
+                                    metric, spanMs, count, rate, min, max, mean, p50, p95, p99, last);
+        }
+    }
+
+    // A fixed-size ring of timestamped rows
+    private static class Series
+    {
+        private final long[] _ts;
+        private final double[][] _columns;
+        private int _head = 0;
+        private int _count = 0;
+
+        Series(int capacity, int columns)
+        {
+            _ts = new long[capacity];
+            _columns = new double[columns][capacity];
+        }
+
+        boolean isFull()
+        {
+            return (_count == _ts.length);
+        }
+
+        // Returns the slot for the new row, overwriting the oldest if we're full
+        int append(long ts)
+        {
+            int slot = _head;
+
+            _ts[slot] = ts;
+            _head = ((_head + 1) % _ts.length);
+            if(_count < _ts.length)
+            {
+                _count++;
+            }
+
+            return slot;
+        }
+
+        // Physical slot of the i'th row, oldest first
+        int slot(int i)
+        {
+            return ((_head - _count + i + _ts.length) % _ts.length);
+        }
+
+        // Index (oldest first) of the first row inside the window that ends at the newest row
+        int firstInWindow(long windowMs)
+        {
+            if(_count == 0)
+            {
+                return 0;
+            }
+
+            long from = (_ts[slot(_count - 1)] - windowMs);
+            int lo = 0;
+            int hi = (_count - 1);
+            while(lo < hi)
+            {
+                int mid = ((lo + hi) >>> 1);
+                if(_ts[slot(mid)] < from)
+                {
+                    lo = mid + 1;
+                }
+                else
+                {
+                    hi = mid;
+                }
+            }
+
+            return lo;
+        }
+    }
+
+    private static class Group
+    {
+        final Series traffic;
+        final Series health;
+        Health latestHealth = null;
+
+        Group(int capacity)
+        {
+            traffic = new Series(capacity, TRAFFIC_COLUMNS);
+            health = new Series(capacity, HEALTH_COLUMNS);
+        }
+    }
+
+    private final int _capacity;
+    private final HashMap<String, Group> _groups = new HashMap<>();
+    private final Stats _stats = new Stats();
+
+    public GroupStatsTracker(int capacity)
+    {
+        _capacity = Math.max(2, capacity);
+    }
+
+    public static boolean isGauge(int metric)
+    {
+        return (metric == JITTER);
+    }
+
+    public Stats getStats()
+    {
+        synchronized (_stats)
+        {
+            return _stats.copy();
+        }
+    }
+
+    public List<String> getGroupIds()
+    {
+        synchronized (_groups)
+        {
+            return new ArrayList<>(_groups.keySet());
+        }
+    }
+
+    public void remove(String groupId)
+    {
+        synchronized (_groups)
+        {
+            _groups.remove(groupId);
+        }
+    }
+
+    public void clear()
+    {
+        synchronized (_groups)
+        {
+            _groups.clear();
+        }
+    }
+
+    public boolean ingestStatsReport(String groupId, String reportJson)
+    {
+        return ingestStatsReport(groupId, reportJson, System.currentTimeMillis());
+    }
+
+    public boolean ingestHealthReport(String groupId, String reportJson)
+    {
+        return ingestHealthReport(groupId, reportJson, System.currentTimeMillis());
+    }
+
+    public boolean ingestStatsReport(String groupId, String reportJson, long nowMs)
+    {
+        long started = System.nanoTime();
+        double rxPackets;
+        double rxBytes;
+        double rxErrors;
+        double txPackets;
+        double txBytes;
+        double txErrors;
+        double rtpReceived = 0;
+        double rtpLost = 0;
+        double rtpDiscarded = 0;
+        double jitter = Double.NaN;
+
+        try
+        {
+            JSONObject j = new JSONObject(reportJson);
+            groupId = resolveId(groupId, j);
+
+            JSONObject rx = j.optJSONObject(F_RX_TRAFFIC);
+            JSONObject tx = j.optJSONObject(F_TX_TRAFFIC);
+            if(groupId == null || (rx == null && tx == null))
+            {
+                throw new IllegalArgumentException("not a group stats report");//NON-NLS
+            }
+
+            rxPackets = counter(rx, F_PACKETS);
+            rxBytes = counter(rx, F_BYTES);
+            rxErrors = counter(rx, F_ERRORS);
+            txPackets = counter(tx, F_PACKETS);
+            txBytes = counter(tx, F_BYTES);
+            txErrors = counter(tx, F_ERRORS);
+
+            // Per-stream RTP stats aren't in every engine's report
+            JSONArray inbounds = j.optJSONArray(F_RTP_INBOUNDS);
+            if(inbounds != null)
+            {
+                for(int x = 0; x < inbounds.length(); x++)
+                {
+                    JSONObject ib = inbounds.optJSONObject(x);
+                    if(ib == null)
+                    {
+                        continue;
+                    }
+
+                    rtpReceived += counter(ib, F_TOTAL_PACKETS_RECEIVED);
+                    rtpLost += counter(ib, F_TOTAL_PACKETS_LOST);
+                    rtpDiscarded += counter(ib, F_TOTAL_PACKETS_DISCARDED);
+
+                    double jt = ib.optDouble(F_JITTER, Double.NaN);
+                    if(!Double.isNaN(jt) && (Double.isNaN(jitter) || jt > jitter))
+                    {
+                        jitter = jt;
+                    }
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            synchronized (_stats)
+            {
+                _stats.parseFailures++;
+            }
+            return false;
+        }
+
+        Group g = getOrCreate(groupId);
+        boolean overwrote;
+        synchronized (g)
+        {
+            overwrote = g.traffic.isFull();
+            int slot = g.traffic.append(nowMs);
+            double[][] c = g.traffic._columns;
+            c[RX_PACKETS][slot] = rxPackets;
+            c[RX_BYTES][slot] = rxBytes;
+            c[RX_ERRORS][slot] = rxErrors;
+            c[TX_PACKETS][slot] = txPackets;
+            c[TX_BYTES][slot] = txBytes;
+            c[TX_ERRORS][slot] = txErrors;
+            c[RTP_RECEIVED][slot] = rtpReceived;
+            c[RTP_LOST][slot] = rtpLost;
+            c[RTP_DISCARDED][slot] = rtpDiscarded;
+            c[JITTER][slot] = jitter;
+        }
+
+        synchronized (_stats)
+        {
+            _stats.statsReports++;
+            if(overwrote)
+            {
+                _stats.overwritten++;
+            }
+            _stats.parseUs += ((System.nanoTime() - started) / 1000);
+        }
+
+        return true;
+    }
+
+    public boolean ingestHealthReport(String groupId, String reportJson, long nowMs)
+    {
+        long started = System.nanoTime();
+        Health h = new Health();
+
+        try
+        {
+            JSONObject j = new JSONObject(reportJson);
+            groupId = resolveId(groupId, j);
+            if(groupId == null)
+            {
+                throw new IllegalArgumentException("not a group health report");//NON-NLS
+            }
+
+            h.reportedMs = nowMs;
+            h.lastErrorTs = j.optLong(F_LAST_ERROR_TS, 0);
+            h.decryptionErrors = j.optLong(F_DECRYPTION_ERRORS, 0);
+            h.encryptionErrors = j.optLong(F_ENCRYPTION_ERRORS, 0);
+            h.unsupportDecoderErrors = j.optLong(F_UNSUPPORT_DECODER_ERRORS, 0);
+            h.decoderFailures = j.optLong(F_DECODER_FAILURES, 0);
+            h.decoderStartFailures = j.optLong(F_DECODER_START_FAILURES, 0);
+            h.inboundRtpPacketAllocationFailures = j.optLong(F_INBOUND_RTP_PACKET_ALLOCATION_FAILURES, 0);
+            h.inboundRtpPacketLoadFailures = j.optLong(F_INBOUND_RTP_PACKET_LOAD_FAILURES, 0);
+            h.latePacketsDiscarded = j.optLong(F_LATE_PACKETS_DISCARDED, 0);
+            h.jitterBufferInsertionFailures = j.optLong(F_JITTER_BUFFER_INSERTION_FAILURES, 0);
+            h.presenceDeserializationFailures = j.optLong(F_PRESENCE_DESERIALIZATION_FAILURES, 0);
+            h.notRtpErrors = j.optLong(F_NOT_RTP_ERRORS, 0);
+            h.generalErrors = j.optLong(F_GENERAL_ERRORS, 0);
+        }
+        catch (Exception e)
+        {
+            synchronized (_stats)
+            {
+                _stats.parseFailures++;
+            }
+            return false;
+        }
+
+        Group g = getOrCreate(groupId);
+        boolean overwrote;
+        synchronized (g)
+        {
+            overwrote = g.health.isFull();
+            int slot = g.health.append(nowMs);
+            g.health._columns[HEALTH_ERRORS - TRAFFIC_COLUMNS][slot] = h.getTotalErrors();
+            g.latestHealth = h;
+        }
+
+        synchronized (_stats)
+        {
+            _stats.healthReports++;
+            if(overwrote)
+            {
+                _stats.overwritten++;
+            }
+            _stats.parseUs += ((System.nanoTime() - started) / 1000);
+        }
+
+        return true;
+    }
+
+    // The most recent health report for the group, or null if there hasn't been one
+    public Health getHealth(String groupId)
+    {
+        Group g = getGroup(groupId);
+        if(g == null)
+        {
+            return null;
+        }
+
+        synchronized (g)
+        {
+            return (g.latestHealth != null ? g.latestHealth.copy() : null);
+        }
+    }
+
+    // The metric summarized over the windowMs leading up to the group's latest report, or null if we
+    // don't have enough to go on
+    public Window getWindow(String groupId, int metric, long windowMs)
+    {
+        if(metric < 0 || metric >= METRIC_COUNT)
+        {
+            return null;
+        }
+
+        Group g = getGroup(groupId);
+        if(g == null)
+        {
+            return null;
+        }
+
+        synchronized (g)
+        {
+            Series s = (metric == HEALTH_ERRORS ? g.health : g.traffic);
+            int column = (metric == HEALTH_ERRORS ? (metric - TRAFFIC_COLUMNS) : metric);
+
+            return summarize(s, s._columns[column], metric, windowMs);
+        }
+    }
+
+    // Packet loss as a percentage of the RTP packets we should have had over the window, or NaN if
+    // the reports don't carry RTP stats
+    public double getLossPercent(String groupId, long windowMs)
+    {
+        Group g = getGroup(groupId);
+        if(g == null)
+        {
+            return Double.NaN;
+        }
+
+        synchronized (g)
+        {
+            Series s = g.traffic;
+            int first = s.firstInWindow(windowMs);
+            double lost = delta(s, s._columns[RTP_LOST], first);
+            double received = delta(s, s._columns[RTP_RECEIVED], first);
+
+            if(lost + received <= 0)
+            {
+                return Double.NaN;
+            }
+
+            return ((lost * 100.0) / (lost + received));
+        }
+    }
+
+    private static Window summarize(Series s, double[] values, int metric, long windowMs)
+    {
+        int first = s.firstInWindow(windowMs);
+        int n = (s._count - first);
+        boolean gauge = isGauge(metric);
+
+        if(n < (gauge ? 1 : 2))
+        {
+            return null;
+        }
+
+        Window rc = new Window();
+        rc.metric = metric;
+        rc.windowMs = windowMs;
+        rc.spanMs = (s._ts[s.slot(s._count - 1)] - s._ts[s.slot(first)]);
+
+        double[] points = new double[n];
+        int count = 0;
+        double total = 0;
+        long totalMs = 0;
+
+        if(gauge)
+        {
+            for(int x = first; x < s._count; x++)
+            {
+                double v = values[s.slot(x)];
+                if(!Double.isNaN(v))
+                {
+                    points[count++] = v;
+                }
+            }
+
+            if(count == 0)
+            {
+                return null;
+            }
+
+            rc.last = points[count - 1];
+        }
+        else
+        {
+            for(int x = first + 1; x < s._count; x++)
+            {
+                int prev = s.slot(x - 1);
+                int cur = s.slot(x);
+                long dt = (s._ts[cur] - s._ts[prev]);
+                if(dt <= 0)
+                {
+                    continue;
+                }
+
+                double d = counterDelta(values[prev], values[cur]);
+                total += d;
+                totalMs += dt;
+                points[count++] = ((d * 1000.0) / dt);
+            }
+
+            if(count == 0)
+            {
+                return null;
+            }
+
+            rc.rate = ((total * 1000.0) / totalMs);
+            rc.last = points[count - 1];
+        }
+
+        double sum = 0;
+        for(int x = 0; x < count; x++)
+        {
+            sum += points[x];
+        }
+
+        Arrays.sort(points, 0, count);
+        rc.count = count;
+        rc.min = points[0];
+        rc.max = points[count - 1];
+        rc.mean = (sum / count);
+        rc.p50 = percentile(points, count, 50.0);
+        rc.p95 = percentile(points, count, 95.0);
+        rc.p99 = percentile(points, count, 99.0);
+
+        return rc;
+    }
+
+    // Nearest-rank percentile of the first count (sorted) values
+    static double percentile(double[] sorted, int count, double pct)
+    {
+        int rank = (int) Math.ceil((pct / 100.0) * count);
+        rank = Math.max(1, Math.min(count, rank));
+        return sorted[rank - 1];
+    }
+
+    private static double counterDelta(double prev, double cur)
+    {
+        return (cur >= prev ? (cur - prev) : cur);
+    }
+
+    private static double delta(Series s, double[] values, int first)
+    {
+        double rc = 0;
+
+        for(int x = first + 1; x < s._count; x++)
+        {
+            rc += counterDelta(values[s.slot(x - 1)], values[s.slot(x)]);
+        }
+
+        return rc;
+    }
+
+    private static double counter(JSONObject j, String name)
+    {
+        return (j == null ? 0 : j.optLong(name, 0));
+    }
+
+    private static String resolveId(String groupId, JSONObject j)
+    {
+        if(Utils.isEmptyString(groupId))
+        {
+            groupId = j.optString(F_ID, null);
+        }
+
+        return (Utils.isEmptyString(groupId) ? null : groupId);
+    }
+
+    private Group getGroup(String groupId)
+    {
+        synchronized (_groups)
+        {
+            return _groups.get(groupId);
+        }
+    }
+
+    private Group getOrCreate(String groupId)
+    {
+        synchronized (_groups)
+        {
+            Group g = _groups.get(groupId);
+            if(g == null)
+            {
+                g = new Group(_capacity);
+                _groups.put(groupId, g);
+            }
+
+            return g;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+// Collects groups whose UI needs refreshing and flushes them at most once per display frame (or
+// once per configured interval).  A group marked dirty several times before a flush is only
+// refreshed once.
+public class GroupUiRefreshScheduler
+{
+    private static String TAG = GroupUiRefreshScheduler.class.getSimpleName();
+
+    public interface IRefreshTarget
+    {
+        void onGroupRefresh(GroupDescriptor gd);
+    }
+
+    public static class Stats
+    {
+        public long eventsReceived;
+        public long refreshesPerformed;
+        public long flushes;
+
+        public double getCoalescingRatio()
+        {
+            return (refreshesPerformed == 0 ? 0.0 : ((double) eventsReceived / (double) refreshesPerformed));
+        }
+    }
+
+    private final IRefreshTarget _target;
+    private final Handler _uiHandler = new Handler(Looper.getMainLooper());
+    private final LinkedHashMap<String, GroupDescriptor> _dirtyGroups = new LinkedHashMap<>();
+    private final ArrayList<GroupDescriptor> _flushList = new ArrayList<>();
+    private final Stats _stats = new Stats();
+    private boolean _flushScheduled = false;
+    private int _minIntervalMs;
+    private long _lastFlushTs = 0;
+
+    private final Choreographer.FrameCallback _frameCallback = new Choreographer.FrameCallback()
+    {
+        @Override
+        public void doFrame(long frameTimeNanos)
+        {
+            flush();
+        }
+    };
+
+    private final Runnable _scheduleOnUiRunnable = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            scheduleFlushOnUiThread();
+        }
+    };
+
+    private final Runnable _flushRunnable = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            flush();
+        }
+    };
+
+    // A minimum interval of 0 means flushes are aligned to display frames
+    public GroupUiRefreshScheduler(IRefreshTarget target, int minIntervalMs)
+    {
+        _target = target;
+        _minIntervalMs = Math.max(0, minIntervalMs);
+    }
+
+    public void setMinIntervalMs(int ms)
+    {
+        synchronized (_dirtyGroups)
+        {
+            _minIntervalMs = Math.max(0, ms);
+        }
+    }
+
+    public int getMinIntervalMs()
+    {
+        synchronized (_dirtyGroups)
+        {
+            return _minIntervalMs;
+        }
+    }
+
+    // Safe to call from any thread
+    public void markDirty(GroupDescriptor gd)
+    {
+        if(gd == null)
+        {
+            return;
+        }
+
+        boolean needSchedule = false;
+
+        synchronized (_dirtyGroups)
+        {
+            _stats.eventsReceived++;
+
+            // The latest descriptor for an id wins - the mission may have been reloaded
+            _dirtyGroups.put(gd.id, gd);
+
+            if(!_flushScheduled)
+            {
+                _flushScheduled = true;
+                needSchedule = true;
+            }
+        }
+
+        if(needSchedule)
+        {
+            if(Looper.myLooper() == Looper.getMainLooper())
+            {
+                scheduleFlushOnUiThread();
+            }
+            else
+            {
+                _uiHandler.post(_scheduleOnUiRunnable);
+            }
+        }
+    }
+
+    // Drops anything pending - used when the mission is torn down
+    public void cancel()
+    {
+        synchronized (_dirtyGroups)
+        {
+            _dirtyGroups.clear();
+            _flushScheduled = false;
+        }
+
+        _uiHandler.removeCallbacks(_scheduleOnUiRunnable);
+        _uiHandler.removeCallbacks(_flushRunnable);
+        if(Looper.myLooper() == Looper.getMainLooper())
+        {
+            Choreographer.getInstance().removeFrameCallback(_frameCallback);
+        }
+    }
+
+    public Stats getStats()
+    {
+        Stats rc = new Stats();
+
+        synchronized (_dirtyGroups)
+        {
+            rc.eventsReceived = _stats.eventsReceived;
+            rc.refreshesPerformed = _stats.refreshesPerformed;
+            rc.flushes = _stats.flushes;
+        }
+
+        return rc;
+    }
+
+    private void scheduleFlushOnUiThread()
+    {
+        int minIntervalMs = getMinIntervalMs();
+
+        if(minIntervalMs <= 0)
+        {
+            Choreographer.getInstance().postFrameCallback(_frameCallback);
+        }
+        else
+        {
+            long sinceLast = (SystemClock.uptimeMillis() - _lastFlushTs);
+            long delay = (sinceLast >= minIntervalMs ? 0 : (minIntervalMs - sinceLast));
+            _uiHandler.postDelayed(_flushRunnable, delay);
+        }
+    }
+
+    private void flush()
+    {
+        synchronized (_dirtyGroups)
+        {
+            _flushList.addAll(_dirtyGroups.values());
+            _dirtyGroups.clear();
+            _flushScheduled = false;
+            _stats.flushes++;
+            _stats.refreshesPerformed += _flushList.size();
+        }
+
+        _lastFlushTs = SystemClock.uptimeMillis();
+
+        for(GroupDescriptor gd : _flushList)
+        {
+            try
+            {
+                _target.onGroupRefresh(gd);
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+
+        _flushList.clear();
+    }
+}
@@ -0,0 +1,918 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+// GZIP compression that borrows its Deflater/Inflater - and the native zlib state behind each
+// of them - plus any scratch buffers from small pools instead of creating them on every call.
+//
+// What's produced is a standard single-member GZIP stream with the same header GZIPOutputStream
+// writes, so anything that could read Utils.compress() output before can read this and the
+// inflate side accepts anything GZIPOutputStream (or gzip) makes - including streams of more than
+// one member, which are inflated one after the other like GZIPInputStream does.
+//
+// There are whole-array, ByteBuffer-to-ByteBuffer and stream flavours.  The array versions
+// deflate/inflate straight into the array they return; the ByteBuffer versions work directly on
+// heap buffers' backing arrays and go through a pooled buffer otherwise.
+public class GzipCodec
+{
+    private static String TAG = GzipCodec.class.getSimpleName();
+
+    public final static int POOL_SIZE = 4;
+    public final static int BUFFER_SIZE = 8192;
+
+    private final static byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+    private final static int TRAILER_SIZE = 8;
+
+    private final static int FHCRC = 2;
+    private final static int FEXTRA = 4;
+    private final static int FNAME = 8;
+    private final static int FCOMMENT = 16;
+
+    public static class Stats
+    {
+        public long deflatersCreated;
+        public long deflatersReused;
+        public long inflatersCreated;
+        public long inflatersReused;
+        public long bytesIn;
+        public long bytesOut;
+
+        Stats copy()
+        {
+            Stats rc = new Stats();
+
+            rc.deflatersCreated = deflatersCreated;
+            rc.deflatersReused = deflatersReused;
+            rc.inflatersCreated = inflatersCreated;
+            rc.inflatersReused = inflatersReused;
+            rc.bytesIn = bytesIn;
+            rc.bytesOut = bytesOut;
+
+            return rc;
+        }
+    }
+
+    private final static ArrayDeque<Deflater> _deflaters = new ArrayDeque<>();
+    private final static ArrayDeque<Inflater> _inflaters = new ArrayDeque<>();
+    private final static BufferPool _buffers = new BufferPool(BUFFER_SIZE, POOL_SIZE * 2);
+    private final static Stats _stats = new Stats();
+
+    public static Stats getStats()
+    {
+        synchronized (_stats)
+        {
+            return _stats.copy();
+        }
+    }
+
+    public static byte[] compress(byte[] data, int ofs, int len)
+    {
+        Deflater deflater = acquireDeflater();
+
+        try
+        {
+            CRC32 crc = new CRC32();
+            crc.update(data, ofs, len);
+
+            byte[] out = new byte[HEADER.length + (len / 2) + 64];
+            System.arraycopy(HEADER, 0, out, 0, HEADER.length);
+            int pos = HEADER.length;
+
+            deflater.setInput(data, ofs, len);
+            deflater.finish();
+
+            while(!deflater.finished())
+            {
+                if(pos == out.length)
+                {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+
+                pos += deflater.deflate(out, pos, out.length - pos);
+            }
+
+            if(out.length - pos < TRAILER_SIZE)
+            {
+                out = Arrays.copyOf(out, pos + TRAILER_SIZE);
+            }
+
+            putIntLe(out, pos, (int) crc.getValue());
+            putIntLe(out, pos + 4, len);
+            pos += TRAILER_SIZE;
+
+            countBytes(len, pos);
+
+            return (pos == out.length ? out : Arrays.copyOf(out, pos));
+        }
+        finally
+        {
+            releaseDeflater(deflater);
+        }
+    }
+
+    public static byte[] inflate(byte[] data, int ofs, int len) throws IOException
+    {
+        int end = (ofs + len);
+        int pos = ofs;
+
+        Inflater inflater = acquireInflater();
+
+        try
+        {
+            byte[] out = new byte[Math.max(64, len * 4)];
+            int outLen = 0;
+
+            do
+            {
+                pos = skipHeader(data, pos, end);
+
+                inflater.reset();
+                inflater.setInput(data, pos, end - pos);
+
+                int memberStart = outLen;
+
+                while(!inflater.finished())
+                {
+                    if(outLen == out.length)
+                    {
+                        out = Arrays.copyOf(out, out.length * 2);
+                    }
+
+                    int n = inflater.inflate(out, outLen, out.length - outLen);
+                    if(n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    {
+                        throw new EOFException("truncated gzip data");//NON-NLS
+                    }
+
+                    outLen += n;
+                }
+
+                int trailer = (end - inflater.getRemaining());
+                if(end - trailer < TRAILER_SIZE)
+                {
+                    throw new EOFException("truncated gzip trailer");//NON-NLS
+                }
+
+                CRC32 crc = new CRC32();
+                crc.update(out, memberStart, outLen - memberStart);
+                checkTrailer(getIntLe(data, trailer), getIntLe(data, trailer + 4), crc, outLen - memberStart);
+
+                pos = (trailer + TRAILER_SIZE);
+            }
+            while(startsAnotherMember(data, pos, end));
+
+            countBytes(len, outLen);
+
+            return (outLen == out.length ? out : Arrays.copyOf(out, outLen));
+        }
+        catch (DataFormatException e)
+        {
+            throw new ZipException(e.getMessage());
+        }
+        finally
+        {
+            releaseInflater(inflater);
+        }
+    }
+
+    // Compresses everything remaining in src into dst.  Returns the number of bytes written or -1
+    // (with dst's position left where it was) if dst didn't have room.
+    public static int compress(ByteBuffer src, ByteBuffer dst)
+    {
+        int start = dst.position();
+        int total = src.remaining();
+        Deflater deflater = acquireDeflater();
+        byte[] inBuf = null;
+        byte[] outBuf = null;
+
+        try
+        {
+            if(dst.remaining() < HEADER.length)
+            {
+                return -1;
+            }
+
+            dst.put(HEADER);
+
+            CRC32 crc = new CRC32();
+
+            if(src.hasArray())
+            {
+                int ofs = src.arrayOffset() + src.position();
+                crc.update(src.array(), ofs, total);
+                deflater.setInput(src.array(), ofs, total);
+                src.position(src.limit());
+                deflater.finish();
+            }
+            else
+            {
+                inBuf = _buffers.acquire();
+                if(!src.hasRemaining())
+                {
+                    deflater.finish();
+                }
+            }
+
+            if(!dst.hasArray())
+            {
+                outBuf = _buffers.acquire();
+            }
+
+            while(!deflater.finished())
+            {
+                if(inBuf != null && deflater.needsInput())
+                {
+                    int n = Math.min(src.remaining(), inBuf.length);
+                    src.get(inBuf, 0, n);
+                    crc.update(inBuf, 0, n);
+                    deflater.setInput(inBuf, 0, n);
+                    if(!src.hasRemaining())
+                    {
+                        deflater.finish();
+                    }
+                }
+
+                if(outBuf == null)
+                {
+                    if(!dst.hasRemaining())
+                    {
+                        dst.position(start);
+                        return -1;
+                    }
+
+                    int n = deflater.deflate(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+                    dst.position(dst.position() + n);
+                }
+                else
+                {
+                    int n = deflater.deflate(outBuf);
+                    if(n > dst.remaining())
+                    {
+                        dst.position(start);
+                        return -1;
+                    }
+
+                    dst.put(outBuf, 0, n);
+                }
+            }
+
+            if(dst.remaining() < TRAILER_SIZE)
+            {
+                dst.position(start);
+                return -1;
+            }
+
+            putIntLe(dst, (int) crc.getValue());
+            putIntLe(dst, total);
+
+            countBytes(total, dst.position() - start);
+
+            return (dst.position() - start);
+        }
+        finally
+        {
+            releaseDeflater(deflater);
+            _buffers.release(inBuf);
+            _buffers.release(outBuf);
+        }
+    }
+
+    // Inflates the GZIP data remaining in src into dst.  Returns the number of bytes written or -1
+    // (with dst's position left where it was) if dst didn't have room.
+    public static int inflate(ByteBuffer src, ByteBuffer dst) throws IOException
+    {
+        byte[] data;
+        int ofs;
+        int len = src.remaining();
+
+        if(src.hasArray())
+        {
+            data = src.array();
+            ofs = src.arrayOffset() + src.position();
+        }
+        else
+        {
+            data = new byte[len];
+            src.duplicate().get(data);
+            ofs = 0;
+        }
+
+        int end = (ofs + len);
+        int pos = ofs;
+        int start = dst.position();
+        Inflater inflater = acquireInflater();
+        byte[] outBuf = (dst.hasArray() ? null : _buffers.acquire());
+
+        try
+        {
+            do
+            {
+                pos = skipHeader(data, pos, end);
+
+                inflater.reset();
+                inflater.setInput(data, pos, end - pos);
+
+                CRC32 crc = new CRC32();
+                int memberStart = dst.position();
+
+                while(!inflater.finished())
+                {
+                    int n;
+
+                    if(outBuf == null)
+                    {
+                        int at = dst.arrayOffset() + dst.position();
+                        n = inflater.inflate(dst.array(), at, dst.remaining());
+                        crc.update(dst.array(), at, n);
+                        dst.position(dst.position() + n);
+                    }
+                    else
+                    {
+                        n = inflater.inflate(outBuf, 0, Math.min(outBuf.length, dst.remaining()));
+                        crc.update(outBuf, 0, n);
+                        dst.put(outBuf, 0, n);
+                    }
+
+                    if(n == 0 && !inflater.finished())
+                    {
+                        if(inflater.needsInput() || inflater.needsDictionary())
+                        {
+                            throw new EOFException("truncated gzip data");//NON-NLS
+                        }
+
+                        if(!dst.hasRemaining())
+                        {
+                            dst.position(start);
+                            return -1;
+                        }
+                    }
+                }
+
+                int trailer = (end - inflater.getRemaining());
+                if(end - trailer < TRAILER_SIZE)
+                {
+                    throw new EOFException("truncated gzip trailer");//NON-NLS
+                }
+
+                checkTrailer(getIntLe(data, trailer), getIntLe(data, trailer + 4), crc, dst.position() - memberStart);
+
+                pos = (trailer + TRAILER_SIZE);
+            }
+            while(startsAnotherMember(data, pos, end));
+
+            int written = (dst.position() - start);
+
+            src.position(src.position() + (pos - ofs));
+            countBytes(pos - ofs, written);
+
+            return written;
+        }
+        catch (DataFormatException e)
+        {
+            dst.position(start);
+            throw new ZipException(e.getMessage());
+        }
+        catch (IOException e)
+        {
+            dst.position(start);
+            throw e;
+        }
+        finally
+        {
+            releaseInflater(inflater);
+            _buffers.release(outBuf);
+        }
+    }
+
+    // Close (or finish()) to write the trailer and give the Deflater back
+    public static OutputStream openCompressingStream(OutputStream out) throws IOException
+    {
+        return new CompressingOutputStream(out);
+    }
+
+    // Close to give the Inflater back
+    public static InputStream openInflatingStream(InputStream in) throws IOException
+    {
+        return new InflatingInputStream(in);
+    }
+
+    private static Deflater acquireDeflater()
+    {
+        Deflater rc;
+
+        synchronized (_deflaters)
+        {
+            rc = _deflaters.pollFirst();
+        }
+
+        synchronized (_stats)
+        {
+            if(rc == null)
+            {
+                _stats.deflatersCreated++;
+            }
+            else
+            {
+                _stats.deflatersReused++;
+            }
+        }
+
+        return (rc != null ? rc : new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+    }
+
+    private static void releaseDeflater(Deflater deflater)
+    {
+        deflater.reset();
+
+        synchronized (_deflaters)
+        {
+            if(_deflaters.size() < POOL_SIZE)
+            {
+                _deflaters.addFirst(deflater);
+                return;
+            }
+        }
+
+        deflater.end();
+    }
+
+    private static Inflater acquireInflater()
+    {
+        Inflater rc;
+
+        synchronized (_inflaters)
+        {
+            rc = _inflaters.pollFirst();
+        }
+
+        synchronized (_stats)
+        {
+            if(rc == null)
+            {
+                _stats.inflatersCreated++;
+            }
+            else
+            {
+                _stats.inflatersReused++;
+            }
+        }
+
+        return (rc != null ? rc : new Inflater(true));
+    }
+
+    private static void releaseInflater(Inflater inflater)
+    {
+        inflater.reset();
+
+        synchronized (_inflaters)
+        {
+            if(_inflaters.size() < POOL_SIZE)
+            {
+                _inflaters.addFirst(inflater);
+                return;
+            }
+        }
+
+        inflater.end();
+    }
+
+    private static void countBytes(long in, long out)
+    {
+        synchronized (_stats)
+        {
+            _stats.bytesIn += in;
+            _stats.bytesOut += out;
+        }
+    }
+
+    // Whatever follows a member is only taken as another one if it looks like it - anything else
+    // is ignored, the same as GZIPInputStream does
+    private static boolean startsAnotherMember(byte[] b, int pos, int end)
+    {
+        return (end - pos >= HEADER.length && b[pos] == HEADER[0] && b[pos + 1] == HEADER[1]);
+    }
+
+    // Returns where the deflate data starts
+    private static int skipHeader(byte[] b, int pos, int end) throws IOException
+    {
+        if(end - pos < HEADER.length)
+        {
+            throw new EOFException("truncated gzip header");//NON-NLS
+        }
+
+        if(b[pos] != HEADER[0] || b[pos + 1] != HEADER[1])
+        {
+            throw new ZipException("not in gzip format");//NON-NLS
+        }
+
+        if(b[pos + 2] != Deflater.DEFLATED)
+        {
+            throw new ZipException("unsupported compression method");//NON-NLS
+        }
+
+        int flags = (b[pos + 3] & 0xff);
+        pos += HEADER.length;
+
+        if((flags & FEXTRA) != 0)
+        {
+            if(end - pos < 2)
+            {
+                throw new EOFException("truncated gzip header");//NON-NLS
+            }
+
+            pos += 2 + ((b[pos] & 0xff) | ((b[pos + 1] & 0xff) << 8));
+        }
+
+        if((flags & FNAME) != 0)
+        {
+            pos = skipZeroTerminated(b, pos, end);
+        }
+
+        if((flags & FCOMMENT) != 0)
+        {
+            pos = skipZeroTerminated(b, pos, end);
+        }
+
+        if((flags & FHCRC) != 0)
+        {
+            pos += 2;
+        }
+
+        if(pos > end)
+        {
+            throw new EOFException("truncated gzip header");//NON-NLS
+        }
+
+        return pos;
+    }
+
+    private static int skipZeroTerminated(byte[] b, int pos, int end) throws IOException
+    {
+        while(pos < end && b[pos] != 0)
+        {
+            pos++;
+        }
+
+        if(pos >= end)
+        {
+            throw new EOFException("truncated gzip header");//NON-NLS
+        }
+
+        return (pos + 1);
+    }
+
+    private static void checkTrailer(int crcValue, int size, CRC32 crc, long actualSize) throws IOException
+    {
+        if(crcValue != (int) crc.getValue())
+        {
+            throw new ZipException("corrupt gzip trailer (crc)");//NON-NLS
+        }
+
+        if(size != (int) actualSize)
+        {
+            throw new ZipException("corrupt gzip trailer (size)");//NON-NLS
+        }
+    }
+
+    private static void putIntLe(byte[] b, int pos, int v)
+    {
+        b[pos] = (byte) v;
+        b[pos + 1] = (byte) (v >> 8);
+        b[pos + 2] = (byte) (v >> 16);
+        b[pos + 3] = (byte) (v >> 24);
+    }
+
+    private static void putIntLe(ByteBuffer bb, int v)
+    {
+        bb.put((byte) v);
+        bb.put((byte) (v >> 8));
+        bb.put((byte) (v >> 16));
+        bb.put((byte) (v >> 24));
+    }
+
+    private static int getIntLe(byte[] b, int pos)
+    {
+        return ((b[pos] & 0xff) | ((b[pos + 1] & 0xff) << 8) | ((b[pos + 2] & 0xff) << 16) | ((b[pos + 3] & 0xff) << 24));
+    }
+
+    private static class CompressingOutputStream extends FilterOutputStream
+    {
+        private Deflater _deflater = acquireDeflater();
+        private byte[] _buf = _buffers.acquire();
+        private final CRC32 _crc = new CRC32();
+        private long _total = 0;
+        private boolean _finished = false;
+
+        CompressingOutputStream(OutputStream out) throws IOException
+        {
+            super(out);
+            out.write(HEADER);
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            if(_finished)
+            {
+                throw new IOException("stream finished");//NON-NLS
+            }
+
+            _crc.update(b, off, len);
+            _total += len;
+            _deflater.setInput(b, off, len);
+
+            while(!_deflater.needsInput())
+            {
+                out.write(_buf, 0, _deflater.deflate(_buf));
+            }
+        }
+
+        public void finish() throws IOException
+        {
+            if(_finished)
+            {
+                return;
+            }
+
+            _deflater.finish();
+            while(!_deflater.finished())
+            {
+                out.write(_buf, 0, _deflater.deflate(_buf));
+            }
+
+            putIntLe(_buf, 0, (int) _crc.getValue());
+            putIntLe(_buf, 4, (int) _total);
+            out.write(_buf, 0, TRAILER_SIZE);
+
+            _finished = true;
+            countBytes(_total, _deflater.getBytesWritten() + HEADER.length + TRAILER_SIZE);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            try
+            {
+                finish();
+                super.close();
+            }
+            finally
+            {
+                if(_deflater != null)
+                {
+                    releaseDeflater(_deflater);
+                    _buffers.release(_buf);
+                    _deflater = null;
+                    _buf = null;
+                }
+            }
+        }
+    }
+
+    private static class InflatingInputStream extends FilterInputStream
+    {
+        private Inflater _inflater = acquireInflater();
+        private byte[] _buf = _buffers.acquire();
+        private int _bufPos = 0;
+        private int _bufLen = 0;
+        private final CRC32 _crc = new CRC32();
+        private long _total = 0;
+        private boolean _eof = false;
+
+        InflatingInputStream(InputStream in) throws IOException
+        {
+            super(in);
+            readHeader(true);
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            byte[] one = new byte[1];
+            return (read(one, 0, 1) == 1 ? (one[0] & 0xff) : -1);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            if(len == 0)
+            {
+                return 0;
+            }
+
+            while(!_eof)
+            {
+                int n;
+
+                try
+                {
+                    n = _inflater.inflate(b, off, len);
+                }
+                catch (DataFormatException e)
+                {
+                    throw new ZipException(e.getMessage());
+                }
+
+                if(n > 0)
+                {
+                    _crc.update(b, off, n);
+                    _total += n;
+                    return n;
+                }
+
+                if(_inflater.finished())
+                {
+                    // Whatever the inflater didn't use is the trailer and maybe another member
+                    _bufPos = (_bufLen - _inflater.getRemaining());
+                    readTrailer();
+
+                    if(readHeader(false))
+                    {
+                        _inflater.reset();
+                        _crc.reset();
+                        _total = 0;
+                    }
+                    else
+                    {
+                        _eof = true;
+                    }
+                }
+                else if(_inflater.needsDictionary())
+                {
+                    throw new ZipException("unexpected dictionary");//NON-NLS
+                }
+                else if(_inflater.needsInput())
+                {
+                    if(_bufPos == _bufLen && !fill())
+                    {
+                        throw new EOFException("truncated gzip data");//NON-NLS
+                    }
+
+                    _inflater.setInput(_buf, _bufPos, _bufLen - _bufPos);
+                    _bufPos = _bufLen;
+                }
+            }
+
+            return -1;
+        }
+
+        @Override
+        public boolean markSupported()
+        {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            try
+            {
+                super.close();
+            }
+            finally
+            {
+                if(_inflater != null)
+                {
+                    releaseInflater(_inflater);
+                    _buffers.release(_buf);
+                    _inflater = null;
+                    _buf = null;
+                }
+            }
+        }
+
+        private boolean fill() throws IOException
+        {
+            _bufPos = 0;
+            _bufLen = Math.max(0, in.read(_buf, 0, _buf.length));
+            return (_bufLen > 0);
+        }
+
+        // -1 at the end of the underlying stream
+        private int nextByte() throws IOException
+        {
+            if(_bufPos == _bufLen && !fill())
+            {
+                return -1;
+            }
+
+            return (_buf[_bufPos++] & 0xff);
+        }
+
+        private int readByte() throws IOException
+        {
+            int b = nextByte();
+            if(b < 0)
+            {
+                throw new EOFException("truncated gzip header");//NON-NLS
+            }
+
+            return b;
+        }
+
+        // Returns false if there's no further member - the end of the stream or something that
+        // doesn't start like one, which is ignored the same as GZIPInputStream does.  The first
+        // member has to be there.
+        private boolean readHeader(boolean first) throws IOException
+        {
+            int b0 = (first ? readByte() : nextByte());
+            int b1 = (b0 < 0 ? -1 : (first ? readByte() : nextByte()));
+
+            if(b0 != (HEADER[0] & 0xff) || b1 != (HEADER[1] & 0xff))
+            {
+                if(first)
+                {
+                    throw new ZipException("not in gzip format");//NON-NLS
+                }
+
+                return false;
+            }
+
+            byte[] hdr = new byte[HEADER.length];
+            for(int x = 2; x < hdr.length; x++)
+            {
+                hdr[x] = (byte) readByte();
+            }
+
+            if(hdr[2] != Deflater.DEFLATED)
+            {
+                throw new ZipException("unsupported compression method");//NON-NLS
+            }
+
+            int flags = (hdr[3] & 0xff);
+
+            if((flags & FEXTRA) != 0)
+            {
+                int xlen = readByte() | (readByte() << 8);
+                for(int x = 0; x < xlen; x++)
+                {
+                    readByte();
+                }
+            }
+
+            if((flags & FNAME) != 0)
+            {
+                while(readByte() != 0)
+                {
+                }
+            }
+
+            if((flags & FCOMMENT) != 0)
+            {
+                while(readByte() != 0)
+                {
+                }
+            }
+
+            if((flags & FHCRC) != 0)
+            {
+                readByte();
+                readByte();
+            }
+
+            return true;
+        }
+
+        private void readTrailer() throws IOException
+        {
+            byte[] trailer = new byte[TRAILER_SIZE];
+            for(int x = 0; x < TRAILER_SIZE; x++)
+            {
+                int b = nextByte();
+                if(b < 0)
+                {
+                    throw new EOFException("truncated gzip trailer");//NON-NLS
+                }
+
+                trailer[x] = (byte) b;
+            }
+
+            checkTrailer(getIntLe(trailer, 0), getIntLe(trailer, 4), _crc, _total);
+            countBytes(_inflater.getBytesRead() + HEADER.length + TRAILER_SIZE, _total);
+        }
+    }
+}
@@ -12,4 +12,11 @@ public interface ILogger
     void w(String tag, String msg);
     void e(String tag, String msg);
     void f(String tag, String msg);
+
+    // Formatted with String.format - but only if the message is actually going to be logged
+    void d(String tag, String format, Object... args);
+    void i(String tag, String format, Object... args);
+    void w(String tag, String format, Object... args);
+    void e(String tag, String format, Object... args);
+    void f(String tag, String format, Object... args);
 }
@@ -14,13 +14,11 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
-
 public class LogAdapter extends RecyclerView.Adapter<LogAdapter.LogViewHolder> {
-    private final ArrayList<String> logList;
+    private final LogLineStore logStore;
 
-    public LogAdapter(ArrayList<String> logList) {
-        this.logList = logList;
+    public LogAdapter(LogLineStore logStore) {
+        this.logStore = logStore;
     }
 
     @NonNull
@@ -35,10 +33,10 @@ public class LogAdapter extends RecyclerView.Adapter<LogAdapter.LogViewHolder> {
     @Override
     public void onBindViewHolder(@NonNull LogViewHolder holder, int position) {
         // Bind the log string to the TextView
-        holder.logTextView.setText(logList.get(position));
+        holder.logTextView.setText(logStore.get(position));
 
-        // Set alternating background colors
-        if (position % 2 == 0) {
+        // Set alternating background colors - by line number so rows don't change color as old lines go away
+        if ((logStore.getFirstLineNumber() + position) % 2 == 0) {
             holder.itemView.setBackgroundColor(Color.WHITE); // Even rows
         } else {
             holder.itemView.setBackgroundColor(Color.LTGRAY); // Odd rows
@@ -47,7 +45,7 @@ public class LogAdapter extends RecyclerView.Adapter<LogAdapter.LogViewHolder> {
 
     @Override
     public int getItemCount() {
-        return logList.size();
+        return logStore.size();
     }
 
     // ViewHolder class for better performance
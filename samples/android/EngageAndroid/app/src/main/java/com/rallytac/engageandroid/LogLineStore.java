@@ -0,0 +1,782 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Holds the lines of the on-screen log.  The newest lines live in a fixed ring in memory; as they fall
+// out of the ring they're appended to segment files on disk so that the whole history (up to a limit)
+// can still be looked at.  Lines on disk are read back a page at a time and only a handful of pages
+// are kept around.
+//
+// Lines are numbered from 0 in the order they were added.  The oldest lines go away when the oldest
+// segment is dropped (or on clear()) so getFirstLineNumber() moves forward over time - index 0 as seen
+// by get() is always the oldest line still available.  That only ever changes in add() and clear().
+//
+// None of the file work happens on the caller's thread - writing, reading pages back, deleting and
+// saving are all done on the store's own I/O thread.  Lines that haven't been written yet are served
+// from memory.  A line whose page isn't cached comes back empty while the page is read, and the
+// listener is told once it's there.  Each store starts out empty: segments left behind by an earlier
+// run are deleted, not picked up again.
+//
+// add(), get(), clear(), saveTo() and close() must all be called from the same thread (the UI thread
+// for the on-screen log).
+public class LogLineStore
+{
+    private static String TAG = LogLineStore.class.getSimpleName();
+
+    public final static int PAGE_LINES = 256;
+    private final static int MAX_CACHED_PAGES = 8;
+    private final static String SEGMENT_PREFIX = "segment-";//NON-NLS
+    private final static String SEGMENT_SUFFIX = ".log";//NON-NLS
+
+    // Called on the I/O thread
+    public interface IListener
+    {
+        // Lines that get() returned empty because they were still on disk can now be had
+        void onLinesLoaded(long firstLineNumber, int count);
+
+        void onSaved(File file, boolean ok);
+    }
+
+    public static class Stats
+    {
+        public long added;
+        public long spilled;
+        public long written;
+        public long segmentsDropped;
+        public long pageReads;
+        public long pageHits;
+        public long diskErrors;
+
+        Stats copy()
+        {
+            Stats rc = new Stats();
+
+            rc.added = added;
+            rc.spilled = spilled;
+            rc.written = written;
+            rc.segmentsDropped = segmentsDropped;
+            rc.pageReads = pageReads;
+            rc.pageHits = pageHits;
+            rc.diskErrors = diskErrors;
+
+            return rc;
+        }
+    }
+
+    private static class Segment
+    {
+        File file;
+
+        // Set on the caller's thread under the lock
+        long firstLine;
+        int lineCount;
+
+        // I/O thread only
+        int linesWritten;
+        long bytes;
+        long[] pageOffsets = new long[4];
+    }
+
+    private final File _dir;
+    private final int _linesPerSegment;
+    private final int _maxSegments;
+    private final ThreadPoolExecutor _executor;
+    private volatile IListener _listener = null;
+
+    // Caller's thread only
+    private final String[] _ring;
+    private int _ringHead = 0;
+    private int _ringCount = 0;
+    private long _nextLine = 0;
+    private long _firstLine = 0;
+    private int _segmentSeq = 0;
+    private boolean _spilling;
+
+    // I/O thread only
+    private Segment _writing = null;
+    private OutputStream _out = null;
+
+    // Everything below is shared and guarded by _lock.  _segments is only changed on the caller's
+    // thread so it can read it without taking the lock.
+    private final Object _lock = new Object();
+    private final ArrayList<Segment> _segments = new ArrayList<>();
+    private final ArrayList<String> _unwritten = new ArrayList<>();
+    private long _unwrittenFirst = 0;
+    private boolean _writeScheduled = false;
+    private boolean _diskFailed = false;
+    private final HashSet<Long> _pagesLoading = new HashSet<>();
+    private final Stats _stats = new Stats();
+
+    private final LinkedHashMap<Long, String[]> _pageCache = new LinkedHashMap<Long, String[]>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String[]> eldest)
+        {
+            return (size() > MAX_CACHED_PAGES);
+        }
+    };
+
+    private final Runnable _writeTask = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            writePending();
+        }
+    };
+
+    // A null directory keeps everything in memory - lines that fall out of the ring are simply lost
+    public LogLineStore(File dir, int memoryLines, int linesPerSegment, int maxSegments)
+    {
+        this(dir, memoryLines, linesPerSegment, maxSegments, true);
+    }
+
+    // Without an I/O thread the file work is done right there on the caller's thread
+    public LogLineStore(File dir, int memoryLines, int linesPerSegment, int maxSegments, boolean ioThread)
+    {
+        _dir = dir;
+        _ring = new String[Math.max(1, memoryLines)];
+        _linesPerSegment = Math.max(PAGE_LINES, linesPerSegment);
+        _maxSegments = Math.max(1, maxSegments);
+        _spilling = (_dir != null);
+
+        if(_dir != null && ioThread)
+        {
+            _executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "LogLineStore");//NON-NLS
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            _executor.allowCoreThreadTimeOut(true);
+        }
+        else
+        {
+            _executor = null;
+        }
+
+        if(_dir != null)
+        {
+            runIo(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    _dir.mkdirs();
+                    deleteSegmentFiles();
+                }
+            });
+        }
+    }
+
+    public void setListener(IListener listener)
+    {
+        _listener = listener;
+    }
+
+    public void add(String line)
+    {
+        if(line.indexOf('\n') >= 0 || line.indexOf('\r') >= 0)
+        {
+            // One line per line on disk
+            line = line.replace('\r', ' ').replace('\n', ' ');
+        }
+
+        if(_ringCount == _ring.length)
+        {
+            spill(_ring[_ringHead]);
+            _ring[_ringHead] = null;
+            _ringHead = (_ringHead + 1) % _ring.length;
+            _ringCount--;
+        }
+
+        _ring[(_ringHead + _ringCount) % _ring.length] = line;
+        _ringCount++;
+        _nextLine++;
+
+        synchronized (_lock)
+        {
+            _stats.added++;
+        }
+
+        if(_segments.isEmpty())
+        {
+            _firstLine = (_nextLine - _ringCount);
+        }
+    }
+
+    public int size()
+    {
+        return (int)(_nextLine - _firstLine);
+    }
+
+    public long getFirstLineNumber()
+    {
+        return _firstLine;
+    }
+
+    public int getMemoryLineCount()
+    {
+        return _ringCount;
+    }
+
+    public Stats getStats()
+    {
+        synchronized (_lock)
+        {
+            return _stats.copy();
+        }
+    }
+
+    public String get(int index)
+    {
+        if(index < 0 || index >= size())
+        {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size());//NON-NLS
+        }
+
+        long lineNumber = (_firstLine + index);
+        long ringFirst = (_nextLine - _ringCount);
+
+        if(lineNumber >= ringFirst)
+        {
+            return _ring[(int)((_ringHead + (lineNumber - ringFirst)) % _ring.length)];
+        }
+
+        final Segment seg;
+        final int page;
+        final long key;
+        int lineInPage;
+
+        synchronized (_lock)
+        {
+            if(!_unwritten.isEmpty() && lineNumber >= _unwrittenFirst)
+            {
+                return _unwritten.get((int)(lineNumber - _unwrittenFirst));
+            }
+
+            seg = findSegment(lineNumber);
+            if(seg == null)
+            {
+                return "";
+            }
+
+            int lineInSegment = (int)(lineNumber - seg.firstLine);
+            page = (lineInSegment / PAGE_LINES);
+            lineInPage = (lineInSegment % PAGE_LINES);
+            key = pageKey(seg, page);
+
+            // A page that was read while it was still being written may be short
+            String[] cached = _pageCache.get(key);
+            if(cached != null && lineInPage < cached.length)
+            {
+                _stats.pageHits++;
+                return cached[lineInPage];
+            }
+
+            if(!_pagesLoading.add(key))
+            {
+                return "";
+            }
+        }
+
+        runIo(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                loadPage(seg, page, key);
+            }
+        });
+
+        // Without an I/O thread it's been loaded by now
+        synchronized (_lock)
+        {
+            String[] cached = _pageCache.get(key);
+            return ((cached != null && lineInPage < cached.length) ? cached[lineInPage] : "");
+        }
+    }
+
+    public void clear()
+    {
+        synchronized (_lock)
+        {
+            _segments.clear();
+            _unwritten.clear();
+            _pageCache.clear();
+        }
+
+        Arrays.fill(_ring, null);
+        _ringHead = 0;
+        _ringCount = 0;
+        _firstLine = _nextLine;
+
+        if(_dir != null)
+        {
+            runIo(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    closeOutput();
+                    deleteSegmentFiles();
+                }
+            });
+        }
+    }
+
+    // Whatever is still queued for the I/O thread (including deleting the segments) is finished off
+    // in the background
+    public void close()
+    {
+        clear();
+        _listener = null;
+
+        if(_executor != null)
+        {
+            _executor.shutdown();
+        }
+    }
+
+    // Writes every line that's available right now, oldest first, to the file on the I/O thread.  The
+    // listener hears how it went.
+    public void saveTo(final File file)
+    {
+        final long ringFirst = (_nextLine - _ringCount);
+        final ArrayList<Segment> segments;
+        final ArrayList<String> memory = new ArrayList<>();
+
+        synchronized (_lock)
+        {
+            segments = new ArrayList<>(_segments);
+        }
+
+        for(int x = 0; x < _ringCount; x++)
+        {
+            memory.add(_ring[(_ringHead + x) % _ring.length]);
+        }
+
+        runIo(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                boolean ok = true;
+
+                try(Writer writer = new BufferedWriter(new FileWriter(file)))
+                {
+                    writeTo(writer, segments, ringFirst, memory);
+                }
+                catch (IOException e)
+                {
+                    e.printStackTrace();
+                    ok = false;
+                }
+
+                IListener listener = _listener;
+                if(listener != null)
+                {
+                    listener.onSaved(file, ok);
+                }
+            }
+        });
+    }
+
+    private void runIo(Runnable r)
+    {
+        if(_executor != null)
+        {
+            try
+            {
+                _executor.execute(r);
+            }
+            catch (Exception e)
+            {
+                // Closed
+            }
+        }
+        else
+        {
+            r.run();
+        }
+    }
+
+    private void spill(String line)
+    {
+        if(!_spilling)
+        {
+            return;
+        }
+
+        Segment dropped = null;
+        boolean schedule;
+
+        synchronized (_lock)
+        {
+            if(_diskFailed)
+            {
+                // Carry on from memory alone rather than fail the log
+                _segments.clear();
+                _unwritten.clear();
+                _pageCache.clear();
+                _spilling = false;
+                return;
+            }
+
+            Segment seg = (_segments.isEmpty() ? null : _segments.get(_segments.size() - 1));
+            if(seg == null || seg.lineCount == _linesPerSegment)
+            {
+                if(_segments.size() == _maxSegments)
+                {
+                    dropped = dropOldestSegment();
+                }
+
+                seg = new Segment();
+                seg.file = new File(_dir, SEGMENT_PREFIX + (_segmentSeq++) + SEGMENT_SUFFIX);
+                seg.firstLine = (_nextLine - _ringCount);
+                _segments.add(seg);
+                _firstLine = _segments.get(0).firstLine;
+            }
+
+            if(_unwritten.isEmpty())
+            {
+                _unwrittenFirst = (_nextLine - _ringCount);
+            }
+
+            _unwritten.add(line);
+            seg.lineCount++;
+            _stats.spilled++;
+
+            schedule = !_writeScheduled;
+            _writeScheduled = true;
+        }
+
+        if(dropped != null)
+        {
+            final Segment oldest = dropped;
+            runIo(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    if(_writing == oldest)
+                    {
+                        closeOutput();
+                    }
+
+                    oldest.file.delete();
+                }
+            });
+        }
+
+        if(schedule)
+        {
+            runIo(_writeTask);
+        }
+    }
+
+    // Called with _lock held
+    private Segment dropOldestSegment()
+    {
+        Segment oldest = _segments.remove(0);
+        long end = (oldest.firstLine + oldest.lineCount);
+        _stats.segmentsDropped++;
+
+        Iterator<Long> it = _pageCache.keySet().iterator();
+        while(it.hasNext())
+        {
+            if(it.next() < end)
+            {
+                it.remove();
+            }
+        }
+
+        // Anything of it that hasn't been written yet never needs to be
+        if(!_unwritten.isEmpty() && _unwrittenFirst < end)
+        {
+            int n = (int) Math.min(_unwritten.size(), end - _unwrittenFirst);
+            _unwritten.subList(0, n).clear();
+            _unwrittenFirst += n;
+        }
+
+        return oldest;
+    }
+
+    // I/O thread
+    private void writePending()
+    {
+        ArrayList<String> batch;
+        long first;
+        int written = 0;
+
+        synchronized (_lock)
+        {
+            _writeScheduled = false;
+            if(_unwritten.isEmpty() || _diskFailed)
+            {
+                return;
+            }
+
+            batch = new ArrayList<>(_unwritten);
+            first = _unwrittenFirst;
+        }
+
+        try
+        {
+            for(int x = 0; x < batch.size(); x++)
+            {
+                Segment seg;
+                synchronized (_lock)
+                {
+                    seg = findSegment(first + x);
+                }
+
+                if(seg == null)
+                {
+                    // Dropped (or cleared) before we got to it
+                    continue;
+                }
+
+                if(seg != _writing)
+                {
+                    closeOutput();
+                    _out = new BufferedOutputStream(new FileOutputStream(seg.file, false), 16384);
+                    _writing = seg;
+                }
+
+                if((seg.linesWritten % PAGE_LINES) == 0)
+                {
+                    int page = (seg.linesWritten / PAGE_LINES);
+                    if(page == seg.pageOffsets.length)
+                    {
+                        seg.pageOffsets = Arrays.copyOf(seg.pageOffsets, page * 2);
+                    }
+
+                    seg.pageOffsets[page] = seg.bytes;
+                }
+
+                byte[] bytes = batch.get(x).getBytes(StandardCharsets.UTF_8);
+                _out.write(bytes);
+                _out.write('\n');
+
+                seg.bytes += (bytes.length + 1);
+                seg.linesWritten++;
+                written++;
+            }
+
+            if(_out != null)
+            {
+                _out.flush();
+            }
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+
+            synchronized (_lock)
+            {
+                _stats.diskErrors++;
+                _diskFailed = true;
+            }
+
+            closeOutput();
+            deleteSegmentFiles();
+            return;
+        }
+
+        synchronized (_lock)
+        {
+            _stats.written += written;
+
+            // Some of what we wrote may have been dropped along with its segment in the meantime
+            long end = (first + batch.size());
+            if(!_unwritten.isEmpty() && end > _unwrittenFirst)
+            {
+                int n = (int) Math.min(_unwritten.size(), end - _unwrittenFirst);
+                _unwritten.subList(0, n).clear();
+                _unwrittenFirst += n;
+            }
+        }
+    }
+
+    // I/O thread
+    private void loadPage(Segment seg, int page, long key)
+    {
+        String[] rc = null;
+        boolean current;
+
+        synchronized (_lock)
+        {
+            current = _segments.contains(seg);
+        }
+
+        int lines = Math.min(PAGE_LINES, seg.linesWritten - (page * PAGE_LINES));
+
+        if(current && lines > 0)
+        {
+            rc = new String[lines];
+
+            try(FileInputStream fis = new FileInputStream(seg.file))
+            {
+                fis.getChannel().position(seg.pageOffsets[page]);
+                BufferedReader rdr = new BufferedReader(new InputStreamReader(fis, StandardCharsets.UTF_8));
+
+                for(int x = 0; x < lines; x++)
+                {
+                    String s = rdr.readLine();
+                    rc[x] = (s != null ? s : "");
+                }
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+                rc = null;
+
+                synchronized (_lock)
+                {
+                    _stats.diskErrors++;
+                }
+            }
+        }
+
+        synchronized (_lock)
+        {
+            _pagesLoading.remove(key);
+
+            if(rc == null || !_segments.contains(seg))
+            {
+                return;
+            }
+
+            _pageCache.put(key, rc);
+            _stats.pageReads++;
+        }
+
+        IListener listener = _listener;
+        if(listener != null)
+        {
+            listener.onLinesLoaded(key, rc.length);
+        }
+    }
+
+    // I/O thread
+    private void writeTo(Writer writer, ArrayList<Segment> segments, long ringFirst, ArrayList<String> memory) throws IOException
+    {
+        // Get everything that's queued onto disk first so the segments are complete
+        writePending();
+
+        for(Segment seg : segments)
+        {
+            if(!seg.file.exists())
+            {
+                // Dropped since
+                continue;
+            }
+
+            long lineNumber = seg.firstLine;
+
+            try(BufferedReader rdr = new BufferedReader(new InputStreamReader(new FileInputStream(seg.file), StandardCharsets.UTF_8)))
+            {
+                String s;
+                while(lineNumber < ringFirst && (s = rdr.readLine()) != null)
+                {
+                    writer.write(s);
+                    writer.write('\n');
+                    lineNumber++;
+                }
+            }
+        }
+
+        for(String s : memory)
+        {
+            writer.write(s);
+            writer.write('\n');
+        }
+    }
+
+    // Called with _lock held
+    private Segment findSegment(long lineNumber)
+    {
+        for(int x = _segments.size() - 1; x >= 0; x--)
+        {
+            Segment seg = _segments.get(x);
+            if(lineNumber >= seg.firstLine)
+            {
+                return (lineNumber < seg.firstLine + seg.lineCount ? seg : null);
+            }
+        }
+
+        return null;
+    }
+
+    private static long pageKey(Segment seg, int page)
+    {
+        return (seg.firstLine + ((long) page * PAGE_LINES));
+    }
+
+    // I/O thread
+    private void closeOutput()
+    {
+        if(_out != null)
+        {
+            try
+            {
+                _out.close();
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+
+            _out = null;
+        }
+
+        _writing = null;
+    }
+
+    // I/O thread
+    private void deleteSegmentFiles()
+    {
+        File[] files = _dir.listFiles();
+        if(files != null)
+        {
+            for(File f : files)
+            {
+                if(f.getName().startsWith(SEGMENT_PREFIX) && f.getName().endsWith(SEGMENT_SUFFIX))
+                {
+                    f.delete();
+                }
+            }
+        }
+    }
+}
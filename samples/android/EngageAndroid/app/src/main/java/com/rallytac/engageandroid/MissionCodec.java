@@ -0,0 +1,834 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Binary encoding of a mission for version 2 QR codes.
+//
+// The payload is
+//   1      n
+// |--|  |.....|
+//  cm    body
+//
+// where cm is the compression method (CM_STORED or CM_DEFLATE_DICT1 - raw DEFLATE primed with
+// DICTIONARY_V1) and the body is a sequence of fields, each a varint tag of (field << 3 | wire)
+// followed by a varint (WIRE_VARINT) or a varint length and that many bytes (WIRE_BYTES).
+// Groups are nested WIRE_BYTES fields.  Fields holding their default (0, false or empty) are
+// left out and fields we don't know about are skipped, so new ones can be added later without
+// breaking older readers.
+//
+// The bulky values get compact forms when - and only when - they'd come back exactly as they
+// went in: "{8-4-4-4-12}" ids go as 16 bytes, dotted-quad addresses as 4 and upper-case hex
+// crypto passwords as the bytes they spell.  A group's tx address and port are only written if
+// they differ from its rx address and port.
+//
+// Decoding is a single pass over a ByteBuffer straight into a DatabaseMission - no JSON is
+// produced or parsed along the way.
+public class MissionCodec
+{
+    private static String TAG = MissionCodec.class.getSimpleName();
+
+    public final static int CM_STORED = 0;
+    public final static int CM_DEFLATE_DICT1 = 1;
+
+    private final static int WIRE_VARINT = 0;
+    private final static int WIRE_BYTES = 2;
+
+    private final static int MAX_INFLATED_BYTES = (256 * 1024);
+
+    private final static Charset UTF8 = Charset.forName("UTF-8");//NON-NLS
+
+    // Mission fields
+    private final static int M_ID = 1;
+    private final static int M_ID_GUID = 2;
+    private final static int M_NAME = 3;
+    private final static int M_DESCRIPTION = 4;
+    private final static int M_MOD_PIN = 5;
+    private final static int M_CERT_STORE_ID = 6;
+    private final static int M_USE_RP = 7;
+    private final static int M_RP_ADDRESS = 8;
+    private final static int M_RP_ADDRESS_V4 = 9;
+    private final static int M_RP_PORT = 10;
+    private final static int M_RP_PROTOCOL = 11;
+    private final static int M_MC_FAILOVER_POLICY = 12;
+    private final static int M_MC_ID = 13;
+    private final static int M_MC_ID_GUID = 14;
+    private final static int M_MC_ADDRESS = 15;
+    private final static int M_MC_ADDRESS_V4 = 16;
+    private final static int M_MC_PORT = 17;
+    private final static int M_MC_CRYPTO = 18;
+    private final static int M_MC_CRYPTO_HEX = 19;
+    private final static int M_GROUP = 20;
+
+    // Group fields
+    private final static int G_ID = 1;
+    private final static int G_ID_GUID = 2;
+    private final static int G_TYPE = 3;
+    private final static int G_NAME = 4;
+    private final static int G_USE_CRYPTO = 5;
+    private final static int G_CRYPTO = 6;
+    private final static int G_CRYPTO_HEX = 7;
+    private final static int G_RX_ADDRESS = 8;
+    private final static int G_RX_ADDRESS_V4 = 9;
+    private final static int G_RX_PORT = 10;
+    private final static int G_TX_ADDRESS = 11;
+    private final static int G_TX_ADDRESS_V4 = 12;
+    private final static int G_TX_PORT = 13;
+    private final static int G_TX_CODEC_ID = 14;
+    private final static int G_TX_FRAMING_MS = 15;
+    private final static int G_NO_HDR_EXT = 16;
+    private final static int G_FDX = 17;
+    private final static int G_MAX_TX_SECS = 18;
+    private final static int G_EPT = 19;
+    private final static int G_ANONYMOUS_ALIAS = 20;
+
+    // What mission bodies tend to contain.  DEFLATE looks for matches from the end of the
+    // dictionary backwards so the most likely material goes last.  Changing this means a new
+    // compression method - never edit it in place.
+    private final static byte[] DICTIONARY_V1 = (
+            "Tactical Command Operations Dispatch Support Logistics Medical Security " +
+            "Fire Police EMS Rescue Team Squad Unit Net Talk Channel Group Primary Secondary " +
+            "Foxtrot Golf Hotel India Juliet Kilo Lima Mike November Oscar Papa Quebec Romeo " +
+            "Sierra Tango Uniform Victor Whiskey X-ray Yankee Zulu " +
+            "Mission Control Alpha Bravo Charlie Delta Echo " +
+            "This is a sample mission").getBytes(UTF8);//NON-NLS
+
+    public static byte[] getDictionary()
+    {
+        return DICTIONARY_V1.clone();
+    }
+
+    // Uses whichever of stored or DEFLATE comes out smaller
+    public static byte[] encode(DatabaseMission mission)
+    {
+        byte[] body = encodeBody(mission);
+        byte[] deflated = deflate(body);
+
+        byte[] rc;
+
+        if(deflated.length < body.length)
+        {
+            rc = new byte[1 + deflated.length];
+            rc[0] = CM_DEFLATE_DICT1;
+            System.arraycopy(deflated, 0, rc, 1, deflated.length);
+        }
+        else
+        {
+            rc = new byte[1 + body.length];
+            rc[0] = CM_STORED;
+            System.arraycopy(body, 0, rc, 1, body.length);
+        }
+
+        return rc;
+    }
+
+    public static DatabaseMission decode(byte[] payload) throws Exception
+    {
+        return decode(ByteBuffer.wrap(payload));
+    }
+
+    public static DatabaseMission decode(ByteBuffer payload) throws Exception
+    {
+        if(!payload.hasRemaining())
+        {
+            throw new Exception("empty mission payload");//NON-NLS
+        }
+
+        ByteBuffer bb = payload.slice();
+        int method = (bb.get() & 0xff);
+
+        if(method == CM_DEFLATE_DICT1)
+        {
+            bb = inflate(bb);
+        }
+        else if(method != CM_STORED)
+        {
+            throw new Exception("unsupported compression method " + method);//NON-NLS
+        }
+
+        try
+        {
+            return decodeBody(bb);
+        }
+        catch (BufferUnderflowException e)
+        {
+            throw new Exception("truncated mission payload");//NON-NLS
+        }
+    }
+
+    // The uncompressed body on its own - exposed for size comparisons
+    public static byte[] encodeBody(DatabaseMission mission)
+    {
+        Writer w = new Writer(256);
+
+        w.putIdField(M_ID, M_ID_GUID, mission._id);
+        w.putStringField(M_NAME, mission._name);
+        w.putStringField(M_DESCRIPTION, mission._description);
+        w.putStringField(M_MOD_PIN, mission._modPin);
+        w.putStringField(M_CERT_STORE_ID, mission._certStoreId);
+
+        w.putBooleanField(M_USE_RP, mission._useRp);
+        w.putAddressField(M_RP_ADDRESS, M_RP_ADDRESS_V4, mission._rpAddress);
+        w.putIntField(M_RP_PORT, mission._rpPort);
+        w.putIntField(M_RP_PROTOCOL, mission._rpProtocol);
+        w.putIntField(M_MC_FAILOVER_POLICY, mission._multicastFailoverPolicy);
+
+        w.putIdField(M_MC_ID, M_MC_ID_GUID, mission._mcId);
+        w.putAddressField(M_MC_ADDRESS, M_MC_ADDRESS_V4, mission._mcAddress);
+        w.putIntField(M_MC_PORT, mission._mcPort);
+        w.putCryptoField(M_MC_CRYPTO, M_MC_CRYPTO_HEX, mission._mcCryptoPassword);
+
+        if(mission._groups != null)
+        {
+            Writer gw = new Writer(128);
+
+            for(DatabaseGroup group : mission._groups)
+            {
+                gw.reset();
+                encodeGroup(gw, group);
+                w.putBytesField(M_GROUP, gw.buf, 0, gw.len);
+            }
+        }
+
+        return w.toByteArray();
+    }
+
+    private static void encodeGroup(Writer w, DatabaseGroup group)
+    {
+        w.putIdField(G_ID, G_ID_GUID, group._id);
+        w.putIntField(G_TYPE, group._type);
+        w.putStringField(G_NAME, group._name);
+        w.putBooleanField(G_USE_CRYPTO, group._useCrypto);
+        w.putCryptoField(G_CRYPTO, G_CRYPTO_HEX, group._cryptoPassword);
+
+        w.putAddressField(G_RX_ADDRESS, G_RX_ADDRESS_V4, group._rxAddress);
+        w.putIntField(G_RX_PORT, group._rxPort);
+
+        String rx = emptyIfNull(group._rxAddress);
+        String tx = emptyIfNull(group._txAddress);
+        if(tx.compareTo(rx) != 0)
+        {
+            // Written even when empty so that "no tx address" isn't read back as "same as rx"
+            if(tx.isEmpty())
+            {
+                w.putTag(G_TX_ADDRESS, WIRE_BYTES);
+                w.putVarint(0);
+            }
+            else
+            {
+                w.putAddressField(G_TX_ADDRESS, G_TX_ADDRESS_V4, tx);
+            }
+        }
+
+        if(group._txPort != group._rxPort)
+        {
+            w.putTag(G_TX_PORT, WIRE_VARINT);
+            w.putVarint(group._txPort);
+        }
+
+        w.putIntField(G_TX_CODEC_ID, group._txCodecId);
+        w.putIntField(G_TX_FRAMING_MS, group._txFramingMs);
+        w.putBooleanField(G_NO_HDR_EXT, group._noHdrExt);
+        w.putBooleanField(G_FDX, group._fdx);
+        w.putIntField(G_MAX_TX_SECS, group._maxTxSecs);
+        w.putIntField(G_EPT, group._ept);
+        w.putBooleanField(G_ANONYMOUS_ALIAS, group._anonymousAlias);
+    }
+
+    private static DatabaseMission decodeBody(ByteBuffer bb) throws Exception
+    {
+        DatabaseMission mission = new DatabaseMission();
+
+        mission._id = "";
+        mission._name = "";
+        mission._description = "";
+        mission._modPin = "";
+        mission._certStoreId = "";
+        mission._rpAddress = "";
+        mission._mcId = "";
+        mission._mcAddress = "";
+        mission._mcCryptoPassword = "";
+
+        while(bb.hasRemaining())
+        {
+            int tag = getVarint(bb);
+            int field = (tag >>> 3);
+            int wire = (tag & 0x07);
+
+            if(wire == WIRE_VARINT)
+            {
+                int v = getVarint(bb);
+
+                switch(field)
+                {
+                    case M_USE_RP: mission._useRp = (v != 0); break;
+                    case M_RP_PORT: mission._rpPort = v; break;
+                    case M_RP_PROTOCOL: mission._rpProtocol = v; break;
+                    case M_MC_FAILOVER_POLICY: mission._multicastFailoverPolicy = v; break;
+                    case M_MC_PORT: mission._mcPort = v; break;
+                    default: break;
+                }
+            }
+            else if(wire == WIRE_BYTES)
+            {
+                int len = getLength(bb);
+
+                switch(field)
+                {
+                    case M_ID: mission._id = getString(bb, len); break;
+                    case M_ID_GUID: mission._id = getGuid(bb, len); break;
+                    case M_NAME: mission._name = getString(bb, len); break;
+                    case M_DESCRIPTION: mission._description = getString(bb, len); break;
+                    case M_MOD_PIN: mission._modPin = getString(bb, len); break;
+                    case M_CERT_STORE_ID: mission._certStoreId = getString(bb, len); break;
+                    case M_RP_ADDRESS: mission._rpAddress = getString(bb, len); break;
+                    case M_RP_ADDRESS_V4: mission._rpAddress = getIpv4(bb, len); break;
+                    case M_MC_ID: mission._mcId = getString(bb, len); break;
+                    case M_MC_ID_GUID: mission._mcId = getGuid(bb, len); break;
+                    case M_MC_ADDRESS: mission._mcAddress = getString(bb, len); break;
+                    case M_MC_ADDRESS_V4: mission._mcAddress = getIpv4(bb, len); break;
+                    case M_MC_CRYPTO: mission._mcCryptoPassword = getString(bb, len); break;
+                    case M_MC_CRYPTO_HEX: mission._mcCryptoPassword = getHex(bb, len); break;
+
+                    case M_GROUP:
+                        int limit = bb.limit();
+                        bb.limit(bb.position() + len);
+                        mission._groups.add(decodeGroup(bb));
+                        bb.limit(limit);
+                        break;
+
+                    default:
+                        bb.position(bb.position() + len);
+                        break;
+                }
+            }
+            else
+            {
+                throw new Exception("unsupported wire type " + wire);//NON-NLS
+            }
+        }
+
+        if(mission._id.isEmpty())
+        {
+            throw new Exception("mission has no id");//NON-NLS
+        }
+
+        return mission;
+    }
+
+    // Reads up to the buffer's limit
+    private static DatabaseGroup decodeGroup(ByteBuffer bb) throws Exception
+    {
+        DatabaseGroup group = new DatabaseGroup();
+        boolean haveTxAddress = false;
+        boolean haveTxPort = false;
+
+        group._id = "";
+        group._name = "";
+        group._cryptoPassword = "";
+        group._rxAddress = "";
+        group._txAddress = "";
+
+        while(bb.hasRemaining())
+        {
+            int tag = getVarint(bb);
+            int field = (tag >>> 3);
+            int wire = (tag & 0x07);
+
+            if(wire == WIRE_VARINT)
+            {
+                int v = getVarint(bb);
+
+                switch(field)
+                {
+                    case G_TYPE: group._type = v; break;
+                    case G_USE_CRYPTO: group._useCrypto = (v != 0); break;
+                    case G_RX_PORT: group._rxPort = v; break;
+                    case G_TX_PORT: group._txPort = v; haveTxPort = true; break;
+                    case G_TX_CODEC_ID: group._txCodecId = v; break;
+                    case G_TX_FRAMING_MS: group._txFramingMs = v; break;
+                    case G_NO_HDR_EXT: group._noHdrExt = (v != 0); break;
+                    case G_FDX: group._fdx = (v != 0); break;
+                    case G_MAX_TX_SECS: group._maxTxSecs = v; break;
+                    case G_EPT: group._ept = v; break;
+                    case G_ANONYMOUS_ALIAS: group._anonymousAlias = (v != 0); break;
+                    default: break;
+                }
+            }
+            else if(wire == WIRE_BYTES)
+            {
+                int len = getLength(bb);
+
+                switch(field)
+                {
+                    case G_ID: group._id = getString(bb, len); break;
+                    case G_ID_GUID: group._id = getGuid(bb, len); break;
+                    case G_NAME: group._name = getString(bb, len); break;
+                    case G_CRYPTO: group._cryptoPassword = getString(bb, len); break;
+                    case G_CRYPTO_HEX: group._cryptoPassword = getHex(bb, len); break;
+                    case G_RX_ADDRESS: group._rxAddress = getString(bb, len); break;
+                    case G_RX_ADDRESS_V4: group._rxAddress = getIpv4(bb, len); break;
+                    case G_TX_ADDRESS: group._txAddress = getString(bb, len); haveTxAddress = true; break;
+                    case G_TX_ADDRESS_V4: group._txAddress = getIpv4(bb, len); haveTxAddress = true; break;
+                    default: bb.position(bb.position() + len); break;
+                }
+            }
+            else
+            {
+                throw new Exception("unsupported wire type " + wire);//NON-NLS
+            }
+        }
+
+        if(!haveTxAddress)
+        {
+            group._txAddress = group._rxAddress;
+        }
+
+        if(!haveTxPort)
+        {
+            group._txPort = group._rxPort;
+        }
+
+        return group;
+    }
+
+    private static byte[] deflate(byte[] body)
+    {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+
+        try
+        {
+            deflater.setDictionary(DICTIONARY_V1);
+            deflater.setInput(body);
+            deflater.finish();
+
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(body.length);
+            byte[] buffer = new byte[256];
+            while(!deflater.finished())
+            {
+                int n = deflater.deflate(buffer);
+                bos.write(buffer, 0, n);
+            }
+
+            return bos.toByteArray();
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    private static ByteBuffer inflate(ByteBuffer bb) throws Exception
+    {
+        Inflater inflater = new Inflater(true);
+
+        try
+        {
+            // Raw DEFLATE wants a spare byte past the end of the input to know it's done
+            byte[] in = new byte[bb.remaining() + 1];
+            bb.get(in, 0, in.length - 1);
+
+            inflater.setDictionary(DICTIONARY_V1);
+            inflater.setInput(in);
+
+            byte[] out = new byte[Math.max(256, in.length * 4)];
+            int len = 0;
+
+            while(!inflater.finished())
+            {
+                if(len == out.length)
+                {
+                    if(out.length >= MAX_INFLATED_BYTES)
+                    {
+                        throw new Exception("mission payload too large");//NON-NLS
+                    }
+
+                    byte[] tmp = new byte[Math.min(out.length * 2, MAX_INFLATED_BYTES)];
+                    System.arraycopy(out, 0, tmp, 0, len);
+                    out = tmp;
+                }
+
+                int n = inflater.inflate(out, len, out.length - len);
+                if(n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                {
+                    throw new Exception("truncated mission payload");//NON-NLS
+                }
+
+                len += n;
+            }
+
+            return ByteBuffer.wrap(out, 0, len);
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    private static String emptyIfNull(String s)
+    {
+        return (s == null ? "" : s);
+    }
+
+    private static int getVarint(ByteBuffer bb) throws Exception
+    {
+        int rc = 0;
+
+        for(int shift = 0; shift < 35; shift += 7)
+        {
+            int b = bb.get();
+            rc |= ((b & 0x7f) << shift);
+            if((b & 0x80) == 0)
+            {
+                return rc;
+            }
+        }
+
+        throw new Exception("bad varint");//NON-NLS
+    }
+
+    private static int getLength(ByteBuffer bb) throws Exception
+    {
+        int len = getVarint(bb);
+        if(len < 0 || len > bb.remaining())
+        {
+            throw new Exception("bad field length " + len);//NON-NLS
+        }
+
+        return len;
+    }
+
+    private static String getString(ByteBuffer bb, int len)
+    {
+        String rc;
+
+        if(bb.hasArray())
+        {
+            rc = new String(bb.array(), bb.arrayOffset() + bb.position(), len, UTF8);
+            bb.position(bb.position() + len);
+        }
+        else
+        {
+            byte[] tmp = new byte[len];
+            bb.get(tmp);
+            rc = new String(tmp, UTF8);
+        }
+
+        return rc;
+    }
+
+    private static String getGuid(ByteBuffer bb, int len) throws Exception
+    {
+        if(len != 16)
+        {
+            throw new Exception("bad guid length " + len);//NON-NLS
+        }
+
+        StringBuilder sb = new StringBuilder(38);
+        sb.append('{');
+        for(int x = 0; x < 16; x++)
+        {
+            if(x == 4 || x == 6 || x == 8 || x == 10)
+            {
+                sb.append('-');
+            }
+            appendHex(sb, bb.get(), false);
+        }
+        sb.append('}');
+
+        return sb.toString();
+    }
+
+    private static String getIpv4(ByteBuffer bb, int len) throws Exception
+    {
+        if(len != 4)
+        {
+            throw new Exception("bad address length " + len);//NON-NLS
+        }
+
+        return (bb.get() & 0xff) + "." + (bb.get() & 0xff) + "." + (bb.get() & 0xff) + "." + (bb.get() & 0xff);
+    }
+
+    private static String getHex(ByteBuffer bb, int len)
+    {
+        StringBuilder sb = new StringBuilder(len * 2);
+        for(int x = 0; x < len; x++)
+        {
+            appendHex(sb, bb.get(), true);
+        }
+
+        return sb.toString();
+    }
+
+    private static void appendHex(StringBuilder sb, byte b, boolean upperCase)
+    {
+        String digits = (upperCase ? "0123456789ABCDEF" : "0123456789abcdef");//NON-NLS
+        sb.append(digits.charAt((b >> 4) & 0x0f));
+        sb.append(digits.charAt(b & 0x0f));
+    }
+
+    // Null if s isn't exactly what getGuid() would produce
+    static byte[] packGuid(String s)
+    {
+        if(s == null || s.length() != 38 || s.charAt(0) != '{' || s.charAt(37) != '}')
+        {
+            return null;
+        }
+
+        byte[] rc = new byte[16];
+        int pos = 1;
+
+        for(int x = 0; x < 16; x++)
+        {
+            if(x == 4 || x == 6 || x == 8 || x == 10)
+            {
+                if(s.charAt(pos) != '-')
+                {
+                    return null;
+                }
+                pos++;
+            }
+
+            int hi = lowerHexValue(s.charAt(pos++));
+            int lo = lowerHexValue(s.charAt(pos++));
+            if(hi < 0 || lo < 0)
+            {
+                return null;
+            }
+
+            rc[x] = (byte) ((hi << 4) | lo);
+        }
+
+        return rc;
+    }
+
+    // Null if s isn't exactly what getIpv4() would produce
+    static byte[] packIpv4(String s)
+    {
+        if(s == null)
+        {
+            return null;
+        }
+
+        String[] parts = s.split("\\.", -1);//NON-NLS
+        if(parts.length != 4)
+        {
+            return null;
+        }
+
+        byte[] rc = new byte[4];
+        for(int x = 0; x < 4; x++)
+        {
+            String p = parts[x];
+            if(p.isEmpty() || p.length() > 3 || (p.length() > 1 && p.charAt(0) == '0'))
+            {
+                return null;
+            }
+
+            int v = 0;
+            for(int c = 0; c < p.length(); c++)
+            {
+                char ch = p.charAt(c);
+                if(ch < '0' || ch > '9')
+                {
+                    return null;
+                }
+                v = (v * 10) + (ch - '0');
+            }
+
+            if(v > 255)
+            {
+                return null;
+            }
+
+            rc[x] = (byte) v;
+        }
+
+        return rc;
+    }
+
+    // Null if s isn't an even-length run of upper-case hex digits
+    static byte[] packUpperHex(String s)
+    {
+        if(s == null || s.isEmpty() || (s.length() % 2) != 0)
+        {
+            return null;
+        }
+
+        byte[] rc = new byte[s.length() / 2];
+        for(int x = 0; x < rc.length; x++)
+        {
+            int hi = upperHexValue(s.charAt(x * 2));
+            int lo = upperHexValue(s.charAt((x * 2) + 1));
+            if(hi < 0 || lo < 0)
+            {
+                return null;
+            }
+
+            rc[x] = (byte) ((hi << 4) | lo);
+        }
+
+        return rc;
+    }
+
+    private static int lowerHexValue(char c)
+    {
+        if(c >= '0' && c <= '9')
+        {
+            return (c - '0');
+        }
+        else if(c >= 'a' && c <= 'f')
+        {
+            return (c - 'a' + 10);
+        }
+
+        return -1;
+    }
+
+    private static int upperHexValue(char c)
+    {
+        if(c >= '0' && c <= '9')
+        {
+            return (c - '0');
+        }
+        else if(c >= 'A' && c <= 'F')
+        {
+            return (c - 'A' + 10);
+        }
+
+        return -1;
+    }
+
+    private static class Writer
+    {
+        byte[] buf;
+        int len = 0;
+
+        Writer(int initialCapacity)
+        {
+            buf = new byte[initialCapacity];
+        }
+
+        void reset()
+        {
+            len = 0;
+        }
+
+        byte[] toByteArray()
+        {
+            byte[] rc = new byte[len];
+            System.arraycopy(buf, 0, rc, 0, len);
+            return rc;
+        }
+
+        void ensure(int more)
+        {
+            if(len + more > buf.length)
+            {
+                byte[] tmp = new byte[Math.max(buf.length * 2, len + more)];
+                System.arraycopy(buf, 0, tmp, 0, len);
+                buf = tmp;
+            }
+        }
+
+        void putVarint(int v)
+        {
+            ensure(5);
+            while((v & ~0x7f) != 0)
+            {
+                buf[len++] = (byte) ((v & 0x7f) | 0x80);
+                v >>>= 7;
+            }
+            buf[len++] = (byte) v;
+        }
+
+        void putTag(int field, int wire)
+        {
+            putVarint((field << 3) | wire);
+        }
+
+        void putBytesField(int field, byte[] ba, int ofs, int count)
+        {
+            putTag(field, WIRE_BYTES);
+            putVarint(count);
+            ensure(count);
+            System.arraycopy(ba, ofs, buf, len, count);
+            len += count;
+        }
+
+        void putIntField(int field, int v)
+        {
+            if(v != 0)
+            {
+                putTag(field, WIRE_VARINT);
+                putVarint(v);
+            }
+        }
+
+        void putBooleanField(int field, boolean v)
+        {
+            if(v)
+            {
+                putTag(field, WIRE_VARINT);
+                putVarint(1);
+            }
+        }
+
+        void putStringField(int field, String s)
+        {
+            if(s != null && !s.isEmpty())
+            {
+                byte[] ba = s.getBytes(UTF8);
+                putBytesField(field, ba, 0, ba.length);
+            }
+        }
+
+        void putIdField(int field, int guidField, String s)
+        {
+            byte[] packed = packGuid(s);
+            if(packed != null)
+            {
+                putBytesField(guidField, packed, 0, packed.length);
+            }
+            else
+            {
+                putStringField(field, s);
+            }
+        }
+
+        void putAddressField(int field, int v4Field, String s)
+        {
+            byte[] packed = packIpv4(s);
+            if(packed != null)
+            {
+                putBytesField(v4Field, packed, 0, packed.length);
+            }
+            else
+            {
+                putStringField(field, s);
+            }
+        }
+
+        void putCryptoField(int field, int hexField, String s)
+        {
+            byte[] packed = packUpperHex(s);
+            if(packed != null)
+            {
+                putBytesField(hexField, packed, 0, packed.length);
+            }
+            else
+            {
+                putStringField(field, s);
+            }
+        }
+    }
+}
@@ -12,116 +12,306 @@ import com.rallytac.engage.engine.Engine;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 
+// The mission database is loaded once and then stays resident, indexed by mission id, for the
+// life of the process.  Changes go to a MissionJournal so saving or deleting a mission writes
+// only that mission rather than re-serializing all of them.
+//
+// Older installs kept the whole database as one JSON array in shared preferences - that's
+// migrated into the journal the first time we open, a marker file records that it's done and the
+// preference is then removed.  If the migration fails it's retried on the next open.
 public class MissionDatabase
 {
     private static String TAG = MissionDatabase.class.getSimpleName();
 
-    public ArrayList<DatabaseMission> _missions = new ArrayList<>();
+    private static MissionDatabase _instance = null;
+
+    // In the order the user sees them.  Only ever touched under our lock - anyone else gets a
+    // copy from getMissions().
+    private final ArrayList<DatabaseMission> _missions = new ArrayList<>();
 
-    public void clear()
+    private final HashMap<String, DatabaseMission> _index = new HashMap<>();
+    private MissionJournal _journal = null;
+    private long _loadMs = 0;
+
+    public static synchronized MissionDatabase getInstance()
     {
-        _missions.clear();
+        if(_instance == null)
+        {
+            MissionDatabase database = new MissionDatabase();
+            database.open(new File(Globals.getContext().getFilesDir(), Constants.MISSION_DATABASE_JOURNAL_FILE_NAME),
+                          Globals.getSharedPreferences(),
+                          Constants.MISSION_DATABASE_NAME);
+            _instance = database;
+        }
+
+        return _instance;
     }
 
-    public void save(SharedPreferences sp, String keyName)
+    public synchronized void open(File journalFile, SharedPreferences sp, String legacyKeyName)
     {
-        JSONArray root = new JSONArray();
+        long start = System.currentTimeMillis();
+
+        _missions.clear();
+        _index.clear();
+        _journal = new MissionJournal(journalFile, Constants.MISSION_DATABASE_COMPACT_THRESHOLD_BYTES);
+
+        boolean replayed = _journal.replay(new MissionJournal.IReplaySink()
+        {
+            @Override
+            public void onPut(String id, String json)
+            {
+                DatabaseMission mission = DatabaseMission.parse(json);
+                if(mission != null && mission._id != null)
+                {
+                    putInternal(mission);
+                }
+            }
 
-        for(DatabaseMission mission : _missions)
+            @Override
+            public void onDelete(String id)
+            {
+                removeInternal(id);
+            }
+        });
+
+        // The journal can exist without the migration having happened (it failed and a mission was
+        // saved afterwards) so it's the marker that says we're done, not the journal
+        File migratedMarker = new File(journalFile.getPath() + ".migrated");//NON-NLS
+        if(!migratedMarker.exists())
         {
-            root.put(mission.toJson());
+            if(replayed)
+            {
+                migrateFromPreferences(sp, legacyKeyName, migratedMarker);
+            }
+            else
+            {
+                Globals.getLogger().e(TAG, "mission journal could not be read - not migrating from preferences");//NON-NLS
+            }
         }
 
-        SharedPreferences.Editor ed = sp.edit();
-        ed.putString(keyName, root.toString());
-        ed.apply();
+        _loadMs = (System.currentTimeMillis() - start);
+
+        Globals.getLogger().i(TAG, "loaded " + _missions.size() + " missions in " + _loadMs + "ms");//NON-NLS
     }
 
-    public static MissionDatabase load(SharedPreferences sp, String keyName)
+    private void migrateFromPreferences(SharedPreferences sp, String keyName, File migratedMarker)
     {
-        MissionDatabase database;
+        String jsonData = sp.getString(keyName, "");
+        int migrated = 0;
 
         try
         {
-            database = new MissionDatabase();
-
-            String jsonData = sp.getString(keyName, "");
-            JSONArray root = new JSONArray(jsonData);
-            for(int x = 0; x < root.length(); x++)
+            if(!Utils.isEmptyString(jsonData))
             {
-                String missionJson = root.getString(x);
-                DatabaseMission mission = DatabaseMission.parse(missionJson);
-                if(mission != null)
+                JSONArray root = new JSONArray(jsonData);
+                for(int x = 0; x < root.length(); x++)
                 {
-                    database._missions.add(mission);
+                    DatabaseMission mission = DatabaseMission.parse(root.getString(x));
+
+                    // Anything already in the journal was saved after the preference was last
+                    // written so that's the one we keep
+                    if(mission != null && mission._id != null && !_index.containsKey(mission._id))
+                    {
+                        putInternal(mission);
+                        migrated++;
+                    }
                 }
             }
+
+            LinkedHashMap<String, String> live = new LinkedHashMap<>();
+            for(DatabaseMission mission : _missions)
+            {
+                live.put(mission._id, mission.toString());
+            }
+
+            _journal.compact(live);
+
+            if(!migratedMarker.exists() && !migratedMarker.createNewFile())
+            {
+                throw new Exception("cannot create " + migratedMarker.getPath());//NON-NLS
+            }
+
+            SharedPreferences.Editor ed = sp.edit();
+            ed.remove(keyName);
+            ed.apply();
+
+            Globals.getLogger().i(TAG, "migrated " + migrated + " missions from preferences");//NON-NLS
         }
         catch (Exception e)
         {
-            database = null;
+            // Leave the preference and the marker alone - we'll try again next time
+            Globals.getLogger().e(TAG, "cannot migrate missions from preferences: " + e.getMessage());//NON-NLS
         }
+    }
 
-        return database;
+    public synchronized DatabaseMission getMissionById(String id)
+    {
+        return (id == null ? null : _index.get(id));
     }
 
-    public DatabaseMission getMissionById(String id)
+    public synchronized boolean doesMissionExist(String id)
     {
-        for(DatabaseMission mission : _missions)
+        return (id != null && _index.containsKey(id));
+    }
+
+    // Null if we don't have the mission
+    public synchronized String getMissionName(String id)
+    {
+        DatabaseMission mission = getMissionById(id);
+        return (mission == null ? null : mission.getName());
+    }
+
+    public synchronized int getMissionCount()
+    {
+        return _missions.size();
+    }
+
+    // A copy - safe to hold on to
+    public synchronized ArrayList<DatabaseMission> getMissions()
+    {
+        return new ArrayList<>(_missions);
+    }
+
+    public synchronized boolean deleteMissionById(String id)
+    {
+        if(!removeInternal(id))
+        {
+            return false;
+        }
+
+        try
         {
-            if(mission._id.compareTo(id) == 0)
+            if(_journal != null)
             {
-                return mission;
+                _journal.appendDelete(id);
+                compactIfNeeded();
             }
         }
+        catch (Exception e)
+        {
+            Globals.getLogger().e(TAG, "cannot record deletion of mission " + id + ": " + e.getMessage());//NON-NLS
+        }
+
+        return true;
+    }
+
+    @SuppressWarnings("BooleanMethodIsAlwaysInverted")
+    public synchronized boolean updateMissionById(String id, DatabaseMission updatedMission)
+    {
+        if(id == null || !_index.containsKey(id))
+        {
+            return false;
+        }
 
-        return null;
+        if(updatedMission._id != null && id.compareTo(updatedMission._id) != 0)
+        {
+            deleteMissionById(id);
+        }
+
+        addOrUpdateMission(updatedMission);
+
+        return true;
     }
 
-    public boolean deleteMissionById(String id)
+    // Replaces the mission in place if we already have it, otherwise adds it at the end
+    public synchronized boolean addOrUpdateMission(DatabaseMission mission)
     {
-        for(DatabaseMission mission : _missions)
+        if(mission == null || mission._id == null)
         {
-            if(mission._id.compareTo(id) == 0)
+            return false;
+        }
+
+        putInternal(mission);
+
+        try
+        {
+            if(_journal != null)
             {
-                _missions.remove(mission);
-                return true;
+                _journal.appendPut(mission._id, mission.toString());
+                compactIfNeeded();
             }
         }
+        catch (Exception e)
+        {
+            Globals.getLogger().e(TAG, "cannot save mission " + mission._id + ": " + e.getMessage());//NON-NLS
+            return false;
+        }
 
-        return false;
+        return true;
     }
 
-    @SuppressWarnings("BooleanMethodIsAlwaysInverted")
-    public boolean updateMissionById(String id, DatabaseMission updatedMission)
+    // Null if we're not backed by a journal
+    public synchronized MissionJournal.Stats getJournalStats()
     {
-        int index = 0;
+        return (_journal == null ? null : _journal.getStats());
+    }
+
+    public synchronized long getLoadMs()
+    {
+        return _loadMs;
+    }
 
-        for(DatabaseMission mission : _missions)
+    private void putInternal(DatabaseMission mission)
+    {
+        DatabaseMission old = _index.put(mission._id, mission);
+        if(old != null)
         {
-            if(mission._id.compareTo(id) == 0)
+            int index = _missions.indexOf(old);
+            if(index >= 0)
             {
-                _missions.set(index, updatedMission);
-                return true;
+                _missions.set(index, mission);
+                return;
             }
+        }
 
-            index++;
+        _missions.add(mission);
+    }
+
+    private boolean removeInternal(String id)
+    {
+        DatabaseMission old = (id == null ? null : _index.remove(id));
+        if(old == null)
+        {
+            return false;
         }
 
-        return false;
+        _missions.remove(old);
+
+        return true;
     }
 
+    private void compactIfNeeded() throws Exception
+    {
+        if(_journal.needsCompaction())
+        {
+            LinkedHashMap<String, String> live = new LinkedHashMap<>();
+            for(DatabaseMission mission : _missions)
+            {
+                live.put(mission._id, mission.toString());
+            }
+
+            _journal.compact(live);
+        }
+    }
+
+    public synchronized boolean addOrUpdateMissionFromActiveConfiguration(ActiveConfiguration ac)
+    {
+        DatabaseMission mission = makeDatabaseMission(ac);
+        return (mission != null && addOrUpdateMission(mission));
+    }
 
-    public boolean addOrUpdateMissionFromActiveConfiguration(ActiveConfiguration ac)
+    // Null if the configuration couldn't be converted
+    public static DatabaseMission makeDatabaseMission(ActiveConfiguration ac)
     {
-        boolean rc;
+        DatabaseMission mission;
 
         try
         {
-            DatabaseMission mission;
-
             mission = new DatabaseMission();
             mission._id = ac.getMissionId();
             mission._name = ac.getMissionName();
@@ -133,6 +323,7 @@ public class MissionDatabase
             mission._rpAddress = ac.getRpAddress();
             mission._rpPort = ac.getRpPort();
             mission._rpProtocol = ac.getRpProtocol();
+            mission._multicastFailoverPolicy = ac.getMulticastFailoverPolicy();
 
             // Presence
             for (GroupDescriptor gd : ac.getMissionGroups())
@@ -213,18 +404,12 @@ public class MissionDatabase
                 }
             }
 
-            if(!updateMissionById(mission._id, mission))
-            {
-                _missions.add(mission);
-            }
-
-            rc = true;
         }
         catch (Exception e)
         {
-            rc = false;
+            mission = null;
         }
 
-        return rc;
+        return mission;
     }
 }
@@ -0,0 +1,415 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// An append-only journal of mission records keyed by mission id.  Saving a mission appends one
+// record holding just that mission's JSON and deleting one appends a small tombstone, so a change
+// costs the same no matter how many missions there are.
+//
+// Each record is
+//   4      n        4
+// |----|  |...|   |----|
+//   len   payload   crc
+//
+// where the payload is an op byte, the id (modified UTF-8) and, for puts, the mission JSON.
+// replay() hands the records back in the order they were written.  A torn record at the tail
+// (we went down half way through an append) or one that doesn't decode is cut off, along with
+// everything after it; failing to open or read the file leaves it untouched.  Once records that
+// have been superseded make up most of the file the owner is asked to compact() it with the
+// live set.
+//
+// Not thread-safe - MissionDatabase serializes access.
+public class MissionJournal
+{
+    private static String TAG = MissionJournal.class.getSimpleName();
+
+    public final static int OP_PUT = 1;
+    public final static int OP_DELETE = 2;
+
+    private final static int MAX_RECORD_BYTES = (4 * 1024 * 1024);
+    private final static Charset UTF8 = Charset.forName("UTF-8");//NON-NLS
+
+    public interface IReplaySink
+    {
+        void onPut(String id, String json);
+        void onDelete(String id);
+    }
+
+    public static class Stats
+    {
+        public long recordsReplayed;
+        public long recordsWritten;
+        public long bytesWritten;
+        public long corruptRecords;
+        public long readFailures;
+        public long compactions;
+        public long journalBytes;
+        public long liveBytes;
+
+        Stats copy()
+        {
+            Stats rc = new Stats();
+
+            rc.recordsReplayed = recordsReplayed;
+            rc.recordsWritten = recordsWritten;
+            rc.bytesWritten = bytesWritten;
+            rc.corruptRecords = corruptRecords;
+            rc.readFailures = readFailures;
+            rc.compactions = compactions;
+            rc.journalBytes = journalBytes;
+            rc.liveBytes = liveBytes;
+
+            return rc;
+        }
+    }
+
+    private final File _file;
+    private final long _compactThresholdBytes;
+    private final HashMap<String, Integer> _liveRecordBytes = new HashMap<>();
+    private final Stats _stats = new Stats();
+    private long _journalBytes = 0;
+    private long _liveBytes = 0;
+    private boolean _complete = true;
+
+    private static class CorruptRecordException extends Exception
+    {
+        CorruptRecordException(String message)
+        {
+            super(message);
+        }
+    }
+
+    public MissionJournal(File file, long compactThresholdBytes)
+    {
+        _file = file;
+        _compactThresholdBytes = compactThresholdBytes;
+    }
+
+    public File getFile()
+    {
+        return _file;
+    }
+
+    public boolean exists()
+    {
+        return _file.exists();
+    }
+
+    // True if the whole journal was read (a torn or corrupt tail that was cut off counts).  False
+    // if it couldn't be read at all or partway through - the file is left as it is and compaction
+    // is held off since the live set the owner has would be missing whatever we didn't get to.
+    public boolean replay(IReplaySink sink)
+    {
+        _liveRecordBytes.clear();
+        _journalBytes = 0;
+        _liveBytes = 0;
+        _complete = false;
+
+        if(!_file.exists())
+        {
+            _complete = true;
+            updateStats();
+            return true;
+        }
+
+        long goodLength = 0;
+
+        try(DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(_file))))
+        {
+            while(true)
+            {
+                int len;
+
+                try
+                {
+                    len = dis.readInt();
+                }
+                catch (EOFException eof)
+                {
+                    break;
+                }
+
+                int op;
+                String id;
+                byte[] json = null;
+                int recordBytes = (4 + len + 4);
+
+                try
+                {
+                    if(len <= 0 || len > MAX_RECORD_BYTES)
+                    {
+                        throw new CorruptRecordException("bad record length " + len);//NON-NLS
+                    }
+
+                    byte[] payload = new byte[len];
+                    dis.readFully(payload);
+                    int crc = dis.readInt();
+
+                    if(crcOf(payload) != crc)
+                    {
+                        throw new CorruptRecordException("bad record checksum");//NON-NLS
+                    }
+
+                    DataInputStream pis = new DataInputStream(new ByteArrayInputStream(payload));
+                    op = pis.readUnsignedByte();
+                    id = pis.readUTF();
+
+                    if(op == OP_PUT)
+                    {
+                        json = new byte[pis.available()];
+                        pis.readFully(json);
+                    }
+                    else if(op != OP_DELETE)
+                    {
+                        throw new CorruptRecordException("unknown record op " + op);//NON-NLS
+                    }
+                }
+                catch (EOFException | UTFDataFormatException e)
+                {
+                    // Torn at the tail or garbage in the record itself
+                    throw new CorruptRecordException(e.toString());
+                }
+
+                // Whatever the sink does with a record has no bearing on the file
+                try
+                {
+                    if(op == OP_PUT)
+                    {
+                        sink.onPut(id, new String(json, UTF8));
+                    }
+                    else
+                    {
+                        sink.onDelete(id);
+                    }
+                }
+                catch (Exception e)
+                {
+                    e.printStackTrace();
+                }
+
+                if(op == OP_PUT)
+                {
+                    trackPut(id, recordBytes);
+                }
+                else
+                {
+                    trackDelete(id);
+                }
+
+                goodLength += recordBytes;
+                _journalBytes = goodLength;
+
+                synchronized (_stats)
+                {
+                    _stats.recordsReplayed++;
+                }
+            }
+
+            _complete = true;
+        }
+        catch (CorruptRecordException e)
+        {
+            // Cut off whatever we couldn't decode so that the next append starts at a good point
+            synchronized (_stats)
+            {
+                _stats.corruptRecords++;
+            }
+
+            try(RandomAccessFile raf = new RandomAccessFile(_file, "rw"))//NON-NLS
+            {
+                raf.setLength(goodLength);
+                _complete = true;
+            }
+            catch (Exception e2)
+            {
+                e2.printStackTrace();
+            }
+        }
+        catch (Exception e)
+        {
+            // Couldn't open or read the file - that's not the journal's fault so it's left alone
+            e.printStackTrace();
+
+            synchronized (_stats)
+            {
+                _stats.readFailures++;
+            }
+        }
+
+        updateStats();
+
+        return _complete;
+    }
+
+    public void appendPut(String id, String json) throws Exception
+    {
+        int recordBytes = append(OP_PUT, id, json);
+        trackPut(id, recordBytes);
+        updateStats();
+    }
+
+    public void appendDelete(String id) throws Exception
+    {
+        append(OP_DELETE, id, null);
+        trackDelete(id);
+        updateStats();
+    }
+
+    // True once superseded records make up more than half the journal, and only if it was
+    // completely replayed
+    public boolean needsCompaction()
+    {
+        return (_complete && _journalBytes > _compactThresholdBytes && (_journalBytes - _liveBytes) > _liveBytes);
+    }
+
+    // Rewrites the journal with one put per live mission, in the order given
+    public void compact(Map<String, String> live) throws Exception
+    {
+        File tmp = new File(_file.getPath() + ".tmp");//NON-NLS
+        HashMap<String, Integer> liveRecordBytes = new HashMap<>();
+        long bytes = 0;
+
+        try(FileOutputStream fos = new FileOutputStream(tmp, false))
+        {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+
+            for(Map.Entry<String, String> entry : live.entrySet())
+            {
+                int recordBytes = writeRecord(out, OP_PUT, entry.getKey(), entry.getValue());
+                liveRecordBytes.put(entry.getKey(), recordBytes);
+                bytes += recordBytes;
+            }
+
+            out.flush();
+            fos.getFD().sync();
+        }
+
+        if(!tmp.renameTo(_file))
+        {
+            tmp.delete();
+            throw new Exception("cannot replace " + _file.getPath());//NON-NLS
+        }
+
+        _liveRecordBytes.clear();
+        _liveRecordBytes.putAll(liveRecordBytes);
+        _journalBytes = bytes;
+        _liveBytes = bytes;
+        _complete = true;
+
+        synchronized (_stats)
+        {
+            _stats.compactions++;
+        }
+
+        updateStats();
+    }
+
+    public Stats getStats()
+    {
+        synchronized (_stats)
+        {
+            return _stats.copy();
+        }
+    }
+
+    private int append(int op, String id, String json) throws Exception
+    {
+        int recordBytes;
+
+        try(FileOutputStream fos = new FileOutputStream(_file, true))
+        {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            recordBytes = writeRecord(out, op, id, json);
+            out.flush();
+            fos.getFD().sync();
+        }
+
+        _journalBytes += recordBytes;
+
+        synchronized (_stats)
+        {
+            _stats.recordsWritten++;
+            _stats.bytesWritten += recordBytes;
+        }
+
+        return recordBytes;
+    }
+
+    // Returns the number of bytes the record took up
+    private static int writeRecord(DataOutputStream out, int op, String id, String json) throws Exception
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(16 + id.length() + (json == null ? 0 : json.length()));
+        DataOutputStream dos = new DataOutputStream(bos);
+
+        dos.writeByte(op);
+        dos.writeUTF(id);
+        if(json != null)
+        {
+            dos.write(json.getBytes(UTF8));
+        }
+        dos.flush();
+
+        byte[] payload = bos.toByteArray();
+        if(payload.length > MAX_RECORD_BYTES)
+        {
+            throw new Exception("record too large " + payload.length);//NON-NLS
+        }
+
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.writeInt(crcOf(payload));
+
+        return (4 + payload.length + 4);
+    }
+
+    private void trackPut(String id, int recordBytes)
+    {
+        Integer old = _liveRecordBytes.put(id, recordBytes);
+        _liveBytes += recordBytes - (old == null ? 0 : old);
+    }
+
+    private void trackDelete(String id)
+    {
+        Integer old = _liveRecordBytes.remove(id);
+        if(old != null)
+        {
+            _liveBytes -= old;
+        }
+    }
+
+    private void updateStats()
+    {
+        synchronized (_stats)
+        {
+            _stats.journalBytes = _journalBytes;
+            _stats.liveBytes = _liveBytes;
+        }
+    }
+
+    private static int crcOf(byte[] payload)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+}
@@ -12,7 +12,6 @@ import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Bundle;
-import android.preference.PreferenceManager;
 import android.text.SpannableString;
 import android.text.method.LinkMovementMethod;
 import android.view.LayoutInflater;
@@ -194,11 +193,7 @@ public class MissionListActivity extends AppCompatActivity
 
         _activeMissionId = Globals.getEngageApplication().getActiveConfiguration().getMissionId();
 
-        _database = MissionDatabase.load(Globals.getSharedPreferences(), Constants.MISSION_DATABASE_NAME);
-        if(_database == null)
-        {
-            _database = new MissionDatabase();
-        }
+        _database = MissionDatabase.getInstance();
 
         // Grab the active mission's JSON - we'll use it later
         DatabaseMission activeDatabaseMission = _database.getMissionById(_activeMissionId);
@@ -207,7 +202,7 @@ public class MissionListActivity extends AppCompatActivity
             _activeMissionJson = activeDatabaseMission.toString();
         }
 
-        _adapter = new MissionListAdapter(this, R.layout.mission_list_entry, _database._missions);
+        _adapter = new MissionListAdapter(this, R.layout.mission_list_entry, _database.getMissions());
         ListView lv = findViewById(R.id.lvMissions);
         lv.setAdapter(_adapter);
 
@@ -817,61 +812,68 @@ public class MissionListActivity extends AppCompatActivity
 
                     String stringData = new String(missionData, Utils.getEngageCharSet());
 
-                    // Look for the "/??" to see if there's a deflection URL
-                    int endOfDeflection = stringData.indexOf(Constants.QR_DEFLECTION_URL_SEP);
-
-                    // If it's there, strip it off
-                    if (endOfDeflection > 0)
+                    if(ActiveConfiguration.isBinaryQrCodeString(stringData))
                     {
-                        stringData = stringData.substring(endOfDeflection + Constants.QR_DEFLECTION_URL_SEP.length());
+                        ac = ActiveConfiguration.parseEncryptedQrCodeString(stringData, pwd);
                     }
-
-                    // Now we have a string with is Base91 encoded, we need to decode that
-                    byte[] base91DecodedBytes = Base91.decode(stringData.getBytes(Utils.getEngageCharSet()));
-                    if (base91DecodedBytes == null || base91DecodedBytes.length < 1)
+                    else
                     {
-                        throw new Exception(getString(R.string.image_is_not_base91_encoded));
-                    }
+                        // Look for the "/??" to see if there's a deflection URL
+                        int endOfDeflection = stringData.indexOf(Constants.QR_DEFLECTION_URL_SEP);
 
-                    // It may be encrypted, so decrypt if we have a password
-                    if (!Utils.isEmptyString(pwd))
-                    {
-                        String pwdHexString = Utils.toHexString(pwd.getBytes(Utils.getEngageCharSet()));
+                        // If it's there, strip it off
+                        if (endOfDeflection > 0)
+                        {
+                            stringData = stringData.substring(endOfDeflection + Constants.QR_DEFLECTION_URL_SEP.length());
+                        }
 
-                        base91DecodedBytes = Globals.getEngageApplication().getEngine().decryptSimple(base91DecodedBytes, pwdHexString);
-                        if (base91DecodedBytes == null)
+                        // Now we have a string with is Base91 encoded, we need to decode that
+                        byte[] base91DecodedBytes = Utils.base91Decode(stringData);
+                        if (base91DecodedBytes == null || base91DecodedBytes.length < 1)
                         {
-                            throw new Exception(getString(R.string.encrypted_data_cannot_be_decrypted));
+                            throw new Exception(getString(R.string.image_is_not_base91_encoded));
                         }
-                    }
 
-                    // Next, we decompress the data
-                    byte[] decompressed = Utils.inflate(base91DecodedBytes);
-                    if (decompressed == null || decompressed.length < 1)
-                    {
-                        throw new Exception(getString(R.string.image_compression_not_supported));
-                    }
+                        // It may be encrypted, so decrypt if we have a password
+                        if (!Utils.isEmptyString(pwd))
+                        {
+                            String pwdHexString = Utils.toHexString(pwd.getBytes(Utils.getEngageCharSet()));
+
+                            base91DecodedBytes = Globals.getEngageApplication().getEngine().decryptSimple(base91DecodedBytes, pwdHexString);
+                            if (base91DecodedBytes == null)
+                            {
+                                throw new Exception(getString(R.string.encrypted_data_cannot_be_decrypted));
+                            }
+                        }
 
-                    String qrCodeDataString = new String(decompressed, Utils.getEngageCharSet());
-                    qrCodeDataString = qrCodeDataString.substring(Constants.QR_CODE_HEADER.length());
+                        // Next, we decompress the data
+                        byte[] decompressed = Utils.inflate(base91DecodedBytes);
+                        if (decompressed == null || decompressed.length < 1)
+                        {
+                            throw new Exception(getString(R.string.image_compression_not_supported));
+                        }
 
-                    // Now, check the version - its "nnn"
-                    int checkVersion = Integer.parseInt(Constants.QR_VERSION);
-                    int qrVersion = Integer.parseInt(qrCodeDataString.substring(0, 3));
-                    if (qrVersion == checkVersion)
-                    {
-                        // Strip the version
-                        qrCodeDataString = qrCodeDataString.substring(3);
+                        String qrCodeDataString = new String(decompressed, Utils.getEngageCharSet());
+                        qrCodeDataString = qrCodeDataString.substring(Constants.QR_CODE_HEADER.length());
 
-                        ac = new ActiveConfiguration();
-                        if (!ac.parseTemplate(qrCodeDataString))
+                        // Now, check the version - its "nnn"
+                        int checkVersion = Integer.parseInt(Constants.QR_VERSION);
+                        int qrVersion = Integer.parseInt(qrCodeDataString.substring(0, 3));
+                        if (qrVersion == checkVersion)
                         {
-                            throw new Exception(getString(R.string.cannot_parse_mission_data));
+                            // Strip the version
+                            qrCodeDataString = qrCodeDataString.substring(3);
+
+                            ac = new ActiveConfiguration();
+                            if (!ac.parseTemplate(qrCodeDataString))
+                            {
+                                throw new Exception(getString(R.string.cannot_parse_mission_data));
+                            }
+                        }
+                        else
+                        {
+                            throw new Exception(getString(R.string.image_version_is_not_supported));
                         }
-                    }
-                    else
-                    {
-                        throw new Exception(getString(R.string.image_version_is_not_supported));
                     }
                 }
                 else
@@ -1022,14 +1024,9 @@ public class MissionListActivity extends AppCompatActivity
                 return false;
             }
 
-            if(!_database.updateMissionById(mission._id, mission))
-            {
-                _database._missions.add(mission);
-            }
-
-            _database.save(Globals.getSharedPreferences(), Constants.MISSION_DATABASE_NAME);
+            _database.addOrUpdateMission(mission);
 
-            _adapter.notifyDataSetChanged();
+            refreshMissionList();
 
             // See if what was changed was the active mission, if so, we need to
             // make sure our resultIntent is set correctly
@@ -1049,6 +1046,16 @@ public class MissionListActivity extends AppCompatActivity
         return rc;
     }
 
+    // The adapter works off its own copy so the database changing on another thread never
+    // touches a list the UI is reading
+    private void refreshMissionList()
+    {
+        _adapter.setNotifyOnChange(false);
+        _adapter.clear();
+        _adapter.addAll(_database.getMissions());
+        _adapter.notifyDataSetChanged();
+    }
+
     private void shareMission(String id)
     {
         Globals.getEngageApplication().logEvent(Analytics.VIEW_SHARE_MISSION);
@@ -1101,10 +1108,8 @@ public class MissionListActivity extends AppCompatActivity
     {
         if(_database.deleteMissionById(id))
         {
-            _adapter.notifyDataSetChanged();
+            refreshMissionList();
         }
-
-        _database.save(PreferenceManager.getDefaultSharedPreferences(this), Constants.MISSION_DATABASE_NAME);
     }
 
     private ArrayList<EngageCertStore> getCertStoreList()
@@ -11,7 +11,6 @@ import android.media.AudioFormat;
 import android.media.AudioManager;
 import android.media.AudioRecord;
 import android.media.AudioTrack;
-import android.media.MediaRecorder;
 import android.media.audiofx.AcousticEchoCanceler;
 import android.media.audiofx.NoiseSuppressor;
 import android.os.Build;
@@ -20,6 +19,8 @@ import androidx.annotation.RequiresApi;
 
 import com.rallytac.engage.engine.Engine;
 
+import java.util.concurrent.locks.LockSupport;
+
 public class MyAudioProvider implements Engine.IAudioProvider
 {
     final String TAG = MyAudioProvider.class.getSimpleName();
@@ -31,7 +32,55 @@ public class MyAudioProvider implements Engine.IAudioProvider
     private AcousticEchoCanceler _aec = null;
     private RecordingThread _recordingThread = null;
     private PlayoutThread _playoutThread = null;
+    private PlayoutPumpThread _playoutPumpThread = null;
+    private AudioRingBuffer _playoutRing = null;
     private int _recMinBufferSize = -1;
+    private AudioPipelineConfig _config = new AudioPipelineConfig();
+    private int _hwSampleRate = AudioPipelineConfig.DEF_SAMPLE_RATE;
+    private boolean _lowLatencyTransport = Constants.DEF_ANDROID_AUDIO_LOW_LATENCY_TRANSPORT;
+    private int _frameMs = Constants.DEF_ANDROID_AUDIO_FRAME_MS;
+    private boolean _useNativeRate = Constants.DEF_ANDROID_AUDIO_USE_NATIVE_RATE;
+
+    // Per-session counters (reset each time the subsystem is created)
+    private volatile long _captureFrames = 0;
+    private volatile long _captureOverruns = 0;
+    private volatile long _captureErrors = 0;
+    private long _priorPlayoutUnderruns = 0;
+    private long _priorPlayoutOverruns = 0;
+
+    public static class SessionStats
+    {
+        public int engineSampleRate;
+        public int hardwareSampleRate;
+        public int channels;
+        public int frameMs;
+
+        public long captureFrames;
+        public long captureOverruns;
+        public long captureErrors;
+        public long playoutUnderruns;
+        public long playoutOverruns;
+
+        // What's sitting in the platform buffers plus whatever we're holding ourselves
+        public int effectiveCaptureLatencyMs;
+        public int effectivePlayoutLatencyMs;
+
+        @Override
+        public String toString()
+        {
+            return "engineSampleRate=" + engineSampleRate//NON-NLS
+                    + ", hardwareSampleRate=" + hardwareSampleRate//NON-NLS
+                    + ", channels=" + channels//NON-NLS
+                    + ", frameMs=" + frameMs//NON-NLS
+                    + ", captureFrames=" + captureFrames//NON-NLS
+                    + ", captureOverruns=" + captureOverruns//NON-NLS
+                    + ", captureErrors=" + captureErrors//NON-NLS
+                    + ", playoutUnderruns=" + playoutUnderruns//NON-NLS
+                    + ", playoutOverruns=" + playoutOverruns//NON-NLS
+                    + ", effectiveCaptureLatencyMs=" + effectiveCaptureLatencyMs//NON-NLS
+                    + ", effectivePlayoutLatencyMs=" + effectivePlayoutLatencyMs;//NON-NLS
+        }
+    }
 
     public MyAudioProvider()
     {
@@ -74,6 +123,161 @@ public class MyAudioProvider implements Engine.IAudioProvider
         return _aec;
     }
 
+    // Null unless the low-latency transport is in use and playout has been started
+    public AudioRingBuffer.Stats getPlayoutStats()
+    {
+        AudioRingBuffer ring = _playoutRing;
+        return (ring != null ? ring.getStats() : null);
+    }
+
+    public AudioPipelineConfig getConfig()
+    {
+        return _config;
+    }
+
+    public SessionStats getSessionStats()
+    {
+        SessionStats rc = new SessionStats();
+
+        rc.engineSampleRate = _config.sampleRate;
+        rc.hardwareSampleRate = _hwSampleRate;
+        rc.channels = _config.channels;
+        rc.frameMs = _config.frameMs;
+
+        rc.captureFrames = _captureFrames;
+        rc.captureOverruns = _captureOverruns;
+        rc.captureErrors = _captureErrors;
+        rc.playoutUnderruns = _priorPlayoutUnderruns;
+        rc.playoutOverruns = _priorPlayoutOverruns;
+
+        try
+        {
+            AudioRingBuffer ring = _playoutRing;
+            if(ring != null)
+            {
+                AudioRingBuffer.Stats stats = ring.getStats();
+                rc.playoutUnderruns += stats.underruns;
+                rc.playoutOverruns += stats.overruns;
+            }
+
+            AudioTrack track = _track;
+            if(track != null)
+            {
+                // What the platform saw on its side of the track
+                rc.playoutUnderruns += track.getUnderrunCount();
+                rc.effectivePlayoutLatencyMs = (int) (((long) track.getBufferSizeInFrames() * 1000) / _hwSampleRate);
+            }
+
+            if(ring != null)
+            {
+                rc.effectivePlayoutLatencyMs += (int) (ring.getBufferedNanos() / 1000000);
+            }
+
+            AudioRecord rec = _rec;
+            if(rec != null)
+            {
+                rc.effectiveCaptureLatencyMs = (int) (((long) rec.getBufferSizeInFrames() * 1000) / _hwSampleRate);
+            }
+
+            RecordingThread recordingThread = _recordingThread;
+            if(recordingThread != null)
+            {
+                rc.effectiveCaptureLatencyMs += (int) (((long) recordingThread.getBufferedSamples() * 1000) / (_config.sampleRate * _config.channels));
+            }
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+
+        return rc;
+    }
+
+    // Samples per frame on the Engine side
+    private int getFrameSamples()
+    {
+        return _config.getFrameSamples(_config.sampleRate);
+    }
+
+    // Samples per frame on the hardware side
+    private int getHardwareFrameSamples()
+    {
+        return _config.getFrameSamples(_hwSampleRate);
+    }
+
+    private void resetSessionStats()
+    {
+        _captureFrames = 0;
+        _captureOverruns = 0;
+        _captureErrors = 0;
+        _priorPlayoutUnderruns = 0;
+        _priorPlayoutOverruns = 0;
+    }
+
+    // What we were told to use or, by default, the Engine's own rate so that nothing gets resampled
+    // on our side.  Running at the device's native rate (and resampling ourselves instead of the
+    // platform doing it) is opt-in.
+    private int resolveHardwareSampleRate()
+    {
+        if(_config.hardwareSampleRate > 0)
+        {
+            return _config.hardwareSampleRate;
+        }
+
+        if(!_useNativeRate)
+        {
+            return _config.sampleRate;
+        }
+
+        try
+        {
+            AudioManager am = _manager;
+            if(am == null)
+            {
+                am = (AudioManager) Globals.getEngageApplication().getApplicationContext().getSystemService(Context.AUDIO_SERVICE);
+            }
+
+            String s = am.getProperty(AudioManager.PROPERTY_OUTPUT_SAMPLE_RATE);
+            if(!Utils.isEmptyString(s))
+            {
+                int nativeRate = Integer.parseInt(s);
+                if(nativeRate > 0)
+                {
+                    return nativeRate;
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            Globals.getLogger().w(TAG, "cannot determine native sample rate: " + e.getMessage());
+        }
+
+        return _config.sampleRate;
+    }
+
+    private void loadTransportSettings()
+    {
+        try
+        {
+            _lowLatencyTransport = Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_AUDIO_LOW_LATENCY_TRANSPORT, Constants.DEF_ANDROID_AUDIO_LOW_LATENCY_TRANSPORT);
+
+            int frameMs = Integer.parseInt(Globals.getSharedPreferences().getString(PreferenceKeys.USER_AUDIO_FRAME_MS, Integer.toString(Constants.DEF_ANDROID_AUDIO_FRAME_MS)));
+
+            // We only do 10ms or 20ms frames
+            _frameMs = (frameMs <= 10 ? 10 : 20);
+
+            _useNativeRate = Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_AUDIO_USE_NATIVE_RATE, Constants.DEF_ANDROID_AUDIO_USE_NATIVE_RATE);
+        }
+        catch (Exception e)
+        {
+            _lowLatencyTransport = Constants.DEF_ANDROID_AUDIO_LOW_LATENCY_TRANSPORT;
+            _frameMs = Constants.DEF_ANDROID_AUDIO_FRAME_MS;
+            _useNativeRate = Constants.DEF_ANDROID_AUDIO_USE_NATIVE_RATE;
+        }
+
+        Globals.getLogger().d(TAG, "lowLatencyTransport=" + _lowLatencyTransport + ", frameMs=" + _frameMs + ", useNativeRate=" + _useNativeRate);
+    }
+
     @RequiresApi(api = Build.VERSION_CODES.M)
     @SuppressLint("MissingPermission")
     public int createAudioSubsystem(String jsonParams)
@@ -84,27 +288,42 @@ public class MyAudioProvider implements Engine.IAudioProvider
 
         try
         {
-            int sampleRate = 8000;
-            int channels = 1;
-            //int source = MediaRecorder.AudioSource.VOICE_COMMUNICATION;
-            int source = MediaRecorder.AudioSource.MIC;
-            boolean useNs = true;
-            boolean useAec = true;
             int usage = AudioAttributes.USAGE_VOICE_COMMUNICATION;
             int contentType = AudioAttributes.CONTENT_TYPE_SPEECH;
 
             if(_rec == null)
             {
+                loadTransportSettings();
+
+                _config = AudioPipelineConfig.fromJson(jsonParams, _frameMs);
+                _hwSampleRate = resolveHardwareSampleRate();
+                resetSessionStats();
+
+                Globals.getLogger().i(TAG, "audio pipeline: " + _config.toString() + ", resolvedHardwareSampleRate=" + _hwSampleRate);
+
+                int sampleRate = _hwSampleRate;
+                int channels = _config.channels;
+                int source = _config.audioSource;
+                boolean useNs = _config.usePlatformEffects;
+                boolean useAec = _config.usePlatformEffects;
+
                 _recMinBufferSize = AudioRecord.getMinBufferSize(
                         sampleRate,
                         (channels == 1 ? AudioFormat.CHANNEL_IN_MONO : AudioFormat.CHANNEL_IN_STEREO),
                         AudioFormat.ENCODING_PCM_16BIT);
 
+                // getMinBufferSize() is in bytes - make sure we have room for at least two frames
+                int recBufferBytes = _recMinBufferSize * _config.bufferMultiplier;
+                if(_lowLatencyTransport)
+                {
+                    recBufferBytes = Math.max(recBufferBytes, getHardwareFrameSamples() * 2 * 2);
+                }
+
                 _rec = new AudioRecord(source,
                         sampleRate,
                         (channels == 1 ? AudioFormat.CHANNEL_IN_MONO : AudioFormat.CHANNEL_IN_STEREO),
                         AudioFormat.ENCODING_PCM_16BIT,
-                        _recMinBufferSize);
+                        recBufferBytes);
 
                 if(_rec == null)
                 {
@@ -151,6 +370,11 @@ public class MyAudioProvider implements Engine.IAudioProvider
                     }
                 }
 
+                int trackBufferBytes = AudioTrack.getMinBufferSize(
+                        sampleRate,
+                        (channels == 1 ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO),
+                        AudioFormat.ENCODING_PCM_16BIT) * _config.bufferMultiplier;
+
                 _track = new AudioTrack.Builder()
                         .setAudioAttributes(new AudioAttributes.Builder()
                                 .setUsage(usage)
@@ -161,6 +385,7 @@ public class MyAudioProvider implements Engine.IAudioProvider
                                 .setSampleRate(sampleRate)
                                 .setChannelMask((channels == 1 ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO))
                                 .build())
+                        .setBufferSizeInBytes(trackBufferBytes)
                         .setSessionId(_rec.getAudioSessionId())
                         .setTransferMode(AudioTrack.MODE_STREAM)
                         .build();
@@ -192,6 +417,11 @@ public class MyAudioProvider implements Engine.IAudioProvider
 
         int rc = 0;
 
+        if(_rec != null)
+        {
+            Globals.getLogger().i(TAG, "audio session stats: " + getSessionStats().toString());
+        }
+
         if(_noiseSuppressor != null)
         {
             _noiseSuppressor.release();
@@ -227,7 +457,14 @@ public class MyAudioProvider implements Engine.IAudioProvider
 
         if(_rec != null && _recordingThread == null)
         {
-            _recordingThread = new RecordingThread(_rec, _recMinBufferSize);
+            // In low-latency mode we hand the engine a frame at a time as soon as it's captured.
+            // Otherwise we read as much as the recorder's minimum buffer holds - getMinBufferSize()
+            // is in bytes so that's turned into whole (interleaved) sample frames first.
+            int minBufferSamples = (_recMinBufferSize / (2 * _config.channels)) * _config.channels;
+            _recordingThread = new RecordingThread(_rec,
+                                                    (_lowLatencyTransport ? getHardwareFrameSamples() : minBufferSamples),
+                                                    new AudioResampler(_hwSampleRate, _config.sampleRate, _config.channels),
+                                                    new AudioFrameSlicer(getFrameSamples()));
             _recordingThread.start();
         }
 
@@ -257,8 +494,25 @@ public class MyAudioProvider implements Engine.IAudioProvider
 
         if(_track != null && _playoutThread == null)
         {
-            _playoutThread = new PlayoutThread(_track);
-            _playoutThread.start();
+            AudioResampler resampler = new AudioResampler(_config.sampleRate, _hwSampleRate, _config.channels);
+
+            if(_lowLatencyTransport)
+            {
+                // The ring holds audio that's already at the hardware rate
+                int frameSamples = getHardwareFrameSamples();
+                _playoutRing = new AudioRingBuffer(frameSamples * Constants.ANDROID_AUDIO_RING_BUFFER_FRAMES, frameSamples, _hwSampleRate * _config.channels);
+
+                _playoutThread = new PlayoutThread(_track, _playoutRing, null);
+                _playoutPumpThread = new PlayoutPumpThread(_playoutRing, getFrameSamples(), resampler);
+
+                _playoutThread.start();
+                _playoutPumpThread.start();
+            }
+            else
+            {
+                _playoutThread = new PlayoutThread(_track, null, resampler);
+                _playoutThread.start();
+            }
         }
 
         return rc;
@@ -270,12 +524,32 @@ public class MyAudioProvider implements Engine.IAudioProvider
 
         int rc = 0;
 
+        if(_playoutPumpThread != null)
+        {
+            _playoutPumpThread.close();
+            _playoutPumpThread = null;
+        }
+
         if(_playoutThread != null)
         {
             _playoutThread.close();
             _playoutThread = null;
         }
 
+        if(_playoutRing != null)
+        {
+            AudioRingBuffer.Stats stats = _playoutRing.getStats();
+            Globals.getLogger().i(TAG, "playout stats: underruns=" + stats.underruns
+                                        + ", overruns=" + stats.overruns
+                                        + ", pumpJitterUs=" + stats.writeJitterUs
+                                        + ", maxPumpJitterUs=" + stats.maxWriteJitterUs
+                                        + ", highWaterMark=" + stats.highWaterMark);
+
+            _priorPlayoutUnderruns += stats.underruns;
+            _priorPlayoutOverruns += stats.overruns;
+            _playoutRing = null;
+        }
+
         return rc;
     }
 
@@ -284,14 +558,24 @@ public class MyAudioProvider implements Engine.IAudioProvider
     {
         final String TAG = MyAudioProvider.class.getSimpleName() + "." + RecordingThread.class.getSimpleName();
 
-        private boolean _running = true;
+        private volatile boolean _running = true;
         private AudioRecord _recorder = null;
         private int _minBufferSizeIn = 0;
+        private AudioResampler _resampler = null;
+        private AudioFrameSlicer _slicer = null;
 
-        RecordingThread(AudioRecord recorder, int minBufferSizeIn)
+        RecordingThread(AudioRecord recorder, int minBufferSizeIn, AudioResampler resampler, AudioFrameSlicer slicer)
         {
             _recorder = recorder;
             _minBufferSizeIn = minBufferSizeIn;
+            _resampler = resampler;
+            _slicer = slicer;
+        }
+
+        // Engine-rate samples waiting to make up a full frame
+        int getBufferedSamples()
+        {
+            return _slicer.getBufferedSamples();
         }
 
         public void close()
@@ -311,7 +595,28 @@ public class MyAudioProvider implements Engine.IAudioProvider
         {
             Globals.getLogger().d(TAG, "starting recording");
 
+            final Engine engine = Globals.getEngageApplication().getEngine();
             short[] audioData = new short[_minBufferSizeIn];
+            short[] engineData = new short[_resampler.getMaxOutputSamples(_minBufferSizeIn)];
+
+            AudioFrameSlicer.IFrameSink sink = new AudioFrameSlicer.IFrameSink()
+            {
+                @Override
+                public void onFrame(short[] frame, int samples)
+                {
+                    engine.writeAndroidAudio(frame, 0, samples);
+                    _captureFrames++;
+                }
+            };
+
+            // If we take longer than the whole record buffer to come back for more then the
+            // platform has had to throw audio away
+            final int hwRate = _resampler.getInRate();
+            final long recBufferNanos = (((long) _recorder.getBufferSizeInFrames() * 1000000000L) / hwRate);
+            long lastReadAt = 0;
+
+            _resampler.reset();
+            _slicer.reset();
             _recorder.startRecording();
 
             while( _running )
@@ -319,9 +624,23 @@ public class MyAudioProvider implements Engine.IAudioProvider
                 try
                 {
                     int numRead = _recorder.read(audioData, 0, _minBufferSizeIn);
+                    long now = System.nanoTime();
+
                     if(numRead > 0)
                     {
-                        Globals.getEngageApplication().getEngine().writeAndroidAudio(audioData, 0, numRead);
+                        if(lastReadAt != 0 && (now - lastReadAt) > recBufferNanos)
+                        {
+                            _captureOverruns++;
+                        }
+                        lastReadAt = now;
+
+                        int numResampled = _resampler.process(audioData, 0, numRead, engineData, 0);
+                        _slicer.push(engineData, 0, numResampled, sink);
+                    }
+                    else if(numRead < 0)
+                    {
+                        _captureErrors++;
+                        Globals.getLogger().w(TAG, "recorder read failed: " + numRead);
                     }
                 }
                 catch (Exception e)
@@ -336,22 +655,107 @@ public class MyAudioProvider implements Engine.IAudioProvider
         }
     }
 
+    // Pulls audio from the engine into the playout ring.  The engine has no way of telling us
+    // that audio is ready so we ask once per frame interval (rather than every 100ms) and, while it
+    // has audio for us, keep pulling until the ring has a reasonable amount buffered.
+    private class PlayoutPumpThread extends Thread
+    {
+        final String TAG = MyAudioProvider.class.getSimpleName() + "." + PlayoutPumpThread.class.getSimpleName();
+
+        private volatile boolean _running = true;
+        private AudioRingBuffer _ring = null;
+        private int _engineFrameSamples = 0;
+        private AudioResampler _resampler = null;
+
+        PlayoutPumpThread(AudioRingBuffer ring, int engineFrameSamples, AudioResampler resampler)
+        {
+            _ring = ring;
+            _engineFrameSamples = engineFrameSamples;
+            _resampler = resampler;
+        }
+
+        public void close()
+        {
+            _running = false;
+            LockSupport.unpark(this);
+
+            try
+            {
+                join();
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+
+        public void run()
+        {
+            final int frameSamples = _ring.getFrameSamples();
+            final long frameNanos = _ring.getFrameIntervalNanos();
+            final Engine engine = Globals.getEngageApplication().getEngine();
+            short[] frame = new short[_engineFrameSamples];
+            short[] hwFrame = new short[_resampler.getMaxOutputSamples(_engineFrameSamples)];
+            long nextTick = System.nanoTime();
+
+            _resampler.reset();
+
+            Globals.getLogger().d(TAG, "starting playout pump");
+
+            while( _running )
+            {
+                int numRead = 0;
+
+                // Keep a couple of frames ahead of the speaker but don't go mad
+                if(_ring.available() < (frameSamples * 2))
+                {
+                    numRead = engine.readAndroidAudio(frame, 0, _engineFrameSamples);
+                    if(numRead > 0)
+                    {
+                        _ring.write(hwFrame, 0, _resampler.process(frame, 0, numRead, hwFrame, 0));
+                    }
+                }
+
+                if(numRead < _engineFrameSamples)
+                {
+                    // Nothing (or not much) more for now - wait for the next frame tick
+                    nextTick += frameNanos;
+                    long now = System.nanoTime();
+                    if(nextTick <= now)
+                    {
+                        nextTick = now + frameNanos;
+                    }
+
+                    LockSupport.parkNanos(nextTick - now);
+                }
+            }
+
+            Globals.getLogger().d(TAG, "ended playout pump");
+        }
+    }
+
     // The playout thread
     private class PlayoutThread extends Thread
     {
         final String TAG = MyAudioProvider.class.getSimpleName() + "." + PlayoutThread.class.getSimpleName();
 
-        private boolean _running = true;
+        private volatile boolean _running = true;
         private AudioTrack _track = null;
+        private AudioRingBuffer _ring = null;
+        private AudioResampler _resampler = null;
 
-        PlayoutThread(AudioTrack track)
+        // If ring is null we pull from the engine ourselves (and resample to the hardware rate)
+        PlayoutThread(AudioTrack track, AudioRingBuffer ring, AudioResampler resampler)
         {
             _track = track;
+            _ring = ring;
+            _resampler = resampler;
         }
 
         public void close()
         {
             _running = false;
+            interrupt();
 
             try
             {
@@ -364,30 +768,113 @@ public class MyAudioProvider implements Engine.IAudioProvider
         }
 
         public void run()
+        {
+            Globals.getLogger().d(TAG, "starting playout");
+
+            _track.play();
+
+            if(_ring != null)
+            {
+                runFromRing();
+            }
+            else
+            {
+                runFromEngine();
+            }
+
+            _track.stop();
+
+            Globals.getLogger().d(TAG, "ended playout");
+        }
+
+        private void writeToTrack(short[] buf, int count)
+        {
+            int numWritten;
+            int numLeft = count;
+            int ofs = 0;
+
+            while(numLeft > 0 && _running)
+            {
+                numWritten = _track.write(buf, ofs, numLeft);
+                if(numWritten < 0)
+                {
+                    Globals.getLogger().w(TAG, "track write failed: " + numWritten);
+                    break;
+                }
+
+                numLeft -= numWritten;
+                ofs += numWritten;
+            }
+        }
+
+        private void runFromRing()
+        {
+            final int frameSamples = _ring.getFrameSamples();
+            final long frameNanos = _ring.getFrameIntervalNanos();
+            short[] frame = new short[frameSamples];
+            boolean inStream = false;
+
+            while( _running )
+            {
+                try
+                {
+                    // Nothing playing - sleep until the pump has anything at all for us
+                    if(!inStream && !_ring.awaitAvailable(1, frameNanos * 50))
+                    {
+                        continue;
+                    }
+
+                    // Woken by the pump as soon as a frame lands
+                    if(_ring.awaitAvailable(frameSamples, frameNanos + (frameNanos / 2)))
+                    {
+                        if(!inStream)
+                        {
+                            _ring.markResumed();
+                            inStream = true;
+                        }
+
+                        writeToTrack(frame, _ring.read(frame, 0, frameSamples));
+                    }
+                    else
+                    {
+                        // Less than a frame turned up in time - play whatever there is.  That's the tail
+                        // of a transmission or the pump falling behind; the ring works out which once
+                        // (and if) audio comes back.
+                        int partial = _ring.read(frame, 0, frameSamples);
+                        if(partial > 0)
+                        {
+                            writeToTrack(frame, partial);
+                        }
+
+                        if(inStream)
+                        {
+                            _ring.markRanDry();
+                            inStream = false;
+                        }
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    // We're being closed
+                }
+            }
+        }
+
+        private void runFromEngine()
         {
             final int BUFSZ = 512;
             short[] buf = new short[BUFSZ];
-            int numWritten;
+            short[] hwBuf = new short[_resampler.getMaxOutputSamples(BUFSZ)];
             int numLeft;
-            int ofs;
-
-            Globals.getLogger().d(TAG, "starting playout");
 
-            _track.play();
+            _resampler.reset();
 
             while( _running )
             {
                 numLeft = Globals.getEngageApplication().getEngine().readAndroidAudio(buf, 0, BUFSZ);
                 if(numLeft > 0)
                 {
-                    ofs = 0;
-                    while(numLeft > 0)
-                    {
-                        numWritten = _track.write(buf, ofs, numLeft);
-                        //Globals.getLogger().d(TAG, "wrote " + numWritten + " samples");
-                        numLeft -= numWritten;
-                        ofs += numWritten;
-                    }
+                    writeToTrack(hwBuf, _resampler.process(buf, 0, numLeft, hwBuf, 0));
                 }
                 else
                 {
@@ -401,10 +888,6 @@ public class MyAudioProvider implements Engine.IAudioProvider
                     }
                 }
             }
-
-            _track.stop();
-
-            Globals.getLogger().d(TAG, "ended playout");
         }
     }
 }
@@ -5,11 +5,14 @@ import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
 
 public class MyUncaughtExceptionHandler implements Thread.UncaughtExceptionHandler
 {
+    private static String TAG = MyUncaughtExceptionHandler.class.getSimpleName();
+
     private Activity _activity;
 
     public MyUncaughtExceptionHandler(Activity a)
@@ -29,6 +32,10 @@ public class MyUncaughtExceptionHandler implements Thread.UncaughtExceptionHandl
         AlarmManager mgr = (AlarmManager) EngageApplication.getInstance().getBaseContext().getSystemService(Context.ALARM_SERVICE);
         mgr.set(AlarmManager.RTC, System.currentTimeMillis() + 100, pendingIntent);
 
+        // Get whatever is still queued (the crash included) into the log before we go
+        Globals.getLogger().f(TAG, "uncaught exception in thread " + t.getName() + ": " + Log.getStackTraceString(e));//NON-NLS
+        Globals.getLoggingBackend().stop();
+
         _activity.finish();
         System.exit(2);
     }
@@ -2,62 +2,182 @@ package com.rallytac.engageandroid;
 
 import android.content.Context;
 import android.os.Environment;
-import android.view.View;
+import android.view.Choreographer;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Locale;
 
+// Lines are held in a LogLineStore - the latest in memory, older ones in segment files under the
+// cache directory - and the list is scrolled back through them a page at a time.  The store does its
+// file work on its own thread; rows that were bound before their page was read are refreshed once it
+// has been.  Lines added during a display frame are handed to the adapter in one go on the next frame.
+// Must be used on the UI thread.
 public class OnscreenLogger {
     private Context _ctx;
-    private int _maxLines = 1000;
-    private ArrayList<String> _lines = new ArrayList<String>();
+    private LogLineStore _store;
+    private ArrayList<String> _pending = new ArrayList<>();
+    private boolean _frameScheduled = false;
+    private boolean _following = true;
+
+    private SimpleDateFormat _stampFormat = new SimpleDateFormat("yyMMdd.HHmm.ss", Locale.getDefault());//NON-NLS
+    private long _stampSecond = -1;
+    private String _stamp = null;
 
     private LogAdapter _adapter;
     private LinearLayoutManager _layoutManager;
     private RecyclerView _recyclerView;
 
+    private final Choreographer.FrameCallback _frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            _frameScheduled = false;
+            flushPending();
+        }
+    };
+
     OnscreenLogger(Context ctx, RecyclerView recyclerView) {
         _ctx = ctx;
-        _adapter = new LogAdapter(_lines);
+        _store = new LogLineStore(new File(ctx.getCacheDir(), Constants.ONSCREEN_LOG_DIR_NAME),
+                                    Constants.ONSCREEN_LOG_MEMORY_LINES,
+                                    Constants.ONSCREEN_LOG_SEGMENT_LINES,
+                                    Constants.ONSCREEN_LOG_MAX_SEGMENTS);
+        _store.setListener(new LogLineStore.IListener() {
+            @Override
+            public void onLinesLoaded(final long firstLineNumber, final int count) {
+                _recyclerView.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        refreshLines(firstLineNumber, count);
+                    }
+                });
+            }
+
+            @Override
+            public void onSaved(File file, final boolean ok) {
+                _recyclerView.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        Toast.makeText(_ctx, (ok ? "Save to file" : "Save to file failed"), Toast.LENGTH_LONG).show();
+                    }
+                });
+            }
+        });
+        _adapter = new LogAdapter(_store);
         _layoutManager = new LinearLayoutManager(ctx);
         _recyclerView = recyclerView;
         _recyclerView.setAdapter(_adapter);
         _recyclerView.setLayoutManager(_layoutManager);
+
+        // Keep following new lines only while the user is looking at the bottom of the list
+        _recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    _following = !recyclerView.canScrollVertically(1);
+                }
+            }
+        });
     }
 
     public void addLine(String line) {
-        if(_lines.size() >= _maxLines) {
-            _lines.remove(0);
-            _adapter.notifyItemRemoved(0);
+        long now = System.currentTimeMillis();
+        long second = (now / 1000);
+        if (second != _stampSecond) {
+            _stampSecond = second;
+            _stamp = _stampFormat.format(new Date(now)) + ":";
         }
 
-        _lines.add(Utils.getShortDateTime(new Date()) + ":" + line);
-        _adapter.notifyItemInserted(_lines.size() - 1);
+        _pending.add(_stamp + line);
 
-        _recyclerView.post(new Runnable() {
-            @Override
-            public void run() {
-                _recyclerView.scrollToPosition(_adapter.getItemCount() - 1);
-            }
-        });
+        if (!_frameScheduled) {
+            _frameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(_frameCallback);
+        }
     }
 
     public void clear() {
-        _lines.clear();
+        _pending.clear();
+        _store.clear();
         _adapter.notifyDataSetChanged();
+        _following = true;
+    }
+
+    public void close() {
+        if (_frameScheduled) {
+            Choreographer.getInstance().removeFrameCallback(_frameCallback);
+            _frameScheduled = false;
+        }
+
+        _pending.clear();
+        _store.close();
+    }
+
+    public void scrollToOldest() {
+        flushPending();
+        _following = false;
+        _recyclerView.scrollToPosition(0);
+    }
+
+    public void scrollToLatest() {
+        flushPending();
+        _following = true;
+        if (_adapter.getItemCount() > 0) {
+            _recyclerView.scrollToPosition(_adapter.getItemCount() - 1);
+        }
+    }
+
+    private void flushPending() {
+        if (_pending.isEmpty()) {
+            return;
+        }
+
+        long firstBefore = _store.getFirstLineNumber();
+        int sizeBefore = _store.size();
+
+        for (String line : _pending) {
+            _store.add(line);
+        }
+        _pending.clear();
+
+        int removed = (int) (_store.getFirstLineNumber() - firstBefore);
+        int kept = (sizeBefore - removed);
+
+        if (kept <= 0) {
+            _adapter.notifyDataSetChanged();
+        } else {
+            if (removed > 0) {
+                _adapter.notifyItemRangeRemoved(0, removed);
+            }
+            _adapter.notifyItemRangeInserted(kept, _store.size() - kept);
+        }
+
+        if (_following) {
+            _recyclerView.scrollToPosition(_adapter.getItemCount() - 1);
+        }
+    }
+
+    // The lines may have moved (or gone) since the store read them
+    private void refreshLines(long firstLineNumber, int count) {
+        int start = (int) Math.max(0, firstLineNumber - _store.getFirstLineNumber());
+        int end = (int) Math.min(_store.size(), firstLineNumber + count - _store.getFirstLineNumber());
+
+        if (end > start) {
+            _adapter.notifyItemRangeChanged(start, end - start);
+        }
     }
 
     public void saveToFile() {
-        if (_lines == null || _lines.isEmpty()) {
+        flushPending();
+
+        if (_store.size() == 0) {
             Toast.makeText(_ctx, "Nothing to save", Toast.LENGTH_LONG).show();
             return;
         }
@@ -65,16 +185,6 @@ public class OnscreenLogger {
         File downloadsDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
         File file = new File(downloadsDir, "engagelog.log");
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            for (String line : _lines) {
-                writer.write(line);
-                writer.newLine(); // Write each string on a new line
-            }
-            //Log.d("FileUtils", "File saved to: " + file.getAbsolutePath());
-        } catch (IOException e) {
-            //Log.e("FileUtils", "Error writing file", e);
-        }
-
-        Toast.makeText(_ctx, "Save to file", Toast.LENGTH_LONG).show();
+        _store.saveTo(file);
     }
 }
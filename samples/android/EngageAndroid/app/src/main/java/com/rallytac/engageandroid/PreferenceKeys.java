@@ -53,6 +53,9 @@ public class PreferenceKeys
     public static String USER_AUDIO_ANDROID_AUDIO_CONTENT_TYPE = "user_audio.android.contentType";//NON-NLS
     public static String USER_AUDIO_ANDROID_AUDIO_INPUT_PRESET = "user_audio.android.inputPreset";//NON-NLS
     public static String USER_AUDIO_ENGINE_MODE = "user_audio.android.engineMode";//NON-NLS
+    public static String USER_AUDIO_LOW_LATENCY_TRANSPORT = "user_audio.android.lowLatencyTransport";//NON-NLS
+    public static String USER_AUDIO_FRAME_MS = "user_audio.android.frameMs";//NON-NLS
+    public static String USER_AUDIO_USE_NATIVE_RATE = "user_audio.android.useNativeRate";//NON-NLS
 
     public static String USER_AUDIO_ENGINE_INTERNAL_AUDIO = "user_audio.engine.internal.audio";//NON-NLS
 
@@ -142,6 +145,8 @@ public class PreferenceKeys
     public static String DEVELOPER_RP_TRANSACTION_TIMEOUT_MS = "developer_rpTransactionTimeoutMs";//NON-NLS
     public static String DEVELOPER_RP_RT_TEST_INTERVAL_MS = "developer_rpRtTestIntervalMs";//NON-NLS
     public static String DEVELOPER_ALLOW_MISSION_CONTROL = "developer_allowMissionControl";//NON-NLS
+    public static String DEVELOPER_SHARE_BINARY_QR_CODES = "developer_shareBinaryQrCodes";//NON-NLS
+    public static String DEVELOPER_LOG_DEBUG_TO_FILE = "developer_logDebugToFile";//NON-NLS
 
 
     public static String USER_CERT_STORE_FILE_NAME = "user_activeCertStoreFileName";//NON-NLS
@@ -10,12 +10,14 @@ import android.location.Location;
 import com.rallytac.engage.engine.Engine;
 //import com.rallytac.engageandroid.Biometrics.DataSeries;
 //import com.rallytac.engageandroid.Biometrics.NodeUserBiometrics;
+import com.rallytac.engageandroid.Biometrics.NodeBiometricsState;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.Objects;
 
 public class PresenceDescriptor
 {
@@ -48,9 +50,45 @@ public class PresenceDescriptor
     public HashMap<String, GroupMembershipTracker> groupMembership;
 
     //public NodeUserBiometrics userBiometrics = null;
+    // Created up front - blobs are merged into it on a BlobRouter lane while the UI reads it
+    public final NodeBiometricsState biometrics;
     public Connectivity connectivity = null;
     public Power power = null;
 
+    public PresenceDescriptor()
+    {
+        this(new NodeBiometricsState());
+    }
+
+    private PresenceDescriptor(NodeBiometricsState biometrics)
+    {
+        this.biometrics = biometrics;
+    }
+
+    // A new descriptor with the same contents.  The membership map is the copy's own but the trackers
+    // in it are shared - they're never changed, only replaced.  The biometrics state belongs to the
+    // node rather than to a version of its descriptor so the copy shares that too.
+    public PresenceDescriptor copy()
+    {
+        PresenceDescriptor rc = new PresenceDescriptor(biometrics);
+
+        rc.self = self;
+        rc.nodeId = nodeId;
+        rc.type = type;
+        rc.format = format;
+        rc.userId = userId;
+        rc.displayName = displayName;
+        rc.comment = comment;
+        rc.custom = custom;
+        rc.location = location;
+        rc.lastUpdate = lastUpdate;
+        rc.groupMembership = (groupMembership != null ? new HashMap<>(groupMembership) : null);
+        rc.connectivity = connectivity;
+        rc.power = power;
+
+        return rc;
+    }
+
     public String getFriendlyName()
     {
         if(!Utils.isEmptyString(displayName))
@@ -81,7 +119,7 @@ public class PresenceDescriptor
         lastUpdate = null;
         groupMembership = null;
 
-        // NOTE !! userBiometrics is not cleared!!
+        // NOTE !! userBiometrics / biometrics are not cleared!!
     }
 
     public void clearMemberships()
@@ -220,6 +258,94 @@ public class PresenceDescriptor
         }
     }
 
+    // True if applying pd via updateFromPresenceDescriptor() would not change anything that matters -
+    // identity, location, power, connectivity or group membership
+    public boolean isMateriallyEqualTo(PresenceDescriptor pd)
+    {
+        if(pd == null || self != pd.self)
+        {
+            return false;
+        }
+
+        if(!Objects.equals(nodeId, pd.nodeId)
+            || !Objects.equals(type, pd.type)
+            || !Objects.equals(format, pd.format)
+            || !Objects.equals(userId, pd.userId)
+            || !Objects.equals(displayName, pd.displayName)
+            || !Objects.equals(comment, pd.comment)
+            || !Objects.equals(custom, pd.custom))
+        {
+            return false;
+        }
+
+        if(!locationsMatch(location, pd.location))
+        {
+            return false;
+        }
+
+        if(power == null || pd.power == null)
+        {
+            if(power != pd.power)
+            {
+                return false;
+            }
+        }
+        else if(power.source != pd.power.source || power.state != pd.power.state || power.level != pd.power.level)
+        {
+            return false;
+        }
+
+        if(connectivity == null || pd.connectivity == null)
+        {
+            if(connectivity != pd.connectivity)
+            {
+                return false;
+            }
+        }
+        else if(connectivity.type != pd.connectivity.type || connectivity.strength != pd.connectivity.strength || connectivity.rating != pd.connectivity.rating)
+        {
+            return false;
+        }
+
+        int myGroupCount = (groupMembership == null ? 0 : groupMembership.size());
+        int theirGroupCount = (pd.groupMembership == null ? 0 : pd.groupMembership.size());
+        if(myGroupCount != theirGroupCount)
+        {
+            return false;
+        }
+
+        if(myGroupCount > 0)
+        {
+            for(GroupMembershipTracker gmt : pd.groupMembership.values())
+            {
+                GroupMembershipTracker mine = groupMembership.get(gmt._groupId);
+                if(mine == null || mine._statusFlags != gmt._statusFlags)
+                {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean locationsMatch(Location a, Location b)
+    {
+        if(a == null || b == null)
+        {
+            return (a == b);
+        }
+
+        return (a.getLatitude() == b.getLatitude()
+                && a.getLongitude() == b.getLongitude()
+                && a.hasAltitude() == b.hasAltitude()
+                && a.getAltitude() == b.getAltitude()
+                && a.hasSpeed() == b.hasSpeed()
+                && a.getSpeed() == b.getSpeed()
+                && a.hasBearing() == b.hasBearing()
+                && a.getBearing() == b.getBearing());
+    }
+
     public boolean updateFromPresenceDescriptor(PresenceDescriptor pd)
     {
         if(nodeId.compareTo(pd.nodeId) != 0)
@@ -0,0 +1,1186 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import android.location.Location;
+
+import com.rallytac.engage.engine.Engine;
+
+import java.util.HashMap;
+
+// A pull parser for presence descriptor JSON that works directly on the source string.  parse()
+// only records where things are (string offsets) and decodes numbers into primitives - nothing
+// is touched on a descriptor until applyTo() which compares in place and only allocates new
+// strings/objects for the parts that actually changed.  So an unchanged rediscovery heartbeat
+// costs next to nothing.
+//
+// An instance holds state between parse() and applyTo() and is therefore not thread-safe.
+public class PresenceJsonParser
+{
+    private static String TAG = PresenceJsonParser.class.getSimpleName();
+
+    public final static int CHANGED_NONE = 0x00;
+    public final static int CHANGED_IDENTITY = 0x01;
+    public final static int CHANGED_LOCATION = 0x02;
+    public final static int CHANGED_POWER = 0x04;
+    public final static int CHANGED_CONNECTIVITY = 0x08;
+    public final static int CHANGED_MEMBERSHIP = 0x10;
+    public final static int CHANGED_MISC = 0x20;
+
+    public final static int APPLY_FAILED = -1;
+
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+            1e21, 1e22
+    };
+
+    private static class ParseException extends Exception
+    {
+        ParseException(String msg)
+        {
+            super(msg);
+        }
+    }
+
+    // Location of a string value inside the source - start < 0 means the value was not present
+    private static class Slice
+    {
+        int start;
+        int end;
+        boolean escaped;
+
+        void reset()
+        {
+            start = -1;
+            end = -1;
+            escaped = false;
+        }
+
+        boolean isPresent()
+        {
+            return (start >= 0);
+        }
+    }
+
+    private String _json;
+    private int _pos;
+    private boolean _parsed = false;
+
+    private final Slice _key = new Slice();
+
+    private boolean _self;
+    private final Slice _comment = new Slice();
+    private final Slice _custom = new Slice();
+
+    private final Slice _nodeId = new Slice();
+    private final Slice _userId = new Slice();
+    private final Slice _displayName = new Slice();
+    private final Slice _type = new Slice();
+    private final Slice _format = new Slice();
+
+    private boolean _hasLocation;
+    private boolean _hasLatitude;
+    private boolean _hasLongitude;
+    private boolean _hasAltitude;
+    private boolean _hasSpeed;
+    private boolean _hasDirection;
+    private double _latitude;
+    private double _longitude;
+    private double _altitude;
+    private double _speed;
+    private double _direction;
+
+    private boolean _hasPower;
+    private int _powerSource;
+    private int _powerState;
+    private int _powerLevel;
+
+    private boolean _hasConnectivity;
+    private int _connectivityType;
+    private int _connectivityStrength;
+    private int _connectivityRating;
+
+    private int _groupCount;
+    private Slice[] _groupIds = new Slice[8];
+    private int[] _groupStatus = new int[8];
+    private final Slice _pendingGroupId = new Slice();
+
+    public PresenceJsonParser()
+    {
+        for(int x = 0; x < _groupIds.length; x++)
+        {
+            _groupIds[x] = new Slice();
+        }
+    }
+
+    // Returns false if the JSON could not be handled (in which case the caller should fall back
+    // to PresenceDescriptor.deserialize())
+    public boolean parse(String json)
+    {
+        _parsed = false;
+        _json = json;
+        _pos = 0;
+        resetScratch();
+
+        try
+        {
+            parseRoot();
+
+            skipWhitespace();
+            if(_pos != _json.length())
+            {
+                throw new ParseException("trailing content");//NON-NLS
+            }
+
+            // NodeId is required, all else is optional
+            if(!_nodeId.isPresent() || _nodeId.end == _nodeId.start)
+            {
+                throw new ParseException("no nodeId");//NON-NLS
+            }
+
+            _parsed = true;
+        }
+        catch (ParseException e)
+        {
+            Globals.getLogger().w(TAG, "parse failed: " + e.getMessage());//NON-NLS
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+
+        return _parsed;
+    }
+
+    public String getNodeId()
+    {
+        return (_parsed ? sliceToString(_nodeId) : null);
+    }
+
+    // Brings the descriptor in line with what was parsed, returning a mask of CHANGED_xxx values
+    // (CHANGED_NONE if the descriptor was already up to date) or APPLY_FAILED.
+    public int applyTo(PresenceDescriptor pd)
+    {
+        if(!_parsed)
+        {
+            return APPLY_FAILED;
+        }
+
+        int rc = CHANGED_NONE;
+
+        if(pd.nodeId == null)
+        {
+            pd.nodeId = sliceToString(_nodeId);
+            rc |= CHANGED_IDENTITY;
+        }
+        else if(!sliceEquals(_nodeId, pd.nodeId))
+        {
+            return APPLY_FAILED;
+        }
+
+        // Identity
+        if(!sliceEquals(_userId, pd.userId))
+        {
+            pd.userId = sliceToString(_userId);
+            rc |= CHANGED_IDENTITY;
+        }
+
+        if(!sliceEquals(_displayName, pd.displayName))
+        {
+            pd.displayName = sliceToString(_displayName);
+            rc |= CHANGED_IDENTITY;
+        }
+
+        if(!sliceEquals(_type, pd.type))
+        {
+            pd.type = sliceToString(_type);
+            rc |= CHANGED_IDENTITY;
+        }
+
+        if(!sliceEquals(_format, pd.format))
+        {
+            pd.format = sliceToString(_format);
+            rc |= CHANGED_IDENTITY;
+        }
+
+        // Miscellaneous
+        if(pd.self != _self)
+        {
+            pd.self = _self;
+            rc |= CHANGED_MISC;
+        }
+
+        if(!sliceEquals(_comment, pd.comment))
+        {
+            pd.comment = sliceToString(_comment);
+            rc |= CHANGED_MISC;
+        }
+
+        if(!sliceEquals(_custom, pd.custom))
+        {
+            pd.custom = sliceToString(_custom);
+            rc |= CHANGED_MISC;
+        }
+
+        if(applyLocation(pd))
+        {
+            rc |= CHANGED_LOCATION;
+        }
+
+        if(applyPower(pd))
+        {
+            rc |= CHANGED_POWER;
+        }
+
+        if(applyConnectivity(pd))
+        {
+            rc |= CHANGED_CONNECTIVITY;
+        }
+
+        if(applyMembership(pd))
+        {
+            rc |= CHANGED_MEMBERSHIP;
+        }
+
+        return rc;
+    }
+
+    private boolean applyLocation(PresenceDescriptor pd)
+    {
+        boolean valid = (_hasLocation
+                            && _latitude >= -90.0 && _latitude <= 90.0
+                            && _longitude >= -180.0 && _longitude <= 180.0);
+
+        if(!valid)
+        {
+            if(_hasLocation)
+            {
+                Globals.getLogger().w(TAG, "received location object failed validation");//NON-NLS
+            }
+
+            if(pd.location != null)
+            {
+                pd.location = null;
+                return true;
+            }
+
+            return false;
+        }
+
+        Location current = pd.location;
+        if(current != null
+                && current.getLatitude() == _latitude
+                && current.getLongitude() == _longitude
+                && current.hasAltitude() == _hasAltitude
+                && (!_hasAltitude || current.getAltitude() == _altitude)
+                && current.hasSpeed() == _hasSpeed
+                && (!_hasSpeed || current.getSpeed() == (float) _speed)
+                && current.hasBearing() == _hasDirection
+                && (!_hasDirection || current.getBearing() == (float) _direction))
+        {
+            return false;
+        }
+
+        // A new object rather than modifying the old one - others may be holding on to it
+        Location location = new Location("");
+        location.setLatitude(_latitude);
+        location.setLongitude(_longitude);
+
+        if(_hasAltitude)
+        {
+            location.setAltitude(_altitude);
+        }
+
+        if(_hasSpeed)
+        {
+            location.setSpeed((float) _speed);
+        }
+
+        if(_hasDirection)
+        {
+            location.setBearing((float) _direction);
+        }
+
+        pd.location = location;
+
+        return true;
+    }
+
+    private boolean applyPower(PresenceDescriptor pd)
+    {
+        if(!_hasPower)
+        {
+            if(pd.power != null)
+            {
+                pd.power = null;
+                return true;
+            }
+
+            return false;
+        }
+
+        if(pd.power != null
+                && pd.power.source == _powerSource
+                && pd.power.state == _powerState
+                && pd.power.level == _powerLevel)
+        {
+            return false;
+        }
+
+        PresenceDescriptor.Power power = pd.new Power();
+        power.source = _powerSource;
+        power.state = _powerState;
+        power.level = _powerLevel;
+        pd.power = power;
+
+        return true;
+    }
+
+    private boolean applyConnectivity(PresenceDescriptor pd)
+    {
+        if(!_hasConnectivity)
+        {
+            if(pd.connectivity != null)
+            {
+                pd.connectivity = null;
+                return true;
+            }
+
+            return false;
+        }
+
+        if(pd.connectivity != null
+                && pd.connectivity.type == _connectivityType
+                && pd.connectivity.strength == _connectivityStrength
+                && pd.connectivity.rating == _connectivityRating)
+        {
+            return false;
+        }
+
+        PresenceDescriptor.Connectivity connectivity = pd.new Connectivity();
+        connectivity.type = _connectivityType;
+        connectivity.strength = _connectivityStrength;
+        connectivity.rating = _connectivityRating;
+        pd.connectivity = connectivity;
+
+        return true;
+    }
+
+    private boolean applyMembership(PresenceDescriptor pd)
+    {
+        HashMap<String, GroupMembershipTracker> current = pd.groupMembership;
+
+        if(_groupCount == 0)
+        {
+            if(current != null)
+            {
+                pd.groupMembership = null;
+                return true;
+            }
+
+            return false;
+        }
+
+        if(current != null && current.size() == _groupCount)
+        {
+            boolean same = true;
+
+            for(int x = 0; x < _groupCount && same; x++)
+            {
+                same = false;
+                for(GroupMembershipTracker gmt : current.values())
+                {
+                    if(gmt._statusFlags == _groupStatus[x] && sliceEquals(_groupIds[x], gmt._groupId))
+                    {
+                        same = true;
+                        break;
+                    }
+                }
+            }
+
+            if(same)
+            {
+                return false;
+            }
+        }
+
+        // Same as deserialize(), the descriptor gets a fresh map
+        HashMap<String, GroupMembershipTracker> membership = new HashMap<>();
+        for(int x = 0; x < _groupCount; x++)
+        {
+            String gid = sliceToString(_groupIds[x]);
+            membership.put(gid, new GroupMembershipTracker(pd.nodeId, gid, _groupStatus[x]));
+        }
+
+        pd.groupMembership = membership;
+
+        return true;
+    }
+
+    private void resetScratch()
+    {
+        _self = false;
+        _comment.reset();
+        _custom.reset();
+
+        _nodeId.reset();
+        _userId.reset();
+        _displayName.reset();
+        _type.reset();
+        _format.reset();
+
+        _hasLocation = false;
+        _hasLatitude = false;
+        _hasLongitude = false;
+        _hasAltitude = false;
+        _hasSpeed = false;
+        _hasDirection = false;
+
+        _hasPower = false;
+        _powerSource = -1;
+        _powerState = 0;
+        _powerLevel = 0;
+
+        _hasConnectivity = false;
+        _connectivityType = -1;
+        _connectivityStrength = 0;
+        _connectivityRating = 0;
+
+        _groupCount = 0;
+    }
+
+    private void parseRoot() throws ParseException
+    {
+        beginObject();
+        while(nextKey())
+        {
+            if(keyIs(Engine.JsonFields.PresenceDescriptor.self))
+            {
+                _self = readBoolean();
+            }
+            else if(keyIs(Engine.JsonFields.PresenceDescriptor.comment))
+            {
+                readOptionalString(_comment);
+            }
+            else if(keyIs(Engine.JsonFields.PresenceDescriptor.custom))
+            {
+                readOptionalString(_custom);
+            }
+            else if(keyIs(Engine.JsonFields.Identity.objectName))
+            {
+                parseIdentity();
+            }
+            else if(keyIs(Engine.JsonFields.Location.objectName))
+            {
+                parseLocation();
+            }
+            else if(keyIs(Engine.JsonFields.Power.objectName))
+            {
+                parsePower();
+            }
+            else if(keyIs(Engine.JsonFields.Connectivity.objectName))
+            {
+                parseConnectivity();
+            }
+            else if(keyIs(Engine.JsonFields.PresenceDescriptor.GroupItem.arrayName))
+            {
+                parseGroups();
+            }
+            else
+            {
+                skipValue();
+            }
+        }
+    }
+
+    private void parseIdentity() throws ParseException
+    {
+        if(readNull())
+        {
+            return;
+        }
+
+        beginObject();
+        while(nextKey())
+        {
+            if(keyIs(Engine.JsonFields.Identity.nodeId))
+            {
+                readString(_nodeId);
+            }
+            else if(keyIs(Engine.JsonFields.Identity.userId))
+            {
+                readOptionalString(_userId);
+            }
+            else if(keyIs(Engine.JsonFields.Identity.displayName))
+            {
+                readOptionalString(_displayName);
+            }
+            else if(keyIs(Engine.JsonFields.Identity.type))
+            {
+                readOptionalString(_type);
+            }
+            else if(keyIs(Engine.JsonFields.Identity.format))
+            {
+                readOptionalString(_format);
+            }
+            else
+            {
+                skipValue();
+            }
+        }
+    }
+
+    private void parseLocation() throws ParseException
+    {
+        if(readNull())
+        {
+            return;
+        }
+
+        beginObject();
+        while(nextKey())
+        {
+            if(keyIs(Engine.JsonFields.Location.latitude))
+            {
+                _latitude = readNumber();
+                _hasLatitude = true;
+            }
+            else if(keyIs(Engine.JsonFields.Location.longitude))
+            {
+                _longitude = readNumber();
+                _hasLongitude = true;
+            }
+            else if(keyIs(Engine.JsonFields.Location.altitude))
+            {
+                _altitude = readNumber();
+                _hasAltitude = true;
+            }
+            else if(keyIs(Engine.JsonFields.Location.speed))
+            {
+                _speed = readNumber();
+                _hasSpeed = true;
+            }
+            else if(keyIs(Engine.JsonFields.Location.direction))
+            {
+                _direction = readNumber();
+                _hasDirection = true;
+            }
+            else
+            {
+                skipValue();
+            }
+        }
+
+        // Latitude and longitude are required if there's a location at all
+        if(!_hasLatitude || !_hasLongitude)
+        {
+            throw new ParseException("incomplete location");//NON-NLS
+        }
+
+        _hasLocation = true;
+    }
+
+    private void parsePower() throws ParseException
+    {
+        if(readNull())
+        {
+            return;
+        }
+
+        beginObject();
+        while(nextKey())
+        {
+            if(keyIs(Engine.JsonFields.Power.source))
+            {
+                _powerSource = (int) readNumber();
+            }
+            else if(keyIs(Engine.JsonFields.Power.state))
+            {
+                _powerState = (int) readNumber();
+            }
+            else if(keyIs(Engine.JsonFields.Power.level))
+            {
+                _powerLevel = (int) readNumber();
+            }
+            else
+            {
+                skipValue();
+            }
+        }
+
+        _hasPower = true;
+    }
+
+    private void parseConnectivity() throws ParseException
+    {
+        if(readNull())
+        {
+            return;
+        }
+
+        beginObject();
+        while(nextKey())
+        {
+            if(keyIs(Engine.JsonFields.Connectivity.type))
+            {
+                _connectivityType = (int) readNumber();
+            }
+            else if(keyIs(Engine.JsonFields.Connectivity.strength))
+            {
+                _connectivityStrength = (int) readNumber();
+            }
+            else if(keyIs(Engine.JsonFields.Connectivity.rating))
+            {
+                _connectivityRating = (int) readNumber();
+            }
+            else
+            {
+                skipValue();
+            }
+        }
+
+        _hasConnectivity = true;
+    }
+
+    private void parseGroups() throws ParseException
+    {
+        if(readNull())
+        {
+            return;
+        }
+
+        expect('[');
+        skipWhitespace();
+        if(peek() == ']')
+        {
+            _pos++;
+            return;
+        }
+
+        while(true)
+        {
+            parseGroupItem();
+
+            skipWhitespace();
+            char c = next();
+            if(c == ']')
+            {
+                break;
+            }
+            else if(c != ',')
+            {
+                throw new ParseException("expected ',' or ']' at " + (_pos - 1));//NON-NLS
+            }
+        }
+    }
+
+    private void parseGroupItem() throws ParseException
+    {
+        int status = 0;
+        _pendingGroupId.reset();
+
+        beginObject();
+        while(nextKey())
+        {
+            if(keyIs(Engine.JsonFields.PresenceDescriptor.GroupItem.id))
+            {
+                readOptionalString(_pendingGroupId);
+            }
+            else if(keyIs(Engine.JsonFields.PresenceDescriptor.GroupItem.status))
+            {
+                status = (int) readNumber();
+            }
+            else
+            {
+                skipValue();
+            }
+        }
+
+        // Groups without an id are ignored
+        if(!_pendingGroupId.isPresent() || _pendingGroupId.end == _pendingGroupId.start)
+        {
+            return;
+        }
+
+        if(_groupCount == _groupIds.length)
+        {
+            Slice[] ids = new Slice[_groupIds.length * 2];
+            int[] statuses = new int[_groupStatus.length * 2];
+            System.arraycopy(_groupIds, 0, ids, 0, _groupCount);
+            System.arraycopy(_groupStatus, 0, statuses, 0, _groupCount);
+            for(int x = _groupCount; x < ids.length; x++)
+            {
+                ids[x] = new Slice();
+            }
+            _groupIds = ids;
+            _groupStatus = statuses;
+        }
+
+        Slice s = _groupIds[_groupCount];
+        s.start = _pendingGroupId.start;
+        s.end = _pendingGroupId.end;
+        s.escaped = _pendingGroupId.escaped;
+        _groupStatus[_groupCount] = status;
+        _groupCount++;
+    }
+
+    // ----------------------------------------------------------------------------------------
+    // Tokenizing
+    // ----------------------------------------------------------------------------------------
+
+    private void skipWhitespace()
+    {
+        while(_pos < _json.length())
+        {
+            char c = _json.charAt(_pos);
+            if(c == ' ' || c == '\t' || c == '\n' || c == '\r')
+            {
+                _pos++;
+            }
+            else
+            {
+                break;
+            }
+        }
+    }
+
+    private char peek() throws ParseException
+    {
+        if(_pos >= _json.length())
+        {
+            throw new ParseException("unexpected end of input");//NON-NLS
+        }
+
+        return _json.charAt(_pos);
+    }
+
+    private char next() throws ParseException
+    {
+        char c = peek();
+        _pos++;
+        return c;
+    }
+
+    private void expect(char expected) throws ParseException
+    {
+        skipWhitespace();
+        if(next() != expected)
+        {
+            throw new ParseException("expected '" + expected + "' at " + (_pos - 1));//NON-NLS
+        }
+    }
+
+    private void beginObject() throws ParseException
+    {
+        expect('{');
+    }
+
+    // Positions on the value of the next key in the current object, returning false at the end
+    // of the object
+    private boolean nextKey() throws ParseException
+    {
+        // If the last thing we consumed was the opening brace this is the first key
+        int prev = _pos - 1;
+        while(prev > 0 && Character.isWhitespace(_json.charAt(prev)))
+        {
+            prev--;
+        }
+        boolean first = (_json.charAt(prev) == '{');
+
+        skipWhitespace();
+
+        char c = peek();
+        if(!first)
+        {
+            // Not the first key - need a separator or the end
+            if(c == '}')
+            {
+                _pos++;
+                return false;
+            }
+            else if(c != ',')
+            {
+                throw new ParseException("expected ',' or '}' at " + _pos);//NON-NLS
+            }
+
+            _pos++;
+            skipWhitespace();
+        }
+        else if(c == '}')
+        {
+            _pos++;
+            return false;
+        }
+
+        readString(_key);
+        expect(':');
+        skipWhitespace();
+
+        return true;
+    }
+
+    private boolean keyIs(String name)
+    {
+        return sliceEquals(_key, name);
+    }
+
+    private boolean readNull() throws ParseException
+    {
+        skipWhitespace();
+        if(_json.startsWith("null", _pos))//NON-NLS
+        {
+            _pos += 4;
+            return true;
+        }
+
+        return false;
+    }
+
+    private boolean readBoolean() throws ParseException
+    {
+        skipWhitespace();
+        if(_json.startsWith("true", _pos))//NON-NLS
+        {
+            _pos += 4;
+            return true;
+        }
+        else if(_json.startsWith("false", _pos))//NON-NLS
+        {
+            _pos += 5;
+            return false;
+        }
+
+        throw new ParseException("expected boolean at " + _pos);//NON-NLS
+    }
+
+    // A JSON null leaves the slice as "not present".  Like JSONObject.optString() an integer is
+    // taken as its text - anything else that isn't a string we leave to the full parser.
+    private void readOptionalString(Slice s) throws ParseException
+    {
+        if(readNull())
+        {
+            s.reset();
+        }
+        else if(peek() == '"')
+        {
+            readString(s);
+        }
+        else
+        {
+            int start = _pos;
+            if(peek() == '-')
+            {
+                _pos++;
+            }
+
+            while(_pos < _json.length() && _json.charAt(_pos) >= '0' && _json.charAt(_pos) <= '9')
+            {
+                _pos++;
+            }
+
+            char c = (_pos < _json.length() ? _json.charAt(_pos) : 0);
+            if(_pos == start || c == '.' || c == 'e' || c == 'E' || _json.charAt(_pos - 1) == '-')
+            {
+                throw new ParseException("expected string at " + start);//NON-NLS
+            }
+
+            s.start = start;
+            s.end = _pos;
+            s.escaped = false;
+        }
+    }
+
+    private void readString(Slice s) throws ParseException
+    {
+        expect('"');
+
+        s.start = _pos;
+        s.escaped = false;
+
+        while(true)
+        {
+            char c = next();
+            if(c == '"')
+            {
+                s.end = _pos - 1;
+                return;
+            }
+            else if(c == '\\')
+            {
+                s.escaped = true;
+                char e = next();
+                if(e == 'u')
+                {
+                    if(_pos + 4 > _json.length())
+                    {
+                        throw new ParseException("bad unicode escape at " + _pos);//NON-NLS
+                    }
+                    _pos += 4;
+                }
+            }
+        }
+    }
+
+    private double readNumber() throws ParseException
+    {
+        skipWhitespace();
+
+        int start = _pos;
+        int len = _json.length();
+        boolean negative = false;
+        boolean simple = true;
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        char c;
+
+        if(_pos < len && _json.charAt(_pos) == '-')
+        {
+            negative = true;
+            _pos++;
+        }
+
+        int firstDigit = _pos;
+        while(_pos < len && (c = _json.charAt(_pos)) >= '0' && c <= '9')
+        {
+            if(digits < 18)
+            {
+                mantissa = (mantissa * 10) + (c - '0');
+                digits++;
+            }
+            else
+            {
+                simple = false;
+            }
+            _pos++;
+        }
+
+        if(_pos == firstDigit)
+        {
+            throw new ParseException("expected number at " + start);//NON-NLS
+        }
+
+        if(_pos < len && _json.charAt(_pos) == '.')
+        {
+            _pos++;
+            while(_pos < len && (c = _json.charAt(_pos)) >= '0' && c <= '9')
+            {
+                if(digits < 18)
+                {
+                    mantissa = (mantissa * 10) + (c - '0');
+                    digits++;
+                    scale++;
+                }
+                else
+                {
+                    simple = false;
+                }
+                _pos++;
+            }
+        }
+
+        if(_pos < len && ((c = _json.charAt(_pos)) == 'e' || c == 'E'))
+        {
+            simple = false;
+            _pos++;
+            if(_pos < len && ((c = _json.charAt(_pos)) == '+' || c == '-'))
+            {
+                _pos++;
+            }
+            while(_pos < len && (c = _json.charAt(_pos)) >= '0' && c <= '9')
+            {
+                _pos++;
+            }
+        }
+
+        // Both the mantissa and the power of ten are exact doubles so the division is correctly
+        // rounded - anything else goes the long way round
+        if(simple && mantissa < (1L << 53) && scale < POW10.length)
+        {
+            double d = ((double) mantissa / POW10[scale]);
+            return (negative ? -d : d);
+        }
+
+        try
+        {
+            return Double.parseDouble(_json.substring(start, _pos));
+        }
+        catch (NumberFormatException e)
+        {
+            throw new ParseException("bad number at " + start);//NON-NLS
+        }
+    }
+
+    private void skipValue() throws ParseException
+    {
+        skipWhitespace();
+
+        char c = peek();
+        if(c == '"')
+        {
+            skipString();
+        }
+        else if(c == '{')
+        {
+            int depthStart = _pos;
+            _pos++;
+            skipWhitespace();
+            if(peek() == '}')
+            {
+                _pos++;
+                return;
+            }
+
+            while(true)
+            {
+                skipWhitespace();
+                skipString();
+                expect(':');
+                skipValue();
+                skipWhitespace();
+
+                c = next();
+                if(c == '}')
+                {
+                    break;
+                }
+                else if(c != ',')
+                {
+                    throw new ParseException("bad object starting at " + depthStart);//NON-NLS
+                }
+            }
+        }
+        else if(c == '[')
+        {
+            int depthStart = _pos;
+            _pos++;
+            skipWhitespace();
+            if(peek() == ']')
+            {
+                _pos++;
+                return;
+            }
+
+            while(true)
+            {
+                skipValue();
+                skipWhitespace();
+
+                c = next();
+                if(c == ']')
+                {
+                    break;
+                }
+                else if(c != ',')
+                {
+                    throw new ParseException("bad array starting at " + depthStart);//NON-NLS
+                }
+            }
+        }
+        else if(c == 't' || c == 'f')
+        {
+            readBoolean();
+        }
+        else if(c == 'n')
+        {
+            if(!readNull())
+            {
+                throw new ParseException("bad literal at " + _pos);//NON-NLS
+            }
+        }
+        else
+        {
+            readNumber();
+        }
+    }
+
+    private void skipString() throws ParseException
+    {
+        expect('"');
+        while(true)
+        {
+            char c = next();
+            if(c == '"')
+            {
+                return;
+            }
+            else if(c == '\\')
+            {
+                next();
+            }
+        }
+    }
+
+    // ----------------------------------------------------------------------------------------
+    // Slice helpers
+    // ----------------------------------------------------------------------------------------
+
+    // A missing string is treated as empty, same as JSONObject.optString()
+    private boolean sliceEquals(Slice s, String value)
+    {
+        if(value == null)
+        {
+            return false;
+        }
+
+        if(!s.isPresent())
+        {
+            return value.isEmpty();
+        }
+
+        if(s.escaped)
+        {
+            return value.equals(decode(s));
+        }
+
+        int len = (s.end - s.start);
+        return (value.length() == len && _json.regionMatches(s.start, value, 0, len));
+    }
+
+    private String sliceToString(Slice s)
+    {
+        if(!s.isPresent())
+        {
+            return "";
+        }
+
+        return (s.escaped ? decode(s) : _json.substring(s.start, s.end));
+    }
+
+    private String decode(Slice s)
+    {
+        StringBuilder sb = new StringBuilder(s.end - s.start);
+
+        int x = s.start;
+        while(x < s.end)
+        {
+            char c = _json.charAt(x++);
+            if(c != '\\')
+            {
+                sb.append(c);
+                continue;
+            }
+
+            char e = _json.charAt(x++);
+            switch(e)
+            {
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    sb.append((char) Integer.parseInt(_json.substring(x, x + 4), 16));
+                    x += 4;
+                    break;
+                default: sb.append(e); break;
+            }
+        }
+
+        return sb.toString();
+    }
+}
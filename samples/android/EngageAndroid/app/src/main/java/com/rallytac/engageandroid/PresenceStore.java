@@ -0,0 +1,278 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Holds the presence descriptors we know about along with two secondary indexes - group to member
+// nodes and node to groups (with the node's status flags in that group).  Writers are serialized
+// and replace the (small) per-group and per-node index entries copy-on-write so readers never take
+// a lock and always see a consistent set for a given group or node.
+//
+// Descriptors are copy-on-write too - a stored descriptor is never changed, a changed node gets a
+// new one - so a reader holding a descriptor never sees it half-updated.
+public class PresenceStore
+{
+    private static String TAG = PresenceStore.class.getSimpleName();
+
+    // What changed in group membership as the result of a put() or remove()
+    public static class Diff
+    {
+        public PresenceDescriptor pd;
+        public boolean newNode = false;
+        public boolean changed = true;
+        public final ArrayList<String> joinedGroups = new ArrayList<>();
+        public final ArrayList<String> updatedGroups = new ArrayList<>();
+        public final ArrayList<String> leftGroups = new ArrayList<>();
+
+        public boolean hasMembershipChanges()
+        {
+            return (!joinedGroups.isEmpty() || !updatedGroups.isEmpty() || !leftGroups.isEmpty());
+        }
+    }
+
+    private static final Set<String> EMPTY_SET = Collections.emptySet();
+    private static final Map<String, Integer> EMPTY_MAP = Collections.emptyMap();
+
+    private final Object _writeLock = new Object();
+    private final ConcurrentHashMap<String, PresenceDescriptor> _nodes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> _groupMembers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Map<String, Integer>> _nodeGroups = new ConcurrentHashMap<>();
+
+    // Merges a freshly-deserialized descriptor into the store.  If we already know the node and
+    // something changed, a copy of the existing descriptor is updated and replaces it; the
+    // descriptor now in the store is returned in the diff.
+    public Diff put(PresenceDescriptor discoveredPd)
+    {
+        Diff rc = new Diff();
+
+        synchronized (_writeLock)
+        {
+            PresenceDescriptor pd = _nodes.get(discoveredPd.nodeId);
+
+            if(pd != null)
+            {
+                rc.changed = !pd.isMateriallyEqualTo(discoveredPd);
+                if(rc.changed)
+                {
+                    PresenceDescriptor updated = pd.copy();
+                    updated.updateFromPresenceDescriptor(discoveredPd);
+                    _nodes.put(updated.nodeId, updated);
+                    pd = updated;
+                }
+            }
+            else
+            {
+                pd = discoveredPd;
+                _nodes.put(pd.nodeId, pd);
+                rc.newNode = true;
+            }
+
+            rc.pd = pd;
+            updateIndexes(pd, rc);
+        }
+
+        return rc;
+    }
+
+    // Stores a new version of a node's descriptor - normally a copy() of the stored one with
+    // changes applied - in place of the old one
+    public Diff replace(PresenceDescriptor updated)
+    {
+        Diff rc = new Diff();
+
+        synchronized (_writeLock)
+        {
+            rc.newNode = (_nodes.put(updated.nodeId, updated) == null);
+            rc.pd = updated;
+            updateIndexes(updated, rc);
+        }
+
+        return rc;
+    }
+
+    private void updateIndexes(PresenceDescriptor pd, Diff rc)
+    {
+        Map<String, Integer> oldGroups = _nodeGroups.get(pd.nodeId);
+        if(oldGroups == null)
+        {
+            oldGroups = EMPTY_MAP;
+        }
+
+        Map<String, Integer> newGroups;
+        if(pd.groupMembership != null && !pd.groupMembership.isEmpty())
+        {
+            HashMap<String, Integer> tmp = new HashMap<>();
+            for(GroupMembershipTracker gmt : pd.groupMembership.values())
+            {
+                tmp.put(gmt._groupId, gmt._statusFlags);
+            }
+            newGroups = Collections.unmodifiableMap(tmp);
+        }
+        else
+        {
+            newGroups = EMPTY_MAP;
+        }
+
+        for(Map.Entry<String, Integer> e : newGroups.entrySet())
+        {
+            Integer oldFlags = oldGroups.get(e.getKey());
+            if(oldFlags == null)
+            {
+                addToGroupIndex(e.getKey(), pd.nodeId);
+                rc.joinedGroups.add(e.getKey());
+            }
+            else if(oldFlags.intValue() != e.getValue().intValue())
+            {
+                rc.updatedGroups.add(e.getKey());
+            }
+        }
+
+        for(String groupId : oldGroups.keySet())
+        {
+            if(!newGroups.containsKey(groupId))
+            {
+                removeFromGroupIndex(groupId, pd.nodeId);
+                rc.leftGroups.add(groupId);
+            }
+        }
+
+        if(newGroups.isEmpty())
+        {
+            _nodeGroups.remove(pd.nodeId);
+        }
+        else
+        {
+            _nodeGroups.put(pd.nodeId, newGroups);
+        }
+    }
+
+    public Diff remove(String nodeId)
+    {
+        Diff rc = new Diff();
+
+        synchronized (_writeLock)
+        {
+            rc.pd = _nodes.remove(nodeId);
+
+            Map<String, Integer> oldGroups = _nodeGroups.remove(nodeId);
+            if(oldGroups != null)
+            {
+                for(String groupId : oldGroups.keySet())
+                {
+                    removeFromGroupIndex(groupId, nodeId);
+                    rc.leftGroups.add(groupId);
+                }
+            }
+        }
+
+        return rc;
+    }
+
+    public void clear()
+    {
+        synchronized (_writeLock)
+        {
+            _nodes.clear();
+            _groupMembers.clear();
+            _nodeGroups.clear();
+        }
+    }
+
+    public PresenceDescriptor get(String nodeId)
+    {
+        return _nodes.get(nodeId);
+    }
+
+    public int size()
+    {
+        return _nodes.size();
+    }
+
+    public Collection<PresenceDescriptor> getNodes()
+    {
+        return Collections.unmodifiableCollection(_nodes.values());
+    }
+
+    // The returned set is immutable and will not change underneath the caller
+    public Set<String> getGroupMembers(String groupId)
+    {
+        Set<String> rc = _groupMembers.get(groupId);
+        return (rc != null ? rc : EMPTY_SET);
+    }
+
+    public Set<String> getGroupsForNode(String nodeId)
+    {
+        Map<String, Integer> rc = _nodeGroups.get(nodeId);
+        return (rc != null ? rc.keySet() : EMPTY_SET);
+    }
+
+    // Returns -1 if the node is not a member of the group
+    public int getStatusFlags(String nodeId, String groupId)
+    {
+        Map<String, Integer> groups = _nodeGroups.get(nodeId);
+        if(groups != null)
+        {
+            Integer flags = groups.get(groupId);
+            if(flags != null)
+            {
+                return flags;
+            }
+        }
+
+        return -1;
+    }
+
+    public ArrayList<PresenceDescriptor> getNodesForGroup(String groupId)
+    {
+        Set<String> members = getGroupMembers(groupId);
+        ArrayList<PresenceDescriptor> rc = new ArrayList<>(members.size());
+
+        for(String nodeId : members)
+        {
+            PresenceDescriptor pd = _nodes.get(nodeId);
+            if(pd != null)
+            {
+                rc.add(pd);
+            }
+        }
+
+        return rc;
+    }
+
+    private void addToGroupIndex(String groupId, String nodeId)
+    {
+        Set<String> current = _groupMembers.get(groupId);
+        HashSet<String> tmp = (current != null ? new HashSet<>(current) : new HashSet<String>());
+        tmp.add(nodeId);
+        _groupMembers.put(groupId, Collections.unmodifiableSet(tmp));
+    }
+
+    private void removeFromGroupIndex(String groupId, String nodeId)
+    {
+        Set<String> current = _groupMembers.get(groupId);
+        if(current != null && current.contains(nodeId))
+        {
+            if(current.size() == 1)
+            {
+                _groupMembers.remove(groupId);
+            }
+            else
+            {
+                HashSet<String> tmp = new HashSet<>(current);
+                tmp.remove(nodeId);
+                _groupMembers.put(groupId, Collections.unmodifiableSet(tmp));
+            }
+        }
+    }
+}
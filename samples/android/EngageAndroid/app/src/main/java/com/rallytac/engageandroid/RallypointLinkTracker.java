@@ -0,0 +1,640 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+// Round-trip times and connection history for each rallypoint we talk to.
+//
+// RTTs go into log-bucketed histograms in the manner of HdrHistogram - values below SUB_BUCKETS
+// are exact and every power of two above that is split into SUB_BUCKETS linear buckets, so any
+// value comes back within 1/SUB_BUCKETS (about 6%) of what was recorded while the whole
+// 0..MAX_TRACKABLE_MS range takes only BUCKET_COUNT counters.  Each rallypoint has a lifetime
+// histogram plus a ring of per-slice histograms for asking about the last few minutes.  Alongside
+// those we keep a smoothed RTT and RTT variance the way TCP does (RFC 6298 - gains of 1/8 and 1/4)
+// and the same smoothing of the engine's quality rating.
+//
+// Connecting, connected, disconnected and pausing events go into a fixed-size timeline per
+// rallypoint, and we keep counts of each along with the total time spent connected.
+//
+// exportSnapshot() writes all of it (less the slices) as
+//
+//   4      1      v       v        n
+// |----|  |--|  |...|  |.....|  |.....|
+//  RPLT    ver   now    count    links
+//
+// where v is a varint and each link is its id, state, histogram totals, smoothed values (as
+// 32-bit floats), event counts, the non-empty buckets as (index delta, count) pairs and the
+// timeline as (type, age) pairs.  importSnapshot() reads it back.
+public class RallypointLinkTracker
+{
+    private static String TAG = RallypointLinkTracker.class.getSimpleName();
+
+    public final static int EVENT_CONNECTING = 1;
+    public final static int EVENT_CONNECTED = 2;
+    public final static int EVENT_DISCONNECTED = 3;
+    public final static int EVENT_PAUSING = 4;
+
+    public final static int STATE_UNKNOWN = 0;
+    public final static int STATE_CONNECTING = 1;
+    public final static int STATE_CONNECTED = 2;
+    public final static int STATE_DISCONNECTED = 3;
+    public final static int STATE_PAUSED = 4;
+
+    public final static int SUB_BUCKET_BITS = 4;
+    public final static int SUB_BUCKETS = (1 << SUB_BUCKET_BITS);
+    public final static long MAX_TRACKABLE_MS = 65535;
+    public final static int BUCKET_COUNT = (SUB_BUCKETS * ((63 - Long.numberOfLeadingZeros(MAX_TRACKABLE_MS)) - SUB_BUCKET_BITS + 2));
+
+    private final static byte[] SNAPSHOT_MAGIC = {'R', 'P', 'L', 'T'};
+    private final static int SNAPSHOT_VERSION = 1;
+
+    private final static double SRTT_GAIN = (1.0 / 8.0);
+    private final static double RTTVAR_GAIN = (1.0 / 4.0);
+
+    private final static Charset UTF8 = Charset.forName("UTF-8");//NON-NLS
+
+    public static class Thresholds
+    {
+        public long sliceMs = Constants.RP_LINK_SLICE_MS;
+        public int slices = Constants.RP_LINK_SLICES;
+        public int timelineEvents = Constants.RP_LINK_TIMELINE_EVENTS;
+    }
+
+    // Everything we know about one rallypoint at a point in time - a copy, safe to keep
+    public static class LinkSnapshot
+    {
+        public String id;
+        public int state;
+        public long count;
+        public long sum;
+        public long min;
+        public long max;
+        public double srttMs = Double.NaN;
+        public double rttVarMs = Double.NaN;
+        public double quality = Double.NaN;
+        public int connects;
+        public int disconnects;
+        public int pauses;
+        public int attempts;
+        public long connectedMs;
+        public long[] counts = new long[BUCKET_COUNT];
+        public long[] eventTs = new long[0];
+        public int[] eventTypes = new int[0];
+
+        public double getMean()
+        {
+            return (count == 0 ? Double.NaN : ((double) sum / count));
+        }
+
+        public long getPercentile(double pct)
+        {
+            return valueAtPercentile(counts, count, min, max, pct);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s: n=%d min=%d p50=%d p95=%d p99=%d max=%d srtt=%.1f rttvar=%.1f q=%.1f, connects=%d disconnects=%d pauses=%d, connected %d s",//NON-NLS
+                                    id, count, min,
+                                    getPercentile(50.0), getPercentile(95.0), getPercentile(99.0),
+                                    max, srttMs, rttVarMs, quality,
+                                    connects, disconnects, pauses,
+                                    connectedMs / 1000);
+        }
+    }
+
+    private static class Link
+    {
+        final String id;
+
+        final long[] counts = new long[BUCKET_COUNT];
+        long count;
+        long sum;
+        long min = Long.MAX_VALUE;
+        long max;
+
+        final long[][] sliceCounts;
+        final long[] sliceStart;
+
+        double srtt = Double.NaN;
+        double rttVar = Double.NaN;
+        double quality = Double.NaN;
+
+        final long[] eventTs;
+        final byte[] eventTypes;
+        int eventHead;
+        int eventCount;
+
+        int state = STATE_UNKNOWN;
+        long stateSinceMs;
+        long connectedMs;
+        int connects;
+        int disconnects;
+        int pauses;
+        int attempts;
+
+        Link(String id, Thresholds t)
+        {
+            this.id = id;
+            sliceCounts = new long[Math.max(1, t.slices)][BUCKET_COUNT];
+            sliceStart = new long[sliceCounts.length];
+            Arrays.fill(sliceStart, -1);
+            eventTs = new long[Math.max(1, t.timelineEvents)];
+            eventTypes = new byte[eventTs.length];
+        }
+    }
+
+    private final Thresholds _thresholds;
+    private final HashMap<String, Link> _links = new HashMap<>();
+
+    public RallypointLinkTracker(Thresholds thresholds)
+    {
+        _thresholds = thresholds;
+    }
+
+    // Overridable for testing
+    protected long now()
+    {
+        return System.currentTimeMillis();
+    }
+
+    public static int bucketFor(long value)
+    {
+        if(value < 0)
+        {
+            value = 0;
+        }
+        else if(value > MAX_TRACKABLE_MS)
+        {
+            value = MAX_TRACKABLE_MS;
+        }
+
+        if(value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+
+        int shift = ((63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS);
+        return ((SUB_BUCKETS * (shift + 1)) + (int) ((value >> shift) - SUB_BUCKETS));
+    }
+
+    public static long lowestValueIn(int bucket)
+    {
+        if(bucket < SUB_BUCKETS)
+        {
+            return bucket;
+        }
+
+        int shift = ((bucket / SUB_BUCKETS) - 1);
+        return ((long) (SUB_BUCKETS + (bucket % SUB_BUCKETS)) << shift);
+    }
+
+    public static long highestValueIn(int bucket)
+    {
+        if(bucket < SUB_BUCKETS)
+        {
+            return bucket;
+        }
+
+        int shift = ((bucket / SUB_BUCKETS) - 1);
+        return (lowestValueIn(bucket) + (1L << shift) - 1);
+    }
+
+    // The highest value equivalent to the one at the percentile, kept within what was actually seen
+    static long valueAtPercentile(long[] counts, long total, long min, long max, double pct)
+    {
+        if(total <= 0)
+        {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil((pct / 100.0) * total);
+        rank = Math.max(1, Math.min(total, rank));
+
+        long seen = 0;
+        for(int x = 0; x < counts.length; x++)
+        {
+            seen += counts[x];
+            if(seen >= rank)
+            {
+                return Math.max(min, Math.min(max, highestValueIn(x)));
+            }
+        }
+
+        return max;
+    }
+
+    public void onRoundtrip(String id, long rtMs, long qualityRating)
+    {
+        long ts = now();
+
+        synchronized (this)
+        {
+            Link l = getOrCreate(id);
+            int bucket = bucketFor(rtMs);
+            long v = Math.max(0, Math.min(MAX_TRACKABLE_MS, rtMs));
+
+            l.counts[bucket]++;
+            l.count++;
+            l.sum += v;
+            l.min = Math.min(l.min, v);
+            l.max = Math.max(l.max, v);
+
+            sliceFor(l, ts)[bucket]++;
+
+            if(Double.isNaN(l.srtt))
+            {
+                l.srtt = v;
+                l.rttVar = (v / 2.0);
+                l.quality = qualityRating;
+            }
+            else
+            {
+                l.rttVar += (RTTVAR_GAIN * (Math.abs(v - l.srtt) - l.rttVar));
+                l.srtt += (SRTT_GAIN * (v - l.srtt));
+                l.quality += (SRTT_GAIN * (qualityRating - l.quality));
+            }
+        }
+    }
+
+    public synchronized void onConnecting(String id)
+    {
+        Link l = getOrCreate(id);
+        l.attempts++;
+        transition(l, EVENT_CONNECTING, STATE_CONNECTING);
+    }
+
+    public synchronized void onConnected(String id)
+    {
+        Link l = getOrCreate(id);
+        l.connects++;
+        transition(l, EVENT_CONNECTED, STATE_CONNECTED);
+    }
+
+    public synchronized void onDisconnected(String id)
+    {
+        Link l = getOrCreate(id);
+        l.disconnects++;
+        transition(l, EVENT_DISCONNECTED, STATE_DISCONNECTED);
+    }
+
+    public synchronized void onPausing(String id)
+    {
+        Link l = getOrCreate(id);
+        l.pauses++;
+        transition(l, EVENT_PAUSING, STATE_PAUSED);
+    }
+
+    public synchronized List<String> getRallypointIds()
+    {
+        return new ArrayList<>(_links.keySet());
+    }
+
+    public synchronized void clear()
+    {
+        _links.clear();
+    }
+
+    // Lifetime view of the rallypoint, or null if we've never heard of it
+    public synchronized LinkSnapshot getSnapshot(String id)
+    {
+        Link l = _links.get(id);
+        return (l == null ? null : snapshotOf(l, now()));
+    }
+
+    // RTT at the percentile over (roughly - it's done by slice) the last windowMs, or -1 if there
+    // were no reports in that time
+    public long getPercentile(String id, double pct, long windowMs)
+    {
+        long ts = now();
+        long[] merged = new long[BUCKET_COUNT];
+        long total = 0;
+
+        synchronized (this)
+        {
+            Link l = _links.get(id);
+            if(l == null)
+            {
+                return -1;
+            }
+
+            for(int s = 0; s < l.sliceCounts.length; s++)
+            {
+                long start = l.sliceStart[s];
+                if(start < 0 || (start + _thresholds.sliceMs) <= (ts - windowMs) || start > ts)
+                {
+                    continue;
+                }
+
+                long[] c = l.sliceCounts[s];
+                for(int x = 0; x < BUCKET_COUNT; x++)
+                {
+                    merged[x] += c[x];
+                    total += c[x];
+                }
+            }
+        }
+
+        if(total == 0)
+        {
+            return -1;
+        }
+
+        return valueAtPercentile(merged, total, 0, MAX_TRACKABLE_MS, pct);
+    }
+
+    public byte[] exportSnapshot()
+    {
+        ArrayList<LinkSnapshot> snaps = new ArrayList<>();
+        long ts = now();
+
+        synchronized (this)
+        {
+            for(Link l : _links.values())
+            {
+                snaps.add(snapshotOf(l, ts));
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + (snaps.size() * 128));
+        out.write(SNAPSHOT_MAGIC, 0, SNAPSHOT_MAGIC.length);
+        out.write(SNAPSHOT_VERSION);
+        putVarint(out, ts);
+        putVarint(out, snaps.size());
+
+        for(LinkSnapshot s : snaps)
+        {
+            byte[] id = s.id.getBytes(UTF8);
+            putVarint(out, id.length);
+            out.write(id, 0, id.length);
+            out.write(s.state);
+
+            putVarint(out, s.count);
+            putVarint(out, s.sum);
+            putVarint(out, s.min);
+            putVarint(out, s.max);
+            putFloat(out, s.srttMs);
+            putFloat(out, s.rttVarMs);
+            putFloat(out, s.quality);
+
+            putVarint(out, s.connects);
+            putVarint(out, s.disconnects);
+            putVarint(out, s.pauses);
+            putVarint(out, s.attempts);
+            putVarint(out, s.connectedMs);
+
+            int used = 0;
+            for(long c : s.counts)
+            {
+                if(c != 0)
+                {
+                    used++;
+                }
+            }
+
+            putVarint(out, used);
+            int prev = -1;
+            for(int x = 0; x < s.counts.length; x++)
+            {
+                if(s.counts[x] != 0)
+                {
+                    putVarint(out, x - prev);
+                    putVarint(out, s.counts[x]);
+                    prev = x;
+                }
+            }
+
+            putVarint(out, s.eventTs.length);
+            for(int x = 0; x < s.eventTs.length; x++)
+            {
+                out.write(s.eventTypes[x]);
+                putVarint(out, Math.max(0, ts - s.eventTs[x]));
+            }
+        }
+
+        return out.toByteArray();
+    }
+
+    public static List<LinkSnapshot> importSnapshot(byte[] snapshot) throws Exception
+    {
+        try
+        {
+            ByteBuffer bb = ByteBuffer.wrap(snapshot);
+
+            for(byte b : SNAPSHOT_MAGIC)
+            {
+                if(bb.get() != b)
+                {
+                    throw new Exception("not a rallypoint link snapshot");//NON-NLS
+                }
+            }
+
+            int version = (bb.get() & 0xff);
+            if(version != SNAPSHOT_VERSION)
+            {
+                throw new Exception("unsupported snapshot version " + version);//NON-NLS
+            }
+
+            long ts = getVarint(bb);
+            int links = getCount(bb);
+            ArrayList<LinkSnapshot> rc = new ArrayList<>(links);
+
+            for(int n = 0; n < links; n++)
+            {
+                LinkSnapshot s = new LinkSnapshot();
+
+                byte[] id = new byte[getCount(bb)];
+                bb.get(id);
+                s.id = new String(id, UTF8);
+                s.state = (bb.get() & 0xff);
+
+                s.count = getVarint(bb);
+                s.sum = getVarint(bb);
+                s.min = getVarint(bb);
+                s.max = getVarint(bb);
+                s.srttMs = bb.getFloat();
+                s.rttVarMs = bb.getFloat();
+                s.quality = bb.getFloat();
+
+                s.connects = (int) getVarint(bb);
+                s.disconnects = (int) getVarint(bb);
+                s.pauses = (int) getVarint(bb);
+                s.attempts = (int) getVarint(bb);
+                s.connectedMs = getVarint(bb);
+
+                int used = getCount(bb);
+                int bucket = -1;
+                for(int x = 0; x < used; x++)
+                {
+                    bucket += (int) getVarint(bb);
+                    if(bucket < 0 || bucket >= BUCKET_COUNT)
+                    {
+                        throw new Exception("bad bucket " + bucket);//NON-NLS
+                    }
+                    s.counts[bucket] = getVarint(bb);
+                }
+
+                int events = getCount(bb);
+                s.eventTs = new long[events];
+                s.eventTypes = new int[events];
+                for(int x = 0; x < events; x++)
+                {
+                    s.eventTypes[x] = (bb.get() & 0xff);
+                    s.eventTs[x] = (ts - getVarint(bb));
+                }
+
+                rc.add(s);
+            }
+
+            return rc;
+        }
+        catch (BufferUnderflowException e)
+        {
+            throw new Exception("truncated snapshot");//NON-NLS
+        }
+    }
+
+    private Link getOrCreate(String id)
+    {
+        Link l = _links.get(id);
+        if(l == null)
+        {
+            l = new Link(id, _thresholds);
+            _links.put(id, l);
+        }
+
+        return l;
+    }
+
+    private long[] sliceFor(Link l, long ts)
+    {
+        long start = (ts - (ts % _thresholds.sliceMs));
+        int slot = (int) ((ts / _thresholds.sliceMs) % l.sliceCounts.length);
+
+        if(l.sliceStart[slot] != start)
+        {
+            Arrays.fill(l.sliceCounts[slot], 0);
+            l.sliceStart[slot] = start;
+        }
+
+        return l.sliceCounts[slot];
+    }
+
+    private void transition(Link l, int event, int state)
+    {
+        long ts = now();
+
+        if(l.state == STATE_CONNECTED)
+        {
+            l.connectedMs += Math.max(0, ts - l.stateSinceMs);
+        }
+
+        l.state = state;
+        l.stateSinceMs = ts;
+
+        l.eventTs[l.eventHead] = ts;
+        l.eventTypes[l.eventHead] = (byte) event;
+        l.eventHead = ((l.eventHead + 1) % l.eventTs.length);
+        if(l.eventCount < l.eventTs.length)
+        {
+            l.eventCount++;
+        }
+    }
+
+    private static LinkSnapshot snapshotOf(Link l, long ts)
+    {
+        LinkSnapshot rc = new LinkSnapshot();
+
+        rc.id = l.id;
+        rc.state = l.state;
+        rc.count = l.count;
+        rc.sum = l.sum;
+        rc.min = (l.count == 0 ? 0 : l.min);
+        rc.max = l.max;
+        rc.srttMs = l.srtt;
+        rc.rttVarMs = l.rttVar;
+        rc.quality = l.quality;
+        rc.connects = l.connects;
+        rc.disconnects = l.disconnects;
+        rc.pauses = l.pauses;
+        rc.attempts = l.attempts;
+        rc.connectedMs = l.connectedMs;
+        if(l.state == STATE_CONNECTED)
+        {
+            rc.connectedMs += Math.max(0, ts - l.stateSinceMs);
+        }
+
+        System.arraycopy(l.counts, 0, rc.counts, 0, BUCKET_COUNT);
+
+        rc.eventTs = new long[l.eventCount];
+        rc.eventTypes = new int[l.eventCount];
+        for(int x = 0; x < l.eventCount; x++)
+        {
+            int slot = ((l.eventHead - l.eventCount + x + l.eventTs.length) % l.eventTs.length);
+            rc.eventTs[x] = l.eventTs[slot];
+            rc.eventTypes[x] = l.eventTypes[slot];
+        }
+
+        return rc;
+    }
+
+    private static void putVarint(ByteArrayOutputStream out, long value)
+    {
+        while((value & ~0x7fL) != 0)
+        {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+
+        out.write((int) value);
+    }
+
+    private static void putFloat(ByteArrayOutputStream out, double value)
+    {
+        int bits = Float.floatToIntBits((float) value);
+
+        out.write(bits >>> 24);
+        out.write(bits >>> 16);
+        out.write(bits >>> 8);
+        out.write(bits);
+    }
+
+    private static long getVarint(ByteBuffer bb) throws Exception
+    {
+        long rc = 0;
+
+        for(int shift = 0; shift < 64; shift += 7)
+        {
+            int b = bb.get();
+            rc |= ((long) (b & 0x7f) << shift);
+            if((b & 0x80) == 0)
+            {
+                return rc;
+            }
+        }
+
+        throw new Exception("bad varint");//NON-NLS
+    }
+
+    private static int getCount(ByteBuffer bb) throws Exception
+    {
+        long n = getVarint(bb);
+        if(n < 0 || n > bb.remaining())
+        {
+            throw new Exception("bad count " + n);//NON-NLS
+        }
+
+        return (int) n;
+    }
+}
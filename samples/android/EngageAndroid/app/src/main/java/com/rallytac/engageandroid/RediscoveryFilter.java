@@ -0,0 +1,110 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import java.util.HashMap;
+
+// The Engine periodically "rediscovers" every node and asset whether or not anything about them
+// has changed.  This keeps track of which of those are no-ops (so they can be dropped before they
+// fan out to the rest of the app) and counts how many we've suppressed.
+public class RediscoveryFilter
+{
+    private static String TAG = RediscoveryFilter.class.getSimpleName();
+
+    public static class Stats
+    {
+        public long nodeRediscoveries;
+        public long nodeRediscoveriesSuppressed;
+        public long assetRediscoveries;
+        public long assetRediscoveriesSuppressed;
+    }
+
+    private final HashMap<String, String> _lastAssetJson = new HashMap<>();
+    private final Stats _stats = new Stats();
+
+    public void recordNodeRediscovery(boolean suppressed)
+    {
+        synchronized (_stats)
+        {
+            _stats.nodeRediscoveries++;
+            if(suppressed)
+            {
+                _stats.nodeRediscoveriesSuppressed++;
+            }
+        }
+    }
+
+    public void rememberAsset(String id, String json)
+    {
+        synchronized (_lastAssetJson)
+        {
+            _lastAssetJson.put(id, json);
+        }
+    }
+
+    public void forgetAsset(String id)
+    {
+        synchronized (_lastAssetJson)
+        {
+            _lastAssetJson.remove(id);
+        }
+    }
+
+    public void recordAssetRediscovery(boolean suppressed)
+    {
+        synchronized (_stats)
+        {
+            _stats.assetRediscoveries++;
+            if(suppressed)
+            {
+                _stats.assetRediscoveriesSuppressed++;
+            }
+        }
+    }
+
+    // Returns true if the asset JSON is identical to what we last saw for it.  Otherwise the
+    // JSON is remembered for next time.
+    public boolean isAssetRediscoveryUnchanged(String id, String json)
+    {
+        synchronized (_lastAssetJson)
+        {
+            String last = _lastAssetJson.get(id);
+
+            // String caches its hash so this is usually a cheap rejection before the full compare
+            if(last != null && last.hashCode() == json.hashCode() && last.equals(json))
+            {
+                return true;
+            }
+
+            _lastAssetJson.put(id, json);
+        }
+
+        return false;
+    }
+
+    public void clear()
+    {
+        synchronized (_lastAssetJson)
+        {
+            _lastAssetJson.clear();
+        }
+    }
+
+    public Stats getStats()
+    {
+        Stats rc = new Stats();
+
+        synchronized (_stats)
+        {
+            rc.nodeRediscoveries = _stats.nodeRediscoveries;
+            rc.nodeRediscoveriesSuppressed = _stats.nodeRediscoveriesSuppressed;
+            rc.assetRediscoveries = _stats.assetRediscoveries;
+            rc.assetRediscoveriesSuppressed = _stats.assetRediscoveriesSuppressed;
+        }
+
+        return rc;
+    }
+}
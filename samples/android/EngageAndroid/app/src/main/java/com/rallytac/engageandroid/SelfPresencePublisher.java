@@ -0,0 +1,382 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+// Decides when our own presence descriptor goes out.  Connectivity, power and location changes are
+// reported as they happen but only the ones that matter - a different connection type or signal level,
+// a battery step, a real move or turn - cause a publish, and even those are held back so that we send
+// at most one descriptor per minimum interval.  Everything that arrives in the meantime is merged into
+// that one send.  Changes too small to matter on their own aren't lost, they go out with the next
+// publish or, failing that, once the maximum interval has passed.
+//
+// The publisher only decides *when* - the sender builds the descriptor from whatever is current at that
+// point.
+public class SelfPresencePublisher
+{
+    private static String TAG = SelfPresencePublisher.class.getSimpleName();
+
+    public interface ISender
+    {
+        void publish();
+    }
+
+    public static class Thresholds
+    {
+        public long minIntervalMs = Constants.SELF_PRESENCE_MIN_INTERVAL_MS;
+        public long maxIntervalMs = Constants.SELF_PRESENCE_MAX_INTERVAL_MS;
+        public int signalLevelStep = 1;
+        public int batteryStepPercent = Constants.SELF_PRESENCE_BATTERY_STEP_PERCENT;
+        public double minDisplacementMeters = Constants.SELF_PRESENCE_MIN_DISPLACEMENT_METERS;
+        public double minHeadingChangeDegrees = Constants.SELF_PRESENCE_MIN_HEADING_CHANGE_DEGREES;
+    }
+
+    public static class Stats
+    {
+        public long connectivityUpdates;
+        public long powerUpdates;
+        public long locationUpdates;
+        public long significant;
+        public long suppressed;
+        public long merged;
+        public long forced;
+        public long sent;
+
+        Stats copy()
+        {
+            Stats rc = new Stats();
+
+            rc.connectivityUpdates = connectivityUpdates;
+            rc.powerUpdates = powerUpdates;
+            rc.locationUpdates = locationUpdates;
+            rc.significant = significant;
+            rc.suppressed = suppressed;
+            rc.merged = merged;
+            rc.forced = forced;
+            rc.sent = sent;
+
+            return rc;
+        }
+    }
+
+    private final static double EARTH_RADIUS_METERS = 6371000.0;
+
+    private final Thresholds _thresholds;
+    private final TaskScheduler _scheduler;
+    private final ISender _sender;
+    private final Stats _stats = new Stats();
+
+    // What we have now ...
+    private boolean _haveConnectivity = false;
+    private int _connectivityType;
+    private int _signalLevel;
+    private boolean _havePower = false;
+    private int _powerSource;
+    private int _powerState;
+    private int _powerLevel;
+    private boolean _haveLocation = false;
+    private double _latitude;
+    private double _longitude;
+    private double _heading = Double.NaN;
+
+    // ... and what the last descriptor we sent had
+    private boolean _sentConnectivity = false;
+    private int _sentConnectivityType;
+    private int _sentSignalLevel;
+    private boolean _sentPower = false;
+    private int _sentPowerSource;
+    private int _sentPowerState;
+    private int _sentPowerLevel;
+    private boolean _sentLocation = false;
+    private double _sentLatitude;
+    private double _sentLongitude;
+    private double _sentHeading = Double.NaN;
+
+    private long _lastSentMs = 0;
+    private boolean _everSent = false;
+    private boolean _dirty = false;
+    private boolean _significantPending = false;
+    private long _pendingDueMs = 0;
+    private TaskScheduler.Task _pendingTask = null;
+
+    public SelfPresencePublisher(Thresholds thresholds, TaskScheduler scheduler, ISender sender)
+    {
+        _thresholds = thresholds;
+        _scheduler = scheduler;
+        _sender = sender;
+    }
+
+    // Overridable for testing
+    protected long now()
+    {
+        return System.currentTimeMillis();
+    }
+
+    public Stats getStats()
+    {
+        synchronized (this)
+        {
+            return _stats.copy();
+        }
+    }
+
+    public void stop()
+    {
+        _scheduler.cancelAll(this);
+
+        synchronized (this)
+        {
+            _pendingTask = null;
+            _dirty = false;
+            _significantPending = false;
+        }
+    }
+
+    // Forget what we've sent so that the next descriptor goes out regardless - for a new configuration
+    // or when the monitors are turned on or off
+    public synchronized void reset()
+    {
+        _sentConnectivity = false;
+        _sentPower = false;
+        _sentLocation = false;
+        _everSent = false;
+    }
+
+    public void onConnectivityChanged(int type, int signalLevel)
+    {
+        boolean significant;
+
+        synchronized (this)
+        {
+            _stats.connectivityUpdates++;
+            _haveConnectivity = true;
+            _connectivityType = type;
+            _signalLevel = signalLevel;
+
+            significant = (!_sentConnectivity
+                            || type != _sentConnectivityType
+                            || Math.abs(signalLevel - _sentSignalLevel) >= _thresholds.signalLevelStep);
+        }
+
+        changed(significant);
+    }
+
+    public void onPowerChanged(int source, int state, int levelPercent)
+    {
+        boolean significant;
+
+        synchronized (this)
+        {
+            _stats.powerUpdates++;
+            _havePower = true;
+            _powerSource = source;
+            _powerState = state;
+            _powerLevel = levelPercent;
+
+            significant = (!_sentPower
+                            || source != _sentPowerSource
+                            || state != _sentPowerState
+                            || Math.abs(levelPercent - _sentPowerLevel) >= _thresholds.batteryStepPercent);
+        }
+
+        changed(significant);
+    }
+
+    // Heading is NaN if the fix doesn't have one
+    public void onLocationChanged(double latitude, double longitude, double heading)
+    {
+        boolean significant;
+
+        synchronized (this)
+        {
+            _stats.locationUpdates++;
+            _haveLocation = true;
+            _latitude = latitude;
+            _longitude = longitude;
+            _heading = heading;
+
+            if(!_sentLocation)
+            {
+                significant = true;
+            }
+            else if(distanceMeters(_sentLatitude, _sentLongitude, latitude, longitude) >= _thresholds.minDisplacementMeters)
+            {
+                significant = true;
+            }
+            else if(Double.isNaN(heading) != Double.isNaN(_sentHeading))
+            {
+                significant = true;
+            }
+            else
+            {
+                significant = (!Double.isNaN(heading) && headingDelta(_sentHeading, heading) >= _thresholds.minHeadingChangeDegrees);
+            }
+        }
+
+        changed(significant);
+    }
+
+    // Something other than our own state needs the descriptor to go out now - a presence group has just
+    // connected, our identity has changed, etc
+    public void publishNow()
+    {
+        synchronized (this)
+        {
+            _stats.forced++;
+            cancelPending();
+        }
+
+        send();
+    }
+
+    private void changed(boolean significant)
+    {
+        boolean sendNow = false;
+
+        synchronized (this)
+        {
+            long now = now();
+            long sinceLast = (now - _lastSentMs);
+            boolean alreadyPending = (_pendingTask != null);
+
+            if(significant)
+            {
+                _stats.significant++;
+
+                if(!_everSent || sinceLast >= _thresholds.minIntervalMs)
+                {
+                    cancelPending();
+                    sendNow = true;
+                }
+                else
+                {
+                    if(alreadyPending && _significantPending)
+                    {
+                        _stats.merged++;
+                    }
+
+                    _significantPending = true;
+                    schedule(_lastSentMs + _thresholds.minIntervalMs);
+                }
+            }
+            else
+            {
+                _stats.suppressed++;
+
+                _dirty = true;
+                if(!alreadyPending)
+                {
+                    schedule(_lastSentMs + _thresholds.maxIntervalMs);
+                }
+            }
+        }
+
+        if(sendNow)
+        {
+            send();
+        }
+    }
+
+    // Must be called with the lock held
+    private void schedule(long dueMs)
+    {
+        if(_pendingTask != null)
+        {
+            if(_pendingDueMs <= dueMs)
+            {
+                return;
+            }
+
+            _pendingTask.cancel();
+        }
+
+        _pendingDueMs = dueMs;
+        _pendingTask = _scheduler.schedule(this, TaskScheduler.Category.presence, "selfPresencePublish", new Runnable()//NON-NLS
+        {
+            @Override
+            public void run()
+            {
+                onPendingDue();
+            }
+        }, Math.max(0, dueMs - now()));
+    }
+
+    // Must be called with the lock held
+    private void cancelPending()
+    {
+        if(_pendingTask != null)
+        {
+            _pendingTask.cancel();
+            _pendingTask = null;
+        }
+    }
+
+    private void onPendingDue()
+    {
+        synchronized (this)
+        {
+            if(_pendingTask == null || (!_dirty && !_significantPending))
+            {
+                _pendingTask = null;
+                return;
+            }
+
+            _pendingTask = null;
+        }
+
+        send();
+    }
+
+    private void send()
+    {
+        synchronized (this)
+        {
+            _lastSentMs = now();
+            _everSent = true;
+            _dirty = false;
+            _significantPending = false;
+            _stats.sent++;
+
+            _sentConnectivity = _haveConnectivity;
+            _sentConnectivityType = _connectivityType;
+            _sentSignalLevel = _signalLevel;
+
+            _sentPower = _havePower;
+            _sentPowerSource = _powerSource;
+            _sentPowerState = _powerState;
+            _sentPowerLevel = _powerLevel;
+
+            _sentLocation = _haveLocation;
+            _sentLatitude = _latitude;
+            _sentLongitude = _longitude;
+            _sentHeading = _heading;
+        }
+
+        try
+        {
+            _sender.publish();
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    static double distanceMeters(double lat1, double lon1, double lat2, double lon2)
+    {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = (Math.sin(dLat / 2) * Math.sin(dLat / 2))
+                    + (Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2));
+
+        return (EARTH_RADIUS_METERS * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a)));
+    }
+
+    static double headingDelta(double h1, double h2)
+    {
+        double d = Math.abs(h1 - h2) % 360.0;
+        return (d > 180.0 ? 360.0 - d : d);
+    }
+}
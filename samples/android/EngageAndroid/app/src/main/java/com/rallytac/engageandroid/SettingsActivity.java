@@ -263,6 +263,8 @@ public class SettingsActivity extends AppCompatPreferenceActivity
                 bindPreferenceSummaryToValue(findPreference(PreferenceKeys.DEVELOPER_USE_DEV_LICENSING_SYSTEM));
                 bindPreferenceSummaryToValue(findPreference(PreferenceKeys.DEVELOPER_USE_LOW_LEVEL_ANDROID_AUDIO_INTERFACE));
                 bindPreferenceSummaryToValue(findPreference(PreferenceKeys.DEVELOPER_ALLOW_MISSION_CONTROL));
+                bindPreferenceSummaryToValue(findPreference(PreferenceKeys.DEVELOPER_SHARE_BINARY_QR_CODES));
+                bindPreferenceSummaryToValue(findPreference(PreferenceKeys.DEVELOPER_LOG_DEBUG_TO_FILE));
                 bindPreferenceSummaryToValue(findPreference(PreferenceKeys.DEVELOPER_RP_USE_UDP_STREAMING));
                 bindPreferenceSummaryToValue(findPreference(PreferenceKeys.DEVELOPER_RP_CONNECT_TIMEOUT_SECS));
                 bindPreferenceSummaryToValue(findPreference(PreferenceKeys.DEVELOPER_RP_TRANSACTION_TIMEOUT_MS));
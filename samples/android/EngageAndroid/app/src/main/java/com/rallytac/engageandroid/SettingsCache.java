@@ -0,0 +1,536 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import android.content.SharedPreferences;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// An in-memory copy of the app's SharedPreferences.  The first read pulls everything in with a
+// single getAll() and from then on reads (including the string-to-number parsing a lot of our
+// preferences need) are served from memory.  A change made behind our back - by the settings
+// screen for example - is picked up through the preference change listener, which simply marks
+// the copy stale so that the next read pulls it in again.
+//
+// Writes land in the copy right away and are queued up and written back in a single editor
+// transaction a little while later (or when flush() is called) rather than one apply() each.
+//
+// With caching off this is a straight pass-through to SharedPreferences - which is what we did
+// before - and is there mostly so that the two can be compared.
+public class SettingsCache implements SharedPreferences.OnSharedPreferenceChangeListener
+{
+    private static String TAG = SettingsCache.class.getSimpleName();
+
+    private final static Object REMOVED = new Object();
+
+    public static class Stats
+    {
+        public long loads;
+        public long hits;
+        public long writes;
+        public long flushes;
+        public long invalidations;
+
+        Stats copy()
+        {
+            Stats rc = new Stats();
+
+            rc.loads = loads;
+            rc.hits = hits;
+            rc.writes = writes;
+            rc.flushes = flushes;
+            rc.invalidations = invalidations;
+
+            return rc;
+        }
+    }
+
+    private final SharedPreferences _sp;
+    private final boolean _caching;
+    private final long _flushDelayMs;
+    private final Stats _stats = new Stats();
+
+    private HashMap<String, Object> _values = null;
+    private final HashMap<String, Object> _parsed = new HashMap<>();
+    private final LinkedHashMap<String, Object> _pending = new LinkedHashMap<>();
+    private long _generation = 0;
+
+    // What SharedPreferences holds as far as we know - null along with _values when we don't
+    private HashMap<String, Object> _stored = null;
+
+    // Keys a flush changed in SharedPreferences - their change notifications are our own
+    private final HashSet<String> _selfWrites = new HashSet<>();
+
+    private final TaskScheduler _scheduler;
+    private boolean _flushScheduled = false;
+
+    private UserSettings _userSettings = null;
+    private long _userSettingsGeneration = -1;
+
+    public SettingsCache(SharedPreferences sp, boolean caching, long flushDelayMs, TaskScheduler scheduler)
+    {
+        _sp = sp;
+        _caching = caching;
+        _flushDelayMs = flushDelayMs;
+        _scheduler = scheduler;
+
+        if(_caching)
+        {
+            _sp.registerOnSharedPreferenceChangeListener(this);
+        }
+    }
+
+    public void close()
+    {
+        flush();
+        _scheduler.cancelAll(this);
+
+        if(_caching)
+        {
+            _sp.unregisterOnSharedPreferenceChangeListener(this);
+        }
+    }
+
+    public boolean isCaching()
+    {
+        return _caching;
+    }
+
+    public Stats getStats()
+    {
+        synchronized (_stats)
+        {
+            return _stats.copy();
+        }
+    }
+
+    // Goes up every time something changes so that callers can tell whether what they derived
+    // from us is still current
+    public synchronized long getGeneration()
+    {
+        return _generation;
+    }
+
+    // The user-level settings the active configuration is built from, only re-read when something changed
+    public synchronized UserSettings getUserSettings(boolean defaultPttLatching)
+    {
+        if(_userSettings == null || _userSettingsGeneration != _generation || _userSettings.pttLatchingDefault != defaultPttLatching || !_caching)
+        {
+            _userSettings = UserSettings.load(this, defaultPttLatching);
+            _userSettingsGeneration = _generation;
+        }
+
+        return _userSettings;
+    }
+
+    public synchronized String getString(String key, String def)
+    {
+        if(!_caching)
+        {
+            return _sp.getString(key, def);
+        }
+
+        Object v = lookup(key);
+        if(v == null)
+        {
+            return def;
+        }
+
+        return (v instanceof String ? (String) v : String.valueOf(v));
+    }
+
+    public synchronized boolean getBoolean(String key, boolean def)
+    {
+        if(!_caching)
+        {
+            return _sp.getBoolean(key, def);
+        }
+
+        Object v = lookup(key);
+        return (v instanceof Boolean ? (Boolean) v : def);
+    }
+
+    // Works whether the value was stored as an int or as a string, the same as
+    // Utils.getSafeSharedPreferencesInt
+    public synchronized int getInt(String key, int def)
+    {
+        if(!_caching)
+        {
+            try
+            {
+                return _sp.getInt(key, def);
+            }
+            catch (ClassCastException cce)
+            {
+                return parseInt(_sp.getString(key, null), def);
+            }
+        }
+
+        return getCachedInt(key, def);
+    }
+
+    // For the numbers our preference screens store as strings
+    public synchronized int getIntFromString(String key, int def)
+    {
+        if(!_caching)
+        {
+            return parseInt(_sp.getString(key, null), def);
+        }
+
+        return getCachedInt(key, def);
+    }
+
+    public synchronized float getFloatFromString(String key, float def)
+    {
+        if(!_caching)
+        {
+            return parseFloat(_sp.getString(key, null), def);
+        }
+
+        Object v = lookup(key);
+        if(v instanceof Float)
+        {
+            return (Float) v;
+        }
+
+        Object p = _parsed.get(key);
+        if(p instanceof Float)
+        {
+            return (Float) p;
+        }
+
+        if(v instanceof String)
+        {
+            Float rc = parseFloat((String) v, null);
+            if(rc != null)
+            {
+                _parsed.put(key, rc);
+                return rc;
+            }
+        }
+
+        return def;
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized Set<String> getStringSet(String key, Set<String> def)
+    {
+        if(!_caching)
+        {
+            return _sp.getStringSet(key, def);
+        }
+
+        Object v = lookup(key);
+        return (v instanceof Set ? new HashSet<>((Set<String>) v) : def);
+    }
+
+    public void putString(String key, String value)
+    {
+        put(key, value);
+    }
+
+    public void putBoolean(String key, boolean value)
+    {
+        put(key, value);
+    }
+
+    public void putInt(String key, int value)
+    {
+        put(key, value);
+    }
+
+    public void putFloat(String key, float value)
+    {
+        put(key, value);
+    }
+
+    public void putStringSet(String key, Set<String> value)
+    {
+        put(key, (value != null ? new HashSet<>(value) : null));
+    }
+
+    public void remove(String key)
+    {
+        put(key, null);
+    }
+
+    // Writes everything queued up in one go
+    public void flush()
+    {
+        LinkedHashMap<String, Object> toWrite;
+
+        synchronized (this)
+        {
+            if(_pending.isEmpty())
+            {
+                return;
+            }
+
+            if(_stored == null)
+            {
+                load();
+            }
+
+            toWrite = new LinkedHashMap<>(_pending);
+            _pending.clear();
+            _flushScheduled = false;
+
+            // SharedPreferences only tells listeners about values that actually change so those
+            // are the only ones we can expect to hear back about
+            for(Map.Entry<String, Object> e : toWrite.entrySet())
+            {
+                String key = e.getKey();
+                Object v = e.getValue();
+
+                if(v == REMOVED)
+                {
+                    if(_stored.remove(key) != null)
+                    {
+                        _selfWrites.add(key);
+                    }
+                }
+                else if(!v.equals(_stored.put(key, v)))
+                {
+                    _selfWrites.add(key);
+                }
+            }
+        }
+
+        SharedPreferences.Editor ed = _sp.edit();
+        writeTo(ed, toWrite);
+        ed.apply();
+
+        synchronized (_stats)
+        {
+            _stats.flushes++;
+        }
+    }
+
+    @Override
+    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key)
+    {
+        synchronized (this)
+        {
+            // Our own writes are already reflected in what we hold
+            if(key != null && _selfWrites.remove(key))
+            {
+                return;
+            }
+
+            // Somebody else wrote this after we queued our write - theirs is the later one
+            if(key != null)
+            {
+                _pending.remove(key);
+            }
+
+            _values = null;
+            _stored = null;
+            _parsed.clear();
+            _generation++;
+        }
+
+        synchronized (_stats)
+        {
+            _stats.invalidations++;
+        }
+    }
+
+    private void put(String key, Object value)
+    {
+        synchronized (_stats)
+        {
+            _stats.writes++;
+        }
+
+        if(!_caching)
+        {
+            LinkedHashMap<String, Object> one = new LinkedHashMap<>();
+            one.put(key, (value != null ? value : REMOVED));
+            SharedPreferences.Editor ed = _sp.edit();
+            writeTo(ed, one);
+            ed.apply();
+            return;
+        }
+
+        boolean flushNow = false;
+
+        synchronized (this)
+        {
+            if(_values != null)
+            {
+                if(value != null)
+                {
+                    _values.put(key, value);
+                }
+                else
+                {
+                    _values.remove(key);
+                }
+            }
+
+            _parsed.remove(key);
+            _pending.put(key, (value != null ? value : REMOVED));
+            _generation++;
+
+            if(_flushDelayMs <= 0)
+            {
+                flushNow = true;
+            }
+            else if(!_flushScheduled)
+            {
+                _flushScheduled = true;
+
+                _scheduler.schedule(this, TaskScheduler.Category.settings, "settingsFlush", new Runnable()//NON-NLS
+                {
+                    @Override
+                    public void run()
+                    {
+                        flush();
+                    }
+                }, _flushDelayMs);
+            }
+        }
+
+        if(flushNow)
+        {
+            flush();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeTo(SharedPreferences.Editor ed, Map<String, Object> values)
+    {
+        for(Map.Entry<String, Object> e : values.entrySet())
+        {
+            Object v = e.getValue();
+
+            if(v == REMOVED)
+            {
+                ed.remove(e.getKey());
+            }
+            else if(v instanceof String)
+            {
+                ed.putString(e.getKey(), (String) v);
+            }
+            else if(v instanceof Boolean)
+            {
+                ed.putBoolean(e.getKey(), (Boolean) v);
+            }
+            else if(v instanceof Integer)
+            {
+                ed.putInt(e.getKey(), (Integer) v);
+            }
+            else if(v instanceof Float)
+            {
+                ed.putFloat(e.getKey(), (Float) v);
+            }
+            else if(v instanceof Long)
+            {
+                ed.putLong(e.getKey(), (Long) v);
+            }
+            else if(v instanceof Set)
+            {
+                ed.putStringSet(e.getKey(), (Set<String>) v);
+            }
+        }
+    }
+
+    private int getCachedInt(String key, int def)
+    {
+        Object v = lookup(key);
+        if(v instanceof Integer)
+        {
+            return (Integer) v;
+        }
+
+        Object p = _parsed.get(key);
+        if(p instanceof Integer)
+        {
+            return (Integer) p;
+        }
+
+        if(v instanceof String)
+        {
+            Integer rc = parseInt((String) v, null);
+            if(rc != null)
+            {
+                _parsed.put(key, rc);
+                return rc;
+            }
+        }
+
+        return def;
+    }
+
+    private void load()
+    {
+        _stored = new HashMap<String, Object>(_sp.getAll());
+        _values = new HashMap<>(_stored);
+
+        // Anything still waiting to be written wins over what's stored
+        for(Map.Entry<String, Object> e : _pending.entrySet())
+        {
+            if(e.getValue() == REMOVED)
+            {
+                _values.remove(e.getKey());
+            }
+            else
+            {
+                _values.put(e.getKey(), e.getValue());
+            }
+        }
+
+        synchronized (_stats)
+        {
+            _stats.loads++;
+        }
+    }
+
+    private Object lookup(String key)
+    {
+        if(_values == null)
+        {
+            load();
+        }
+        else
+        {
+            synchronized (_stats)
+            {
+                _stats.hits++;
+            }
+        }
+
+        return _values.get(key);
+    }
+
+    private static Integer parseInt(String s, Integer def)
+    {
+        try
+        {
+            return (s != null ? Integer.valueOf(s.trim()) : def);
+        }
+        catch (NumberFormatException e)
+        {
+            return def;
+        }
+    }
+
+    private static Float parseFloat(String s, Float def)
+    {
+        try
+        {
+            return (s != null ? Float.valueOf(s.trim()) : def);
+        }
+        catch (NumberFormatException e)
+        {
+            return def;
+        }
+    }
+}
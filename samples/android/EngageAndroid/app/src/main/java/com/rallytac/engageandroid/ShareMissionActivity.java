@@ -238,8 +238,7 @@ public class ShareMissionActivity extends AppCompatActivity
             }
             else
             {
-                MissionDatabase database = MissionDatabase.load(Globals.getSharedPreferences(), Constants.MISSION_DATABASE_NAME);
-                DatabaseMission mission = database.getMissionById(_missionIdToShare);
+                DatabaseMission mission = MissionDatabase.getInstance().getMissionById(_missionIdToShare);
                 if (mission == null)
                 {
                     throw new Exception(getString(R.string.no_mission_found_with_this_id));
@@ -287,12 +286,32 @@ public class ShareMissionActivity extends AppCompatActivity
         {
             getElements();
 
-            // This is our data record (header signature + version + json)
-            String textRecord = (Constants.QR_CODE_HEADER + Constants.QR_VERSION) + json;
+            // The compact binary form only if it's been asked for and carries everything - it's
+            // not understood by older clients
+            byte[] binaryMission = null;
+            if(Globals.getSharedPreferences().getBoolean(PreferenceKeys.DEVELOPER_SHARE_BINARY_QR_CODES, false))
+            {
+                binaryMission = ActiveConfiguration.makeLosslessBinaryMission(ac);
+            }
+
+            String qrHeader;
 
-            // Compress it
-            byte[] dataBytes = textRecord.getBytes(Utils.getEngageCharSet());
-            _compressedDataBytes = Utils.compress(dataBytes, 0, dataBytes.length);
+            if(binaryMission != null)
+            {
+                // The header goes in front of the Base91 so it can be told apart without decoding
+                qrHeader = (Constants.QR_CODE_HEADER + Constants.QR_BINARY_VERSION);
+                _compressedDataBytes = binaryMission;
+            }
+            else
+            {
+                // This is our data record (header signature + version + json)
+                String textRecord = (Constants.QR_CODE_HEADER + Constants.QR_VERSION) + json;
+
+                // Compress it
+                qrHeader = "";
+                byte[] dataBytes = textRecord.getBytes(Utils.getEngageCharSet());
+                _compressedDataBytes = Utils.compress(dataBytes, 0, dataBytes.length);
+            }
 
             // It gets encrypted if we got a password
             if(!Utils.isEmptyString(_pwd))
@@ -308,7 +327,7 @@ public class ShareMissionActivity extends AppCompatActivity
             }
 
             // Convert to a Base91-encoded string
-            _base91DataString = new String(Base91.encode(_compressedDataBytes), Utils.getEngageCharSet());
+            _base91DataString = qrHeader + Utils.base91Encode(_compressedDataBytes);
 
             // Precede with a deflection url if any (and save whatever was there anyway - even if it's nothing)
             Globals.getSharedPreferencesEditor().putString(PreferenceKeys.LAST_QRCODE_DEFLECTION_URL, _deflectionUrl);
@@ -67,6 +67,36 @@ public class SimpleLogger implements ILogger
         logToEngage(Engine.LoggingLevel.fatal, tag, msg);
     }
 
+    @Override
+    public void d(String tag, String format, Object... args)
+    {
+        d(tag, String.format(format, args));
+    }
+
+    @Override
+    public void i(String tag, String format, Object... args)
+    {
+        i(tag, String.format(format, args));
+    }
+
+    @Override
+    public void w(String tag, String format, Object... args)
+    {
+        w(tag, String.format(format, args));
+    }
+
+    @Override
+    public void e(String tag, String format, Object... args)
+    {
+        e(tag, String.format(format, args));
+    }
+
+    @Override
+    public void f(String tag, String format, Object... args)
+    {
+        f(tag, String.format(format, args));
+    }
+
     private void logToEngage(Engine.LoggingLevel level, String tag, String msg)
     {
         if(_logToEngage)
@@ -67,8 +67,7 @@ import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class SimpleUiMainActivity
                             extends
@@ -90,7 +89,7 @@ public class SimpleUiMainActivity
     private static String TAG = SimpleUiMainActivity.class.getSimpleName();
 
     private ActiveConfiguration _ac = null;
-    private Timer _waitForEngineStartedTimer = null;
+    private TaskScheduler.Task _waitForEngineStartedTimer = null;
     private boolean _anyTxActive = false;
     private boolean _anyTxPending = false;
     private Animation _notificationBarAnimation = null;
@@ -126,6 +125,9 @@ public class SimpleUiMainActivity
     private boolean _allowPttResize = true;
     private OnscreenLogger _onscreenLogger = null;
 
+    // Error totals from each group's last health report so we only speak up when they go up
+    private final ConcurrentHashMap<String, Long> _groupHealthErrorTotals = new ConcurrentHashMap<>();
+
     @Override
     public void onConnectivityChanged() {
         updateConnectivityBar();
@@ -634,6 +636,11 @@ public class SimpleUiMainActivity
         stopTimelineAudioPlayer();
         stopAllTx();
         cancelTimers();
+        if(_onscreenLogger != null)
+        {
+            _onscreenLogger.close();
+            _onscreenLogger = null;
+        }
         super.onDestroy();
     }
 
@@ -1933,7 +1940,22 @@ public class SimpleUiMainActivity
     @Override
     public void onGroupHealthReport(final GroupDescriptor gd, final String reportJson)
     {
-        // TODO: Handle group health report
+        // Already parsed by the application's stats tracker - we just read what it has
+        GroupStatsTracker.Health h = Globals.getEngageApplication().getGroupStatsTracker().getHealth(gd.id);
+        if(h == null)
+        {
+            return;
+        }
+
+        long total = h.getTotalErrors();
+        Long previous = _groupHealthErrorTotals.put(gd.id, total);
+
+        // The counters are cumulative - a drop means the group was re-created in the engine
+        long before = ((previous == null || previous > total) ? 0 : previous);
+        if(total > before)
+        {
+            Globals.getLogger().w(TAG, "onGroupHealthReport: '%s' has %d new error(s), %d in all", gd.name, (total - before), total);//NON-NLS
+        }
     }
 
     @Override
@@ -1945,7 +1967,19 @@ public class SimpleUiMainActivity
     @Override
     public void onGroupStatsReport(final GroupDescriptor gd, final String reportJson)
     {
-        // TODO: Handle group stats report
+        GroupStatsTracker tracker = Globals.getEngageApplication().getGroupStatsTracker();
+        GroupStatsTracker.Window rx = tracker.getWindow(gd.id, GroupStatsTracker.RX_BYTES, Constants.GROUP_STATS_DEFAULT_WINDOW_MS);
+        GroupStatsTracker.Window tx = tracker.getWindow(gd.id, GroupStatsTracker.TX_BYTES, Constants.GROUP_STATS_DEFAULT_WINDOW_MS);
+        if(rx != null && tx != null)
+        {
+            Globals.getLogger().d(TAG, "onGroupStatsReport: '%s' rx %.1f kbps (p95 %.1f), tx %.1f kbps (p95 %.1f), loss %.1f%%",//NON-NLS
+                                    gd.name,
+                                    (rx.rate * 8) / 1000.0,
+                                    (rx.p95 * 8) / 1000.0,
+                                    (tx.rate * 8) / 1000.0,
+                                    (tx.p95 * 8) / 1000.0,
+                                    tracker.getLossPercent(gd.id, Constants.GROUP_STATS_DEFAULT_WINDOW_MS));
+        }
     }
 
     @Override
@@ -2185,16 +2219,18 @@ public class SimpleUiMainActivity
 
     private void cancelTimers()
     {
-        if(_waitForEngineStartedTimer != null)
-        {
-            _waitForEngineStartedTimer.cancel();
-            _waitForEngineStartedTimer = null;
-        }
+        Globals.getScheduler().cancelAll(this);
+        _waitForEngineStartedTimer = null;
     }
 
     private void recreateWhenEngineIsRestarted()
     {
-        Globals.getEngageApplication().restartEngine();
+        // The running engine took the change - its groups have been joined and left already
+        if(Globals.getEngageApplication().restartEngine())
+        {
+            doRecreate(false);
+            return;
+        }
 
         if(_waitForEngineStartedTimer != null)
         {
@@ -2202,8 +2238,7 @@ public class SimpleUiMainActivity
             _waitForEngineStartedTimer = null;
         }
 
-        _waitForEngineStartedTimer = new Timer();
-        _waitForEngineStartedTimer.scheduleAtFixedRate(new TimerTask()
+        _waitForEngineStartedTimer = Globals.getScheduler().scheduleAtFixedRate(this, TaskScheduler.Category.ui, "waitForEngineStarted", new Runnable()//NON-NLS
         {
             @Override
             public void run()
@@ -2232,10 +2267,22 @@ public class SimpleUiMainActivity
     }
 
     private void doRecreate()
+    {
+        doRecreate(true);
+    }
+
+    private void doRecreate(boolean syncSelectedGroups)
     {
         removeAllFragments();
 
         Globals.getEngageApplication().updateActiveConfiguration();
+
+        if(!syncSelectedGroups)
+        {
+            recreate();
+            return;
+        }
+
         HashSet<String> newlySelectedGroups = Globals.getEngageApplication().getActiveConfiguration().getIdsOfSelectedGroups();
 
         // Figure out which groups to leave
@@ -2331,8 +2378,7 @@ public class SimpleUiMainActivity
 
         if(!Utils.isEmptyString(groupId))
         {
-            Globals.getSharedPreferencesEditor().putString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_SELECTED_GROUPS_SINGLE, groupId);
-            Globals.getSharedPreferencesEditor().apply();
+            Globals.getSettings().putString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_SELECTED_GROUPS_SINGLE, groupId);
         }
 
         Globals.getEngageApplication().logEvent(Analytics.VIEW_SINGLE_MODE);
@@ -2430,8 +2476,7 @@ public class SimpleUiMainActivity
                             ((CardFragment)f).setGroupDescriptor(gd);
                             groupsAssigned++;
 
-                            Globals.getSharedPreferencesEditor().putString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_SELECTED_GROUPS_SINGLE, gd.id);
-                            Globals.getSharedPreferencesEditor().apply();
+                            Globals.getSettings().putString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_SELECTED_GROUPS_SINGLE, gd.id);
                         }
                         else if(f instanceof TextMessagingFragment)
                         {
@@ -2504,9 +2549,8 @@ public class SimpleUiMainActivity
 
         _ac.setUseRp(useRp);
 
-        SharedPreferences.Editor ed = Globals.getSharedPreferencesEditor();
-        ed.putString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_JSON, _ac.makeTemplate().toString());
-        ed.apply();
+        Globals.getSettings().putString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_JSON, _ac.makeTemplate().toString());
+        Globals.getSettings().flush();
 
         onMissionChanged();
     }
@@ -2767,7 +2811,7 @@ public class SimpleUiMainActivity
 
     public void onClickTimelineIcon(View view)
     {
-        String gid = Globals.getSharedPreferences().getString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_SELECTED_GROUPS_SINGLE, "");
+        String gid = Globals.getSettings().getString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_SELECTED_GROUPS_SINGLE, "");
         if(!Utils.isEmptyString(gid))
         {
             requestGroupTimeline(gid);
@@ -3259,6 +3303,10 @@ public class SimpleUiMainActivity
                 .setVisible(devModeActive);
         popup.getMenu().findItem(R.id.action_save_log)
                 .setVisible(devModeActive);
+        popup.getMenu().findItem(R.id.action_log_oldest)
+                .setVisible(devModeActive);
+        popup.getMenu().findItem(R.id.action_log_latest)
+                .setVisible(devModeActive);
 
         popup.setOnMenuItemClickListener(new PopupMenu.OnMenuItemClickListener()
         {
@@ -3322,6 +3370,20 @@ public class SimpleUiMainActivity
                     }
                     return true;
                 }
+                else if (id == R.id.action_log_oldest)
+                {
+                    if(_onscreenLogger != null) {
+                        _onscreenLogger.scrollToOldest();
+                    }
+                    return true;
+                }
+                else if (id == R.id.action_log_latest)
+                {
+                    if(_onscreenLogger != null) {
+                        _onscreenLogger.scrollToLatest();
+                    }
+                    return true;
+                }
                 /*
                 else if (id == R.id.action_security)
                 {
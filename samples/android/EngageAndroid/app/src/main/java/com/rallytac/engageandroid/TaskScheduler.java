@@ -0,0 +1,323 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+// One small pool of threads for all the delayed and periodic work in the app rather than a
+// java.util.Timer (and its thread) for each.  Tasks are given a category and a name so that we can
+// see what's taking the time, and an owner - usually the activity or object that scheduled them - so
+// that everything an owner scheduled can be cancelled in one go when it goes away.
+//
+// Tasks must not block for long - anything that sits on I/O or needs its own priority (audio for
+// example) should still have a thread of its own.
+public class TaskScheduler
+{
+    private static String TAG = TaskScheduler.class.getSimpleName();
+
+    public enum Category {general, engine, groups, ui, audio, license, biometrics, settings, presence}
+
+    public static class TaskStats
+    {
+        public Category category;
+        public String name;
+        public long runs;
+        public long failures;
+        public long totalRunUs;
+        public long maxRunUs;
+        public long totalLateUs;
+        public long maxLateUs;
+
+        TaskStats copy()
+        {
+            TaskStats rc = new TaskStats();
+
+            rc.category = category;
+            rc.name = name;
+            rc.runs = runs;
+            rc.failures = failures;
+            rc.totalRunUs = totalRunUs;
+            rc.maxRunUs = maxRunUs;
+            rc.totalLateUs = totalLateUs;
+            rc.maxLateUs = maxLateUs;
+
+            return rc;
+        }
+
+        public long getAverageRunUs()
+        {
+            return (runs > 0 ? (totalRunUs / runs) : 0);
+        }
+
+        public long getAverageLateUs()
+        {
+            return (runs > 0 ? (totalLateUs / runs) : 0);
+        }
+    }
+
+    public class Task implements Runnable
+    {
+        private final Object _owner;
+        private final Category _category;
+        private final String _name;
+        private final Runnable _runnable;
+        private final long _periodNanos;
+        private long _dueNanos;
+        private volatile boolean _cancelled = false;
+        private ScheduledFuture<?> _future = null;
+
+        private Task(Object owner, Category category, String name, Runnable runnable, long delayMs, long periodMs)
+        {
+            _owner = owner;
+            _category = category;
+            _name = name;
+            _runnable = runnable;
+            _periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMs);
+            _dueNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+        }
+
+        public String getName()
+        {
+            return _name;
+        }
+
+        public Category getCategory()
+        {
+            return _category;
+        }
+
+        public boolean isCancelled()
+        {
+            return _cancelled;
+        }
+
+        public void cancel()
+        {
+            ScheduledFuture<?> f;
+
+            synchronized (TaskScheduler.this)
+            {
+                if(_cancelled)
+                {
+                    return;
+                }
+
+                _cancelled = true;
+                f = _future;
+                forget(this);
+            }
+
+            if(f != null)
+            {
+                f.cancel(false);
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            if(_cancelled)
+            {
+                return;
+            }
+
+            long started = System.nanoTime();
+            long lateNanos = Math.max(0, started - _dueNanos);
+            boolean failed = false;
+
+            try
+            {
+                _runnable.run();
+            }
+            catch (Throwable t)
+            {
+                // Keep periodic tasks going - the executor would otherwise silently drop them
+                t.printStackTrace();
+                failed = true;
+            }
+
+            long ended = System.nanoTime();
+            record(this, (ended - started) / 1000, lateNanos / 1000, failed);
+
+            if(_periodNanos > 0)
+            {
+                _dueNanos += _periodNanos;
+            }
+            else
+            {
+                synchronized (TaskScheduler.this)
+                {
+                    forget(this);
+                }
+            }
+        }
+    }
+
+    private final ScheduledThreadPoolExecutor _executor;
+    private final IdentityHashMap<Object, HashSet<Task>> _tasksByOwner = new IdentityHashMap<>();
+    private final HashMap<String, TaskStats> _stats = new HashMap<>();
+
+    public TaskScheduler(int threads)
+    {
+        _executor = new ScheduledThreadPoolExecutor(Math.max(1, threads), new ThreadFactory()
+        {
+            private int _count = 0;
+
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "TaskScheduler-" + (++_count));//NON-NLS
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        _executor.setRemoveOnCancelPolicy(true);
+        _executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    public void shutdown()
+    {
+        _executor.shutdownNow();
+    }
+
+    // Runs once, as soon as a thread is free
+    public Task execute(Object owner, Category category, String name, Runnable runnable)
+    {
+        return schedule(owner, category, name, runnable, 0);
+    }
+
+    public Task schedule(Object owner, Category category, String name, Runnable runnable, long delayMs)
+    {
+        Task task = new Task(owner, category, name, runnable, delayMs, 0);
+
+        synchronized (this)
+        {
+            remember(task);
+            task._future = _executor.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+        }
+
+        return task;
+    }
+
+    public Task scheduleAtFixedRate(Object owner, Category category, String name, Runnable runnable, long initialDelayMs, long periodMs)
+    {
+        Task task = new Task(owner, category, name, runnable, initialDelayMs, periodMs);
+
+        synchronized (this)
+        {
+            remember(task);
+            task._future = _executor.scheduleAtFixedRate(task, initialDelayMs, periodMs, TimeUnit.MILLISECONDS);
+        }
+
+        return task;
+    }
+
+    // Cancels everything the owner has scheduled that hasn't run (or, if periodic, is still going)
+    public int cancelAll(Object owner)
+    {
+        ArrayList<Task> tasks;
+
+        synchronized (this)
+        {
+            HashSet<Task> set = _tasksByOwner.get(owner);
+            if(set == null)
+            {
+                return 0;
+            }
+
+            tasks = new ArrayList<>(set);
+        }
+
+        for(Task task : tasks)
+        {
+            task.cancel();
+        }
+
+        return tasks.size();
+    }
+
+    public synchronized int getPendingCount(Object owner)
+    {
+        HashSet<Task> set = _tasksByOwner.get(owner);
+        return (set != null ? set.size() : 0);
+    }
+
+    public ArrayList<TaskStats> getTaskStats()
+    {
+        ArrayList<TaskStats> rc = new ArrayList<>();
+
+        synchronized (_stats)
+        {
+            for(TaskStats ts : _stats.values())
+            {
+                rc.add(ts.copy());
+            }
+        }
+
+        return rc;
+    }
+
+    private void remember(Task task)
+    {
+        HashSet<Task> set = _tasksByOwner.get(task._owner);
+        if(set == null)
+        {
+            set = new HashSet<>();
+            _tasksByOwner.put(task._owner, set);
+        }
+
+        set.add(task);
+    }
+
+    private void forget(Task task)
+    {
+        HashSet<Task> set = _tasksByOwner.get(task._owner);
+        if(set != null)
+        {
+            set.remove(task);
+            if(set.isEmpty())
+            {
+                _tasksByOwner.remove(task._owner);
+            }
+        }
+    }
+
+    private void record(Task task, long runUs, long lateUs, boolean failed)
+    {
+        String key = task._category.name() + "/" + task._name;
+
+        synchronized (_stats)
+        {
+            TaskStats ts = _stats.get(key);
+            if(ts == null)
+            {
+                ts = new TaskStats();
+                ts.category = task._category;
+                ts.name = task._name;
+                _stats.put(key, ts);
+            }
+
+            ts.runs++;
+            if(failed)
+            {
+                ts.failures++;
+            }
+
+            ts.totalRunUs += runUs;
+            ts.maxRunUs = Math.max(ts.maxRunUs, runUs);
+            ts.totalLateUs += lateUs;
+            ts.maxLateUs = Math.max(ts.maxLateUs, lateUs);
+        }
+    }
+}
@@ -0,0 +1,884 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Holds text messages per group, bounded by count and age, with an optional append-only segment
+// file on disk so that history survives a restart.
+//
+// Each group's log is made up of fixed-size chunks.  A slot in a chunk is written exactly once
+// and the (immutable) view describing which slots are live is replaced after every change.  A
+// Snapshot is simply one of those views - taking one costs nothing and it never changes, no
+// matter what's appended or evicted afterwards.
+//
+// Disk writes happen on a writer thread so callers on the UI thread never touch the file.  On
+// open() the segment is replayed through the same bounds so only what we'd have kept in memory
+// ends up on the heap.  When the segment grows past its limit - and to more than twice what it was
+// when last rewritten, so that a large retained set doesn't have us rewriting on every append - it's
+// rewritten with just the messages we're still holding.  A record that can't be written doesn't stop
+// the writer; it's counted and the segment is rebuilt from memory, which is always the full truth.
+//
+// String fields are stored as length-prefixed UTF-8 and capped (the message text at whatever is left
+// of MAX_RECORD_BYTES) so that no message can produce a record we can't write or read back.
+public class TextMessageStore
+{
+    private static String TAG = TextMessageStore.class.getSimpleName();
+
+    private final static Charset UTF8 = Charset.forName("UTF-8");//NON-NLS
+
+    public final static int CHUNK_SIZE = 64;
+
+    private final static int RECORD_VERSION_UTF = 1;
+    private final static int RECORD_VERSION = 2;
+    private final static int MAX_RECORD_BYTES = (256 * 1024);
+    private final static int MAX_FIELD_BYTES = 1024;
+    private final static int MAX_TEXT_BYTES = (MAX_RECORD_BYTES - (4 * MAX_FIELD_BYTES));
+    private final static int WRITE_QUEUE_CAPACITY = 1024;
+
+    public static class Stats
+    {
+        public long messagesAppended;
+        public long messagesEvicted;
+        public long messagesLoaded;
+        public long messagesWritten;
+        public long corruptRecords;
+        public long writeFailures;
+        public long compactions;
+        public long truncatedFields;
+        public long segmentBytes;
+    }
+
+    // A read-only, point-in-time view of a group's messages, oldest first
+    public static class Snapshot extends AbstractList<TextMessage> implements RandomAccess
+    {
+        private final TextMessage[][] _chunks;
+        private final int _start;
+        private final int _size;
+
+        private Snapshot(TextMessage[][] chunks, int start, int size)
+        {
+            _chunks = chunks;
+            _start = start;
+            _size = size;
+        }
+
+        @Override
+        public TextMessage get(int index)
+        {
+            if(index < 0 || index >= _size)
+            {
+                throw new IndexOutOfBoundsException("index " + index + ", size " + _size);//NON-NLS
+            }
+
+            int pos = (_start + index);
+            return _chunks[pos / CHUNK_SIZE][pos % CHUNK_SIZE];
+        }
+
+        @Override
+        public int size()
+        {
+            return _size;
+        }
+    }
+
+    private final static Snapshot EMPTY_SNAPSHOT = new Snapshot(new TextMessage[0][], 0, 0);
+
+    private final int _maxMessagesPerGroup;
+    private final long _maxAgeMs;
+    private final long _maxSegmentBytes;
+
+    private final ConcurrentHashMap<String, Snapshot> _groups = new ConcurrentHashMap<>();
+    private final Stats _stats = new Stats();
+
+    private File _file = null;
+    private WriterThread _writer = null;
+
+    public TextMessageStore(int maxMessagesPerGroup, long maxAgeMs, long maxSegmentBytes)
+    {
+        _maxMessagesPerGroup = Math.max(1, maxMessagesPerGroup);
+        _maxAgeMs = maxAgeMs;
+        _maxSegmentBytes = maxSegmentBytes;
+    }
+
+    // Loads whatever is in the segment file (if anything) and starts persisting to it.  Passing a
+    // null file keeps everything in memory only.
+    public void open(File file)
+    {
+        // Outside the lock - the writer may need it to finish up
+        close();
+
+        synchronized (this)
+        {
+            _file = file;
+            if(_file == null)
+            {
+                return;
+            }
+
+            load(System.currentTimeMillis());
+
+            _writer = new WriterThread();
+            _writer.start();
+        }
+    }
+
+    // Flushes anything not yet on disk, stops the writer and lets go of everything in memory
+    public void close()
+    {
+        WriterThread writer;
+
+        synchronized (this)
+        {
+            writer = _writer;
+            _writer = null;
+            _file = null;
+        }
+
+        if(writer != null)
+        {
+            writer.close();
+        }
+
+        _groups.clear();
+    }
+
+    // Closes the store and deletes its segment file - for when the history must not outlive what
+    // it belongs to
+    public void discard(File file)
+    {
+        close();
+
+        if(file != null)
+        {
+            file.delete();
+            new File(file.getPath() + ".tmp").delete();//NON-NLS
+        }
+    }
+
+    // Blocks until everything appended so far has been written (or the timeout expires)
+    public boolean flush(long timeoutMs)
+    {
+        WriterThread writer;
+
+        synchronized (this)
+        {
+            writer = _writer;
+        }
+
+        return (writer == null || writer.awaitWritten(timeoutMs));
+    }
+
+    public void append(TextMessage tm)
+    {
+        if(tm == null || tm._groupId == null)
+        {
+            return;
+        }
+
+        synchronized (this)
+        {
+            appendInternal(tm, System.currentTimeMillis());
+            synchronized (_stats)
+            {
+                _stats.messagesAppended++;
+            }
+
+            if(_writer != null)
+            {
+                _writer.enqueue(tm);
+            }
+        }
+    }
+
+    // Drops anything that has aged out across all groups
+    public synchronized void expire()
+    {
+        long now = System.currentTimeMillis();
+
+        for(String groupId : _groups.keySet())
+        {
+            Snapshot v = _groups.get(groupId);
+            Snapshot nv = evict(v, now);
+            if(nv != v)
+            {
+                if(nv.size() == 0)
+                {
+                    _groups.remove(groupId);
+                }
+                else
+                {
+                    _groups.put(groupId, nv);
+                }
+            }
+        }
+    }
+
+    // Null if we have nothing for the group.  Only this group is checked for messages that have
+    // aged out, and only its oldest message unless something has.
+    public Snapshot getMessages(String groupId)
+    {
+        if(groupId == null)
+        {
+            return null;
+        }
+
+        Snapshot v = _groups.get(groupId);
+        if(v != null && v._size > 0 && isTooOld(v.get(0), System.currentTimeMillis()))
+        {
+            synchronized (this)
+            {
+                v = _groups.get(groupId);
+                if(v != null)
+                {
+                    Snapshot nv = evict(v, System.currentTimeMillis());
+                    if(nv.size() == 0)
+                    {
+                        _groups.remove(groupId);
+                        v = null;
+                    }
+                    else
+                    {
+                        _groups.put(groupId, nv);
+                        v = nv;
+                    }
+                }
+            }
+        }
+
+        return v;
+    }
+
+    // A page of at most count messages starting at fromIndex (oldest is 0).  This is a view on
+    // a snapshot so it's not copied either.
+    public List<TextMessage> getMessages(String groupId, int fromIndex, int count)
+    {
+        Snapshot v = getMessages(groupId);
+        if(v == null)
+        {
+            v = EMPTY_SNAPSHOT;
+        }
+
+        int from = Math.max(0, Math.min(fromIndex, v.size()));
+        int to = Math.max(from, Math.min(from + Math.max(count, 0), v.size()));
+
+        return v.subList(from, to);
+    }
+
+    public int getMessageCount(String groupId)
+    {
+        Snapshot v = getMessages(groupId);
+        return (v == null ? 0 : v.size());
+    }
+
+    public Stats getStats()
+    {
+        Stats rc = new Stats();
+
+        synchronized (_stats)
+        {
+            rc.messagesAppended = _stats.messagesAppended;
+            rc.messagesEvicted = _stats.messagesEvicted;
+            rc.messagesLoaded = _stats.messagesLoaded;
+            rc.messagesWritten = _stats.messagesWritten;
+            rc.corruptRecords = _stats.corruptRecords;
+            rc.writeFailures = _stats.writeFailures;
+            rc.compactions = _stats.compactions;
+            rc.truncatedFields = _stats.truncatedFields;
+            rc.segmentBytes = _stats.segmentBytes;
+        }
+
+        return rc;
+    }
+
+    // Must be called with the lock held
+    private void appendInternal(TextMessage tm, long now)
+    {
+        Snapshot v = _groups.get(tm._groupId);
+        if(v == null)
+        {
+            v = EMPTY_SNAPSHOT;
+        }
+
+        TextMessage[][] chunks = v._chunks;
+        int pos = (v._start + v._size);
+        int chunkIdx = (pos / CHUNK_SIZE);
+
+        if(chunkIdx == chunks.length)
+        {
+            chunks = Arrays.copyOf(chunks, chunks.length + 1);
+            chunks[chunkIdx] = new TextMessage[CHUNK_SIZE];
+        }
+
+        // Nobody can see this slot yet - existing snapshots end before it
+        chunks[chunkIdx][pos % CHUNK_SIZE] = tm;
+
+        Snapshot nv = evict(new Snapshot(chunks, v._start, v._size + 1), now);
+        if(nv.size() == 0)
+        {
+            // Already too old to keep
+            _groups.remove(tm._groupId);
+        }
+        else
+        {
+            _groups.put(tm._groupId, nv);
+        }
+    }
+
+    private boolean isTooOld(TextMessage tm, long now)
+    {
+        return (_maxAgeMs > 0 && tm._ts != null && tm._ts.getTime() < (now - _maxAgeMs));
+    }
+
+    private Snapshot evict(Snapshot v, long now)
+    {
+        int start = v._start;
+        int size = v._size;
+
+        while(size > 0)
+        {
+            TextMessage oldest = v._chunks[start / CHUNK_SIZE][start % CHUNK_SIZE];
+            if(size > _maxMessagesPerGroup || isTooOld(oldest, now))
+            {
+                start++;
+                size--;
+            }
+            else
+            {
+                break;
+            }
+        }
+
+        if(start == v._start)
+        {
+            return v;
+        }
+
+        synchronized (_stats)
+        {
+            _stats.messagesEvicted += (start - v._start);
+        }
+
+        TextMessage[][] chunks = v._chunks;
+        int drop = (start / CHUNK_SIZE);
+        if(drop > 0)
+        {
+            chunks = Arrays.copyOfRange(chunks, drop, chunks.length);
+            start -= (drop * CHUNK_SIZE);
+        }
+
+        return new Snapshot(chunks, start, size);
+    }
+
+    private void load(long now)
+    {
+        if(!_file.exists())
+        {
+            return;
+        }
+
+        long goodLength = 0;
+
+        try(DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(_file))))
+        {
+            while(true)
+            {
+                int len;
+
+                try
+                {
+                    len = dis.readInt();
+                }
+                catch (EOFException eof)
+                {
+                    break;
+                }
+
+                if(len <= 0 || len > MAX_RECORD_BYTES)
+                {
+                    throw new Exception("bad record length " + len);//NON-NLS
+                }
+
+                byte[] payload = new byte[len];
+                dis.readFully(payload);
+                int crc = dis.readInt();
+
+                if(crcOf(payload) != crc)
+                {
+                    throw new Exception("bad record checksum");//NON-NLS
+                }
+
+                TextMessage tm = decode(payload);
+                goodLength += (4 + len + 4);
+
+                if(_maxAgeMs <= 0 || tm._ts == null || tm._ts.getTime() >= (now - _maxAgeMs))
+                {
+                    appendInternal(tm, now);
+                    synchronized (_stats)
+                    {
+                        _stats.messagesLoaded++;
+                    }
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            // Most likely a record that was half-written when we went down - cut it off so
+            // that we keep appending from a good point
+            synchronized (_stats)
+            {
+                _stats.corruptRecords++;
+            }
+
+            try(RandomAccessFile raf = new RandomAccessFile(_file, "rw"))//NON-NLS
+            {
+                raf.setLength(goodLength);
+            }
+            catch (Exception e2)
+            {
+                e2.printStackTrace();
+            }
+        }
+
+        synchronized (_stats)
+        {
+            _stats.segmentBytes = goodLength;
+        }
+    }
+
+    private static int crcOf(byte[] payload)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    private static String emptyIfNull(String s)
+    {
+        return (s == null ? "" : s);
+    }
+
+    private static String nullIfEmpty(String s)
+    {
+        return (s.isEmpty() ? null : s);
+    }
+
+    // Returns true if the string had to be cut short
+    private static boolean writeString(DataOutputStream dos, String s, int maxBytes) throws Exception
+    {
+        byte[] b = emptyIfNull(s).getBytes(UTF8);
+        int len = b.length;
+
+        if(len > maxBytes)
+        {
+            // Back up to the start of a character
+            len = maxBytes;
+            while(len > 0 && (b[len] & 0xc0) == 0x80)
+            {
+                len--;
+            }
+        }
+
+        dos.writeInt(len);
+        dos.write(b, 0, len);
+
+        return (len != b.length);
+    }
+
+    private static String readString(DataInputStream dis, int maxBytes) throws Exception
+    {
+        int len = dis.readInt();
+        if(len < 0 || len > maxBytes)
+        {
+            throw new Exception("bad field length " + len);//NON-NLS
+        }
+
+        byte[] b = new byte[len];
+        dis.readFully(b);
+
+        return new String(b, UTF8);
+    }
+
+    static byte[] encode(TextMessage tm) throws Exception
+    {
+        return encode(tm, null);
+    }
+
+    // truncated, if not null, gets the number of fields that had to be cut short
+    static byte[] encode(TextMessage tm, int[] truncated) throws Exception
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(64 + (tm._messageText == null ? 0 : tm._messageText.length() * 3));
+        DataOutputStream dos = new DataOutputStream(bos);
+        int cut = 0;
+
+        dos.writeByte(RECORD_VERSION);
+        dos.writeLong(tm._ts == null ? 0 : tm._ts.getTime());
+        dos.writeByte(tm._direction == TextMessage.Direction.sent ? 0 : 1);
+        cut += (writeString(dos, tm._groupId, MAX_FIELD_BYTES) ? 1 : 0);
+        cut += (writeString(dos, tm._sourceNodeId, MAX_FIELD_BYTES) ? 1 : 0);
+        cut += (writeString(dos, tm._sourceDisplayName, MAX_FIELD_BYTES) ? 1 : 0);
+        cut += (writeString(dos, tm._messageText, MAX_TEXT_BYTES) ? 1 : 0);
+        dos.flush();
+
+        if(truncated != null)
+        {
+            truncated[0] = cut;
+        }
+
+        return bos.toByteArray();
+    }
+
+    static TextMessage decode(byte[] payload) throws Exception
+    {
+        DataInputStream dis = new DataInputStream(new java.io.ByteArrayInputStream(payload));
+
+        int version = dis.readUnsignedByte();
+        if(version != RECORD_VERSION && version != RECORD_VERSION_UTF)
+        {
+            throw new Exception("unsupported record version " + version);//NON-NLS
+        }
+
+        TextMessage tm = new TextMessage();
+        long ts = dis.readLong();
+        tm._ts = (ts == 0 ? null : new Date(ts));
+        tm._direction = (dis.readUnsignedByte() == 0 ? TextMessage.Direction.sent : TextMessage.Direction.received);
+
+        if(version == RECORD_VERSION_UTF)
+        {
+            // Written by older builds
+            tm._groupId = dis.readUTF();
+            tm._sourceNodeId = nullIfEmpty(dis.readUTF());
+            tm._sourceDisplayName = nullIfEmpty(dis.readUTF());
+            tm._messageText = dis.readUTF();
+        }
+        else
+        {
+            tm._groupId = readString(dis, MAX_FIELD_BYTES);
+            tm._sourceNodeId = nullIfEmpty(readString(dis, MAX_FIELD_BYTES));
+            tm._sourceDisplayName = nullIfEmpty(readString(dis, MAX_FIELD_BYTES));
+            tm._messageText = readString(dis, MAX_TEXT_BYTES);
+        }
+
+        return tm;
+    }
+
+    // Appends records to the segment file and rewrites it when it gets too big
+    private class WriterThread extends Thread
+    {
+        final String TAG = TextMessageStore.class.getSimpleName() + "." + WriterThread.class.getSimpleName();
+
+        private volatile boolean _running = true;
+        private final ArrayBlockingQueue<TextMessage> _queue = new ArrayBlockingQueue<>(WRITE_QUEUE_CAPACITY);
+        private final Object _progressLock = new Object();
+        private long _enqueued = 0;
+        private long _written = 0;
+        private final File _segment = _file;
+        private DataOutputStream _out = null;
+        private long _segmentBytes = 0;
+        private long _compactedBytes = 0;
+        private boolean _rebuild = false;
+
+        // Called with the store lock held
+        void enqueue(TextMessage tm)
+        {
+            synchronized (_progressLock)
+            {
+                _enqueued++;
+            }
+
+            if(!_queue.offer(tm))
+            {
+                // Way behind - it's still in memory and will be picked up by the next compaction
+                markWritten(1);
+                synchronized (_stats)
+                {
+                    _stats.writeFailures++;
+                }
+            }
+        }
+
+        boolean awaitWritten(long timeoutMs)
+        {
+            long deadline = System.currentTimeMillis() + timeoutMs;
+
+            synchronized (_progressLock)
+            {
+                long target = _enqueued;
+                while(_written < target)
+                {
+                    long left = (deadline - System.currentTimeMillis());
+                    if(left <= 0)
+                    {
+                        return false;
+                    }
+
+                    try
+                    {
+                        _progressLock.wait(left);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return false;
+                    }
+                }
+            }
+
+            return true;
+        }
+
+        private void markWritten(long count)
+        {
+            synchronized (_progressLock)
+            {
+                _written += count;
+                _progressLock.notifyAll();
+            }
+        }
+
+        public void close()
+        {
+            _running = false;
+            interrupt();
+
+            try
+            {
+                join();
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+
+        public void run()
+        {
+            _segmentBytes = _segment.length();
+            _compactedBytes = _segmentBytes;
+
+            try
+            {
+                openOutput();
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+                failed();
+            }
+
+            while(_running || !_queue.isEmpty())
+            {
+                TextMessage tm;
+
+                try
+                {
+                    tm = (_running ? _queue.poll(1, TimeUnit.SECONDS) : _queue.poll());
+                }
+                catch (InterruptedException e)
+                {
+                    continue;
+                }
+
+                if(tm == null)
+                {
+                    continue;
+                }
+
+                try
+                {
+                    // While the segment needs rebuilding what it would be appended to isn't
+                    // trustworthy - the rebuild takes this message from memory anyway
+                    if(!_rebuild)
+                    {
+                        write(tm);
+
+                        // Push it out once we've caught up rather than after every record
+                        if(_queue.isEmpty())
+                        {
+                            _out.flush();
+                        }
+                    }
+                }
+                catch (Exception e)
+                {
+                    e.printStackTrace();
+                    failed();
+                }
+
+                if(_rebuild || shouldCompact())
+                {
+                    try
+                    {
+                        compact();
+                        _rebuild = false;
+                    }
+                    catch (Exception e)
+                    {
+                        // We'll try again with the next message
+                        e.printStackTrace();
+                        failed();
+                    }
+                }
+
+                // Only once any rewrite it triggered is done so a flush() covers that too
+                markWritten(1);
+            }
+
+            closeOutput();
+
+            // Nobody should be left waiting on us
+            synchronized (_progressLock)
+            {
+                _written = _enqueued;
+                _progressLock.notifyAll();
+            }
+        }
+
+        // Past the limit and at least double what the last rewrite produced
+        private boolean shouldCompact()
+        {
+            return (_maxSegmentBytes > 0
+                    && _segmentBytes > _maxSegmentBytes
+                    && _segmentBytes > (2 * _compactedBytes));
+        }
+
+        // Whatever was half-written can't be trusted so the segment gets rebuilt from memory
+        private void failed()
+        {
+            closeOutput();
+            _rebuild = true;
+
+            synchronized (_stats)
+            {
+                _stats.writeFailures++;
+            }
+        }
+
+        private void openOutput() throws Exception
+        {
+            _out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(_segment, true)));
+        }
+
+        private void closeOutput()
+        {
+            if(_out != null)
+            {
+                try
+                {
+                    _out.close();
+                }
+                catch (Exception e)
+                {
+                    e.printStackTrace();
+                }
+
+                _out = null;
+            }
+        }
+
+        private void write(TextMessage tm) throws Exception
+        {
+            if(_out == null)
+            {
+                openOutput();
+            }
+
+            _segmentBytes += writeRecord(_out, tm);
+
+            synchronized (_stats)
+            {
+                _stats.messagesWritten++;
+                _stats.segmentBytes = _segmentBytes;
+            }
+        }
+
+        // Returns the number of bytes the record took up
+        private int writeRecord(DataOutputStream out, TextMessage tm) throws Exception
+        {
+            int[] truncated = new int[1];
+            byte[] payload = encode(tm, truncated);
+            if(truncated[0] > 0)
+            {
+                synchronized (_stats)
+                {
+                    _stats.truncatedFields += truncated[0];
+                }
+            }
+
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.writeInt(crcOf(payload));
+
+            return (4 + payload.length + 4);
+        }
+
+        // Rewrites the segment with only the messages we're still holding
+        private void compact() throws Exception
+        {
+            ArrayList<Snapshot> snapshots = new ArrayList<>();
+            int dropped;
+
+            synchronized (TextMessageStore.this)
+            {
+                // Anything still queued is already in memory and so goes out with the snapshots
+                dropped = _queue.size();
+                _queue.clear();
+                snapshots.addAll(_groups.values());
+            }
+
+            markWritten(dropped);
+            closeOutput();
+
+            File tmp = new File(_segment.getPath() + ".tmp");//NON-NLS
+            long bytes = 0;
+
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp, false))))
+            {
+                for(Snapshot v : snapshots)
+                {
+                    for(TextMessage tm : v)
+                    {
+                        bytes += writeRecord(out, tm);
+                    }
+                }
+            }
+
+            if(!tmp.renameTo(_segment))
+            {
+                throw new Exception("cannot replace " + _segment.getPath());//NON-NLS
+            }
+
+            _segmentBytes = bytes;
+            _compactedBytes = bytes;
+            openOutput();
+
+            synchronized (_stats)
+            {
+                _stats.compactions++;
+                _stats.segmentBytes = _segmentBytes;
+            }
+        }
+    }
+}
@@ -33,6 +33,7 @@ import org.json.JSONObject;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
 import java.util.Locale;
 
 public class TextMessagingFragment extends Fragment
@@ -44,7 +45,7 @@ public class TextMessagingFragment extends Fragment
     private ListView _lvMessages;
     private MessageAdapter _adapter;
     private EditText _etTextMessage = null;
-    private ArrayList<TextMessage> _messageList = new ArrayList<>();
+    private List<TextMessage> _messageList = new ArrayList<>();
     private ImageView _ivDictateTextMessage = null;
 
     private SpeechRecognizer _speechRecognizer;
@@ -380,7 +381,19 @@ public class TextMessagingFragment extends Fragment
 
     public void appendMessage(TextMessage tm)
     {
-        _messageList.add(tm);
+        // What we have is a snapshot from the application - pick up a fresh one which will
+        // include this message
+        List<TextMessage> latest = Globals.getEngageApplication().getTextMessagesForGroup(tm._groupId);
+        if(latest != null && !latest.isEmpty() && latest.get(latest.size() - 1) == tm)
+        {
+            _messageList = latest;
+        }
+        else
+        {
+            ArrayList<TextMessage> tmp = new ArrayList<>(_messageList);
+            tmp.add(tm);
+            _messageList = tmp;
+        }
         _adapter.notifyDataSetChanged();
         _lvMessages.setSelection(_lvMessages.getCount() - 1);
     }
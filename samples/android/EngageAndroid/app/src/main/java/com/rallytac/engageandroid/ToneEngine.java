@@ -0,0 +1,469 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.os.Build;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+
+// Plays notification tones from memory.  Every tone is decoded to mono PCM at the output's native
+// rate once, up front, and from then on playing one is just a matter of handing it to the mixer
+// which feeds a single low-latency AudioTrack.  The track is created and started at start so that
+// the first tone doesn't pay for setting up the output path either.
+//
+// The track is paused once nothing has played for TONE_ENGINE_IDLE_PAUSE_MS so that we're not
+// burning CPU pushing silence around all day - the tone after a pause pays for restarting it, which
+// shows up in the latency stats.
+//
+// A tone's listener is told it's finished once the track's playback head has got past its last
+// sample rather than when that sample was handed to the track.
+public class ToneEngine
+{
+    private static String TAG = ToneEngine.class.getSimpleName();
+
+    private final Context _ctx;
+    private final int _sampleRate;
+    private final int _framesPerBurst;
+    private final ToneMixer _mixer;
+    private AudioTrack _track = null;
+    private OutputThread _thread = null;
+
+    public ToneEngine(Context ctx)
+    {
+        _ctx = ctx;
+
+        AudioManager am = (AudioManager) ctx.getSystemService(Context.AUDIO_SERVICE);
+        _sampleRate = getIntProperty(am, AudioManager.PROPERTY_OUTPUT_SAMPLE_RATE, Constants.TONE_ENGINE_DEF_SAMPLE_RATE);
+        _framesPerBurst = getIntProperty(am, AudioManager.PROPERTY_OUTPUT_FRAMES_PER_BUFFER, Constants.TONE_ENGINE_DEF_FRAMES_PER_BURST);
+        _mixer = new ToneMixer(_sampleRate);
+    }
+
+    // Decodes the tones and brings up the output.  Tones that can't be decoded are logged and left
+    // out - playing one of those will return false so the caller can fall back to something else.
+    public synchronized boolean start(int[] resourceIds)
+    {
+        if(_thread != null)
+        {
+            return true;
+        }
+
+        long started = Utils.nowMs();
+
+        for(int id : resourceIds)
+        {
+            try
+            {
+                _mixer.addTone(id, decodeResource(_ctx, id, _sampleRate));
+            }
+            catch (Exception e)
+            {
+                Globals.getLogger().w(TAG, "cannot decode tone resource " + id + ": " + e.getMessage());//NON-NLS
+            }
+        }
+
+        Globals.getLogger().i(TAG, "decoded " + _mixer.getToneCount() + " of " + resourceIds.length + " tones at " + _sampleRate + "Hz in " + (Utils.nowMs() - started) + "ms");//NON-NLS
+
+        try
+        {
+            int minBufferBytes = AudioTrack.getMinBufferSize(_sampleRate, AudioFormat.CHANNEL_OUT_MONO, AudioFormat.ENCODING_PCM_16BIT);
+
+            AudioTrack.Builder builder = new AudioTrack.Builder()
+                    .setAudioAttributes(new AudioAttributes.Builder()
+                            .setUsage(AudioAttributes.USAGE_MEDIA)
+                            .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                            .build())
+                    .setAudioFormat(new AudioFormat.Builder()
+                            .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                            .setSampleRate(_sampleRate)
+                            .setChannelMask(AudioFormat.CHANNEL_OUT_MONO)
+                            .build())
+                    .setBufferSizeInBytes(Math.max(minBufferBytes, _framesPerBurst * 2 * 2))
+                    .setTransferMode(AudioTrack.MODE_STREAM);
+
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O)
+            {
+                builder.setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY);
+            }
+
+            _track = builder.build();
+        }
+        catch (Exception e)
+        {
+            Globals.getLogger().e(TAG, "cannot create tone output: " + e.getMessage());//NON-NLS
+            _track = null;
+            return false;
+        }
+
+        _thread = new OutputThread();
+        _thread.start();
+
+        return true;
+    }
+
+    public void stop()
+    {
+        OutputThread thread;
+
+        synchronized (this)
+        {
+            thread = _thread;
+            _thread = null;
+        }
+
+        if(thread != null)
+        {
+            thread.close();
+        }
+
+        _mixer.stopAll();
+
+        synchronized (this)
+        {
+            if(_track != null)
+            {
+                _track.release();
+                _track = null;
+            }
+        }
+    }
+
+    public boolean hasTone(int id)
+    {
+        return _mixer.hasTone(id);
+    }
+
+    public boolean play(int id, float gain, boolean interrupt, ToneMixer.IToneListener listener, Object tag)
+    {
+        OutputThread thread = _thread;
+
+        if(thread == null || !_mixer.play(id, gain, interrupt, System.nanoTime(), listener, tag))
+        {
+            return false;
+        }
+
+        thread.wake();
+
+        return true;
+    }
+
+    public int stop(int id)
+    {
+        return _mixer.stop(id);
+    }
+
+    public int stopAll()
+    {
+        return _mixer.stopAll();
+    }
+
+    // Request-to-first-sample latency (including what was queued in the track ahead of the tone)
+    public ToneMixer.LatencyStats getLatencyStats(int id)
+    {
+        return _mixer.getLatencyStats(id);
+    }
+
+    public HashMap<Integer, ToneMixer.LatencyStats> getAllLatencyStats()
+    {
+        return _mixer.getAllLatencyStats();
+    }
+
+    private static int getIntProperty(AudioManager am, String name, int def)
+    {
+        try
+        {
+            String s = am.getProperty(name);
+            if(!Utils.isEmptyString(s))
+            {
+                int v = Integer.parseInt(s);
+                if(v > 0)
+                {
+                    return v;
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+
+        return def;
+    }
+
+    // Decodes a raw resource (anything MediaExtractor understands - wav, mp3, ...) to mono 16-bit PCM at outRate
+    public static short[] decodeResource(Context ctx, int resId, int outRate) throws Exception
+    {
+        AssetFileDescriptor afd = ctx.getResources().openRawResourceFd(resId);
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+
+        try
+        {
+            extractor.setDataSource(afd.getFileDescriptor(), afd.getStartOffset(), afd.getLength());
+
+            MediaFormat format = null;
+            for(int x = 0; x < extractor.getTrackCount(); x++)
+            {
+                MediaFormat f = extractor.getTrackFormat(x);
+                String mime = f.getString(MediaFormat.KEY_MIME);
+                if(mime != null && mime.startsWith("audio/"))//NON-NLS
+                {
+                    extractor.selectTrack(x);
+                    format = f;
+                    break;
+                }
+            }
+
+            if(format == null)
+            {
+                throw new Exception("no audio track");//NON-NLS
+            }
+
+            int inRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+            int channels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            short[] pcm = new short[inRate * channels];
+            int pcmLen = 0;
+            boolean inputDone = false;
+            boolean outputDone = false;
+            long deadline = Utils.nowMs() + Constants.TONE_ENGINE_DECODE_TIMEOUT_MS;
+
+            while(!outputDone)
+            {
+                if(Utils.nowMs() > deadline)
+                {
+                    throw new Exception("timed out decoding");//NON-NLS
+                }
+
+                if(!inputDone)
+                {
+                    int inIdx = codec.dequeueInputBuffer(10000);
+                    if(inIdx >= 0)
+                    {
+                        int n = extractor.readSampleData(codec.getInputBuffer(inIdx), 0);
+                        if(n < 0)
+                        {
+                            codec.queueInputBuffer(inIdx, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        }
+                        else
+                        {
+                            codec.queueInputBuffer(inIdx, 0, n, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+
+                int outIdx = codec.dequeueOutputBuffer(info, 10000);
+                if(outIdx >= 0)
+                {
+                    ByteBuffer ob = codec.getOutputBuffer(outIdx);
+                    if(ob != null && info.size > 0)
+                    {
+                        ob.position(info.offset);
+                        ob.limit(info.offset + info.size);
+                        ShortBuffer sb = ob.order(ByteOrder.nativeOrder()).asShortBuffer();
+
+                        if(pcmLen + sb.remaining() > pcm.length)
+                        {
+                            pcm = Arrays.copyOf(pcm, Math.max(pcm.length * 2, pcmLen + sb.remaining()));
+                        }
+
+                        int n = sb.remaining();
+                        sb.get(pcm, pcmLen, n);
+                        pcmLen += n;
+                    }
+
+                    codec.releaseOutputBuffer(outIdx, false);
+
+                    if((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0)
+                    {
+                        outputDone = true;
+                    }
+                }
+                else if(outIdx == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED)
+                {
+                    MediaFormat of = codec.getOutputFormat();
+                    inRate = of.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+                    channels = of.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+                }
+            }
+
+            // Down to mono
+            int frames = (pcmLen / channels);
+            short[] mono = new short[frames];
+            for(int f = 0; f < frames; f++)
+            {
+                int sum = 0;
+                for(int c = 0; c < channels; c++)
+                {
+                    sum += pcm[(f * channels) + c];
+                }
+                mono[f] = (short) (sum / channels);
+            }
+
+            // ... and on to the output rate
+            AudioResampler resampler = new AudioResampler(inRate, outRate, 1);
+            short[] out = new short[resampler.getMaxOutputSamples(mono.length)];
+            int outLen = resampler.process(mono, 0, mono.length, out, 0);
+
+            return Arrays.copyOf(out, outLen);
+        }
+        finally
+        {
+            if(codec != null)
+            {
+                try
+                {
+                    codec.stop();
+                }
+                catch (Exception e)
+                {
+                    e.printStackTrace();
+                }
+
+                codec.release();
+            }
+
+            extractor.release();
+            afd.close();
+        }
+    }
+
+    private class OutputThread extends Thread
+    {
+        final String TAG = ToneEngine.class.getSimpleName() + "." + OutputThread.class.getSimpleName();
+
+        private volatile boolean _running = true;
+        private final Object _wakeLock = new Object();
+
+        OutputThread()
+        {
+            super("ToneEngine");//NON-NLS
+        }
+
+        public void wake()
+        {
+            synchronized (_wakeLock)
+            {
+                _wakeLock.notifyAll();
+            }
+        }
+
+        public void close()
+        {
+            _running = false;
+            wake();
+
+            try
+            {
+                join();
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+
+        public void run()
+        {
+            android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_URGENT_AUDIO);
+
+            AudioTrack track = _track;
+            short[] burst = new short[_framesPerBurst];
+            long framesWritten = 0;
+            long lastActive = Utils.nowMs();
+
+            // Start out playing (silence) so that the output path is warmed up before the first tone
+            track.play();
+            boolean playing = true;
+
+            while(_running)
+            {
+                if(!playing)
+                {
+                    synchronized (_wakeLock)
+                    {
+                        while(_running && !_mixer.isActive())
+                        {
+                            try
+                            {
+                                _wakeLock.wait();
+                            }
+                            catch (InterruptedException e)
+                            {
+                                break;
+                            }
+                        }
+                    }
+
+                    if(!_running)
+                    {
+                        break;
+                    }
+
+                    track.play();
+                    playing = true;
+                    framesWritten = 0;
+                }
+
+                // Whatever has been written but not yet played out is ahead of anything we start now
+                long queued = Math.max(0, framesWritten - (track.getPlaybackHeadPosition() & 0xffffffffL));
+                boolean active = _mixer.isActive();
+
+                _mixer.releasePlayedOut(_mixer.getPosition() - queued);
+
+                _mixer.mix(burst, 0, burst.length, System.nanoTime(), (int) queued);
+
+                int ofs = 0;
+                while(ofs < burst.length && _running)
+                {
+                    int n = track.write(burst, ofs, burst.length - ofs);
+                    if(n < 0)
+                    {
+                        Globals.getLogger().w(TAG, "track write failed: " + n);//NON-NLS
+                        break;
+                    }
+                    ofs += n;
+                }
+
+                framesWritten += ofs;
+
+                long now = Utils.nowMs();
+                if(active)
+                {
+                    lastActive = now;
+                }
+                else if((now - lastActive) > Constants.TONE_ENGINE_IDLE_PAUSE_MS)
+                {
+                    track.pause();
+                    track.flush();
+                    _mixer.resetPosition();
+                    playing = false;
+                }
+            }
+
+            track.stop();
+        }
+    }
+}
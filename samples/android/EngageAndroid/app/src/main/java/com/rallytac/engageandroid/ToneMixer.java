@@ -0,0 +1,395 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+// Mixes preloaded mono 16-bit tones into an output stream.  Any number of tones can be playing
+// at once (they're summed and clipped) and any of them can be stopped part-way through.
+//
+// A tone that has been mixed all the way through isn't finished until the output has actually
+// played it - the caller tells us how far playout has got with releasePlayedOut() and that's when
+// its listener hears about it.  Tones that are stopped are reported straight away.
+//
+// The mixer also keeps track of how long it takes from a tone being requested to its first
+// sample reaching the output.  The caller supplies the clock and how much audio is already
+// queued ahead of what it's about to mix, so the mixer itself has no platform dependencies.
+public class ToneMixer
+{
+    private static String TAG = ToneMixer.class.getSimpleName();
+
+    public interface IToneListener
+    {
+        void onToneFinished(int id, Object tag, boolean interrupted);
+    }
+
+    public static class LatencyStats
+    {
+        public long count;
+        public long lastUs;
+        public long minUs;
+        public long maxUs;
+        public long totalUs;
+
+        public long getAverageUs()
+        {
+            return (count > 0 ? (totalUs / count) : 0);
+        }
+
+        LatencyStats copy()
+        {
+            LatencyStats rc = new LatencyStats();
+
+            rc.count = count;
+            rc.lastUs = lastUs;
+            rc.minUs = minUs;
+            rc.maxUs = maxUs;
+            rc.totalUs = totalUs;
+
+            return rc;
+        }
+    }
+
+    private static class Voice
+    {
+        int id;
+        short[] pcm;
+        int pos;
+        int gainQ15;
+        long requestNanos;
+        boolean started;
+        long endPosition;
+        IToneListener listener;
+        Object tag;
+    }
+
+    private final int _sampleRate;
+    private final HashMap<Integer, short[]> _tones = new HashMap<>();
+    private final HashMap<Integer, LatencyStats> _latency = new HashMap<>();
+    private final ArrayList<Voice> _voices = new ArrayList<>();
+    private final ArrayList<Voice> _mixedOut = new ArrayList<>();
+    private long _position = 0;
+    private int[] _acc = new int[0];
+
+    public ToneMixer(int sampleRate)
+    {
+        _sampleRate = sampleRate;
+    }
+
+    public int getSampleRate()
+    {
+        return _sampleRate;
+    }
+
+    public synchronized void addTone(int id, short[] pcm)
+    {
+        _tones.put(id, pcm);
+    }
+
+    public synchronized boolean hasTone(int id)
+    {
+        return _tones.containsKey(id);
+    }
+
+    public synchronized int getToneCount()
+    {
+        return _tones.size();
+    }
+
+    // Returns false if we don't have the tone.  If interrupt is set, whatever is playing is
+    // stopped first.
+    public boolean play(int id, float gain, boolean interrupt, long requestNanos, IToneListener listener, Object tag)
+    {
+        ArrayList<Voice> stopped = null;
+
+        synchronized (this)
+        {
+            short[] pcm = _tones.get(id);
+            if(pcm == null)
+            {
+                return false;
+            }
+
+            if(interrupt)
+            {
+                stopped = new ArrayList<>(_voices);
+                _voices.clear();
+            }
+
+            Voice v = new Voice();
+            v.id = id;
+            v.pcm = pcm;
+            v.pos = 0;
+            v.gainQ15 = Math.round(Math.max(0.0f, Math.min(1.0f, gain)) * 32768.0f);
+            v.requestNanos = requestNanos;
+            v.started = false;
+            v.listener = listener;
+            v.tag = tag;
+
+            _voices.add(v);
+        }
+
+        notifyFinished(stopped, true);
+
+        return true;
+    }
+
+    // Stops every playing instance of the tone, returns how many there were
+    public int stop(int id)
+    {
+        ArrayList<Voice> stopped = new ArrayList<>();
+
+        synchronized (this)
+        {
+            for(int x = _voices.size() - 1; x >= 0; x--)
+            {
+                if(_voices.get(x).id == id)
+                {
+                    stopped.add(0, _voices.remove(x));
+                }
+            }
+        }
+
+        notifyFinished(stopped, true);
+
+        return stopped.size();
+    }
+
+    // Stops everything that's playing, returns how many there were.  Tones that were mixed but may
+    // not have been played out yet are reported as interrupted too.
+    public int stopAll()
+    {
+        ArrayList<Voice> stopped;
+        int rc;
+
+        synchronized (this)
+        {
+            rc = _voices.size();
+            stopped = new ArrayList<>(_mixedOut);
+            stopped.addAll(_voices);
+            _mixedOut.clear();
+            _voices.clear();
+        }
+
+        notifyFinished(stopped, true);
+
+        return rc;
+    }
+
+    // How many samples have been mixed since the start (or the last resetPosition())
+    public synchronized long getPosition()
+    {
+        return _position;
+    }
+
+    // The output has played everything up to playedPosition (in our positions) - tones that ended
+    // at or before that are finished.  Returns how many that was.
+    public int releasePlayedOut(long playedPosition)
+    {
+        ArrayList<Voice> finished = null;
+
+        synchronized (this)
+        {
+            for(int x = 0; x < _mixedOut.size(); )
+            {
+                Voice v = _mixedOut.get(x);
+                if(v.endPosition <= playedPosition)
+                {
+                    if(finished == null)
+                    {
+                        finished = new ArrayList<>();
+                    }
+
+                    finished.add(_mixedOut.remove(x));
+                }
+                else
+                {
+                    x++;
+                }
+            }
+        }
+
+        notifyFinished(finished, false);
+
+        return (finished != null ? finished.size() : 0);
+    }
+
+    // Starts positions from zero again - for when the output has been flushed and restarted.  Anything
+    // still waiting to be played out is taken as done.
+    public void resetPosition()
+    {
+        releasePlayedOut(Long.MAX_VALUE);
+
+        synchronized (this)
+        {
+            _position = 0;
+        }
+    }
+
+    public synchronized boolean isActive()
+    {
+        return !_voices.isEmpty();
+    }
+
+    public synchronized int getActiveCount()
+    {
+        return _voices.size();
+    }
+
+    // Fills out[ofs .. ofs + samples) with the mix (silence if nothing is playing).  queuedAheadSamples
+    // is how much audio is already waiting to be played out ahead of this block - it goes into the
+    // latency measurement for tones that start here.  Returns the number of tones still playing.
+    public int mix(short[] out, int ofs, int samples, long nowNanos, int queuedAheadSamples)
+    {
+        int rc;
+
+        synchronized (this)
+        {
+            long blockStart = _position;
+            _position += samples;
+
+            if(_voices.isEmpty())
+            {
+                for(int x = 0; x < samples; x++)
+                {
+                    out[ofs + x] = 0;
+                }
+
+                return 0;
+            }
+
+            if(_acc.length < samples)
+            {
+                _acc = new int[samples];
+            }
+
+            for(int x = 0; x < samples; x++)
+            {
+                _acc[x] = 0;
+            }
+
+            for(int vi = _voices.size() - 1; vi >= 0; vi--)
+            {
+                Voice v = _voices.get(vi);
+
+                if(!v.started)
+                {
+                    v.started = true;
+                    long queuedNanos = ((long) queuedAheadSamples * 1000000000L) / _sampleRate;
+                    recordLatency(v.id, ((nowNanos - v.requestNanos) + queuedNanos) / 1000);
+                }
+
+                int n = Math.min(samples, v.pcm.length - v.pos);
+                short[] pcm = v.pcm;
+                int pos = v.pos;
+                int gain = v.gainQ15;
+
+                for(int x = 0; x < n; x++)
+                {
+                    _acc[x] += (pcm[pos + x] * gain) >> 15;
+                }
+
+                v.pos += n;
+
+                if(v.pos >= pcm.length)
+                {
+                    // Done here - it's finished once the output gets this far
+                    _voices.remove(vi);
+                    v.endPosition = blockStart + n;
+                    _mixedOut.add(v);
+                }
+            }
+
+            for(int x = 0; x < samples; x++)
+            {
+                int s = _acc[x];
+
+                if(s > Short.MAX_VALUE)
+                {
+                    s = Short.MAX_VALUE;
+                }
+                else if(s < Short.MIN_VALUE)
+                {
+                    s = Short.MIN_VALUE;
+                }
+
+                out[ofs + x] = (short) s;
+            }
+
+            rc = _voices.size();
+        }
+
+        return rc;
+    }
+
+    public synchronized LatencyStats getLatencyStats(int id)
+    {
+        LatencyStats ls = _latency.get(id);
+        return (ls != null ? ls.copy() : null);
+    }
+
+    public synchronized HashMap<Integer, LatencyStats> getAllLatencyStats()
+    {
+        HashMap<Integer, LatencyStats> rc = new HashMap<>();
+
+        for(Integer id : _latency.keySet())
+        {
+            rc.put(id, _latency.get(id).copy());
+        }
+
+        return rc;
+    }
+
+    private void recordLatency(int id, long us)
+    {
+        LatencyStats ls = _latency.get(id);
+        if(ls == null)
+        {
+            ls = new LatencyStats();
+            ls.minUs = us;
+            _latency.put(id, ls);
+        }
+
+        ls.count++;
+        ls.lastUs = us;
+        ls.totalUs += us;
+
+        if(us < ls.minUs)
+        {
+            ls.minUs = us;
+        }
+
+        if(us > ls.maxUs)
+        {
+            ls.maxUs = us;
+        }
+    }
+
+    // Always called outside our lock so that listeners can turn around and play something else
+    private void notifyFinished(ArrayList<Voice> voices, boolean interrupted)
+    {
+        if(voices == null)
+        {
+            return;
+        }
+
+        for(Voice v : voices)
+        {
+            if(v.listener != null)
+            {
+                try
+                {
+                    v.listener.onToneFinished(v.id, v.tag, interrupted);
+                }
+                catch (Exception e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+//
+//  Copyright (c) 2025 Rally Tactical Systems, Inc.
+//  All rights reserved.
+//
+
+package com.rallytac.engageandroid;
+
+// A typed, parsed snapshot of the user-level preferences that go into every ActiveConfiguration.
+// Most of these are stored as strings by the preference screens so they're parsed here, once,
+// rather than every time the configuration is rebuilt.
+public class UserSettings
+{
+    private static String TAG = UserSettings.class.getSimpleName();
+
+    public boolean pttLatchingDefault;
+
+    // Experimental
+    public boolean enforceTransmitSmoothing;
+    public boolean allowDtx;
+    public boolean discoverMagellanAssets;
+    public boolean discoverTrelliswareAssets;
+    public boolean discoverCistechGv1Assets;
+    public String cistechGv1DiscoveryAddress;
+    public int cistechGv1DiscoveryPort;
+    public int cistechGv1DiscoveryTimeoutSecs;
+
+    // UI and notifications
+    public int uiMode;
+    public boolean showTextMessaging;
+    public boolean notifyOnNodeJoin;
+    public boolean notifyOnNodeLeave;
+    public boolean notifyOnNewAudio;
+    public boolean notifyOnNetworkError;
+    public boolean enableVibrations;
+    public boolean notifyPttEveryTime;
+    public boolean enableSpokenPrompts;
+    public float pttToneLevel;
+    public float errorToneLevel;
+    public float notificationToneLevel;
+
+    // Audio
+    public int microphoneAgcLevel;
+    public int speakerAgcLevel;
+    public int audioInputDeviceId;
+    public int audioOutputDeviceId;
+    public boolean keepTxMutedOnPtt;
+    public int crossMuteLocationId;
+
+    // Identity
+    public String networkInterfaceName;
+    public String nodeId;
+    public String userId;
+    public String userDisplayName;
+    public String userAlias;
+
+    // PTT
+    public boolean pttLatching;
+    public boolean pttVoiceControl;
+
+    // Location
+    public boolean locationEnabled;
+    public int locationIntervalSecs;
+    public float locationMinDisplacement;
+
+    // Network
+    public boolean multicastFailoverEnabled;
+
+    public static UserSettings load(SettingsCache sc, boolean defaultPttLatching)
+    {
+        UserSettings rc = new UserSettings();
+
+        rc.pttLatchingDefault = defaultPttLatching;
+
+        rc.enforceTransmitSmoothing = sc.getBoolean(PreferenceKeys.USER_EXPERIMENT_ENABLE_TX_SMOOTHING, true);
+        rc.allowDtx = sc.getBoolean(PreferenceKeys.USER_EXPERIMENT_ALLOW_DTX, true);
+        rc.discoverMagellanAssets = sc.getBoolean(PreferenceKeys.USER_EXPERIMENT_ENABLE_SSDP_DISCOVERY, false);
+        rc.discoverTrelliswareAssets = sc.getBoolean(PreferenceKeys.USER_EXPERIMENT_ENABLE_TRELLISWARE_DISCOVERY, false);
+        rc.discoverCistechGv1Assets = sc.getBoolean(PreferenceKeys.USER_EXPERIMENT_ENABLE_CISTECH_GV1_DISCOVERY, false);
+        rc.cistechGv1DiscoveryAddress = sc.getString(PreferenceKeys.USER_EXPERIMENT_CISTECH_GV1_DISCOVERY_ADDRESS, "");
+        rc.cistechGv1DiscoveryPort = sc.getIntFromString(PreferenceKeys.USER_EXPERIMENT_CISTECH_GV1_DISCOVERY_PORT, 0);
+        rc.cistechGv1DiscoveryTimeoutSecs = sc.getIntFromString(PreferenceKeys.USER_EXPERIMENT_CISTECH_GV1_DISCOVERY_TIMEOUT_SECS, 0);
+
+        rc.uiMode = sc.getInt(PreferenceKeys.UI_MODE, Constants.DEF_UI_MODE.ordinal());
+        rc.showTextMessaging = sc.getBoolean(PreferenceKeys.UI_SHOW_TEXT_MESSAGING, Constants.DEF_UI_SHOW_TEXT_MESSAGING);
+        rc.notifyOnNodeJoin = sc.getBoolean(PreferenceKeys.USER_NOTIFY_NODE_JOIN, Constants.DEF_NOTIFY_NODE_JOIN);
+        rc.notifyOnNodeLeave = sc.getBoolean(PreferenceKeys.USER_NOTIFY_NODE_LEAVE, Constants.DEF_NOTIFY_NODE_LEAVE);
+        rc.notifyOnNewAudio = sc.getBoolean(PreferenceKeys.USER_NOTIFY_NEW_AUDIO_RX, Constants.DEF_NOTIFY_NEW_AUDIO_RX);
+        rc.notifyOnNetworkError = sc.getBoolean(PreferenceKeys.USER_NOTIFY_NETWORK_ERROR, Constants.DEF_NOTIFY_NETWORK_ERROR);
+        rc.enableVibrations = sc.getBoolean(PreferenceKeys.USER_NOTIFY_VIBRATIONS, Constants.DEF_NOTIFY_VIBRATIONS);
+        rc.notifyPttEveryTime = sc.getBoolean(PreferenceKeys.USER_NOTIFY_PTT_EVERY_TIME, Constants.DEF_NOTIFY_PTT_EVERY_TIME);
+        rc.enableSpokenPrompts = sc.getBoolean(PreferenceKeys.USER_NOTIFY_SPOKEN_PROMPTS, Constants.DEF_NOTIFY_SPOKEN_PROMPTS);
+        rc.pttToneLevel = sc.getFloatFromString(PreferenceKeys.USER_TONE_LEVEL_PTT, Constants.DEF_PTT_TONE_LEVEL);
+        rc.errorToneLevel = sc.getFloatFromString(PreferenceKeys.USER_TONE_LEVEL_ERROR, Constants.DEF_ERROR_TONE_LEVEL);
+        rc.notificationToneLevel = sc.getFloatFromString(PreferenceKeys.USER_TONE_LEVEL_NOTIFICATION, Constants.DEF_PTT_TONE_LEVEL);
+
+        rc.microphoneAgcLevel = sc.getIntFromString(PreferenceKeys.USER_AUDIO_MICROPHONE_AGC_LEVEL, 0);
+        rc.speakerAgcLevel = sc.getIntFromString(PreferenceKeys.USER_AUDIO_SPEAKER_AGC_LEVEL, 0);
+        rc.audioInputDeviceId = sc.getIntFromString(PreferenceKeys.USER_AUDIO_INPUT_DEVICE, Constants.INVALID_AUDIO_DEVICE_ID);
+        rc.audioOutputDeviceId = sc.getIntFromString(PreferenceKeys.USER_AUDIO_OUTPUT_DEVICE, Constants.INVALID_AUDIO_DEVICE_ID);
+        rc.keepTxMutedOnPtt = sc.getBoolean(PreferenceKeys.DEVELOPER_KEEP_PTT_MUTED_ON_TX, Constants.DEF_KEEP_PTT_MUTED_ON_TX);
+        rc.crossMuteLocationId = sc.getIntFromString(PreferenceKeys.USER_CROSS_MUTE_LOCATION_ID, Constants.DEFAULT_CROSS_MUTE_LOCATION_ID);
+
+        rc.networkInterfaceName = sc.getString(PreferenceKeys.NETWORK_BINDING_NIC_NAME, Constants.DEF_BINDING_NIC_NAME);
+        rc.nodeId = sc.getString(PreferenceKeys.USER_NODE_ID, Constants.DEF_USER_NODE_ID);
+        rc.userId = sc.getString(PreferenceKeys.USER_ID, Constants.DEF_USER_ID);
+        rc.userDisplayName = sc.getString(PreferenceKeys.USER_DISPLAY_NAME, Constants.DEF_USER_DISPLAY_NAME);
+        rc.userAlias = sc.getString(PreferenceKeys.USER_ALIAS_ID, Constants.DEF_USER_ALIAS_ID);
+
+        rc.pttLatching = sc.getBoolean(PreferenceKeys.USER_UI_PTT_LATCHING, defaultPttLatching);
+        rc.pttVoiceControl = sc.getBoolean(PreferenceKeys.USER_UI_PTT_VOICE_CONTROL, Constants.DEF_USER_UI_PTT_VOICE_CONTROL);
+
+        rc.locationEnabled = sc.getBoolean(PreferenceKeys.USER_LOCATION_SHARED, Constants.DEF_LOCATION_ENABLED);
+        rc.locationIntervalSecs = sc.getIntFromString(PreferenceKeys.USER_LOCATION_INTERVAL_SECS, Constants.DEF_LOCATION_INTERVAL_SECS);
+        rc.locationMinDisplacement = sc.getFloatFromString(PreferenceKeys.USER_LOCATION_MIN_DISPLACEMENT, Constants.DEF_LOCATION_MIN_DISPLACEMENT);
+
+        rc.multicastFailoverEnabled = sc.getBoolean(PreferenceKeys.NETWORK_MULTICAST_FAILOVER_ENABLED, Constants.DEF_MULTICAST_FAILOVER_ENABLED);
+
+        return rc;
+    }
+}
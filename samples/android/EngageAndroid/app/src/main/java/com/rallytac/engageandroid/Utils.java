@@ -46,10 +46,10 @@ import com.google.zxing.common.BitMatrix;
 import com.google.zxing.common.HybridBinarizer;
 import com.journeyapps.barcodescanner.BarcodeEncoder;
 
+import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -65,20 +65,20 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 
 public class Utils
@@ -372,16 +372,15 @@ public class Utils
             }
         }
 
-        Globals.getSharedPreferencesEditor().putString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_SELECTED_GROUPS_SINGLE, singleViewId);
-        Globals.getSharedPreferencesEditor().putStringSet(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_SELECTED_GROUPS_MULTI, selectedGroups);
-        Globals.getSharedPreferencesEditor().apply();
+        Globals.getSettings().putString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_SELECTED_GROUPS_SINGLE, singleViewId);
+        Globals.getSettings().putStringSet(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_SELECTED_GROUPS_MULTI, selectedGroups);
     }
 
     public static void selectPreviouslySavedSelectedGroups(ActiveConfiguration ac)
     {
         Set<String> defaultSet = new HashSet<>();
-        HashSet<String> selectedMultiViewGroups = (HashSet) Globals.getSharedPreferences().getStringSet(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_SELECTED_GROUPS_MULTI, defaultSet);
-        String singleViewId = Globals.getSharedPreferences().getString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_SELECTED_GROUPS_SINGLE, null);
+        Set<String> selectedMultiViewGroups = Globals.getSettings().getStringSet(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_SELECTED_GROUPS_MULTI, defaultSet);
+        String singleViewId = Globals.getSettings().getString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_SELECTED_GROUPS_SINGLE, null);
 
         // Let's assume none are selected
         for(GroupDescriptor gd : ac.getMissionGroups())
@@ -463,7 +462,7 @@ public class Utils
         ActiveConfiguration rc;
 
         rc = new ActiveConfiguration();
-        if(!rc.parseTemplate(Globals.getSharedPreferences().getString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_JSON, "")))
+        if(!rc.parseTemplate(Globals.getSettings().getString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_JSON, "")))
         {
             rc = null;
         }
@@ -481,69 +480,69 @@ public class Utils
 
             try
             {
+                UserSettings us = Globals.getSettings().getUserSettings(Globals.getEngageApplication().getResources().getBoolean(R.bool.opt_ptt_latching));
+
                 // !!!!!!!!!! BEGIN EXPERIMENTAL !!!!!!!!!!
-                rc.setEnforceTransmitSmoothing(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_EXPERIMENT_ENABLE_TX_SMOOTHING, true));
-                rc.setAllowDtx(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_EXPERIMENT_ALLOW_DTX, true));
-                rc.setDiscoverMagellanAssets(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_EXPERIMENT_ENABLE_SSDP_DISCOVERY, false));
-                rc.setDiscoverTrelliswareAssets(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_EXPERIMENT_ENABLE_TRELLISWARE_DISCOVERY, false));
+                rc.setEnforceTransmitSmoothing(us.enforceTransmitSmoothing);
+                rc.setAllowDtx(us.allowDtx);
+                rc.setDiscoverMagellanAssets(us.discoverMagellanAssets);
+                rc.setDiscoverTrelliswareAssets(us.discoverTrelliswareAssets);
 
-                rc.setDiscoverCistechGv1Assets(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_EXPERIMENT_ENABLE_CISTECH_GV1_DISCOVERY, false));
-                rc.setCistechGv1DiscoveryAddress(Globals.getSharedPreferences().getString(PreferenceKeys.USER_EXPERIMENT_CISTECH_GV1_DISCOVERY_ADDRESS, ""));
-                rc.setCistechGv1DiscoveryPort(Integer.parseInt(Globals.getSharedPreferences().getString(PreferenceKeys.USER_EXPERIMENT_CISTECH_GV1_DISCOVERY_PORT, "0")));
-                rc.setCistechGv1DiscoveryTimeoutSecs(Integer.parseInt(Globals.getSharedPreferences().getString(PreferenceKeys.USER_EXPERIMENT_CISTECH_GV1_DISCOVERY_TIMEOUT_SECS, "0")));
+                rc.setDiscoverCistechGv1Assets(us.discoverCistechGv1Assets);
+                rc.setCistechGv1DiscoveryAddress(us.cistechGv1DiscoveryAddress);
+                rc.setCistechGv1DiscoveryPort(us.cistechGv1DiscoveryPort);
+                rc.setCistechGv1DiscoveryTimeoutSecs(us.cistechGv1DiscoveryTimeoutSecs);
 
                 // !!!!!!!!!! EXPERIMENTAL !!!!!!!!!!
 
 
-                rc.setUiMode(Constants.UiMode.values()[Utils.getSafeSharedPreferencesInt(PreferenceKeys.UI_MODE, Constants.DEF_UI_MODE.ordinal())]);
-                rc.setShowTextMessaging(Globals.getSharedPreferences().getBoolean(PreferenceKeys.UI_SHOW_TEXT_MESSAGING, Constants.DEF_UI_SHOW_TEXT_MESSAGING));
+                rc.setUiMode(Constants.UiMode.values()[us.uiMode]);
+                rc.setShowTextMessaging(us.showTextMessaging);
 
-                rc.setNotifyOnNodeJoin(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_NOTIFY_NODE_JOIN, Constants.DEF_NOTIFY_NODE_JOIN));
-                rc.setNotifyOnNodeLeave(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_NOTIFY_NODE_LEAVE, Constants.DEF_NOTIFY_NODE_LEAVE));
-                rc.setNotifyOnNewAudio(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_NOTIFY_NEW_AUDIO_RX, Constants.DEF_NOTIFY_NEW_AUDIO_RX));
-                rc.setNotifyOnNetworkError(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_NOTIFY_NETWORK_ERROR, Constants.DEF_NOTIFY_NETWORK_ERROR));
-                rc.setEnableVibrations(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_NOTIFY_VIBRATIONS, Constants.DEF_NOTIFY_VIBRATIONS));
-                rc.setNotifyPttEveryTime(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_NOTIFY_PTT_EVERY_TIME, Constants.DEF_NOTIFY_PTT_EVERY_TIME));
-                rc.setEnableSpokenPrompts(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_NOTIFY_SPOKEN_PROMPTS, Constants.DEF_NOTIFY_SPOKEN_PROMPTS));
+                rc.setNotifyOnNodeJoin(us.notifyOnNodeJoin);
+                rc.setNotifyOnNodeLeave(us.notifyOnNodeLeave);
+                rc.setNotifyOnNewAudio(us.notifyOnNewAudio);
+                rc.setNotifyOnNetworkError(us.notifyOnNetworkError);
+                rc.setEnableVibrations(us.enableVibrations);
+                rc.setNotifyPttEveryTime(us.notifyPttEveryTime);
+                rc.setEnableSpokenPrompts(us.enableSpokenPrompts);
 
-                rc.setPttToneNotificationLevel(Float.parseFloat(Globals.getSharedPreferences().getString(PreferenceKeys.USER_TONE_LEVEL_PTT, Float.toString(Constants.DEF_PTT_TONE_LEVEL))));
-                rc.setErrorToneNotificationLevel(Float.parseFloat(Globals.getSharedPreferences().getString(PreferenceKeys.USER_TONE_LEVEL_ERROR, Float.toString(Constants.DEF_ERROR_TONE_LEVEL))));
-                rc.setNotificationToneNotificationLevel(Float.parseFloat(Globals.getSharedPreferences().getString(PreferenceKeys.USER_TONE_LEVEL_NOTIFICATION, Float.toString(Constants.DEF_PTT_TONE_LEVEL))));
+                rc.setPttToneNotificationLevel(us.pttToneLevel);
+                rc.setErrorToneNotificationLevel(us.errorToneLevel);
+                rc.setNotificationToneNotificationLevel(us.notificationToneLevel);
 
-                rc.setMicrophoneAgcLevel(Integer.parseInt(Globals.getSharedPreferences().getString(PreferenceKeys.USER_AUDIO_MICROPHONE_AGC_LEVEL, "0")));
-                rc.setSpeakerAgcLevel(Integer.parseInt(Globals.getSharedPreferences().getString(PreferenceKeys.USER_AUDIO_SPEAKER_AGC_LEVEL, "0")));
+                rc.setMicrophoneAgcLevel(us.microphoneAgcLevel);
+                rc.setSpeakerAgcLevel(us.speakerAgcLevel);
 
-                rc.setNetworkInterfaceName(Globals.getSharedPreferences().getString(PreferenceKeys.NETWORK_BINDING_NIC_NAME, Constants.DEF_BINDING_NIC_NAME));
+                rc.setNetworkInterfaceName(us.networkInterfaceName);
 
-                rc.setNodeId(Globals.getSharedPreferences().getString(PreferenceKeys.USER_NODE_ID, Constants.DEF_USER_NODE_ID));
-                rc.setUserId(Globals.getSharedPreferences().getString(PreferenceKeys.USER_ID, Constants.DEF_USER_ID));
-                rc.setUserDisplayName(Globals.getSharedPreferences().getString(PreferenceKeys.USER_DISPLAY_NAME, Constants.DEF_USER_DISPLAY_NAME));
-                rc.setUserAlias(Globals.getSharedPreferences().getString(PreferenceKeys.USER_ALIAS_ID, Constants.DEF_USER_ALIAS_ID));
+                rc.setNodeId(us.nodeId);
+                rc.setUserId(us.userId);
+                rc.setUserDisplayName(us.userDisplayName);
+                rc.setUserAlias(us.userAlias);
 
-                rc.setPttLatching(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_UI_PTT_LATCHING, Globals.getEngageApplication().getResources().getBoolean(R.bool.opt_ptt_latching)));
-                rc.setPttVoiceControl(Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_UI_PTT_VOICE_CONTROL, Constants.DEF_USER_UI_PTT_VOICE_CONTROL));
+                rc.setPttLatching(us.pttLatching);
+                rc.setPttVoiceControl(us.pttVoiceControl);
 
-                rc.setAudioInputDeviceId(Integer.parseInt(Globals.getSharedPreferences().getString(PreferenceKeys.USER_AUDIO_INPUT_DEVICE, Integer.toString(Constants.INVALID_AUDIO_DEVICE_ID))));
-                rc.setAudioOutputDeviceId(Integer.parseInt(Globals.getSharedPreferences().getString(PreferenceKeys.USER_AUDIO_OUTPUT_DEVICE, Integer.toString(Constants.INVALID_AUDIO_DEVICE_ID))));
-                rc.setKeepTxMutedOnPtt(Globals.getSharedPreferences().getBoolean(PreferenceKeys.DEVELOPER_KEEP_PTT_MUTED_ON_TX, Constants.DEF_KEEP_PTT_MUTED_ON_TX));
+                rc.setAudioInputDeviceId(us.audioInputDeviceId);
+                rc.setAudioOutputDeviceId(us.audioOutputDeviceId);
+                rc.setKeepTxMutedOnPtt(us.keepTxMutedOnPtt);
 
                 if(rc.getUserAlias().isEmpty())
                 {
                     rc.setUserAlias(generateUserAlias(Constants.DEF_USER_ALIAS_ID));
                 }
 
-                rc.setCrossMuteLocationId(Integer.parseInt(Globals.getSharedPreferences().getString(PreferenceKeys.USER_CROSS_MUTE_LOCATION_ID, Integer.toString(Constants.DEFAULT_CROSS_MUTE_LOCATION_ID))));
+                rc.setCrossMuteLocationId(us.crossMuteLocationId);
 
                 // Location
                 ActiveConfiguration.LocationConfiguration lc = new ActiveConfiguration.LocationConfiguration();
 
-                lc.enabled = Globals.getSharedPreferences().getBoolean(PreferenceKeys.USER_LOCATION_SHARED, Constants.DEF_LOCATION_ENABLED);
-                //lc.accuracy = Integer.parseInt(Globals.getSharedPreferences().getString(PreferenceKeys.USER_LOCATION_ACCURACY, Integer.toString(Constants.DEF_LOCATION_ACCURACY)));
-                lc.intervalMs = (Integer.parseInt(Globals.getSharedPreferences().getString(PreferenceKeys.USER_LOCATION_INTERVAL_SECS, Integer.toString(Constants.DEF_LOCATION_INTERVAL_SECS))) * 1000);
+                lc.enabled = us.locationEnabled;
+                lc.intervalMs = (us.locationIntervalSecs * 1000);
                 // TODO: figure out how to explain minIntervalMs in preference settings
                 lc.minIntervalMs = lc.intervalMs;
-                //lc.minIntervalMs = (Integer.parseInt(Globals.getSharedPreferences().getString(PreferenceKeys.USER_LOCATION_MIN_INTERVAL_SECS, Integer.toString(Constants.DEF_LOCATION_INTERVAL_SECS))) * 1000);
-                lc.minDisplacement = Float.parseFloat(Globals.getSharedPreferences().getString(PreferenceKeys.USER_LOCATION_MIN_DISPLACEMENT, Float.toString(Constants.DEF_LOCATION_MIN_DISPLACEMENT)));
+                lc.minDisplacement = us.locationMinDisplacement;
 
                 rc.setLocationConfiguration(lc);
 
@@ -561,7 +560,7 @@ public class Utils
                 }
                 else
                 {
-                    mc.enabled = Globals.getSharedPreferences().getBoolean(PreferenceKeys.NETWORK_MULTICAST_FAILOVER_ENABLED, Constants.DEF_MULTICAST_FAILOVER_ENABLED);
+                    mc.enabled = us.multicastFailoverEnabled;
                 }
                 //mc.thresholdSecs = Integer.parseInt(Globals.getSharedPreferences().getString(PreferenceKeys.NETWORK_MULTICAST_FAILOVER_SECS, Integer.toString(Constants.DEF_MULTICAST_FAILOVER_THRESHOLD_SECS)));
                 rc.setMulticastFailoverConfiguration(mc);
@@ -663,12 +662,7 @@ public class Utils
 
         try
         {
-            ByteArrayOutputStream bos = new ByteArrayOutputStream(len);
-            GZIPOutputStream gzip = new GZIPOutputStream(bos);
-            gzip.write(data, ofs, len);
-            gzip.close();
-            rc = bos.toByteArray();
-            bos.close();
+            rc = GzipCodec.compress(data, ofs, len);
         }
         catch(Exception e)
         {
@@ -685,21 +679,7 @@ public class Utils
 
         try
         {
-            ByteArrayInputStream bis = new ByteArrayInputStream(data);
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            GZIPInputStream gis = new GZIPInputStream(bis);
-
-            byte[] buffer = new byte[1024];
-            int len;
-            while ((len = gis.read(buffer)) != -1)
-            {
-                bos.write(buffer, 0, len);
-            }
-            rc = bos.toByteArray();
-
-            gis.close();
-            bis.close();
-            bos.close();
+            rc = GzipCodec.inflate(data, 0, data.length);
         }
         catch(Exception e)
         {
@@ -710,6 +690,31 @@ public class Utils
         return rc;
     }
 
+    // Base91 for QR codes - the Encoder/Decoder work straight into an array sized for the result
+    // instead of growing a ByteArrayOutputStream a byte at a time
+    public static String base91Encode(byte[] data)
+    {
+        Base91.Encoder encoder = new Base91.Encoder();
+        byte[] out = new byte[Base91.maxEncodedLength(data.length)];
+
+        int len = encoder.update(data, 0, data.length, out, 0);
+        len += encoder.finish(out, len);
+
+        return new String(out, 0, len, getEngageCharSet());
+    }
+
+    public static byte[] base91Decode(String str)
+    {
+        Base91.Decoder decoder = new Base91.Decoder();
+        byte[] in = str.getBytes(getEngageCharSet());
+        byte[] out = new byte[Base91.maxDecodedLength(in.length)];
+
+        int len = decoder.update(in, 0, in.length, out, 0);
+        len += decoder.finish(out, len);
+
+        return Arrays.copyOf(out, len);
+    }
+
     public static Bitmap byteArrayToQrCodeBitmap(byte[] ba, int width, int height)
     {
         Bitmap rc;
@@ -1299,4 +1304,64 @@ public class Utils
     public static String getShortDateTime(Date dt) {
         return new SimpleDateFormat("yyMMdd.HHmm.ss", Locale.getDefault()).format(dt);
     }
+
+    // Same content regardless of the order keys are in - numbers compare by value
+    public static boolean jsonEquals(Object a, Object b)
+    {
+        if(a == null || a == JSONObject.NULL || b == null || b == JSONObject.NULL)
+        {
+            return ((a == null || a == JSONObject.NULL) && (b == null || b == JSONObject.NULL));
+        }
+
+        if(a instanceof JSONObject && b instanceof JSONObject)
+        {
+            JSONObject ja = (JSONObject) a;
+            JSONObject jb = (JSONObject) b;
+
+            if(ja.length() != jb.length())
+            {
+                return false;
+            }
+
+            Iterator<String> it = ja.keys();
+            while(it.hasNext())
+            {
+                String key = it.next();
+                if(!jb.has(key) || !jsonEquals(ja.opt(key), jb.opt(key)))
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        if(a instanceof JSONArray && b instanceof JSONArray)
+        {
+            JSONArray ja = (JSONArray) a;
+            JSONArray jb = (JSONArray) b;
+
+            if(ja.length() != jb.length())
+            {
+                return false;
+            }
+
+            for(int x = 0; x < ja.length(); x++)
+            {
+                if(!jsonEquals(ja.opt(x), jb.opt(x)))
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        if(a instanceof Number && b instanceof Number)
+        {
+            return (((Number) a).doubleValue() == ((Number) b).doubleValue());
+        }
+
+        return a.equals(b);
+    }
 }
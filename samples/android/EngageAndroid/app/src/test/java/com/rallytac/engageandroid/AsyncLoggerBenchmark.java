@@ -0,0 +1,47 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+// What a debug call with a large argument costs the caller - logged, filtered out by level, and
+// against formatting the line inline the way the old logging did
+public class AsyncLoggerBenchmark {
+    @Test
+    public void callerCost() {
+        StringBuilder sb = new StringBuilder();
+        for (int x = 0; x < 50; x++) {
+            sb.append("{\"nodeId\":\"{").append(x).append("}\",\"userId\":\"someone\"}");
+        }
+        String json = sb.toString();
+        final int calls = 20000;
+
+        AsyncLogger log = new AsyncLogger(calls);
+        long t0 = System.nanoTime();
+        for (int x = 0; x < calls; x++) {
+            log.d("T", "processNodeDiscovered > nodeJson=%s", json);
+        }
+        long t1 = System.nanoTime();
+        log.flush(10000);
+
+        log.setLevel(AsyncLogger.LEVEL_INFO);
+        long t2 = System.nanoTime();
+        for (int x = 0; x < calls; x++) {
+            log.d("T", "processNodeDiscovered > nodeJson=%s", json);
+        }
+        long t3 = System.nanoTime();
+
+        long t4 = System.nanoTime();
+        for (int x = 0; x < calls; x++) {
+            String s = "[" + x + "] processNodeDiscovered > nodeJson=" + json;
+            if (s.length() == 0) {
+                fail();
+            }
+        }
+        long t5 = System.nanoTime();
+
+        System.out.println(String.format("AsyncLogger: caller cost %.2f us enqueued, %.3f us filtered, %.2f us formatting inline",
+                (t1 - t0) / 1000.0 / calls, (t3 - t2) / 1000.0 / calls, (t5 - t4) / 1000.0 / calls));
+        log.stop();
+    }
+}
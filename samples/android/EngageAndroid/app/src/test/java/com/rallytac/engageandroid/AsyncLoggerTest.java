@@ -0,0 +1,270 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AsyncLoggerTest {
+    private static class Collector implements AsyncLogger.ISink {
+        final List<String> lines = Collections.synchronizedList(new ArrayList<String>());
+        final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch gate = null;
+        int flushes = 0;
+        boolean closed = false;
+
+        @Override
+        public void write(AsyncLogger.Record rec) {
+            if (gate != null) {
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+            threads.add(Thread.currentThread().getName());
+            lines.add(rec.getLevelLetter() + "/" + rec.tag + ":" + rec.getMessage());
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static class CountingArg {
+        int formatted = 0;
+
+        @Override
+        public String toString() {
+            formatted++;
+            return "arg";
+        }
+    }
+
+    private static File tempDir() {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "asynclogger-" + System.nanoTime());
+        dir.mkdirs();
+        return dir;
+    }
+
+    private static List<String> readLines(File f) throws Exception {
+        ArrayList<String> rc = new ArrayList<>();
+        BufferedReader r = new BufferedReader(new FileReader(f));
+        String line;
+        while ((line = r.readLine()) != null) {
+            rc.add(line);
+        }
+        r.close();
+        return rc;
+    }
+
+    @Test
+    public void records_reachEverySinkInOrderOnTheLoggerThread() {
+        AsyncLogger log = new AsyncLogger(64);
+        Collector a = new Collector();
+        Collector b = new Collector();
+        log.addSink(a);
+        log.addSink(b);
+
+        log.d("T", "one");
+        log.i("T", "two %d", 2);
+        log.w("T", "three");
+        log.e("T", "four");
+        log.f("T", "five");
+        log.flush(2000);
+
+        assertEquals("[D/T:one, I/T:two 2, W/T:three, E/T:four, F/T:five]", a.lines.toString());
+        assertEquals(a.lines, b.lines);
+        assertEquals("AsyncLogger", a.threads.get(0));
+        assertTrue(a.flushes >= 1);
+
+        AsyncLogger.Stats st = log.getStats();
+        assertEquals(5, st.accepted);
+        assertEquals(5, st.written);
+        assertEquals(0, st.dropped);
+
+        log.stop();
+        assertTrue(a.closed);
+    }
+
+    @Test
+    public void filteredLevels_areNeverFormatted() {
+        AsyncLogger log = new AsyncLogger(64);
+        Collector c = new Collector();
+        log.addSink(c);
+        log.setLevel(AsyncLogger.LEVEL_WARNING);
+
+        CountingArg arg = new CountingArg();
+        log.d("T", "debug %s", arg);
+        log.i("T", "info %s", arg);
+        log.w("T", "warning %s", arg);
+        log.flush(2000);
+
+        assertEquals(1, arg.formatted);
+        assertEquals("[W/T:warning arg]", c.lines.toString());
+        assertEquals(2, log.getStats().filtered);
+        assertFalse(log.isLoggable(AsyncLogger.LEVEL_INFO));
+        assertTrue(log.isLoggable(AsyncLogger.LEVEL_ERROR));
+        log.stop();
+    }
+
+    @Test
+    public void plainMessages_areNotTreatedAsFormats() {
+        AsyncLogger log = new AsyncLogger(8);
+        Collector c = new Collector();
+        log.addSink(c);
+
+        log.i("T", "100% done");
+        log.i("T", "bad %d format", "x");
+        log.flush(2000);
+
+        assertEquals("[I/T:100% done, I/T:bad %d format]", c.lines.toString());
+        log.stop();
+    }
+
+    @Test
+    public void fullRing_dropsAndCounts() {
+        AsyncLogger log = new AsyncLogger(4);
+        Collector c = new Collector();
+        c.gate = new CountDownLatch(1);
+        log.addSink(c);
+
+        // The first record gets picked up and stalls in the sink, the next four fill the ring
+        log.i("T", "0");
+        for (int x = 0; x < 200 && log.getStats().accepted == 1 && c.lines.isEmpty(); x++) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+
+        for (int x = 1; x <= 10; x++) {
+            log.w("T", Integer.toString(x));
+        }
+        log.e("T", "lost");
+
+        c.gate.countDown();
+        log.flush(2000);
+
+        AsyncLogger.Stats st = log.getStats();
+        assertTrue(st.dropped >= 7);
+        assertEquals(st.accepted, st.written);
+        assertEquals(11 + 1, st.accepted + st.dropped);
+        assertEquals(1, st.droppedByLevel[AsyncLogger.LEVEL_ERROR]);
+        assertTrue(st.highWater <= 4);
+        log.stop();
+    }
+
+    @Test
+    public void failingSink_doesNotStopTheOthers() {
+        AsyncLogger log = new AsyncLogger(16);
+        Collector c = new Collector();
+        log.addSink(new AsyncLogger.ISink() {
+            @Override
+            public void write(AsyncLogger.Record rec) {
+                throw new IllegalStateException("expected by the test");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        log.addSink(c);
+
+        log.i("T", "a");
+        log.i("T", "b");
+        log.flush(2000);
+
+        assertEquals(2, c.lines.size());
+        assertEquals(2, log.getStats().sinkErrors);
+
+        log.removeSink(c);
+        log.i("T", "c");
+        log.flush(2000);
+        assertEquals(2, c.lines.size());
+        log.stop();
+    }
+
+    @Test
+    public void fileSink_rotates() throws Exception {
+        File dir = tempDir();
+        File file = new File(dir, "logs/test.log");
+        AsyncLogger log = new AsyncLogger(256);
+        log.addSink(new AsyncLogger.RotatingFileSink(file, 1000, 2));
+
+        for (int x = 0; x < 100; x++) {
+            log.i("Tag", "line %03d of the rotating file test", x);
+        }
+        log.stop();
+
+        assertTrue(file.exists());
+        assertTrue(new File(file.getPath() + ".1").exists());
+        assertTrue(new File(file.getPath() + ".2").exists());
+        assertFalse(new File(file.getPath() + ".3").exists());
+
+        List<String> last = readLines(file);
+        assertTrue(last.get(last.size() - 1).endsWith("line 099 of the rotating file test"));
+        assertTrue(last.get(0).contains(" I/Tag: ["));
+        assertTrue(file.length() < 1100);
+    }
+
+    @Test
+    public void fileSink_keepsDebugOutUnlessAskedFor() throws Exception {
+        File dir = tempDir();
+        File file = new File(dir, "logs/test.log");
+        AsyncLogger log = new AsyncLogger(64);
+        AsyncLogger.RotatingFileSink sink = new AsyncLogger.RotatingFileSink(file, 100000, 2);
+        log.addSink(sink);
+
+        log.d("T", "hidden");
+        log.i("T", "shown");
+        log.flush(2000);
+        sink.setMinLevel(AsyncLogger.LEVEL_DEBUG);
+        log.d("T", "now shown");
+        log.stop();
+
+        List<String> lines = readLines(file);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).endsWith("shown"));
+        assertTrue(lines.get(1).endsWith("now shown"));
+    }
+
+    @Test
+    public void mutableArgs_areCapturedWhenLogged() {
+        AsyncLogger log = new AsyncLogger(8);
+        Collector c = new Collector();
+        c.gate = new CountDownLatch(1);
+        log.addSink(c);
+
+        StringBuilder sb = new StringBuilder("before");
+        Object[] args = new Object[] {sb, 42};
+        log.i("T", "%s %d", args);
+        sb.setLength(0);
+        sb.append("after");
+        c.gate.countDown();
+        log.flush(2000);
+
+        assertEquals("[I/T:before 42]", c.lines.toString());
+        assertSame(sb, args[0]);
+        log.stop();
+    }
+}
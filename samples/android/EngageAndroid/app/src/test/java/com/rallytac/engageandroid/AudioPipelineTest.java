@@ -0,0 +1,155 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AudioPipelineTest {
+    private static short[] sine(int rate, int hz, int samples) {
+        short[] rc = new short[samples];
+        for (int x = 0; x < samples; x++) {
+            rc[x] = (short) Math.round(Math.sin((2 * Math.PI * hz * x) / rate) * 10000);
+        }
+        return rc;
+    }
+
+    private static int zeroCrossings(short[] buf, int ofs, int len) {
+        int rc = 0;
+        for (int x = ofs + 1; x < ofs + len; x++) {
+            if ((buf[x - 1] < 0) != (buf[x] < 0)) {
+                rc++;
+            }
+        }
+        return rc;
+    }
+
+    @Test
+    public void passthrough_copiesInput() {
+        AudioResampler rs = new AudioResampler(8000, 8000, 1);
+        short[] in = sine(8000, 400, 160);
+        short[] out = new short[rs.getMaxOutputSamples(in.length)];
+
+        assertTrue(rs.isPassthrough());
+        assertEquals(160, rs.process(in, 0, in.length, out, 0));
+        for (int x = 0; x < in.length; x++) {
+            assertEquals(in[x], out[x]);
+        }
+    }
+
+    @Test
+    public void upsample_producesExpectedSampleCountAcrossBlocks() {
+        AudioResampler rs = new AudioResampler(8000, 48000, 1);
+        short[] in = sine(8000, 400, 160);
+        short[] out = new short[rs.getMaxOutputSamples(in.length)];
+        long total = 0;
+
+        for (int block = 0; block < 50; block++) {
+            int n = rs.process(in, 0, in.length, out, 0);
+            assertTrue(n <= out.length);
+            total += n;
+        }
+
+        // One second in, one second out - give or take the frame we hold back
+        assertTrue(Math.abs(total - 48000) <= 6);
+    }
+
+    @Test
+    public void stereo_keepsChannelsApart() {
+        AudioResampler rs = new AudioResampler(16000, 48000, 2);
+        short[] in = new short[320];
+        for (int x = 0; x < in.length; x += 2) {
+            in[x] = 1000;
+            in[x + 1] = -1000;
+        }
+        short[] out = new short[rs.getMaxOutputSamples(in.length)];
+
+        rs.process(in, 0, in.length, out, 0);
+        int n = rs.process(in, 0, in.length, out, 0);
+
+        assertEquals(0, n % 2);
+        for (int x = 0; x < n; x += 2) {
+            assertEquals(1000, out[x]);
+            assertEquals(-1000, out[x + 1]);
+        }
+    }
+
+    @Test
+    public void roundTrip_preservesToneFrequency() {
+        AudioResampler up = new AudioResampler(8000, 48000, 1);
+        AudioResampler down = new AudioResampler(48000, 8000, 1);
+        short[] in = sine(8000, 400, 8000);
+        short[] mid = new short[up.getMaxOutputSamples(in.length)];
+        short[] out = new short[in.length + 16];
+
+        int midCount = up.process(in, 0, in.length, mid, 0);
+        int outCount = down.process(mid, 0, midCount, out, 0);
+
+        assertTrue(Math.abs(outCount - in.length) <= 4);
+
+        // 400Hz for (almost) a second crosses zero about 800 times at any rate
+        int expected = zeroCrossings(in, 0, outCount);
+        int actual = zeroCrossings(out, 0, outCount);
+        assertTrue(Math.abs(expected - actual) <= 4);
+
+        // ... and the level survives the trip
+        int peak = 0;
+        for (int x = 100; x < outCount; x++) {
+            peak = Math.max(peak, Math.abs(out[x]));
+        }
+        assertTrue(peak > 9000);
+    }
+
+    @Test
+    public void slicer_emitsFixedFramesAndHoldsRemainder() {
+        final int[] frames = {0};
+        final short[] next = {0};
+        AudioFrameSlicer slicer = new AudioFrameSlicer(160);
+        AudioFrameSlicer.IFrameSink sink = new AudioFrameSlicer.IFrameSink() {
+            @Override
+            public void onFrame(short[] frame, int samples) {
+                assertEquals(160, samples);
+                for (int x = 0; x < samples; x++) {
+                    assertEquals(next[0]++, frame[x]);
+                }
+                frames[0]++;
+            }
+        };
+
+        short[] chunk = new short[1000];
+        for (int x = 0; x < chunk.length; x++) {
+            chunk[x] = (short) x;
+        }
+
+        assertEquals(0, slicer.push(chunk, 0, 100, sink));
+        assertEquals(100, slicer.getBufferedSamples());
+        assertEquals(6, slicer.push(chunk, 100, 900, sink));
+        assertEquals(40, slicer.getBufferedSamples());
+        assertEquals(6, frames[0]);
+
+        slicer.reset();
+        assertEquals(0, slicer.getBufferedSamples());
+    }
+
+    @Test
+    public void hardwareFrames_resampleAndSliceIntoEngineFrames() {
+        // 48kHz hardware capturing 10ms blocks, engine wants 20ms frames at 16kHz
+        AudioResampler rs = new AudioResampler(48000, 16000, 1);
+        AudioFrameSlicer slicer = new AudioFrameSlicer(320);
+        final int[] frames = {0};
+        AudioFrameSlicer.IFrameSink sink = new AudioFrameSlicer.IFrameSink() {
+            @Override
+            public void onFrame(short[] frame, int samples) {
+                frames[0]++;
+            }
+        };
+
+        short[] hw = sine(48000, 1000, 480);
+        short[] engine = new short[rs.getMaxOutputSamples(hw.length)];
+        for (int block = 0; block < 100; block++) {
+            slicer.push(engine, 0, rs.process(hw, 0, hw.length, engine, 0), sink);
+        }
+
+        // A second of audio is 50 engine frames (less the one still filling)
+        assertTrue(frames[0] >= 49 && frames[0] <= 50);
+    }
+}
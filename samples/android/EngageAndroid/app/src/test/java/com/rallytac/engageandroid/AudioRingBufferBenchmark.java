@@ -0,0 +1,62 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.*;
+
+// A producer writes 10ms frames on a steady clock, every sample of a frame carrying the frame's
+// sequence number.  The consumer waits on the ring and we measure how long each frame sat between
+// write and read.
+public class AudioRingBufferBenchmark {
+    private static final int SAMPLE_RATE = 8000;
+
+    @Test
+    public void syntheticPcm_addedLatency() throws Exception {
+        final int frameSamples = SAMPLE_RATE / 100;
+        final int frameCount = 200;
+        final long frameNanos = TimeUnit.MILLISECONDS.toNanos(10);
+        final AudioRingBuffer ring = new AudioRingBuffer(frameSamples * 16, frameSamples, SAMPLE_RATE);
+        final long[] writtenAt = new long[frameCount];
+
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                short[] frame = new short[frameSamples];
+                long nextTick = System.nanoTime();
+                for (int f = 0; f < frameCount; f++) {
+                    java.util.Arrays.fill(frame, (short) f);
+                    writtenAt[f] = System.nanoTime();
+                    ring.write(frame, 0, frameSamples);
+                    nextTick += frameNanos;
+                    LockSupport.parkNanos(nextTick - System.nanoTime());
+                }
+            }
+        };
+
+        short[] frame = new short[frameSamples];
+        long totalLatency = 0;
+        long maxLatency = 0;
+
+        producer.start();
+        for (int f = 0; f < frameCount; f++) {
+            assertTrue(ring.awaitAvailable(frameSamples, TimeUnit.SECONDS.toNanos(1)));
+            long readAt = System.nanoTime();
+            assertEquals(frameSamples, ring.read(frame, 0, frameSamples));
+            assertEquals((short) f, frame[0]);
+
+            long latency = readAt - writtenAt[f];
+            totalLatency += latency;
+            maxLatency = Math.max(maxLatency, latency);
+        }
+        producer.join();
+
+        AudioRingBuffer.Stats stats = ring.getStats();
+        System.out.println("AudioRingBuffer: avgAddedLatencyUs=" + ((totalLatency / frameCount) / 1000)
+                + ", maxAddedLatencyUs=" + (maxLatency / 1000)
+                + ", writeJitterUs=" + stats.writeJitterUs
+                + ", maxWriteJitterUs=" + stats.maxWriteJitterUs);
+    }
+}
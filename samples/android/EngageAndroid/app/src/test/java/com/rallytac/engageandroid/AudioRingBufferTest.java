@@ -0,0 +1,127 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.*;
+
+public class AudioRingBufferTest {
+    private static final int SAMPLE_RATE = 8000;
+
+    @Test
+    public void capacity_isRoundedUpToPowerOfTwo() {
+        AudioRingBuffer ring = new AudioRingBuffer(1000, 160, SAMPLE_RATE);
+        assertEquals(1024, ring.getCapacity());
+        assertEquals(1024, ring.free());
+    }
+
+    @Test
+    public void wrapAround_preservesSampleOrder() {
+        AudioRingBuffer ring = new AudioRingBuffer(256, 80, SAMPLE_RATE);
+        short[] in = new short[100];
+        short[] out = new short[100];
+        short next = 0;
+        short expected = 0;
+
+        for (int pass = 0; pass < 50; pass++) {
+            for (int x = 0; x < in.length; x++) {
+                in[x] = next++;
+            }
+            assertEquals(in.length, ring.write(in, 0, in.length));
+            assertEquals(out.length, ring.read(out, 0, out.length));
+            for (int x = 0; x < out.length; x++) {
+                assertEquals(expected++, out[x]);
+            }
+        }
+
+        assertEquals(0, ring.available());
+    }
+
+    @Test
+    public void overrun_dropsAndCounts() {
+        AudioRingBuffer ring = new AudioRingBuffer(256, 80, SAMPLE_RATE);
+        short[] in = new short[200];
+
+        assertEquals(200, ring.write(in, 0, in.length));
+        assertEquals(56, ring.write(in, 0, in.length));
+
+        AudioRingBuffer.Stats stats = ring.getStats();
+        assertEquals(1, stats.overruns);
+        assertEquals(144, stats.samplesDropped);
+        assertEquals(256, stats.highWaterMark);
+    }
+
+    @Test
+    public void await_timesOutWhenEmpty() throws Exception {
+        AudioRingBuffer ring = new AudioRingBuffer(256, 80, SAMPLE_RATE);
+        long start = System.nanoTime();
+        assertFalse(ring.awaitAvailable(80, TimeUnit.MILLISECONDS.toNanos(20)));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    public void endOfTransmission_isNotAnUnderrun() throws Exception {
+        // 10ms frames - a talk spurt gap is 100ms
+        AudioRingBuffer ring = new AudioRingBuffer(256, 80, SAMPLE_RATE);
+
+        ring.markRanDry();
+        Thread.sleep(150);
+        ring.markResumed();
+        assertEquals(0, ring.getStats().underruns);
+
+        // Resuming without having run dry isn't one either
+        ring.markResumed();
+        assertEquals(0, ring.getStats().underruns);
+    }
+
+    @Test
+    public void runningDryMidStream_isAnUnderrun() {
+        AudioRingBuffer ring = new AudioRingBuffer(256, 80, SAMPLE_RATE);
+
+        ring.markRanDry();
+        ring.markResumed();
+        assertEquals(1, ring.getStats().underruns);
+    }
+
+    // Harness: a producer paced like the engine pump writes 10ms frames of synthetic PCM where
+    // every sample of a frame carries the frame's sequence number.  The consumer waits on the
+    // ring for each one in turn.
+    @Test
+    public void syntheticPcm_arrivesInOrderWithoutLoss() throws Exception {
+        final int frameSamples = SAMPLE_RATE / 100;
+        final int frameCount = 200;
+        final long frameNanos = TimeUnit.MILLISECONDS.toNanos(10);
+        final AudioRingBuffer ring = new AudioRingBuffer(frameSamples * 16, frameSamples, SAMPLE_RATE);
+
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                short[] frame = new short[frameSamples];
+                long nextTick = System.nanoTime();
+                for (int f = 0; f < frameCount; f++) {
+                    java.util.Arrays.fill(frame, (short) f);
+                    ring.write(frame, 0, frameSamples);
+                    nextTick += frameNanos;
+                    LockSupport.parkNanos(nextTick - System.nanoTime());
+                }
+            }
+        };
+
+        short[] frame = new short[frameSamples];
+
+        producer.start();
+        for (int f = 0; f < frameCount; f++) {
+            assertTrue(ring.awaitAvailable(frameSamples, TimeUnit.SECONDS.toNanos(1)));
+            assertEquals(frameSamples, ring.read(frame, 0, frameSamples));
+            assertEquals((short) f, frame[0]);
+            assertEquals((short) f, frame[frameSamples - 1]);
+        }
+        producer.join();
+
+        AudioRingBuffer.Stats stats = ring.getStats();
+        assertEquals(0, stats.overruns);
+        assertEquals(frameCount * frameSamples, stats.samplesRead);
+    }
+}
@@ -0,0 +1,57 @@
+package com.rallytac.engageandroid.Biometrics;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+// Encode and decode of a minute's worth of all seven series, reusing one codec the way the
+// presence path does
+public class BiometricsBatchCodecBenchmark {
+    @Test
+    public void encodeAndDecode() {
+        Random r = new Random(5);
+        DataSeries[] in = new DataSeries[7];
+        for (int x = 0; x < in.length; x++) {
+            in[x] = BiometricsBatchCodecTest.randomSeries(x + 1, 60, 30, 180, r);
+        }
+
+        BiometricsBatchCodec codec = new BiometricsBatchCodec();
+        BiometricsBatchCodecTest.CountingSink sink = new BiometricsBatchCodecTest.CountingSink();
+        final int iterations = 20000;
+        int len = 0;
+
+        // Warm up
+        for (int i = 0; i < 2000; i++) {
+            codec.begin();
+            for (DataSeries ds : in) {
+                codec.add(ds);
+            }
+            len = codec.finish();
+            BiometricsBatchCodec.decode(codec.getBuffer(), 0, len, sink);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            codec.begin();
+            for (DataSeries ds : in) {
+                codec.add(ds);
+            }
+            len = codec.finish();
+        }
+        long encodeNs = System.nanoTime() - start;
+
+        sink.elements = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            BiometricsBatchCodec.decode(codec.getBuffer(), 0, len, sink);
+        }
+        long decodeNs = System.nanoTime() - start;
+
+        System.out.println("BiometricsBatchCodec: encode=" + (encodeNs / iterations) + "ns/batch, decode="
+                + (decodeNs / iterations) + "ns/batch, batch=" + len + " bytes");
+
+        assertEquals((long) iterations * 7 * 60, sink.elements);
+    }
+}
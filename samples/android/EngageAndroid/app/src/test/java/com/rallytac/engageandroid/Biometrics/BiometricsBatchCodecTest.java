@@ -0,0 +1,205 @@
+package com.rallytac.engageandroid.Biometrics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BiometricsBatchCodecTest {
+    private static class CollectingSink implements BiometricsBatchCodec.ISeriesSink {
+        final ArrayList<DataSeries> series = new ArrayList<>();
+        DataSeries current;
+
+        @Override
+        public void onSeries(int binaryId, int timestamp, int incrementType, int incrementMultiplier, int elementCount) {
+            current = new DataSeries(binaryId);
+            current.setTimestamp(timestamp);
+            series.add(current);
+        }
+
+        @Override
+        public void onElement(int binaryId, int timeOffset, int value) {
+            current.addElement(timeOffset, value);
+        }
+    }
+
+    static class CountingSink implements BiometricsBatchCodec.ISeriesSink {
+        long elements;
+        long sum;
+
+        @Override
+        public void onSeries(int binaryId, int timestamp, int incrementType, int incrementMultiplier, int elementCount) {
+        }
+
+        @Override
+        public void onElement(int binaryId, int timeOffset, int value) {
+            elements++;
+            sum += value;
+        }
+    }
+
+    static DataSeries randomSeries(int binaryId, int count, int min, int max, Random r) {
+        DataSeries ds = new DataSeries(binaryId);
+        RandomHumanBiometricGenerator gen = new RandomHumanBiometricGenerator(min, max, 5, (min + max) / 2);
+        for (int x = 0; x < count; x++) {
+            ds.addElement(1 + r.nextInt(3), gen.nextInt());
+        }
+        return ds;
+    }
+
+    // What the reporting timer produces - one sample a second
+    private static DataSeries tickedSeries(int binaryId, int count, int min, int max) {
+        DataSeries ds = new DataSeries(binaryId);
+        RandomHumanBiometricGenerator gen = new RandomHumanBiometricGenerator(min, max, 5, (min + max) / 2);
+        for (int x = 0; x < count; x++) {
+            ds.addElement(1, gen.nextInt());
+        }
+        return ds;
+    }
+
+    private static void assertSeriesEqual(DataSeries expected, DataSeries actual) {
+        assertEquals(expected.getBinaryId(), actual.getBinaryId());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getElementCount(), actual.getElementCount());
+        for (int x = 0; x < expected.getElementCount(); x++) {
+            assertEquals(expected.getSeries().get(x).getTimeoffset(), actual.getSeries().get(x).getTimeoffset());
+            assertEquals(expected.getSeries().get(x).getValue(), actual.getSeries().get(x).getValue());
+        }
+    }
+
+    @Test
+    public void batch_roundTripsSeveralSeries() {
+        Random r = new Random(7);
+        DataSeries[] in = {
+                tickedSeries(1, 60, 50, 175),
+                randomSeries(1, 60, 50, 175, r),
+                randomSeries(2, 60, 30, 38, r),
+                randomSeries(4, 0, 60, 100, r),
+                randomSeries(7, 255, 0, 10, r)
+        };
+
+        BiometricsBatchCodec codec = new BiometricsBatchCodec(16);
+        codec.begin();
+        for (DataSeries ds : in) {
+            assertTrue(codec.add(ds));
+        }
+        int len = codec.finish();
+
+        CollectingSink sink = new CollectingSink();
+        assertEquals(in.length, BiometricsBatchCodec.decode(codec.getBuffer(), 0, len, sink));
+        assertEquals(in.length, sink.series.size());
+        for (int x = 0; x < in.length; x++) {
+            assertSeriesEqual(in[x], sink.series.get(x));
+        }
+    }
+
+    @Test
+    public void batch_handlesLargeAndNegativeSwings() {
+        DataSeries ds = new DataSeries(3);
+        int[] values = {0, -1, 1, Integer.MAX_VALUE, Integer.MIN_VALUE, 1000000, -1000000, 0};
+        for (int v : values) {
+            ds.addElement(200, v);
+        }
+
+        BiometricsBatchCodec codec = new BiometricsBatchCodec();
+        codec.begin();
+        codec.add(ds);
+        int len = codec.finish();
+
+        CollectingSink sink = new CollectingSink();
+        assertEquals(1, BiometricsBatchCodec.decode(codec.getBuffer(), 0, len, sink));
+        assertSeriesEqual(ds, sink.series.get(0));
+    }
+
+    @Test
+    public void batch_isSmallerThanLegacyEncoding() {
+        BiometricsBatchCodec codec = new BiometricsBatchCodec();
+        int legacy = 0;
+
+        codec.begin();
+        for (int id = 1; id <= 7; id++) {
+            DataSeries ds = tickedSeries(id, 60, 40, 120);
+            legacy += ds.toByteArray().length;
+            codec.add(ds);
+        }
+        int len = codec.finish();
+
+        assertTrue(len < (legacy * 2) / 3);
+    }
+
+    @Test
+    public void legacyBlobs_areStillDecoded() throws Exception {
+        Random r = new Random(3);
+        DataSeries a = randomSeries(1, 10, 50, 175, r);
+        DataSeries b = randomSeries(5, 20, 87, 100, r);
+        byte[] ba = a.toByteArray();
+        byte[] bb = b.toByteArray();
+        byte[] blob = new byte[ba.length + bb.length + 4];
+        System.arraycopy(ba, 0, blob, 2, ba.length);
+        System.arraycopy(bb, 0, blob, 2 + ba.length, bb.length);
+
+        CollectingSink sink = new CollectingSink();
+        assertEquals(2, BiometricsBatchCodec.decode(blob, 2, ba.length + bb.length, sink));
+        assertSeriesEqual(a, sink.series.get(0));
+        assertSeriesEqual(b, sink.series.get(1));
+    }
+
+    @Test
+    public void truncatedBatch_isRejected() {
+        BiometricsBatchCodec codec = new BiometricsBatchCodec();
+        codec.begin();
+        codec.add(randomSeries(1, 30, 50, 175, new Random(1)));
+        int len = codec.finish();
+
+        for (int cut = 1; cut < len; cut++) {
+            assertEquals(-1, BiometricsBatchCodec.decode(codec.getBuffer(), 0, cut, new CountingSink()));
+        }
+    }
+
+    @Test
+    public void nodeState_keepsLatestValues() {
+        DataSeries hr = new DataSeries(1);
+        hr.setTimestamp(1000);
+        hr.addElement(1, 70);
+        hr.addElement(1, 72);
+        hr.addElement(2, 75);
+
+        BiometricsBatchCodec codec = new BiometricsBatchCodec();
+        codec.begin();
+        codec.add(hr);
+        int len = codec.finish();
+
+        NodeBiometricsState state = new NodeBiometricsState();
+        assertEquals(1, state.merge(codec.getBuffer(), 0, len));
+        assertEquals(75, state.getLatest(1));
+        assertEquals(1004, state.getTimestamp(1));
+        assertEquals(3, state.getSampleCount(1));
+        assertEquals(NodeBiometricsState.NO_VALUE, state.getLatest(2));
+    }
+
+    @Test
+    public void reusedCodec_decodesEveryElement() {
+        Random r = new Random(5);
+        DataSeries[] in = new DataSeries[7];
+        for (int x = 0; x < in.length; x++) {
+            in[x] = randomSeries(x + 1, 60, 30, 180, r);
+        }
+
+        BiometricsBatchCodec codec = new BiometricsBatchCodec();
+        CountingSink sink = new CountingSink();
+        final int iterations = 100;
+
+        for (int i = 0; i < iterations; i++) {
+            codec.begin();
+            for (DataSeries ds : in) {
+                codec.add(ds);
+            }
+            int len = codec.finish();
+            assertEquals(7, BiometricsBatchCodec.decode(codec.getBuffer(), 0, len, sink));
+        }
+
+        assertEquals((long) iterations * 7 * 60, sink.elements);
+    }
+}
@@ -0,0 +1,46 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BlobRouterBenchmark {
+    private static final int TEXT = 1;
+
+    @Test
+    public void routeOneKilobyteBlobs() throws Exception {
+        BlobRouter router = new BlobRouter(1024);
+        final AtomicInteger seen = new AtomicInteger();
+        final int count = 20000;
+        final byte[] blob = new byte[1024];
+
+        router.registerHandler(TEXT, new BlobRouter.IBlobHandler() {
+            @Override
+            public void onBlob(BlobRouter.BlobInfo info, ByteBuffer payload) {
+                seen.incrementAndGet();
+            }
+        });
+
+        BlobRouter.BlobInfo info = new BlobRouter.BlobInfo();
+        info.groupId = "g1";
+        info.payloadType = TEXT;
+        info.source = "node";
+        info.size = blob.length;
+
+        long start = System.nanoTime();
+        for (int x = 0; x < count; x++) {
+            router.route(info, blob, blob.length);
+        }
+        while (seen.get() + router.getStats(TEXT).blobsDropped < count) {
+            Thread.sleep(1);
+        }
+        long elapsedUs = (System.nanoTime() - start) / 1000;
+
+        BlobRouter.Stats stats = router.getStats(TEXT);
+        System.out.println("BlobRouter: " + count + " x 1KB routed in " + elapsedUs + "us, avgHandlerUs="
+                + stats.getAverageHandlerMicros() + ", dropped=" + stats.blobsDropped
+                + ", highWaterMark=" + stats.queueHighWaterMark);
+        router.stop();
+    }
+}
@@ -0,0 +1,173 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BlobRouterTest {
+    private static final int TEXT = 1;
+    private static final int CUSTOM = 200;
+
+    private static BlobRouter.BlobInfo info(int payloadType, int size) {
+        BlobRouter.BlobInfo rc = new BlobRouter.BlobInfo();
+        rc.groupId = "g1";
+        rc.payloadType = payloadType;
+        rc.source = "node";
+        rc.size = size;
+        return rc;
+    }
+
+    @Test
+    public void handler_seesEngineArrayWithoutACopy() throws Exception {
+        BlobRouter router = new BlobRouter();
+        final byte[] blob = new byte[64];
+        final CountDownLatch done = new CountDownLatch(1);
+        final boolean[] sameArray = {false};
+        final int[] remaining = {0};
+
+        router.registerHandler(TEXT, new BlobRouter.IBlobHandler() {
+            @Override
+            public void onBlob(BlobRouter.BlobInfo info, ByteBuffer payload) {
+                sameArray[0] = (payload.array() == blob);
+                remaining[0] = payload.remaining();
+                done.countDown();
+            }
+        });
+
+        // Only the first 40 bytes are valid
+        assertTrue(router.route(info(TEXT, 40), blob, 40));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(sameArray[0]);
+        assertEquals(40, remaining[0]);
+        router.stop();
+    }
+
+    @Test
+    public void unregisteredType_isDroppedAndCounted() {
+        BlobRouter router = new BlobRouter();
+
+        assertFalse(router.route(info(CUSTOM, 10), new byte[10], 10));
+
+        BlobRouter.Stats unhandled = router.getAllStats().get(0);
+        assertEquals(-1, unhandled.payloadType);
+        assertEquals(1, unhandled.blobsDropped);
+        assertEquals(10, unhandled.bytesReceived);
+    }
+
+    @Test
+    public void slowHandler_onlyHoldsUpItsOwnType() throws Exception {
+        BlobRouter router = new BlobRouter(4);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch textDone = new CountDownLatch(100);
+
+        router.registerHandler(CUSTOM, new BlobRouter.IBlobHandler() {
+            @Override
+            public void onBlob(BlobRouter.BlobInfo info, ByteBuffer payload) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                }
+            }
+        });
+        router.registerHandler(TEXT, new BlobRouter.IBlobHandler() {
+            @Override
+            public void onBlob(BlobRouter.BlobInfo info, ByteBuffer payload) {
+                textDone.countDown();
+            }
+        });
+
+        int accepted = 0;
+        for (int x = 0; x < 20; x++) {
+            if (router.route(info(CUSTOM, 8), new byte[8], 8)) {
+                accepted++;
+            }
+        }
+
+        for (int x = 0; x < 100; x++) {
+            router.route(info(TEXT, 8), new byte[8], 8);
+            if (x % 4 == 3) {
+                Thread.sleep(1);
+            }
+        }
+
+        assertTrue(textDone.await(5, TimeUnit.SECONDS));
+
+        BlobRouter.Stats custom = router.getStats(CUSTOM);
+        assertEquals(20, custom.blobsReceived);
+        assertEquals(20 - accepted, custom.blobsDropped);
+        assertTrue(custom.blobsDropped > 0);
+
+        release.countDown();
+        router.stop();
+    }
+
+    @Test
+    public void fullLane_dropsWithoutHoldingUpTheCaller() throws Exception {
+        BlobRouter router = new BlobRouter(2);
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        router.registerHandler(CUSTOM, new BlobRouter.IBlobHandler() {
+            @Override
+            public void onBlob(BlobRouter.BlobInfo info, ByteBuffer payload) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                }
+            }
+        });
+
+        // One in the handler, two queued - everything after that is dropped on the spot
+        assertTrue(router.route(info(CUSTOM, 8), new byte[8], 8));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        assertTrue(router.route(info(CUSTOM, 8), new byte[8], 8));
+        assertTrue(router.route(info(CUSTOM, 8), new byte[8], 8));
+
+        for (int x = 0; x < 10; x++) {
+            assertFalse(router.route(info(CUSTOM, 8), new byte[8], 8));
+        }
+
+        // The handler is still blocked, so none of those calls waited on it
+        assertEquals(1, release.getCount());
+        BlobRouter.Stats stats = router.getStats(CUSTOM);
+        assertEquals(13, stats.blobsReceived);
+        assertEquals(10, stats.blobsDropped);
+
+        release.countDown();
+        router.stop();
+    }
+
+    @Test
+    public void stats_trackThroughputPerType() throws Exception {
+        BlobRouter router = new BlobRouter(1024);
+        final AtomicInteger seen = new AtomicInteger();
+        final int count = 20000;
+        final byte[] blob = new byte[1024];
+
+        router.registerHandler(TEXT, new BlobRouter.IBlobHandler() {
+            @Override
+            public void onBlob(BlobRouter.BlobInfo info, ByteBuffer payload) {
+                seen.incrementAndGet();
+            }
+        });
+
+        for (int x = 0; x < count; x++) {
+            router.route(info(TEXT, blob.length), blob, blob.length);
+        }
+        while (seen.get() + router.getStats(TEXT).blobsDropped < count) {
+            Thread.sleep(1);
+        }
+
+        BlobRouter.Stats stats = router.getStats(TEXT);
+        assertEquals(count, stats.blobsReceived);
+        assertEquals(stats.blobsHandled * blob.length, stats.bytesHandled);
+        assertEquals(count, stats.blobsHandled + stats.blobsDropped);
+        router.stop();
+    }
+}
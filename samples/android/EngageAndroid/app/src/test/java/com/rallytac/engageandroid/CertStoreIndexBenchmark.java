@@ -0,0 +1,40 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+// Id lookups against a dozen stores and passwords, first (cold) and then from the index
+public class CertStoreIndexBenchmark {
+    @Test
+    public void lookupById() throws Exception {
+        File dir = CertStoreIndexTest.tempDir();
+        String[] pwds = new String[12];
+        for (int x = 0; x < 12; x++) {
+            pwds[x] = "pwd" + x;
+            CertStoreIndexTest.writeStore(dir, "s" + x + ".certstore", pwds[x], "{S" + x + "}", 1000000L);
+        }
+        Set<String> set = CertStoreIndexTest.passwords(pwds);
+
+        CertStoreIndexTest.FakeProber prober = new CertStoreIndexTest.FakeProber();
+        CertStoreIndex idx = CertStoreIndexTest.index(dir, prober);
+
+        long t0 = System.nanoTime();
+        assertNotNull(idx.findPathForId("{S11}", set));
+        long t1 = System.nanoTime();
+        int coldProbes = prober.calls;
+
+        final int lookups = 10000;
+        for (int x = 0; x < lookups; x++) {
+            assertNotNull(idx.findPathForId("{S" + (x % 12) + "}", set));
+        }
+        long t2 = System.nanoTime();
+
+        assertEquals(coldProbes, prober.calls);
+        System.out.println(String.format("CertStoreIndex: cold %.2f ms (%d probes), warm %.2f us per lookup",
+                (t1 - t0) / 1000000.0, coldProbes, (t2 - t1) / 1000.0 / lookups));
+    }
+}
@@ -0,0 +1,193 @@
+package com.rallytac.engageandroid;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CertStoreIndexTest {
+    // Our "stores" are text files of the form "<password>|<id>" - the prober only opens them with the
+    // right password
+    static class FakeProber implements CertStoreIndex.IProber {
+        int calls = 0;
+
+        @Override
+        public String queryContents(String path, String password) {
+            calls++;
+            try {
+                byte[] b = java.nio.file.Files.readAllBytes(new File(path).toPath());
+                String[] parts = new String(b, StandardCharsets.UTF_8).split("\\|");
+                if (parts.length == 2 && parts[0].equals(password)) {
+                    return "{\"version\":1,\"id\":\"" + parts[1] + "\"}";
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return null;
+        }
+    }
+
+    static File tempDir() {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "certstoreindex-" + System.nanoTime());
+        new File(dir, "stores").mkdirs();
+        return dir;
+    }
+
+    static File writeStore(File dir, String name, String password, String id, long modifiedMs) throws Exception {
+        File f = new File(new File(dir, "stores"), name);
+        try (FileOutputStream fos = new FileOutputStream(f)) {
+            fos.write((password + "|" + id).getBytes(StandardCharsets.UTF_8));
+        }
+        f.setLastModified(modifiedMs);
+        return f;
+    }
+
+    static Set<String> passwords(String... pwds) {
+        return new HashSet<>(Arrays.asList(pwds));
+    }
+
+    static CertStoreIndex index(File dir, FakeProber prober) {
+        return new CertStoreIndex(new File(dir, "index.json"), new File(dir, "stores"), prober);
+    }
+
+    @Test
+    public void descriptor_carriesTheWorkingPassword() throws Exception {
+        File dir = tempDir();
+        File f = writeStore(dir, "a.certstore", "secret", "{A}", 1000000L);
+        CertStoreIndex idx = index(dir, new FakeProber());
+
+        JSONObject d = idx.getDescriptor(f, passwords("", "nope", "secret"));
+        assertNotNull(d);
+        assertEquals("{A}", d.optString("id"));
+        assertEquals("secret", d.optString(Constants.CERTSTORE_JSON_INTERNAL_PASSWORD_HEX_STRING));
+    }
+
+    @Test
+    public void unchangedStores_areNotProbedAgain() throws Exception {
+        File dir = tempDir();
+        writeStore(dir, "a.certstore", "p1", "{A}", 1000000L);
+        writeStore(dir, "b.certstore", "p2", "{B}", 1000000L);
+        FakeProber prober = new FakeProber();
+        CertStoreIndex idx = index(dir, prober);
+        Set<String> pwds = passwords("", "p1", "p2", "p3");
+
+        assertTrue(idx.findPathForId("{b}", pwds).endsWith("b.certstore"));
+        int afterFirst = prober.calls;
+        assertTrue(afterFirst > 0);
+
+        for (int x = 0; x < 10; x++) {
+            assertTrue(idx.findPathForId("{A}", pwds).endsWith("a.certstore"));
+            assertTrue(idx.findPathForId("{B}", pwds).endsWith("b.certstore"));
+        }
+        assertEquals(afterFirst, prober.calls);
+    }
+
+    @Test
+    public void index_survivesARestart() throws Exception {
+        File dir = tempDir();
+        writeStore(dir, "a.certstore", "p1", "{A}", 1000000L);
+        Set<String> pwds = passwords("", "p1");
+
+        index(dir, new FakeProber()).scan(pwds);
+
+        FakeProber prober = new FakeProber();
+        CertStoreIndex idx = index(dir, prober);
+        assertTrue(idx.findPathForId("{A}", pwds).endsWith("a.certstore"));
+        assertEquals(0, prober.calls);
+    }
+
+    @Test
+    public void changedStore_isProbedWithItsLastPasswordFirst() throws Exception {
+        File dir = tempDir();
+        writeStore(dir, "a.certstore", "p3", "{A}", 1000000L);
+        FakeProber prober = new FakeProber();
+        CertStoreIndex idx = index(dir, prober);
+        Set<String> pwds = passwords("", "p1", "p2", "p3", "p4");
+
+        idx.scan(pwds);
+        prober.calls = 0;
+
+        writeStore(dir, "a.certstore", "p3", "{A2}", 2000000L);
+        assertNull(idx.findPathForId("{A}", pwds));
+        assertTrue(idx.findPathForId("{A2}", pwds).endsWith("a.certstore"));
+        assertEquals(1, prober.calls);
+    }
+
+    @Test
+    public void touchedButIdentical_isOnlyRehashed() throws Exception {
+        File dir = tempDir();
+        File f = writeStore(dir, "a.certstore", "p1", "{A}", 1000000L);
+        FakeProber prober = new FakeProber();
+        CertStoreIndex idx = index(dir, prober);
+        Set<String> pwds = passwords("", "p1");
+
+        idx.scan(pwds);
+        prober.calls = 0;
+
+        f.setLastModified(3000000L);
+        assertNotNull(idx.getDescriptor(f, pwds));
+        assertEquals(0, prober.calls);
+        assertEquals(1, idx.getStats().rehashes);
+    }
+
+    @Test
+    public void unopenableStores_waitForNewPasswords() throws Exception {
+        File dir = tempDir();
+        File f = writeStore(dir, "x.certstore", "unknown", "{X}", 1000000L);
+        FakeProber prober = new FakeProber();
+        CertStoreIndex idx = index(dir, prober);
+
+        assertNull(idx.getDescriptor(f, passwords("", "p1")));
+        assertNull(idx.getDescriptor(f, passwords("", "p1")));
+        assertEquals(2, prober.calls);
+
+        assertNotNull(idx.getDescriptor(f, passwords("", "p1", "unknown")));
+        assertEquals(5, prober.calls);
+    }
+
+    @Test
+    public void removedPassword_meansTheStoreIsProbedAgain() throws Exception {
+        File dir = tempDir();
+        File f = writeStore(dir, "a.certstore", "p1", "{A}", 1000000L);
+        CertStoreIndex idx = index(dir, new FakeProber());
+
+        assertNotNull(idx.getDescriptor(f, passwords("", "p1")));
+        assertNull(idx.getDescriptor(f, passwords("")));
+    }
+
+    @Test
+    public void deletedStores_dropOutOfTheIndex() throws Exception {
+        File dir = tempDir();
+        File f = writeStore(dir, "a.certstore", "p1", "{A}", 1000000L);
+        CertStoreIndex idx = index(dir, new FakeProber());
+        Set<String> pwds = passwords("p1");
+
+        assertNotNull(idx.findPathForId("{A}", pwds));
+        f.delete();
+        assertNull(idx.findPathForId("{A}", pwds));
+        assertEquals(0, idx.scan(pwds).size());
+    }
+
+    @Test
+    public void filesOutsideTheDirectory_areNotIndexed() throws Exception {
+        File dir = tempDir();
+        File f = new File(dir, "import.tmp");
+        try (FileOutputStream fos = new FileOutputStream(f)) {
+            fos.write("p1|{I}".getBytes(StandardCharsets.UTF_8));
+        }
+        FakeProber prober = new FakeProber();
+        CertStoreIndex idx = index(dir, prober);
+
+        assertNotNull(idx.getDescriptor(f, passwords("p1")));
+        assertNotNull(idx.getDescriptor(f, passwords("p1")));
+        assertEquals(2, prober.calls);
+        assertNull(idx.findPathForId("{I}", passwords("p1")));
+    }
+}
@@ -0,0 +1,38 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+// Mapped read against the RandomAccessFile.readFully it replaces
+public class CertStoreLoaderBenchmark {
+    @Test
+    public void readMappedVsReadFully() throws Exception {
+        File f = new File(CertStoreLoaderTest.tempDir(), "big.certstore");
+        try (FileOutputStream fos = new FileOutputStream(f)) {
+            fos.write(CertStoreLoaderTest.randomBytes(256 * 1024, 3));
+        }
+        final int loops = 200;
+
+        long t0 = System.nanoTime();
+        for (int x = 0; x < loops; x++) {
+            assertEquals(256 * 1024, CertStoreLoader.readMapped(f).length);
+        }
+        long t1 = System.nanoTime();
+        for (int x = 0; x < loops; x++) {
+            RandomAccessFile raf = new RandomAccessFile(f, "r");
+            byte[] b = new byte[(int) raf.length()];
+            raf.readFully(b);
+            raf.close();
+            assertEquals(256 * 1024, b.length);
+        }
+        long t2 = System.nanoTime();
+
+        System.out.println(String.format("CertStoreLoader: 256KB store mapped %.1f us, readFully %.1f us",
+                (t1 - t0) / 1000.0 / loops, (t2 - t1) / 1000.0 / loops));
+    }
+}
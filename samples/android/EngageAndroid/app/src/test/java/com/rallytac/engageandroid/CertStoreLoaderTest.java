@@ -0,0 +1,96 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CertStoreLoaderTest {
+    static File tempDir() {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "certstoreloader-" + System.nanoTime());
+        dir.mkdirs();
+        return dir;
+    }
+
+    static byte[] randomBytes(int len, long seed) {
+        byte[] b = new byte[len];
+        new Random(seed).nextBytes(b);
+        return b;
+    }
+
+    private static class CountingOpener implements CertStoreLoader.IStoreOpener {
+        final String good;
+        int calls = 0;
+
+        CountingOpener(String good) {
+            this.good = good;
+        }
+
+        @Override
+        public boolean open(byte[] content, String password) {
+            calls++;
+            return good.equals(password);
+        }
+    }
+
+    @Test
+    public void readMapped_returnsTheWholeFile() throws Exception {
+        File f = new File(tempDir(), "store.certstore");
+        byte[] data = randomBytes(100000, 1);
+        try (FileOutputStream fos = new FileOutputStream(f)) {
+            fos.write(data);
+        }
+
+        assertTrue(Arrays.equals(data, CertStoreLoader.readMapped(f)));
+    }
+
+    @Test
+    public void exportIfChanged_onlyWritesDifferentContent() throws Exception {
+        File f = new File(new File(tempDir(), "cache"), "bundled.certstore");
+        byte[] data = randomBytes(5000, 2);
+
+        assertTrue(CertStoreLoader.exportIfChanged(data, f));
+        f.setLastModified(1000000L);
+
+        assertFalse(CertStoreLoader.exportIfChanged(data, f));
+        assertEquals(1000000L, f.lastModified());
+
+        // Same size, different bytes
+        byte[] changed = data.clone();
+        changed[100] ^= 0x55;
+        assertTrue(CertStoreLoader.exportIfChanged(changed, f));
+        assertTrue(Arrays.equals(changed, CertStoreLoader.readMapped(f)));
+        assertFalse(new File(f.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void open_triesTheRememberedPasswordFirst() {
+        Set<String> pwds = new LinkedHashSet<>(Arrays.asList("", "a", "b", "c", "d"));
+
+        CountingOpener opener = new CountingOpener("d");
+        CertStoreLoader.Timings t = new CertStoreLoader.Timings();
+        assertTrue(CertStoreLoader.open(new byte[10], "d", pwds, opener, t));
+        assertEquals(1, opener.calls);
+        assertEquals(1, t.attempts);
+        assertTrue(t.opened);
+        assertEquals(10, t.bytes);
+
+        // A stale remembered password falls back to the rest
+        opener = new CountingOpener("c");
+        t = new CertStoreLoader.Timings();
+        assertTrue(CertStoreLoader.open(new byte[10], "d", pwds, opener, t));
+        assertEquals(5, opener.calls);
+
+        opener = new CountingOpener("zzz");
+        t = new CertStoreLoader.Timings();
+        assertFalse(CertStoreLoader.open(new byte[10], null, pwds, opener, t));
+        assertEquals(5, t.attempts);
+        assertFalse(t.opened);
+    }
+}
@@ -0,0 +1,177 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ConfigurationDiffTest {
+    private static final String POLICY = "{\"internals\":{\"watchdog\":{\"enabled\":false}}}";
+    private static final String IDENTITY = "{\"nodeId\":\"{n1}\",\"userId\":\"bob\",\"displayName\":\"Bob\"}";
+
+    private static String audioGroup(String id, String name, int rxPort, String rallypoint) {
+        return audioGroup(id, name, rxPort, rallypoint, 1);
+    }
+
+    private static String audioGroup(String id, String name, int rxPort, String rallypoint, int outputId) {
+        return "{\"id\":\"" + id + "\",\"name\":\"" + name + "\",\"type\":1"
+                + ",\"rx\":{\"address\":\"239.1.1.1\",\"port\":" + rxPort + "}"
+                + ",\"tx\":{\"address\":\"239.1.1.1\",\"port\":" + rxPort + "}"
+                + (rallypoint != null ? ",\"rallypoints\":[{\"host\":{\"address\":\"" + rallypoint + "\",\"port\":7443}}]" : "")
+                + ",\"audio\":{\"inputId\":1,\"outputId\":" + outputId + "}"
+                + ",\"txAudio\":{\"enableSmoothing\":true,\"dtx\":false}}";
+    }
+
+    private static ConfigurationDiff.Snapshot mission(String... groupIdsThenSelected) {
+        ConfigurationDiff.Snapshot rc = new ConfigurationDiff.Snapshot(POLICY, IDENTITY, "");
+        rc.missionId = "{m1}";
+        for (String s : groupIdsThenSelected) {
+            if (s.startsWith("*")) {
+                s = s.substring(1);
+                rc.selectedGroups.add(s);
+            }
+            rc.groups.put(s, audioGroup(s, "Group " + s, 10000 + s.hashCode() % 1000, null));
+        }
+        return rc;
+    }
+
+    @Test
+    public void identical_needsNothing() {
+        ConfigurationDiff.Plan plan = ConfigurationDiff.compare(mission("*a", "b", "c"), mission("*a", "b", "c"));
+
+        assertTrue(plan.isEmpty());
+        assertEquals(ConfigurationDiff.EngineAction.none, plan.engineAction);
+        assertEquals(Arrays.asList("a", "b", "c"), plan.unchanged);
+    }
+
+    @Test
+    public void nothingApplied_needsRestart() {
+        ConfigurationDiff.Plan plan = ConfigurationDiff.compare(null, mission("a"));
+        assertTrue(plan.requiresRestart());
+    }
+
+    @Test
+    public void engineLevelChanges_needRestart() {
+        ConfigurationDiff.Snapshot after = mission("a");
+        after.enginePolicyJson = "{\"internals\":{\"watchdog\":{\"enabled\":true}}}";
+        assertTrue(ConfigurationDiff.compare(mission("a"), after).requiresRestart());
+
+        after = mission("a");
+        after.identityJson = "{\"nodeId\":\"{n1}\",\"userId\":\"alice\",\"displayName\":\"Alice\"}";
+        assertTrue(ConfigurationDiff.compare(mission("a"), after).requiresRestart());
+
+        after = mission("a");
+        after.certStoreId = "{cs2}";
+        ConfigurationDiff.Plan plan = ConfigurationDiff.compare(mission("a"), after);
+        assertTrue(plan.requiresRestart());
+        assertEquals("certificate store changed", plan.restartReason);
+    }
+
+    @Test
+    public void missionSwitch_needsRestart() {
+        ConfigurationDiff.Snapshot after = mission("*a", "b");
+        after.missionId = "{m2}";
+
+        ConfigurationDiff.Plan plan = ConfigurationDiff.compare(mission("*a", "b"), after);
+        assertTrue(plan.requiresRestart());
+        assertEquals("mission changed", plan.restartReason);
+    }
+
+    @Test
+    public void replacedGroups_deletesOldAndCreatesNew() {
+        ConfigurationDiff.Plan plan = ConfigurationDiff.compare(mission("*a", "b"), mission("*x", "y", "z"));
+
+        assertEquals(ConfigurationDiff.EngineAction.updateGroups, plan.engineAction);
+        assertEquals(Arrays.asList("a"), plan.toLeave);
+        assertEquals(Arrays.asList("a", "b"), plan.toDelete);
+        assertEquals(Arrays.asList("x", "y", "z"), plan.toCreate);
+        assertEquals(Arrays.asList("x"), plan.toJoin);
+        assertTrue(plan.toReconfigure.isEmpty());
+    }
+
+    @Test
+    public void overlappingGroupSets_keepSharedGroups() {
+        ConfigurationDiff.Plan plan = ConfigurationDiff.compare(mission("*a", "b"), mission("*a", "c"));
+
+        assertEquals(Arrays.asList("b"), plan.toDelete);
+        assertEquals(Arrays.asList("c"), plan.toCreate);
+        assertEquals(Arrays.asList("a"), plan.unchanged);
+        assertTrue(plan.toJoin.isEmpty());
+        assertTrue(plan.toLeave.isEmpty());
+    }
+
+    @Test
+    public void selectionChange_onlyJoinsAndLeaves() {
+        ConfigurationDiff.Plan plan = ConfigurationDiff.compare(mission("*a", "b"), mission("a", "*b"));
+
+        assertEquals(Arrays.asList("b"), plan.toJoin);
+        assertEquals(Arrays.asList("a"), plan.toLeave);
+        assertTrue(plan.toCreate.isEmpty());
+        assertTrue(plan.toDelete.isEmpty());
+    }
+
+    @Test
+    public void audioDeviceChange_isReconfiguredInPlace() {
+        ConfigurationDiff.Snapshot before = mission("*a", "b");
+        ConfigurationDiff.Snapshot after = mission("*a", "b");
+        after.groups.put("a", audioGroup("a", "Group a", 10000 + "a".hashCode() % 1000, null, 2));
+
+        ConfigurationDiff.Plan plan = ConfigurationDiff.compare(before, after);
+
+        assertEquals(Arrays.asList("a"), plan.toReconfigure);
+        assertEquals(Arrays.asList("b"), plan.unchanged);
+        assertTrue(plan.toCreate.isEmpty());
+        assertTrue(plan.toDelete.isEmpty());
+        assertTrue(plan.toJoin.isEmpty());
+        assertTrue(plan.toLeave.isEmpty());
+    }
+
+    @Test
+    public void renameAndRallypoint_recreateAndRejoin() {
+        ConfigurationDiff.Snapshot before = mission("*a", "b");
+        ConfigurationDiff.Snapshot after = mission("*a", "b");
+        after.groups.put("a", audioGroup("a", "Renamed", 10000 + "a".hashCode() % 1000, "rp.example.com"));
+
+        ConfigurationDiff.Plan plan = ConfigurationDiff.compare(before, after);
+
+        assertEquals(Arrays.asList("a"), plan.toDelete);
+        assertEquals(Arrays.asList("a"), plan.toCreate);
+        assertEquals(Arrays.asList("a"), plan.toJoin);
+        assertTrue(plan.toReconfigure.isEmpty());
+    }
+
+    @Test
+    public void addressChange_recreatesAndRejoins() {
+        ConfigurationDiff.Snapshot before = mission("*a", "b");
+        ConfigurationDiff.Snapshot after = mission("*a", "b");
+        after.groups.put("a", audioGroup("a", "Group a", 20000, null));
+
+        ConfigurationDiff.Plan plan = ConfigurationDiff.compare(before, after);
+
+        assertEquals(Arrays.asList("a"), plan.toLeave);
+        assertEquals(Arrays.asList("a"), plan.toDelete);
+        assertEquals(Arrays.asList("a"), plan.toCreate);
+        assertEquals(Arrays.asList("a"), plan.toJoin);
+        assertTrue(plan.toReconfigure.isEmpty());
+    }
+
+    @Test
+    public void groupBecomingUnusable_isDeleted() {
+        // A group that can't be created without a rallypoint drops out of the snapshot
+        ConfigurationDiff.Plan plan = ConfigurationDiff.compare(mission("*a", "*b"), mission("*a"));
+
+        assertEquals(Arrays.asList("b"), plan.toLeave);
+        assertEquals(Arrays.asList("b"), plan.toDelete);
+        assertTrue(plan.toCreate.isEmpty());
+    }
+
+    @Test
+    public void canReconfigure_rejectsBadJson() {
+        assertFalse(ConfigurationDiff.canReconfigure("{", "{}"));
+        assertTrue(ConfigurationDiff.canReconfigure("{\"audio\":{\"outputId\":1}}", "{\"audio\":{\"outputId\":2}}"));
+        assertFalse(ConfigurationDiff.canReconfigure("{\"name\":\"a\"}", "{\"name\":\"b\"}"));
+        assertFalse(ConfigurationDiff.canReconfigure("{\"type\":1}", "{\"type\":2}"));
+        assertFalse(ConfigurationDiff.canReconfigure("{}", "{\"cryptoPassword\":\"x\"}"));
+    }
+}
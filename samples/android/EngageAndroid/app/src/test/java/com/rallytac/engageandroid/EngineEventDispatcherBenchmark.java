@@ -0,0 +1,151 @@
+package com.rallytac.engageandroid;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+// Replays a recorded stream of group callbacks - connects, joins, talker changes, rx start/end
+// and node discoveries across 20 groups - through the dispatcher with a single thread standing
+// in for the main looper, and reports events/sec and main-thread time per event
+public class EngineEventDispatcherBenchmark {
+    private static final int GROUP_COUNT = 20;
+    private static final int ROUNDS = 2500;
+
+    static class RecordedEvent {
+        final String kind;
+        final String groupId;
+        final String json;
+
+        RecordedEvent(String kind, String groupId, String json) {
+            this.kind = kind;
+            this.groupId = groupId;
+            this.json = json;
+        }
+    }
+
+    static class GroupModel {
+        boolean connected;
+        boolean joined;
+        boolean rx;
+        int talkers;
+        int nodes;
+    }
+
+    static ArrayList<RecordedEvent> recordSession() throws Exception {
+        ArrayList<RecordedEvent> rc = new ArrayList<>();
+
+        for (int g = 0; g < GROUP_COUNT; g++) {
+            rc.add(new RecordedEvent("connected", "g" + g, "{\"groupConnectionDetail\":{\"connectionType\":1,\"asFailover\":false}}"));
+            rc.add(new RecordedEvent("joined", "g" + g, "{}"));
+        }
+
+        for (int r = 0; r < ROUNDS; r++) {
+            String gid = "g" + (r % GROUP_COUNT);
+            JSONArray list = new JSONArray();
+            for (int t = 0; t < 1 + (r % 3); t++) {
+                list.put(new JSONObject().put("alias", "talker" + t).put("nodeId", "node" + t).put("rxFlags", 0));
+            }
+
+            rc.add(new RecordedEvent("rxStarted", gid, "{}"));
+            rc.add(new RecordedEvent("rxSpeakersChanged", gid, new JSONObject().put("list", list).toString()));
+            rc.add(new RecordedEvent("rxEnded", gid, "{}"));
+            if (r % 10 == 0) {
+                rc.add(new RecordedEvent("nodeDiscovered", gid, "{\"identity\":{\"nodeId\":\"n" + r + "\",\"displayName\":\"user " + r + "\"}}"));
+            }
+        }
+
+        return rc;
+    }
+
+    @Test
+    public void replayRecordedSession() throws Exception {
+        final ArrayList<RecordedEvent> session = recordSession();
+        final ExecutorService mainThread = Executors.newSingleThreadExecutor();
+        final EngineEventDispatcher d = new EngineEventDispatcher(session.size(), mainThread);
+        final HashMap<String, GroupModel> model = new HashMap<>();
+        final LinkedHashSet<String> dirty = new LinkedHashSet<>();
+        final int[] refreshes = new int[1];
+
+        for (int g = 0; g < GROUP_COUNT; g++) {
+            model.put("g" + g, new GroupModel());
+        }
+
+        // Coalesced per group the way GroupUiRefreshScheduler does it
+        final Runnable flushDirty = new Runnable() {
+            @Override
+            public void run() {
+                synchronized (dirty) {
+                    refreshes[0] += dirty.size();
+                    dirty.clear();
+                }
+            }
+        };
+
+        d.start();
+        long start = System.nanoTime();
+        for (final RecordedEvent ev : session) {
+            d.submit(new Runnable() {
+                @Override
+                public void run() {
+                    GroupModel gm = model.get(ev.groupId);
+                    try {
+                        JSONObject jo = new JSONObject(ev.json);
+                        if (ev.kind.equals("connected")) {
+                            gm.connected = (jo.optJSONObject("groupConnectionDetail") != null);
+                        } else if (ev.kind.equals("joined")) {
+                            gm.joined = true;
+                        } else if (ev.kind.equals("rxStarted")) {
+                            gm.rx = true;
+                        } else if (ev.kind.equals("rxEnded")) {
+                            gm.rx = false;
+                        } else if (ev.kind.equals("rxSpeakersChanged")) {
+                            gm.talkers = jo.getJSONArray("list").length();
+                        } else if (ev.kind.equals("nodeDiscovered")) {
+                            gm.nodes++;
+                        }
+                    } catch (Exception e) {
+                        fail(e.getMessage());
+                    }
+
+                    boolean post;
+                    synchronized (dirty) {
+                        post = dirty.isEmpty();
+                        dirty.add(ev.groupId);
+                    }
+                    if (post) {
+                        d.postToUi(flushDirty);
+                    }
+                }
+            });
+        }
+
+        long deadline = System.currentTimeMillis() + 30000;
+        while (d.getStats().eventsProcessed < session.size() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        long elapsedNs = System.nanoTime() - start;
+        d.stop();
+        mainThread.shutdown();
+        assertTrue(mainThread.awaitTermination(5, TimeUnit.SECONDS));
+
+        EngineEventDispatcher.Stats stats = d.getStats();
+        assertEquals(session.size(), stats.eventsProcessed);
+        assertEquals(0, stats.eventsDropped);
+        assertTrue(model.get("g0").nodes > 0);
+
+        System.out.println("EngineEventDispatcher: " + session.size() + " events in " + (elapsedNs / 1000) + "us"
+                + ", eventsPerSec=" + (long) (session.size() * 1e9 / elapsedNs)
+                + ", mainThreadUsPerEvent=" + String.format("%.3f", stats.getUiUsPerEvent())
+                + ", uiBatches=" + stats.uiBatchesPosted
+                + ", groupRefreshes=" + refreshes[0]);
+    }
+}
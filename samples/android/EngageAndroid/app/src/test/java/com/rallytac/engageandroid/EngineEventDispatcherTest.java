@@ -0,0 +1,178 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class EngineEventDispatcherTest {
+    // Stands in for the main looper - holds on to whatever is posted until run() is called
+    static class ManualExecutor implements Executor {
+        final List<Runnable> posted = Collections.synchronizedList(new ArrayList<Runnable>());
+
+        @Override
+        public void execute(Runnable r) {
+            posted.add(r);
+        }
+
+        void runAll() {
+            ArrayList<Runnable> work;
+            synchronized (posted) {
+                work = new ArrayList<>(posted);
+                posted.clear();
+            }
+            for (Runnable r : work) {
+                r.run();
+            }
+        }
+    }
+
+    private static void waitForProcessed(EngineEventDispatcher d, long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (d.getStats().eventsProcessed < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(count, d.getStats().eventsProcessed);
+    }
+
+    @Test
+    public void submit_runsEventsInOrderOnOneThread() throws Exception {
+        EngineEventDispatcher d = new EngineEventDispatcher(64, new ManualExecutor());
+        final List<Integer> seen = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<Boolean> onDispatcher = Collections.synchronizedList(new ArrayList<Boolean>());
+        final EngineEventDispatcher dispatcher = d;
+
+        for (int x = 0; x < 50; x++) {
+            final int n = x;
+            assertTrue(d.submit(new Runnable() {
+                @Override
+                public void run() {
+                    seen.add(n);
+                    onDispatcher.add(dispatcher.isOnDispatcherThread());
+                }
+            }));
+        }
+
+        d.start();
+        waitForProcessed(d, 50);
+
+        for (int x = 0; x < 50; x++) {
+            assertEquals(x, (int) seen.get(x));
+            assertTrue(onDispatcher.get(x));
+        }
+        d.stop();
+    }
+
+    @Test
+    public void submit_dropsAndCountsWhenFull_withoutBlocking() throws Exception {
+        EngineEventDispatcher d = new EngineEventDispatcher(4, new ManualExecutor());
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        d.start();
+        d.submit(new Runnable() {
+            @Override
+            public void run() {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        int accepted = 0;
+        for (int x = 0; x < 7; x++) {
+            if (d.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            })) {
+                accepted++;
+            }
+        }
+
+        // We got here with the consumer still stuck, so nothing blocked
+        assertEquals(1, release.getCount());
+        assertEquals(4, accepted);
+        EngineEventDispatcher.Stats stats = d.getStats();
+        assertEquals(3, stats.queueOverflows);
+        assertEquals(3, stats.eventsDropped);
+        assertEquals(4, stats.queueHighWaterMark);
+
+        release.countDown();
+        waitForProcessed(d, 5);
+        d.stop();
+    }
+
+    @Test
+    public void postToUi_batchesAndIsNeverWaitedOn() throws Exception {
+        ManualExecutor ui = new ManualExecutor();
+        final EngineEventDispatcher d = new EngineEventDispatcher(64, ui);
+        final List<Integer> ran = new ArrayList<>();
+
+        d.start();
+        for (int x = 0; x < 20; x++) {
+            final int n = x;
+            d.submit(new Runnable() {
+                @Override
+                public void run() {
+                    d.postToUi(new Runnable() {
+                        @Override
+                        public void run() {
+                            ran.add(n);
+                        }
+                    });
+                }
+            });
+        }
+
+        // Every event finishes while the "UI thread" hasn't run anything
+        waitForProcessed(d, 20);
+        assertTrue(ran.isEmpty());
+        assertEquals(1, ui.posted.size());
+
+        ui.runAll();
+        assertEquals(20, ran.size());
+        for (int x = 0; x < 20; x++) {
+            assertEquals(x, (int) ran.get(x));
+        }
+
+        EngineEventDispatcher.Stats stats = d.getStats();
+        assertEquals(20, stats.uiTasksPosted);
+        assertEquals(1, stats.uiBatchesPosted);
+
+        // The next post starts a new batch
+        d.postToUi(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        assertEquals(1, ui.posted.size());
+        assertEquals(2, d.getStats().uiBatchesPosted);
+        d.stop();
+    }
+
+    @Test
+    public void submit_afterStop_isDropped() {
+        EngineEventDispatcher d = new EngineEventDispatcher(4, new ManualExecutor());
+        d.start();
+        d.stop();
+
+        assertFalse(d.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }));
+        assertEquals(1, d.getStats().eventsDropped);
+        assertEquals(0, d.getStats().queueOverflows);
+    }
+}
@@ -0,0 +1,32 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+// A 60 group mission where each group takes a couple of milliseconds to prepare
+public class GroupStartupPipelineBenchmark {
+    @Test
+    public void serialVersusParallel() {
+        GroupStartupPipelineTest.Recorder r = new GroupStartupPipelineTest.Recorder();
+        r.prepareSleepMs = 2;
+
+        String[] ids = new String[60];
+        for (int x = 0; x < ids.length; x++) {
+            ids[x] = (x < 4 ? "*" : "") + "g" + x;
+        }
+
+        GroupStartupPipeline serial = new GroupStartupPipeline(0, 8);
+        serial.markEngineInitializing();
+        GroupStartupPipeline.Trace ts = serial.run(GroupStartupPipelineTest.jobs(ids), r);
+
+        GroupStartupPipeline parallel = new GroupStartupPipeline(4, 8);
+        parallel.markEngineInitializing();
+        GroupStartupPipeline.Trace tp = parallel.run(GroupStartupPipelineTest.jobs(ids), r);
+        parallel.shutdown();
+
+        System.out.println("GroupStartupPipeline: serial first create " + ts.firstCreateMs + "ms, all created " + ts.allCreatedMs
+                + "ms; parallel first create " + tp.firstCreateMs + "ms, all created " + tp.allCreatedMs + "ms");
+        assertEquals(ts.groups, tp.groups);
+    }
+}
@@ -0,0 +1,151 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GroupStartupPipelineTest {
+    static class Recorder implements GroupStartupPipeline.IJobHandler {
+        final List<String> ops = Collections.synchronizedList(new ArrayList<String>());
+        final List<String> prepareThreads = Collections.synchronizedList(new ArrayList<String>());
+        long prepareSleepMs = 0;
+        String unusable = null;
+
+        @Override
+        public void prepare(GroupStartupPipeline.Job job) {
+            prepareThreads.add(Thread.currentThread().getName());
+            if (prepareSleepMs > 0) {
+                try {
+                    Thread.sleep(prepareSleepMs);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+            job.json = "{\"id\":\"" + job.id + "\"}";
+            job.usable = !job.id.equals(unusable);
+        }
+
+        @Override
+        public void create(GroupStartupPipeline.Job job) {
+            ops.add("create:" + job.id);
+        }
+
+        @Override
+        public void join(GroupStartupPipeline.Job job) {
+            ops.add("join:" + job.id);
+        }
+    }
+
+    static List<GroupStartupPipeline.Job> jobs(String... ids) {
+        ArrayList<GroupStartupPipeline.Job> rc = new ArrayList<>();
+        for (String id : ids) {
+            boolean join = id.startsWith("*");
+            rc.add(new GroupStartupPipeline.Job(join ? id.substring(1) : id, join, null));
+        }
+        return rc;
+    }
+
+    @Test
+    public void joinedGroupsGoFirst_andAreCreatedBeforeJoining() {
+        GroupStartupPipeline p = new GroupStartupPipeline(2, 8);
+        Recorder r = new Recorder();
+
+        p.markEngineInitializing();
+        GroupStartupPipeline.Trace t = p.run(jobs("a", "*b", "c", "*d"), r);
+
+        assertEquals("[create:b, create:d, create:a, create:c, join:b, join:d]", r.ops.toString());
+        assertEquals(4, t.groups);
+        assertEquals(2, t.joinsRequested);
+        assertFalse(t.isComplete());
+        assertTrue(t.firstCreateMs >= 0);
+        assertTrue(t.allCreatedMs >= t.firstCreateMs);
+        p.shutdown();
+    }
+
+    @Test
+    public void batches_joinEarlyGroupsBeforeLaterOnesAreCreated() {
+        GroupStartupPipeline p = new GroupStartupPipeline(2, 2);
+        Recorder r = new Recorder();
+
+        p.run(jobs("*a", "*b", "*c", "d"), r);
+
+        assertEquals("[create:a, create:b, join:a, join:b, create:c, create:d, join:c]", r.ops.toString());
+        p.shutdown();
+    }
+
+    @Test
+    public void unusableGroups_areSkipped() {
+        GroupStartupPipeline p = new GroupStartupPipeline(0, 8);
+        Recorder r = new Recorder();
+        r.unusable = "b";
+
+        GroupStartupPipeline.Trace t = p.run(jobs("*a", "*b"), r);
+
+        assertEquals("[create:a, join:a]", r.ops.toString());
+        assertEquals(1, t.skipped);
+        assertEquals(1, t.joinsRequested);
+    }
+
+    @Test
+    public void trace_completesWhenAllJoinsSettle() {
+        GroupStartupPipeline p = new GroupStartupPipeline(0, 8);
+        Recorder r = new Recorder();
+
+        p.markEngineInitializing();
+        p.markEngineStarted();
+        p.run(jobs("*a", "*b", "*c"), r);
+
+        assertNull(p.onGroupJoined("a"));
+        assertNull(p.onGroupJoined("x"));
+        assertNull(p.onGroupJoinFailed("b"));
+
+        GroupStartupPipeline.Trace t = p.onGroupJoined("c");
+        assertNotNull(t);
+        assertTrue(t.isComplete());
+        assertEquals(2, t.joined);
+        assertEquals(1, t.joinsFailed);
+        assertTrue(t.engineStartedMs >= 0);
+        assertTrue(t.firstJoinedMs >= 0);
+        assertTrue(t.allJoinedMs >= t.firstJoinedMs);
+
+        // Late duplicates don't count
+        assertNull(p.onGroupJoined("c"));
+        assertEquals(2, p.getTrace().joined);
+    }
+
+    @Test
+    public void trace_isCompleteRightAwayWithNothingToJoin() {
+        GroupStartupPipeline p = new GroupStartupPipeline(0, 8);
+        GroupStartupPipeline.Trace t = p.run(jobs("a", "b"), new Recorder());
+
+        assertTrue(t.isComplete());
+        assertTrue(t.allJoinedMs >= 0);
+    }
+
+    @Test
+    public void markEngineInitializing_startsANewTrace() {
+        GroupStartupPipeline p = new GroupStartupPipeline(0, 8);
+        p.run(jobs("*a"), new Recorder());
+
+        p.markEngineInitializing();
+        assertEquals(0, p.getTrace().groups);
+        assertNull(p.onGroupJoined("a"));
+    }
+
+    @Test
+    public void preparation_runsOnWorkers() {
+        GroupStartupPipeline p = new GroupStartupPipeline(3, 8);
+        Recorder r = new Recorder();
+
+        p.run(jobs("a", "b", "c", "d", "e", "f"), r);
+
+        for (String name : r.prepareThreads) {
+            assertTrue(name, name.startsWith("GroupStartup-"));
+        }
+        p.shutdown();
+    }
+}
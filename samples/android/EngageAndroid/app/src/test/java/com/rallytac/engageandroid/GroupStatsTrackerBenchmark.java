@@ -0,0 +1,34 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+// Ingest of a steady stream of reports for a handful of groups, then window queries
+public class GroupStatsTrackerBenchmark {
+    @Test
+    public void ingestAndQuery() {
+        GroupStatsTracker t = new GroupStatsTracker(Constants.GROUP_STATS_HISTORY_SAMPLES);
+        final int reports = 20000;
+        final String[] groups = {"g0", "g1", "g2", "g3"};
+
+        long t0 = System.nanoTime();
+        for (int x = 0; x < reports; x++) {
+            String g = groups[x % groups.length];
+            assertTrue(t.ingestStatsReport(g, GroupStatsTrackerTest.statsWithInbounds(x * 50, x * 49, x, 1.0 + (x % 7)), x * 1000L));
+        }
+        long t1 = System.nanoTime();
+
+        final int queries = 20000;
+        double sink = 0;
+        for (int x = 0; x < queries; x++) {
+            GroupStatsTracker.Window w = t.getWindow(groups[x % groups.length], GroupStatsTracker.RX_BYTES, Constants.GROUP_STATS_DEFAULT_WINDOW_MS);
+            sink += w.p95;
+        }
+        long t2 = System.nanoTime();
+
+        assertTrue(sink > 0);
+        System.out.println(String.format("GroupStatsTracker: %.2f us per report ingested, %.2f us per 60s window query",
+                (t1 - t0) / 1000.0 / reports, (t2 - t1) / 1000.0 / queries));
+    }
+}
@@ -0,0 +1,161 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GroupStatsTrackerTest {
+    private static final String GROUP = "{c2f5a8a4-1e86-4b0c-a1a3-6d1f0e6b2a11}";
+
+    // Captured from an engine over a one minute window, one report every 5 seconds - 50 packets/s
+    // of 80 byte payloads rx, a 10 second burst of tx in the middle
+    private static final String[] CAPTURED_STATS = {
+            "{\"id\":\"" + GROUP + "\",\"rxTraffic\":{\"packets\":1000,\"bytes\":80000,\"errors\":0},\"txTraffic\":{\"packets\":0,\"bytes\":0,\"errors\":0}}",
+            "{\"id\":\"" + GROUP + "\",\"rxTraffic\":{\"packets\":1250,\"bytes\":100000,\"errors\":0},\"txTraffic\":{\"packets\":0,\"bytes\":0,\"errors\":0}}",
+            "{\"id\":\"" + GROUP + "\",\"rxTraffic\":{\"packets\":1500,\"bytes\":120000,\"errors\":1},\"txTraffic\":{\"packets\":0,\"bytes\":0,\"errors\":0}}",
+            "{\"id\":\"" + GROUP + "\",\"rxTraffic\":{\"packets\":1750,\"bytes\":140000,\"errors\":1},\"txTraffic\":{\"packets\":250,\"bytes\":20000,\"errors\":0}}",
+            "{\"id\":\"" + GROUP + "\",\"rxTraffic\":{\"packets\":2000,\"bytes\":160000,\"errors\":1},\"txTraffic\":{\"packets\":500,\"bytes\":40000,\"errors\":0}}",
+            "{\"id\":\"" + GROUP + "\",\"rxTraffic\":{\"packets\":2250,\"bytes\":180000,\"errors\":1},\"txTraffic\":{\"packets\":500,\"bytes\":40000,\"errors\":0}}",
+            "{\"id\":\"" + GROUP + "\",\"rxTraffic\":{\"packets\":2500,\"bytes\":200000,\"errors\":1},\"txTraffic\":{\"packets\":500,\"bytes\":40000,\"errors\":0}}",
+    };
+
+    private static final String CAPTURED_HEALTH =
+            "{\"id\":\"" + GROUP + "\",\"lastErrorTs\":1700000000,\"decryptionErrors\":2,\"encryptionErrors\":0,"
+                    + "\"unsupportDecoderErrors\":0,\"decoderFailures\":1,\"decoderStartFailures\":0,"
+                    + "\"inboundRtpPacketAllocationFailures\":0,\"inboundRtpPacketLoadFailures\":0,"
+                    + "\"latePacketsDiscarded\":4,\"jitterBufferInsertionFailures\":0,"
+                    + "\"presenceDeserializationFailures\":0,\"notRtpErrors\":0,\"generalErrors\":0}";
+
+    static String statsWithInbounds(long packets, long received, long lost, double jitter) {
+        return "{\"id\":\"" + GROUP + "\",\"rxTraffic\":{\"packets\":" + packets + ",\"bytes\":" + (packets * 80) + ",\"errors\":0},"
+                + "\"txTraffic\":{\"packets\":0,\"bytes\":0,\"errors\":0},"
+                + "\"rtpInbounds\":[{\"ssrc\":1234,\"jitter\":" + jitter + ",\"totalPacketsReceived\":" + received
+                + ",\"totalPacketsLost\":" + lost + ",\"totalPacketsDiscarded\":0}]}";
+    }
+
+    private static GroupStatsTracker replay(int capacity) {
+        GroupStatsTracker t = new GroupStatsTracker(capacity);
+        for (int x = 0; x < CAPTURED_STATS.length; x++) {
+            assertTrue(t.ingestStatsReport(GROUP, CAPTURED_STATS[x], 100000L + (x * 5000L)));
+        }
+        return t;
+    }
+
+    @Test
+    public void replay_givesRatesAndPercentiles() {
+        GroupStatsTracker t = replay(64);
+
+        GroupStatsTracker.Window rx = t.getWindow(GROUP, GroupStatsTracker.RX_PACKETS, 60000);
+        assertNotNull(rx);
+        assertEquals(6, rx.count);
+        assertEquals(30000, rx.spanMs);
+        assertEquals(50.0, rx.rate, 0.0001);
+        assertEquals(50.0, rx.p99, 0.0001);
+
+        GroupStatsTracker.Window bytes = t.getWindow(GROUP, GroupStatsTracker.RX_BYTES, 60000);
+        assertEquals(4000.0, bytes.rate, 0.0001);
+
+        // Two busy intervals out of six
+        GroupStatsTracker.Window tx = t.getWindow(GROUP, GroupStatsTracker.TX_PACKETS, 60000);
+        assertEquals(500.0 / 30.0, tx.rate, 0.0001);
+        assertEquals(0.0, tx.p50, 0.0001);
+        assertEquals(50.0, tx.p95, 0.0001);
+        assertEquals(0.0, tx.last, 0.0001);
+
+        GroupStatsTracker.Stats st = t.getStats();
+        assertEquals(CAPTURED_STATS.length, st.statsReports);
+        assertEquals(0, st.parseFailures);
+    }
+
+    @Test
+    public void windows_onlyLookBackFromTheLatestReport() {
+        GroupStatsTracker t = replay(64);
+
+        // The last 10 seconds - tx has gone quiet
+        GroupStatsTracker.Window tx = t.getWindow(GROUP, GroupStatsTracker.TX_PACKETS, 10000);
+        assertEquals(2, tx.count);
+        assertEquals(0.0, tx.rate, 0.0001);
+
+        assertNull(t.getWindow(GROUP, GroupStatsTracker.TX_PACKETS, 0));
+        assertNull(t.getWindow("nobody", GroupStatsTracker.TX_PACKETS, 60000));
+    }
+
+    @Test
+    public void ring_keepsOnlyTheNewestReports() {
+        GroupStatsTracker t = replay(3);
+
+        GroupStatsTracker.Window rx = t.getWindow(GROUP, GroupStatsTracker.RX_PACKETS, 600000);
+        assertEquals(2, rx.count);
+        assertEquals(10000, rx.spanMs);
+        assertEquals(CAPTURED_STATS.length - 3, t.getStats().overwritten);
+    }
+
+    @Test
+    public void counterReset_isTakenAsAFreshStart() {
+        GroupStatsTracker t = new GroupStatsTracker(16);
+        assertTrue(t.ingestStatsReport(GROUP, CAPTURED_STATS[6], 0));
+        // Group re-created in the engine
+        assertTrue(t.ingestStatsReport(GROUP, CAPTURED_STATS[0], 1000));
+        assertTrue(t.ingestStatsReport(GROUP, CAPTURED_STATS[1], 2000));
+
+        GroupStatsTracker.Window rx = t.getWindow(GROUP, GroupStatsTracker.RX_PACKETS, 60000);
+        assertEquals(1000.0 + 250.0, rx.p99 + rx.min, 0.0001);
+        assertEquals(625.0, rx.rate, 0.0001);
+    }
+
+    @Test
+    public void rtpInbounds_giveLossAndJitter() {
+        GroupStatsTracker t = new GroupStatsTracker(16);
+        t.ingestStatsReport(GROUP, statsWithInbounds(0, 0, 0, 1.5), 0);
+        t.ingestStatsReport(GROUP, statsWithInbounds(100, 95, 5, 2.5), 1000);
+        t.ingestStatsReport(GROUP, statsWithInbounds(200, 190, 10, 12.0), 2000);
+
+        assertEquals(5.0, t.getLossPercent(GROUP, 60000), 0.0001);
+
+        GroupStatsTracker.Window j = t.getWindow(GROUP, GroupStatsTracker.JITTER, 60000);
+        assertEquals(3, j.count);
+        assertEquals(2.5, j.p50, 0.0001);
+        assertEquals(12.0, j.p99, 0.0001);
+        assertTrue(Double.isNaN(j.rate));
+
+        // Without RTP stats there's nothing to say
+        GroupStatsTracker plain = replay(16);
+        assertTrue(Double.isNaN(plain.getLossPercent(GROUP, 60000)));
+        assertNull(plain.getWindow(GROUP, GroupStatsTracker.JITTER, 60000));
+    }
+
+    @Test
+    public void health_isParsedOnce() {
+        GroupStatsTracker t = new GroupStatsTracker(16);
+        assertNull(t.getHealth(GROUP));
+
+        assertTrue(t.ingestHealthReport(GROUP, CAPTURED_HEALTH, 1000));
+        GroupStatsTracker.Health h = t.getHealth(GROUP);
+        assertEquals(2, h.decryptionErrors);
+        assertEquals(4, h.latePacketsDiscarded);
+        assertEquals(7, h.getTotalErrors());
+        assertEquals(1700000000L, h.lastErrorTs);
+
+        assertTrue(t.ingestHealthReport(GROUP, CAPTURED_HEALTH.replace("\"generalErrors\":0", "\"generalErrors\":3"), 11000));
+        GroupStatsTracker.Window errs = t.getWindow(GROUP, GroupStatsTracker.HEALTH_ERRORS, 60000);
+        assertEquals(0.3, errs.rate, 0.0001);
+        assertEquals(10, t.getHealth(GROUP).getTotalErrors());
+    }
+
+    @Test
+    public void badReports_areCountedAndIgnored() {
+        GroupStatsTracker t = new GroupStatsTracker(16);
+        assertFalse(t.ingestStatsReport(GROUP, "not json", 0));
+        assertFalse(t.ingestStatsReport(GROUP, "{\"id\":\"x\"}", 0));
+        assertFalse(t.ingestHealthReport(null, "{}", 0));
+        assertEquals(3, t.getStats().parseFailures);
+        assertTrue(t.getGroupIds().isEmpty());
+
+        // The id comes from the report if the caller doesn't have one
+        assertTrue(t.ingestStatsReport(null, CAPTURED_STATS[0], 0));
+        assertEquals(GROUP, t.getGroupIds().get(0));
+
+        t.remove(GROUP);
+        assertTrue(t.getGroupIds().isEmpty());
+    }
+}
@@ -0,0 +1,32 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+// Adding a long session's worth of lines and scrolling back through them.  The disk work is done
+// inline so that scrolling back reads the older pages rather than waiting on the I/O thread.
+public class LogLineStoreBenchmark {
+    @Test
+    public void addAndPageBack() {
+        LogLineStore s = new LogLineStore(LogLineStoreTest.tempDir(), 1000, 20000, 10, false);
+        final int lines = 100000;
+
+        long t0 = System.nanoTime();
+        for (int x = 0; x < lines; x++) {
+            s.add("180101.1200.00:Connected to tls:rp.example.com:7443 (" + x + " ms)");
+        }
+        long t1 = System.nanoTime();
+
+        int chars = 0;
+        for (int x = s.size() - 1; x >= 0; x--) {
+            chars += s.get(x).length();
+        }
+        long t2 = System.nanoTime();
+
+        assertTrue(chars > 0);
+        System.out.println(String.format("LogLineStore: %.2f us per add, %.2f us per line scrolling back, %d page reads",
+                (t1 - t0) / 1000.0 / lines, (t2 - t1) / 1000.0 / s.size(), s.getStats().pageReads));
+        s.close();
+    }
+}
@@ -0,0 +1,204 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LogLineStoreTest {
+    static File tempDir() {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "loglinestore-" + System.nanoTime());
+        dir.mkdirs();
+        return dir;
+    }
+
+    private static class Recorder implements LogLineStore.IListener {
+        final CountDownLatch loaded = new CountDownLatch(1);
+        volatile long loadedFirst = -1;
+        File saved;
+        boolean savedOk;
+
+        @Override
+        public void onLinesLoaded(long firstLineNumber, int count) {
+            if (loadedFirst < 0) {
+                loadedFirst = firstLineNumber;
+            }
+            loaded.countDown();
+        }
+
+        @Override
+        public void onSaved(File file, boolean ok) {
+            saved = file;
+            savedOk = ok;
+        }
+    }
+
+    private static int segmentFiles(File dir) {
+        String[] names = dir.list();
+        return (names == null ? 0 : names.length);
+    }
+
+    @Test
+    public void memoryOnly_keepsTheNewestLines() {
+        LogLineStore s = new LogLineStore(null, 10, 0, 0);
+        for (int x = 0; x < 25; x++) {
+            s.add("line " + x);
+        }
+
+        assertEquals(10, s.size());
+        assertEquals(15, s.getFirstLineNumber());
+        assertEquals("line 15", s.get(0));
+        assertEquals("line 24", s.get(9));
+    }
+
+    @Test
+    public void olderLines_areReadBackFromDisk() {
+        File dir = tempDir();
+        LogLineStore s = new LogLineStore(dir, 100, 1000, 10, false);
+        for (int x = 0; x < 3000; x++) {
+            s.add("line " + x);
+        }
+
+        assertEquals(3000, s.size());
+        assertEquals(0, s.getFirstLineNumber());
+        assertEquals(100, s.getMemoryLineCount());
+        assertEquals(3, segmentFiles(dir));
+
+        for (int x = 0; x < 3000; x += 7) {
+            assertEquals("line " + x, s.get(x));
+        }
+        assertEquals("line 2899", s.get(2899));
+        assertEquals("line 2900", s.get(2900));
+
+        LogLineStore.Stats st = s.getStats();
+        assertEquals(2900, st.spilled);
+        assertEquals(2900, st.written);
+        assertTrue(st.pageReads > 0);
+        assertEquals(0, st.diskErrors);
+        s.close();
+        assertEquals(0, segmentFiles(dir));
+    }
+
+    @Test
+    public void partialPages_seeLinesWrittenAfterTheyWereCached() {
+        LogLineStore s = new LogLineStore(tempDir(), 10, 1000, 2, false);
+        for (int x = 0; x < 20; x++) {
+            s.add("a" + x);
+        }
+        assertEquals("a5", s.get(5));
+
+        s.add("a20");
+        assertEquals("a10", s.get(10));
+        s.close();
+    }
+
+    @Test
+    public void oldestSegment_isDroppedAndIndexesMove() {
+        File dir = tempDir();
+        LogLineStore s = new LogLineStore(dir, 50, 256, 3, false);
+        for (int x = 0; x < 2000; x++) {
+            s.add("n" + x);
+        }
+
+        assertEquals(3, segmentFiles(dir));
+        assertTrue(s.getStats().segmentsDropped > 0);
+
+        long first = s.getFirstLineNumber();
+        assertEquals(2000, first + s.size());
+        assertEquals("n" + first, s.get(0));
+        assertEquals("n1999", s.get(s.size() - 1));
+        assertEquals(0, first % 256);
+        s.close();
+    }
+
+    @Test
+    public void newlines_areFlattened() {
+        LogLineStore s = new LogLineStore(tempDir(), 1, 256, 1, false);
+        s.add("two\nlines");
+        s.add("\u00e9t\u00e9\r\n");
+
+        assertEquals("two lines", s.get(0));
+        assertEquals("\u00e9t\u00e9  ", s.get(1));
+        s.close();
+    }
+
+    @Test
+    public void clear_startsAgainAndSaveIncludesDisk() throws Exception {
+        File dir = tempDir();
+        LogLineStore s = new LogLineStore(dir, 3, 256, 4, false);
+        Recorder r = new Recorder();
+        s.setListener(r);
+        for (int x = 0; x < 5; x++) {
+            s.add("x" + x);
+        }
+
+        File saved = new File(tempDir(), "saved.log");
+        s.saveTo(saved);
+        assertEquals(saved, r.saved);
+        assertTrue(r.savedOk);
+        assertEquals("x0\nx1\nx2\nx3\nx4\n", new String(Files.readAllBytes(saved.toPath()), StandardCharsets.UTF_8));
+
+        s.clear();
+        assertEquals(0, s.size());
+        assertEquals(5, s.getFirstLineNumber());
+        assertEquals(0, segmentFiles(dir));
+
+        s.add("y");
+        assertEquals(1, s.size());
+        assertEquals("y", s.get(0));
+        s.close();
+    }
+
+    @Test
+    public void ioThread_loadsPagesInTheBackgroundAndSaysSo() throws Exception {
+        LogLineStore s = new LogLineStore(tempDir(), 10, 1000, 2);
+        Recorder r = new Recorder();
+        s.setListener(r);
+        for (int x = 0; x < 600; x++) {
+            s.add("b" + x);
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (s.getStats().written < 590 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(590, s.getStats().written);
+
+        // Nothing's been read back yet so unless the I/O thread beats us to it the line comes back
+        // empty rather than waiting for the disk
+        String line = s.get(300);
+        assertTrue(line.isEmpty() || line.equals("b300"));
+        assertTrue(r.loaded.await(5, TimeUnit.SECONDS));
+        assertEquals(256, r.loadedFirst);
+        assertEquals("b300", s.get(300));
+
+        for (int x = 0; x < 590; x++) {
+            line = s.get(x);
+            deadline = System.currentTimeMillis() + 5000;
+            while (line.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+                line = s.get(x);
+            }
+            assertEquals("b" + x, line);
+        }
+
+        assertEquals(0, s.getStats().diskErrors);
+        s.close();
+    }
+
+    @Test
+    public void get_outOfRangeThrows() {
+        LogLineStore s = new LogLineStore(null, 4, 0, 0);
+        s.add("only");
+        try {
+            s.get(1);
+            fail("expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.rallytac.engageandroid;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.GZIPInputStream;
+
+// Decoding a scanned mission - the gzipped JSON of the old QR format against the binary body -
+// for the sample mission and for larger ones
+public class MissionCodecBenchmark {
+    private static JSONObject legacyDecode(String qr) throws Exception {
+        byte[] compressed = Base91.decode(qr.getBytes(MissionCodecTest.UTF8));
+        GZIPInputStream gis = new GZIPInputStream(new ByteArrayInputStream(compressed));
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int len;
+        while ((len = gis.read(buffer)) != -1) {
+            bos.write(buffer, 0, len);
+        }
+        String s = new String(bos.toByteArray(), MissionCodecTest.UTF8);
+        return new JSONObject(s.substring(MissionCodecTest.LEGACY_HEADER.length()));
+    }
+
+    @Test
+    public void legacyVersusBinary() throws Exception {
+        String sample = MissionCodecTest.readSampleMission();
+        int[] sizes = {0, 16, 64};
+
+        for (int groupCount : sizes) {
+            String json = (groupCount == 0 ? sample : MissionCodecTest.grow(sample, groupCount));
+            DatabaseMission m = MissionCodecTest.fromTemplate(json);
+
+            String legacy = MissionCodecTest.legacyEncode(json);
+            String binary = MissionCodecTest.binaryEncode(m);
+
+            int iterations = 2000;
+            long start = System.nanoTime();
+            for (int x = 0; x < iterations; x++) {
+                legacyDecode(legacy);
+            }
+            long legacyUs = (System.nanoTime() - start) / 1000;
+
+            start = System.nanoTime();
+            for (int x = 0; x < iterations; x++) {
+                MissionCodecTest.binaryDecode(binary);
+            }
+            long binaryUs = (System.nanoTime() - start) / 1000;
+
+            System.out.println("MissionCodec: " + m._groups.size() + " groups - json " + json.length()
+                    + " chars, legacy QR " + legacy.length() + " chars (" + legacyUs + "us/" + iterations
+                    + " decodes), binary QR " + binary.length() + " chars (" + binaryUs + "us/" + iterations
+                    + " decodes), body " + MissionCodec.encodeBody(m).length + " bytes");
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.rallytac.engageandroid;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class MissionCodecTest {
+    static final Charset UTF8 = Charset.forName("UTF-8");
+    static final String LEGACY_HEADER = "&*3$e1@E001";
+    private static final String BINARY_HEADER = "&*3$e1@E002";
+
+    private static File findSampleMission() {
+        File dir = new File(System.getProperty("user.dir")).getAbsoluteFile();
+        while (dir != null) {
+            File f = new File(dir, "configurations/sample_mission_template.json");
+            if (f.exists()) {
+                return f;
+            }
+            dir = dir.getParentFile();
+        }
+        fail("configurations/sample_mission_template.json not found");
+        return null;
+    }
+
+    static String readSampleMission() throws Exception {
+        // Minified, the way makeTemplate() hands it to the legacy encoder
+        return new JSONObject(new String(Files.readAllBytes(findSampleMission().toPath()), UTF8)).toString();
+    }
+
+    // The same mapping parseTemplate() and MissionDatabase.makeDatabaseMission() make between them
+    static DatabaseMission fromTemplate(String json) throws Exception {
+        JSONObject root = new JSONObject(json);
+        DatabaseMission m = new DatabaseMission();
+
+        m._id = root.getString("id");
+        m._name = root.optString("name", "");
+        m._description = root.optString("description", "");
+        m._modPin = root.optString("modPin", "");
+        m._certStoreId = root.optString("certStoreId", "");
+        m._rpAddress = "";
+        m._mcId = "";
+        m._mcAddress = "";
+        m._mcCryptoPassword = "";
+
+        JSONArray groups = root.optJSONArray("groups");
+        for (int x = 0; groups != null && x < groups.length(); x++) {
+            JSONObject g = groups.getJSONObject(x);
+            JSONObject rx = g.optJSONObject("rx");
+            JSONObject tx = g.optJSONObject("tx");
+
+            if (g.optInt("type", 0) == 2) {
+                m._mcId = g.optString("id", "");
+                m._mcCryptoPassword = g.optString("cryptoPassword", "");
+                m._mcAddress = (rx == null ? "" : rx.optString("address", ""));
+                m._mcPort = (rx == null ? 0 : rx.optInt("port", 0));
+                continue;
+            }
+
+            DatabaseGroup dbg = new DatabaseGroup();
+            dbg._id = g.optString("id", "");
+            dbg._name = g.optString("name", "");
+            dbg._cryptoPassword = g.optString("cryptoPassword", "");
+            dbg._useCrypto = !dbg._cryptoPassword.isEmpty();
+            dbg._rxAddress = (rx == null ? "" : rx.optString("address", ""));
+            dbg._rxPort = (rx == null ? 0 : rx.optInt("port", 0));
+            dbg._txAddress = (tx == null ? "" : tx.optString("address", ""));
+            dbg._txPort = (tx == null ? 0 : tx.optInt("port", 0));
+
+            JSONObject txAudio = g.optJSONObject("txAudio");
+            if (txAudio != null) {
+                dbg._txCodecId = txAudio.optInt("encoder", 0);
+                dbg._txFramingMs = txAudio.optInt("framingMs", 0);
+                dbg._noHdrExt = txAudio.optBoolean("noHdrExt", false);
+                dbg._fdx = txAudio.optBoolean("fdx", false);
+                dbg._maxTxSecs = txAudio.optInt("maxTxSecs", 0);
+            }
+
+            m._groups.add(dbg);
+        }
+
+        return m;
+    }
+
+    // A bigger mission made by repeating the sample's audio groups with fresh ids and addresses
+    static String grow(String json, int groupCount) throws Exception {
+        JSONObject root = new JSONObject(json);
+        JSONArray groups = root.getJSONArray("groups");
+        JSONArray grown = new JSONArray();
+
+        for (int x = 0; x < groups.length(); x++) {
+            if (groups.getJSONObject(x).optInt("type", 0) == 2) {
+                grown.put(groups.getJSONObject(x));
+            }
+        }
+
+        for (int n = 0; grown.length() < groupCount + 1; n++) {
+            JSONObject g = groups.getJSONObject(1 + (n % (groups.length() - 1)));
+            JSONObject copy = new JSONObject(g.toString());
+            copy.put("id", String.format("{%08x-1111-4222-8333-%012x}", n * 7919, (long) n * 104729));
+            copy.put("name", g.optString("name", "") + " " + n);
+            copy.getJSONObject("rx").put("address", "234.42." + (43 + n / 250) + "." + (n % 250));
+            copy.getJSONObject("tx").put("address", "234.42." + (43 + n / 250) + "." + (n % 250));
+            grown.put(copy);
+        }
+
+        root.put("groups", grown);
+        return root.toString();
+    }
+
+    static String legacyEncode(String json) throws Exception {
+        byte[] data = (LEGACY_HEADER + json).getBytes(UTF8);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length);
+        GZIPOutputStream gzip = new GZIPOutputStream(bos);
+        gzip.write(data);
+        gzip.close();
+        return new String(Base91.encode(bos.toByteArray()), UTF8);
+    }
+
+    static String binaryEncode(DatabaseMission m) {
+        return BINARY_HEADER + new String(Base91.encode(MissionCodec.encode(m)), UTF8);
+    }
+
+    static DatabaseMission binaryDecode(String qr) throws Exception {
+        byte[] payload = Base91.decode(qr.substring(BINARY_HEADER.length()).getBytes(UTF8));
+        return MissionCodec.decode(ByteBuffer.wrap(payload));
+    }
+
+    private static void assertSameMission(DatabaseMission a, DatabaseMission b) {
+        assertEquals(a._id, b._id);
+        assertEquals(a._name, b._name);
+        assertEquals(a._description, b._description);
+        assertEquals(a._modPin, b._modPin);
+        assertEquals(a._certStoreId, b._certStoreId);
+        assertEquals(a._useRp, b._useRp);
+        assertEquals(a._rpAddress, b._rpAddress);
+        assertEquals(a._rpPort, b._rpPort);
+        assertEquals(a._rpProtocol, b._rpProtocol);
+        assertEquals(a._multicastFailoverPolicy, b._multicastFailoverPolicy);
+        assertEquals(a._mcId, b._mcId);
+        assertEquals(a._mcAddress, b._mcAddress);
+        assertEquals(a._mcPort, b._mcPort);
+        assertEquals(a._mcCryptoPassword, b._mcCryptoPassword);
+        assertEquals(a._groups.size(), b._groups.size());
+
+        for (int x = 0; x < a._groups.size(); x++) {
+            DatabaseGroup ga = a._groups.get(x);
+            DatabaseGroup gb = b._groups.get(x);
+            assertEquals(ga._id, gb._id);
+            assertEquals(ga._type, gb._type);
+            assertEquals(ga._name, gb._name);
+            assertEquals(ga._useCrypto, gb._useCrypto);
+            assertEquals(ga._cryptoPassword, gb._cryptoPassword);
+            assertEquals(ga._rxAddress, gb._rxAddress);
+            assertEquals(ga._rxPort, gb._rxPort);
+            assertEquals(ga._txAddress, gb._txAddress);
+            assertEquals(ga._txPort, gb._txPort);
+            assertEquals(ga._txCodecId, gb._txCodecId);
+            assertEquals(ga._txFramingMs, gb._txFramingMs);
+            assertEquals(ga._noHdrExt, gb._noHdrExt);
+            assertEquals(ga._fdx, gb._fdx);
+            assertEquals(ga._maxTxSecs, gb._maxTxSecs);
+            assertEquals(ga._ept, gb._ept);
+            assertEquals(ga._anonymousAlias, gb._anonymousAlias);
+        }
+    }
+
+    @Test
+    public void sampleMission_roundTrips() throws Exception {
+        DatabaseMission m = fromTemplate(readSampleMission());
+        assertSameMission(m, binaryDecode(binaryEncode(m)));
+    }
+
+    @Test
+    public void unusualValues_roundTripVerbatim() throws Exception {
+        DatabaseMission m = fromTemplate(readSampleMission());
+        m._id = "not-a-guid";
+        m._useRp = true;
+        m._rpAddress = "rp.example.com";
+        m._rpPort = 7443;
+        m._rpProtocol = 1;
+        m._multicastFailoverPolicy = 2;
+        m._mcId = "{EAD2D373-7BCA-472C-8732-7E1C27A69B27}";
+        m._mcCryptoPassword = "03718654a5663427";
+
+        DatabaseGroup g = m._groups.get(0);
+        g._name = "Gr\u00fcppe \u65e5\u672c";
+        g._rxAddress = "239.001.2.3";
+        g._txAddress = "";
+        g._txPort = 0;
+        g._ept = 5;
+        g._anonymousAlias = true;
+
+        m._groups.get(1)._txAddress = "234.42.99.99";
+        m._groups.get(1)._txPort = 18099;
+
+        assertSameMission(m, binaryDecode(binaryEncode(m)));
+    }
+
+    @Test
+    public void unknownFields_areSkipped() throws Exception {
+        DatabaseMission m = fromTemplate(readSampleMission());
+        byte[] body = MissionCodec.encodeBody(m);
+
+        // A varint field 30 and a bytes field 31 from some future version (tags are varints too)
+        byte[] extra = {(byte) 0xf0, 0x01, 0x2a, (byte) 0xfa, 0x01, 3, 1, 2, 3};
+        byte[] payload = new byte[1 + body.length + extra.length];
+        payload[0] = (byte) MissionCodec.CM_STORED;
+        System.arraycopy(body, 0, payload, 1, body.length);
+        System.arraycopy(extra, 0, payload, 1 + body.length, extra.length);
+
+        assertSameMission(m, MissionCodec.decode(payload));
+    }
+
+    @Test
+    public void damagedPayloads_areRejected() throws Exception {
+        byte[] payload = MissionCodec.encode(fromTemplate(readSampleMission()));
+
+        for (int cut = 0; cut < payload.length; cut += 7) {
+            byte[] shorter = new byte[cut];
+            System.arraycopy(payload, 0, shorter, 0, cut);
+            try {
+                MissionCodec.decode(shorter);
+                fail("decoded a payload cut to " + cut + " bytes");
+            } catch (Exception e) {
+                // Expected
+            }
+        }
+
+        byte[] badMethod = payload.clone();
+        badMethod[0] = 9;
+        try {
+            MissionCodec.decode(badMethod);
+            fail("decoded an unknown compression method");
+        } catch (Exception e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void comparedToLegacy_isSmaller() throws Exception {
+        String sample = readSampleMission();
+        int[] sizes = {0, 16, 64};
+
+        for (int groupCount : sizes) {
+            String json = (groupCount == 0 ? sample : grow(sample, groupCount));
+            assertTrue(binaryEncode(fromTemplate(json)).length() < legacyEncode(json).length());
+        }
+    }
+}
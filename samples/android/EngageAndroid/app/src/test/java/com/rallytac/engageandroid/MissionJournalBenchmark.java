@@ -0,0 +1,36 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+
+import static org.junit.Assert.*;
+
+// Single-mission saves appended to a journal of 200 missions, then a replay of the whole thing
+public class MissionJournalBenchmark {
+    @Test
+    public void singleSavesAndReplay() throws Exception {
+        File f = MissionJournalTest.tempJournal();
+        MissionJournal journal = new MissionJournal(f, 1024 * 1024 * 1024);
+        int missions = 200;
+
+        for (int x = 0; x < missions; x++) {
+            journal.appendPut("mission-" + x, MissionJournalTest.missionJson(x, 16));
+        }
+
+        long start = System.nanoTime();
+        for (int x = 0; x < 100; x++) {
+            journal.appendPut("mission-" + (x % missions), MissionJournalTest.missionJson(x, 16));
+        }
+        long journalUs = (System.nanoTime() - start) / 1000;
+
+        start = System.nanoTime();
+        LinkedHashMap<String, String> live = MissionJournalTest.replay(new MissionJournal(f, 1024 * 1024 * 1024));
+        long replayUs = (System.nanoTime() - start) / 1000;
+
+        System.out.println("MissionJournal: 100 single-mission saves took " + journalUs + "us, replay of "
+                + live.size() + " missions took " + replayUs + "us");
+        assertEquals(missions, live.size());
+    }
+}
@@ -0,0 +1,186 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+import static org.junit.Assert.*;
+
+public class MissionJournalTest {
+    static File tempJournal() throws Exception {
+        File f = File.createTempFile("missions", ".jnl");
+        f.delete();
+        f.deleteOnExit();
+        return f;
+    }
+
+    static String missionJson(int n, int groups) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"_id\":\"mission-").append(n).append("\",\"_name\":\"Mission ").append(n).append("\",\"groups\":[");
+        for (int g = 0; g < groups; g++) {
+            if (g > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"_id\":\"group-").append(g).append("\",\"_name\":\"Group ").append(g)
+                    .append("\",\"_rxAddress\":\"239.42.43.").append(g).append("\",\"_rxPort\":49000}");
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    // Replays into an ordered map the way MissionDatabase builds its index
+    static LinkedHashMap<String, String> replay(MissionJournal journal) {
+        final LinkedHashMap<String, String> rc = new LinkedHashMap<>();
+        journal.replay(new MissionJournal.IReplaySink() {
+            @Override
+            public void onPut(String id, String json) {
+                rc.put(id, json);
+            }
+
+            @Override
+            public void onDelete(String id) {
+                rc.remove(id);
+            }
+        });
+        return rc;
+    }
+
+    @Test
+    public void replay_reproducesPutsAndDeletesInOrder() throws Exception {
+        File f = tempJournal();
+        MissionJournal journal = new MissionJournal(f, 1024 * 1024);
+
+        journal.appendPut("a", missionJson(1, 2));
+        journal.appendPut("b", missionJson(2, 2));
+        journal.appendPut("c", missionJson(3, 2));
+        journal.appendPut("a", missionJson(4, 2));
+        journal.appendDelete("b");
+
+        LinkedHashMap<String, String> live = replay(new MissionJournal(f, 1024 * 1024));
+        assertEquals(2, live.size());
+        assertEquals("a", new ArrayList<>(live.keySet()).get(0));
+        assertEquals(missionJson(4, 2), live.get("a"));
+        assertEquals(missionJson(3, 2), live.get("c"));
+        assertNull(live.get("b"));
+    }
+
+    @Test
+    public void save_writesOnlyTheChangedMission() throws Exception {
+        File f = tempJournal();
+        MissionJournal journal = new MissionJournal(f, 1024 * 1024);
+
+        for (int x = 0; x < 100; x++) {
+            journal.appendPut("mission-" + x, missionJson(x, 8));
+        }
+
+        long before = f.length();
+        journal.appendPut("mission-50", missionJson(50, 8));
+        long written = f.length() - before;
+
+        assertTrue(written < (before / 50));
+        assertEquals(101, journal.getStats().recordsWritten);
+    }
+
+    @Test
+    public void replay_truncatesTornTail() throws Exception {
+        File f = tempJournal();
+        MissionJournal journal = new MissionJournal(f, 1024 * 1024);
+
+        journal.appendPut("a", missionJson(1, 1));
+        journal.appendPut("b", missionJson(2, 1));
+
+        long good = f.length();
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.setLength(good - 5);
+        }
+
+        MissionJournal reopened = new MissionJournal(f, 1024 * 1024);
+        LinkedHashMap<String, String> live = replay(reopened);
+        assertEquals(1, live.size());
+        assertEquals(1, reopened.getStats().corruptRecords);
+
+        reopened.appendPut("c", missionJson(3, 1));
+        live = replay(new MissionJournal(f, 1024 * 1024));
+        assertEquals(2, live.size());
+        assertEquals(missionJson(3, 1), live.get("c"));
+    }
+
+    @Test
+    public void replay_leavesTheFileAloneWhenTheSinkFails() throws Exception {
+        File f = tempJournal();
+        MissionJournal journal = new MissionJournal(f, 1024 * 1024);
+
+        journal.appendPut("a", missionJson(1, 1));
+        journal.appendPut("b", missionJson(2, 1));
+        long good = f.length();
+
+        final LinkedHashMap<String, String> live = new LinkedHashMap<>();
+        MissionJournal reopened = new MissionJournal(f, 1024 * 1024);
+        assertTrue(reopened.replay(new MissionJournal.IReplaySink() {
+            @Override
+            public void onPut(String id, String json) {
+                if (id.equals("a")) {
+                    throw new IllegalStateException("can't take this one");
+                }
+                live.put(id, json);
+            }
+
+            @Override
+            public void onDelete(String id) {
+                live.remove(id);
+            }
+        }));
+
+        assertEquals(good, f.length());
+        assertEquals(1, live.size());
+        assertEquals(0, reopened.getStats().corruptRecords);
+        assertEquals(2, replay(new MissionJournal(f, 1024 * 1024)).size());
+    }
+
+    @Test
+    public void replay_leavesTheFileAloneWhenItCannotBeRead() throws Exception {
+        File f = tempJournal();
+        assertTrue(f.mkdir());
+
+        MissionJournal journal = new MissionJournal(f, 0);
+        assertFalse(journal.replay(new MissionJournal.IReplaySink() {
+            @Override
+            public void onPut(String id, String json) {
+            }
+
+            @Override
+            public void onDelete(String id) {
+            }
+        }));
+
+        assertTrue(f.isDirectory());
+        assertEquals(1, journal.getStats().readFailures);
+        assertEquals(0, journal.getStats().corruptRecords);
+        assertFalse(journal.needsCompaction());
+        f.delete();
+    }
+
+    @Test
+    public void compact_keepsOnlyTheLiveSet() throws Exception {
+        File f = tempJournal();
+        MissionJournal journal = new MissionJournal(f, 4096);
+        LinkedHashMap<String, String> live = new LinkedHashMap<>();
+
+        for (int x = 0; x < 200; x++) {
+            String id = "mission-" + (x % 5);
+            journal.appendPut(id, missionJson(x, 2));
+            live.put(id, missionJson(x, 2));
+
+            if (journal.needsCompaction()) {
+                journal.compact(live);
+            }
+        }
+
+        assertTrue(journal.getStats().compactions > 0);
+        assertTrue(f.length() < 4096 * 2);
+        assertEquals(live, replay(new MissionJournal(f, 4096)));
+    }
+}
@@ -0,0 +1,76 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+// 5k nodes spread across 50 groups: an initial insert, an unchanged heartbeat pass, a
+// membership-shift pass and per-group reads
+public class PresenceStoreBenchmark {
+    private static final int NODE_COUNT = 5000;
+    private static final int GROUP_COUNT = 50;
+    private static final int GROUPS_PER_NODE = 3;
+
+    private static PresenceDescriptor makePd(String nodeId, String[] groupIds, int statusFlags) {
+        PresenceDescriptor pd = new PresenceDescriptor();
+        pd.nodeId = nodeId;
+        pd.displayName = "name-" + nodeId;
+        pd.groupMembership = new HashMap<>();
+        for (String gid : groupIds) {
+            pd.groupMembership.put(gid, new GroupMembershipTracker(nodeId, gid, statusFlags));
+        }
+        return pd;
+    }
+
+    private static String[] groupsForNode(int n, int shift) {
+        String[] rc = new String[GROUPS_PER_NODE];
+        for (int x = 0; x < GROUPS_PER_NODE; x++) {
+            rc[x] = "g" + ((n + shift + (x * 7)) % GROUP_COUNT);
+        }
+        return rc;
+    }
+
+    @Test
+    public void fiveThousandNodesAcrossFiftyGroups() {
+        PresenceStore store = new PresenceStore();
+
+        long start = System.nanoTime();
+        for (int n = 0; n < NODE_COUNT; n++) {
+            store.put(makePd("n" + n, groupsForNode(n, 0), 1));
+        }
+        long insertNs = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int changes = 0;
+        for (int n = 0; n < NODE_COUNT; n++) {
+            if (store.put(makePd("n" + n, groupsForNode(n, 0), 1)).hasMembershipChanges()) {
+                changes++;
+            }
+        }
+        long heartbeatNs = System.nanoTime() - start;
+        assertEquals(0, changes);
+
+        start = System.nanoTime();
+        for (int n = 0; n < NODE_COUNT; n++) {
+            store.put(makePd("n" + n, groupsForNode(n, 1), 1));
+        }
+        long shiftNs = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int total = 0;
+        for (int g = 0; g < GROUP_COUNT; g++) {
+            total += store.getNodesForGroup("g" + g).size();
+        }
+        long readNs = System.nanoTime() - start;
+
+        assertEquals(NODE_COUNT, store.size());
+        assertEquals(NODE_COUNT * GROUPS_PER_NODE, total);
+
+        System.out.println("PresenceStore: insert=" + (insertNs / NODE_COUNT) + "ns/node"
+                + ", heartbeat=" + (heartbeatNs / NODE_COUNT) + "ns/node"
+                + ", shift=" + (shiftNs / NODE_COUNT) + "ns/node"
+                + ", readAllGroups=" + (readNs / 1000) + "us");
+    }
+}
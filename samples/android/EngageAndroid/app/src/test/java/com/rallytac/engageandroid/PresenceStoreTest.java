@@ -0,0 +1,131 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class PresenceStoreTest {
+    private static PresenceDescriptor makePd(String nodeId, String[] groupIds, int statusFlags) {
+        PresenceDescriptor pd = new PresenceDescriptor();
+        pd.nodeId = nodeId;
+        pd.displayName = "name-" + nodeId;
+        pd.groupMembership = new HashMap<>();
+        for (String gid : groupIds) {
+            pd.groupMembership.put(gid, new GroupMembershipTracker(nodeId, gid, statusFlags));
+        }
+        return pd;
+    }
+
+    @Test
+    public void put_reportsOnlyChangedGroups() {
+        PresenceStore store = new PresenceStore();
+
+        PresenceStore.Diff diff = store.put(makePd("n1", new String[]{"a", "b"}, 1));
+        assertTrue(diff.newNode);
+        assertEquals(2, diff.joinedGroups.size());
+        assertTrue(diff.leftGroups.isEmpty());
+
+        // Same membership - nothing to do
+        diff = store.put(makePd("n1", new String[]{"a", "b"}, 1));
+        assertFalse(diff.newNode);
+        assertFalse(diff.hasMembershipChanges());
+
+        // Status change in one group, leave another, join a third
+        PresenceDescriptor previous = store.get("n1");
+        PresenceDescriptor pd = makePd("n1", new String[]{"a", "c"}, 1);
+        pd.groupMembership.put("a", new GroupMembershipTracker("n1", "a", 3));
+        diff = store.put(pd);
+        assertEquals(1, diff.updatedGroups.size());
+        assertEquals("a", diff.updatedGroups.get(0));
+        assertEquals(1, diff.joinedGroups.size());
+        assertEquals("c", diff.joinedGroups.get(0));
+        assertEquals(1, diff.leftGroups.size());
+        assertEquals("b", diff.leftGroups.get(0));
+
+        assertEquals(3, store.getStatusFlags("n1", "a"));
+        assertEquals(1, previous.groupMembership.get("a")._statusFlags);
+        assertEquals(-1, store.getStatusFlags("n1", "b"));
+        assertTrue(store.getGroupMembers("b").isEmpty());
+    }
+
+    @Test
+    public void put_flagsUnchangedRediscovery() {
+        PresenceStore store = new PresenceStore();
+        assertTrue(store.put(makePd("n1", new String[]{"a"}, 1)).changed);
+        assertFalse(store.put(makePd("n1", new String[]{"a"}, 1)).changed);
+
+        PresenceDescriptor renamed = makePd("n1", new String[]{"a"}, 1);
+        renamed.displayName = "someone else";
+        assertTrue(store.put(renamed).changed);
+        assertEquals("someone else", store.get("n1").displayName);
+    }
+
+    @Test
+    public void snapshots_areNotAffectedByLaterWrites() {
+        PresenceStore store = new PresenceStore();
+        store.put(makePd("n1", new String[]{"a"}, 1));
+
+        Set<String> snapshot = store.getGroupMembers("a");
+        store.put(makePd("n2", new String[]{"a"}, 1));
+        store.remove("n1");
+
+        assertEquals(1, snapshot.size());
+        assertTrue(snapshot.contains("n1"));
+        assertEquals(1, store.getGroupMembers("a").size());
+        assertTrue(store.getGroupMembers("a").contains("n2"));
+    }
+
+    @Test
+    public void remove_reportsAllGroupsLeft() {
+        PresenceStore store = new PresenceStore();
+        store.put(makePd("n1", new String[]{"a", "b", "c"}, 1));
+
+        PresenceStore.Diff diff = store.remove("n1");
+        assertNotNull(diff.pd);
+        assertEquals(3, diff.leftGroups.size());
+        assertEquals(0, store.size());
+        assertTrue(store.getGroupsForNode("n1").isEmpty());
+    }
+
+    @Test
+    public void put_replacesChangedDescriptorInsteadOfChangingIt() {
+        PresenceStore store = new PresenceStore();
+        store.put(makePd("n1", new String[]{"a"}, 1));
+        PresenceDescriptor before = store.get("n1");
+
+        // Nothing changed - the stored descriptor stays
+        assertSame(before, store.put(makePd("n1", new String[]{"a"}, 1)).pd);
+
+        PresenceDescriptor renamed = makePd("n1", new String[]{"a", "b"}, 1);
+        renamed.displayName = "someone else";
+        PresenceStore.Diff diff = store.put(renamed);
+
+        assertNotSame(before, diff.pd);
+        assertSame(diff.pd, store.get("n1"));
+        assertEquals("name-n1", before.displayName);
+        assertEquals(1, before.groupMembership.size());
+        assertEquals("someone else", store.get("n1").displayName);
+        assertSame(before.biometrics, store.get("n1").biometrics);
+    }
+
+    @Test
+    public void replace_swapsInTheNewVersion() {
+        PresenceStore store = new PresenceStore();
+        store.put(makePd("n1", new String[]{"a"}, 1));
+        PresenceDescriptor before = store.get("n1");
+
+        PresenceDescriptor updated = before.copy();
+        updated.groupMembership.put("b", new GroupMembershipTracker("n1", "b", 1));
+        PresenceStore.Diff diff = store.replace(updated);
+
+        assertFalse(diff.newNode);
+        assertEquals(1, diff.joinedGroups.size());
+        assertEquals("b", diff.joinedGroups.get(0));
+        assertSame(updated, store.get("n1"));
+        assertEquals(1, before.groupMembership.size());
+        assertTrue(store.getGroupMembers("b").contains("n1"));
+    }
+}
@@ -0,0 +1,37 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+// RTT reports spread over a few rallypoints, then percentile queries
+public class RallypointLinkTrackerBenchmark {
+    @Test
+    public void recordAndQuery() {
+        RallypointLinkTrackerTest.ClockedTracker t = RallypointLinkTrackerTest.tracker();
+        final String[] rps = {"a:7443", "b:7443", "c:7443"};
+        Random r = new Random(9);
+        final int reports = 1000000;
+
+        long t0 = System.nanoTime();
+        for (int x = 0; x < reports; x++) {
+            t.nowMs += 1;
+            t.onRoundtrip(rps[x % rps.length], 10 + r.nextInt(500), 75);
+        }
+        long t1 = System.nanoTime();
+
+        final int queries = 10000;
+        long sink = 0;
+        for (int x = 0; x < queries; x++) {
+            sink += t.getPercentile(rps[x % rps.length], 99.0, 300000);
+        }
+        long t2 = System.nanoTime();
+
+        byte[] snap = t.exportSnapshot();
+        assertTrue(sink > 0);
+        System.out.println(String.format("RallypointLinkTracker: %.3f us per RTT report, %.2f us per windowed p99, %d byte snapshot",
+                (t1 - t0) / 1000.0 / reports, (t2 - t1) / 1000.0 / queries, snap.length));
+    }
+}
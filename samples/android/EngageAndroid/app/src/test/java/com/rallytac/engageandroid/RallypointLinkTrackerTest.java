@@ -0,0 +1,221 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RallypointLinkTrackerTest {
+    private static final String RP = "rp1.example.com:7443";
+
+    static class ClockedTracker extends RallypointLinkTracker {
+        long nowMs = 1000000L;
+
+        ClockedTracker(RallypointLinkTracker.Thresholds t) {
+            super(t);
+        }
+
+        @Override
+        protected long now() {
+            return nowMs;
+        }
+    }
+
+    static ClockedTracker tracker() {
+        return new ClockedTracker(new RallypointLinkTracker.Thresholds());
+    }
+
+    @Test
+    public void buckets_coverTheRangeWithinSixPercent() {
+        assertEquals(208, RallypointLinkTracker.BUCKET_COUNT);
+
+        int prev = -1;
+        for (long v = 0; v <= RallypointLinkTracker.MAX_TRACKABLE_MS; v++) {
+            int b = RallypointLinkTracker.bucketFor(v);
+            assertTrue(b == prev || b == prev + 1);
+            assertTrue(v >= RallypointLinkTracker.lowestValueIn(b));
+            assertTrue(v <= RallypointLinkTracker.highestValueIn(b));
+            assertTrue(RallypointLinkTracker.highestValueIn(b) - v <= v / 16);
+            prev = b;
+        }
+
+        assertEquals(RallypointLinkTracker.BUCKET_COUNT - 1, RallypointLinkTracker.bucketFor(1000000));
+        assertEquals(0, RallypointLinkTracker.bucketFor(-5));
+    }
+
+    @Test
+    public void percentiles_comeFromTheHistogram() {
+        ClockedTracker t = tracker();
+        for (int x = 1; x <= 100; x++) {
+            t.onRoundtrip(RP, x * 10, 100);
+        }
+
+        RallypointLinkTracker.LinkSnapshot s = t.getSnapshot(RP);
+        assertEquals(100, s.count);
+        assertEquals(10, s.min);
+        assertEquals(1000, s.max);
+        assertEquals(505.0, s.getMean(), 0.0001);
+
+        long p50 = s.getPercentile(50.0);
+        assertTrue(p50 >= 500 && p50 <= 500 * 17 / 16);
+        long p99 = s.getPercentile(99.0);
+        assertTrue(p99 >= 990 && p99 <= 1000);
+        assertEquals(1000, s.getPercentile(100.0));
+        assertEquals(10, s.getPercentile(0.0));
+
+        assertNull(t.getSnapshot("nobody"));
+    }
+
+    @Test
+    public void smoothing_followsRfc6298() {
+        ClockedTracker t = tracker();
+        t.onRoundtrip(RP, 100, 100);
+        RallypointLinkTracker.LinkSnapshot s = t.getSnapshot(RP);
+        assertEquals(100.0, s.srttMs, 0.0001);
+        assertEquals(50.0, s.rttVarMs, 0.0001);
+
+        t.onRoundtrip(RP, 180, 50);
+        s = t.getSnapshot(RP);
+        assertEquals(110.0, s.srttMs, 0.0001);
+        assertEquals(57.5, s.rttVarMs, 0.0001);
+        assertEquals(93.75, s.quality, 0.0001);
+    }
+
+    @Test
+    public void windowedPercentiles_onlySeeRecentSlices() {
+        ClockedTracker t = tracker();
+        t.nowMs = 0;
+        for (int x = 0; x < 50; x++) {
+            t.onRoundtrip(RP, 1000, 10);
+        }
+
+        // Ten minutes on, a healthy link
+        t.nowMs = 600000;
+        for (int x = 0; x < 50; x++) {
+            t.onRoundtrip(RP, 40, 100);
+        }
+
+        assertEquals(40, t.getPercentile(RP, 99.0, 60000), 3);
+        assertTrue(t.getPercentile(RP, 99.0, 700000) >= 1000);
+        assertEquals(1000, t.getSnapshot(RP).getPercentile(99.0));
+
+        // Nothing in the last window once things go quiet
+        t.nowMs = 600000 + (16 * 60000);
+        assertEquals(-1, t.getPercentile(RP, 50.0, 60000));
+        assertEquals(-1, t.getPercentile("nobody", 50.0, 60000));
+    }
+
+    @Test
+    public void timeline_recordsStateChangesAndConnectedTime() {
+        ClockedTracker t = tracker();
+
+        t.nowMs = 1000;
+        t.onConnecting(RP);
+        t.nowMs = 1500;
+        t.onConnected(RP);
+        t.nowMs = 11500;
+        t.onDisconnected(RP);
+        t.nowMs = 12000;
+        t.onPausing(RP);
+        t.nowMs = 17000;
+        t.onConnecting(RP);
+        t.nowMs = 17200;
+        t.onConnected(RP);
+        t.nowMs = 20200;
+
+        RallypointLinkTracker.LinkSnapshot s = t.getSnapshot(RP);
+        assertEquals(RallypointLinkTracker.STATE_CONNECTED, s.state);
+        assertEquals(2, s.connects);
+        assertEquals(1, s.disconnects);
+        assertEquals(1, s.pauses);
+        assertEquals(2, s.attempts);
+        assertEquals(13000, s.connectedMs);
+        assertTrue(Arrays.equals(new long[]{1000, 1500, 11500, 12000, 17000, 17200}, s.eventTs));
+        assertTrue(Arrays.equals(new int[]{
+                RallypointLinkTracker.EVENT_CONNECTING,
+                RallypointLinkTracker.EVENT_CONNECTED,
+                RallypointLinkTracker.EVENT_DISCONNECTED,
+                RallypointLinkTracker.EVENT_PAUSING,
+                RallypointLinkTracker.EVENT_CONNECTING,
+                RallypointLinkTracker.EVENT_CONNECTED}, s.eventTypes));
+    }
+
+    @Test
+    public void timeline_keepsOnlyTheNewestEvents() {
+        RallypointLinkTracker.Thresholds th = new RallypointLinkTracker.Thresholds();
+        th.timelineEvents = 4;
+        ClockedTracker t = new ClockedTracker(th);
+
+        for (int x = 0; x < 10; x++) {
+            t.nowMs = x;
+            t.onConnecting(RP);
+        }
+
+        RallypointLinkTracker.LinkSnapshot s = t.getSnapshot(RP);
+        assertTrue(Arrays.equals(new long[]{6, 7, 8, 9}, s.eventTs));
+        assertEquals(10, s.attempts);
+    }
+
+    @Test
+    public void snapshot_roundTrips() throws Exception {
+        ClockedTracker t = tracker();
+        Random r = new Random(5);
+        t.onConnecting(RP);
+        t.nowMs += 300;
+        t.onConnected(RP);
+        for (int x = 0; x < 5000; x++) {
+            t.onRoundtrip(RP, 20 + r.nextInt(200), 75);
+        }
+        t.onRoundtrip("rp2:7443", 3000, 5);
+        t.nowMs += 5000;
+
+        byte[] snap = t.exportSnapshot();
+        List<RallypointLinkTracker.LinkSnapshot> back = RallypointLinkTracker.importSnapshot(snap);
+        assertEquals(2, back.size());
+
+        for (RallypointLinkTracker.LinkSnapshot b : back) {
+            RallypointLinkTracker.LinkSnapshot s = t.getSnapshot(b.id);
+            assertEquals(s.count, b.count);
+            assertEquals(s.sum, b.sum);
+            assertEquals(s.min, b.min);
+            assertEquals(s.max, b.max);
+            assertEquals(s.state, b.state);
+            assertEquals(s.connectedMs, b.connectedMs);
+            assertEquals(s.srttMs, b.srttMs, 0.01);
+            assertTrue(Arrays.equals(s.counts, b.counts));
+            assertTrue(Arrays.equals(s.eventTs, b.eventTs));
+            assertTrue(Arrays.equals(s.eventTypes, b.eventTypes));
+            assertEquals(s.getPercentile(95.0), b.getPercentile(95.0));
+        }
+
+        // Compact - nowhere near a counter per bucket
+        assertTrue(snap.length < 300);
+    }
+
+    @Test
+    public void importSnapshot_rejectsGarbage() {
+        ClockedTracker t = tracker();
+        t.onRoundtrip(RP, 50, 100);
+        byte[] good = t.exportSnapshot();
+
+        byte[][] bad = {
+                new byte[0],
+                "XXXX\u0001".getBytes(),
+                "RPLT\u0002".getBytes(),
+                Arrays.copyOf(good, 5),
+                Arrays.copyOf(good, good.length - 3),
+        };
+
+        for (byte[] b : bad) {
+            try {
+                RallypointLinkTracker.importSnapshot(b);
+                fail();
+            } catch (Exception e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+// A burst of wifi RSSI and battery broadcasts the way the device monitor sees them
+public class SelfPresencePublisherBenchmark {
+    @Test
+    public void broadcastBurst() {
+        AtomicInteger sends = new AtomicInteger();
+        SelfPresencePublisher p = SelfPresencePublisherTest.publisher(SelfPresencePublisherTest.thresholds(5000, 60000), sends);
+        final int events = 100000;
+
+        long t0 = System.nanoTime();
+        for (int x = 0; x < events; x++) {
+            p.onConnectivityChanged(3, 3 + ((x / 1000) % 2));
+            p.onPowerChanged(1, 3, 90 - (x / 20000));
+        }
+        long t1 = System.nanoTime();
+
+        SelfPresencePublisher.Stats st = p.getStats();
+        System.out.println(String.format("SelfPresencePublisher: %.3f us per update, %d updates, %d sent, %d suppressed",
+                (t1 - t0) / 1000.0 / (events * 2), events * 2, st.sent, st.suppressed));
+        assertTrue(st.sent < 10);
+        p.stop();
+    }
+}
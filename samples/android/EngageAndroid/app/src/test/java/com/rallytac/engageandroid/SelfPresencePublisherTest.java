@@ -0,0 +1,162 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SelfPresencePublisherTest {
+    private static final TaskScheduler SCHEDULER = new TaskScheduler(1);
+
+    static SelfPresencePublisher.Thresholds thresholds(long minMs, long maxMs) {
+        SelfPresencePublisher.Thresholds t = new SelfPresencePublisher.Thresholds();
+        t.minIntervalMs = minMs;
+        t.maxIntervalMs = maxMs;
+        t.signalLevelStep = 1;
+        t.batteryStepPercent = 5;
+        t.minDisplacementMeters = 25;
+        t.minHeadingChangeDegrees = 30;
+        return t;
+    }
+
+    static SelfPresencePublisher publisher(SelfPresencePublisher.Thresholds t, final AtomicInteger sends) {
+        return new SelfPresencePublisher(t, SCHEDULER, new SelfPresencePublisher.ISender() {
+            @Override
+            public void publish() {
+                sends.incrementAndGet();
+            }
+        });
+    }
+
+    private static void waitFor(AtomicInteger sends, int count, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (sends.get() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(2);
+        }
+    }
+
+    @Test
+    public void firstReport_goesOutImmediately() {
+        AtomicInteger sends = new AtomicInteger();
+        SelfPresencePublisher p = publisher(thresholds(60000, 600000), sends);
+
+        p.onPowerChanged(1, 2, 80);
+        assertEquals(1, sends.get());
+        p.stop();
+    }
+
+    @Test
+    public void smallChanges_areSuppressed() {
+        AtomicInteger sends = new AtomicInteger();
+        SelfPresencePublisher p = publisher(thresholds(0, 600000), sends);
+
+        p.onPowerChanged(1, 2, 80);
+        p.onPowerChanged(1, 2, 79);
+        p.onPowerChanged(1, 2, 77);
+        p.onConnectivityChanged(3, 4);
+        p.onConnectivityChanged(3, 4);
+        p.onLocationChanged(45.0, -75.0, 90.0);
+        p.onLocationChanged(45.0001, -75.0, 100.0);
+
+        // First power, first connectivity and first location - the rest are noise
+        assertEquals(3, sends.get());
+
+        SelfPresencePublisher.Stats st = p.getStats();
+        assertEquals(4, st.suppressed);
+        assertEquals(3, st.sent);
+        p.stop();
+    }
+
+    @Test
+    public void significantChanges_areDetectedPerField() {
+        AtomicInteger sends = new AtomicInteger();
+        SelfPresencePublisher p = publisher(thresholds(0, 600000), sends);
+
+        p.onPowerChanged(1, 2, 80);
+        p.onPowerChanged(1, 2, 75);
+        p.onPowerChanged(2, 2, 75);
+        p.onPowerChanged(2, 1, 75);
+        assertEquals(4, sends.get());
+
+        p.onConnectivityChanged(3, 4);
+        p.onConnectivityChanged(3, 3);
+        p.onConnectivityChanged(4, 3);
+        assertEquals(7, sends.get());
+
+        p.onLocationChanged(45.0, -75.0, Double.NaN);
+        p.onLocationChanged(45.0003, -75.0, Double.NaN);
+        p.onLocationChanged(45.0003, -75.0, 10.0);
+        p.onLocationChanged(45.0003, -75.0, 350.0);
+        assertEquals(10, sends.get());
+        p.onLocationChanged(45.0003, -75.0, 300.0);
+        assertEquals(11, sends.get());
+        p.stop();
+    }
+
+    @Test
+    public void changesWithinTheMinimumInterval_areMergedIntoOneSend() throws Exception {
+        AtomicInteger sends = new AtomicInteger();
+        SelfPresencePublisher p = publisher(thresholds(80, 600000), sends);
+
+        p.onPowerChanged(1, 2, 80);
+        assertEquals(1, sends.get());
+
+        p.onPowerChanged(1, 2, 70);
+        p.onConnectivityChanged(3, 1);
+        p.onPowerChanged(1, 2, 60);
+        assertEquals(1, sends.get());
+
+        waitFor(sends, 2, 2000);
+        Thread.sleep(100);
+        assertEquals(2, sends.get());
+
+        SelfPresencePublisher.Stats st = p.getStats();
+        assertEquals(2, st.merged);
+        assertEquals(2, st.sent);
+        p.stop();
+    }
+
+    @Test
+    public void suppressedChanges_goOutByTheMaximumInterval() throws Exception {
+        AtomicInteger sends = new AtomicInteger();
+        SelfPresencePublisher p = publisher(thresholds(10, 100), sends);
+
+        p.onPowerChanged(1, 2, 80);
+        p.onPowerChanged(1, 2, 79);
+        assertEquals(1, sends.get());
+
+        waitFor(sends, 2, 2000);
+        assertEquals(2, sends.get());
+
+        // Nothing pending now so nothing more goes out
+        Thread.sleep(200);
+        assertEquals(2, sends.get());
+        p.stop();
+    }
+
+    @Test
+    public void publishNow_sendsAndCancelsAnythingPending() throws Exception {
+        AtomicInteger sends = new AtomicInteger();
+        SelfPresencePublisher p = publisher(thresholds(50, 600000), sends);
+
+        p.onPowerChanged(1, 2, 80);
+        p.onPowerChanged(1, 2, 50);
+        p.publishNow();
+        assertEquals(2, sends.get());
+
+        Thread.sleep(120);
+        assertEquals(2, sends.get());
+        assertEquals(1, p.getStats().forced);
+        p.stop();
+    }
+
+    @Test
+    public void geometry() {
+        // One degree of latitude is a little over 111km
+        double d = SelfPresencePublisher.distanceMeters(45.0, -75.0, 46.0, -75.0);
+        assertTrue(d > 111000 && d < 111400);
+        assertEquals(20.0, SelfPresencePublisher.headingDelta(350.0, 10.0), 0.0001);
+        assertEquals(180.0, SelfPresencePublisher.headingDelta(0.0, 180.0), 0.0001);
+    }
+}
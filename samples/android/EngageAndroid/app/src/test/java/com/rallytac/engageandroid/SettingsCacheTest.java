@@ -0,0 +1,403 @@
+package com.rallytac.engageandroid;
+
+import android.content.SharedPreferences;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SettingsCacheTest {
+    private static final TaskScheduler SCHEDULER = new TaskScheduler(1);
+
+    // Counts every read and every transaction the way the real thing would see them
+    private static class CountingPreferences implements SharedPreferences {
+        final HashMap<String, Object> values = new HashMap<>();
+        final ArrayList<OnSharedPreferenceChangeListener> listeners = new ArrayList<>();
+        int reads = 0;
+        volatile int transactions = 0;
+
+        private Object get(String key) {
+            reads++;
+            return values.get(key);
+        }
+
+        @Override
+        public Map<String, ?> getAll() {
+            reads++;
+            return new HashMap<>(values);
+        }
+
+        @Override
+        public String getString(String key, String defValue) {
+            Object v = get(key);
+            return (v != null ? (String) v : defValue);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Set<String> getStringSet(String key, Set<String> defValues) {
+            Object v = get(key);
+            return (v != null ? (Set<String>) v : defValues);
+        }
+
+        @Override
+        public int getInt(String key, int defValue) {
+            Object v = get(key);
+            return (v != null ? (Integer) v : defValue);
+        }
+
+        @Override
+        public long getLong(String key, long defValue) {
+            Object v = get(key);
+            return (v != null ? (Long) v : defValue);
+        }
+
+        @Override
+        public float getFloat(String key, float defValue) {
+            Object v = get(key);
+            return (v != null ? (Float) v : defValue);
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean defValue) {
+            Object v = get(key);
+            return (v != null ? (Boolean) v : defValue);
+        }
+
+        @Override
+        public boolean contains(String key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Editor edit() {
+            return new CountingEditor();
+        }
+
+        @Override
+        public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+            listeners.remove(listener);
+        }
+
+        private class CountingEditor implements Editor {
+            final HashMap<String, Object> changes = new HashMap<>();
+
+            @Override
+            public Editor putString(String key, String value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putStringSet(String key, Set<String> values) {
+                changes.put(key, values);
+                return this;
+            }
+
+            @Override
+            public Editor putInt(String key, int value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putLong(String key, long value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putFloat(String key, float value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putBoolean(String key, boolean value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor remove(String key) {
+                changes.put(key, null);
+                return this;
+            }
+
+            @Override
+            public Editor clear() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public boolean commit() {
+                apply();
+                return true;
+            }
+
+            @Override
+            public void apply() {
+                transactions++;
+                ArrayList<String> changed = new ArrayList<>();
+                for (Map.Entry<String, Object> e : changes.entrySet()) {
+                    Object old;
+                    if (e.getValue() == null) {
+                        old = values.remove(e.getKey());
+                    } else {
+                        old = values.put(e.getKey(), e.getValue());
+                    }
+                    if (old == null ? e.getValue() != null : !old.equals(e.getValue())) {
+                        changed.add(e.getKey());
+                    }
+                }
+                // Like the real thing when applied from the main thread - only for values that changed
+                for (String key : changed) {
+                    for (OnSharedPreferenceChangeListener l : new ArrayList<>(listeners)) {
+                        l.onSharedPreferenceChanged(CountingPreferences.this, key);
+                    }
+                }
+            }
+        }
+    }
+
+    private static CountingPreferences seededPreferences() {
+        CountingPreferences sp = new CountingPreferences();
+
+        // Preference screens store numbers as strings
+        sp.values.put(PreferenceKeys.USER_TONE_LEVEL_PTT, "0.25");
+        sp.values.put(PreferenceKeys.USER_TONE_LEVEL_ERROR, "0.5");
+        sp.values.put(PreferenceKeys.USER_AUDIO_MICROPHONE_AGC_LEVEL, "3");
+        sp.values.put(PreferenceKeys.USER_LOCATION_INTERVAL_SECS, "30");
+        sp.values.put(PreferenceKeys.USER_LOCATION_MIN_DISPLACEMENT, "12.5");
+        sp.values.put(PreferenceKeys.USER_CROSS_MUTE_LOCATION_ID, "not a number");
+        sp.values.put(PreferenceKeys.USER_DISPLAY_NAME, "Bob");
+        sp.values.put(PreferenceKeys.USER_NOTIFY_VIBRATIONS, false);
+        sp.values.put(PreferenceKeys.UI_MODE, 1);
+        sp.values.put(PreferenceKeys.VOLUME_LEFT_FOR_GROUP_BASE_NAME + "g0", 80);
+        sp.values.put(PreferenceKeys.VOLUME_RIGHT_FOR_GROUP_BASE_NAME + "g0", "70");
+
+        return sp;
+    }
+
+    // What the app does with preferences when the user switches missions and then fiddles with
+    // the volume of a group: store the mission, rebuild the configuration from it, restore the
+    // group selection, pick up each group's volume and save the adjustments
+    private static void switchMission(SettingsCache sc, String missionJson, int groupCount) {
+        sc.putString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_JSON, missionJson);
+        sc.flush();
+
+        assertEquals(missionJson, sc.getString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_JSON, ""));
+        UserSettings us = sc.getUserSettings(false);
+        assertEquals("Bob", us.userDisplayName);
+
+        Set<String> multi = sc.getStringSet(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_SELECTED_GROUPS_MULTI, new HashSet<String>());
+        String single = sc.getString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_SELECTED_GROUPS_SINGLE, null);
+        assertNotNull(multi);
+
+        HashSet<String> selected = new HashSet<>();
+        for (int x = 0; x < groupCount; x++) {
+            selected.add("g" + x);
+        }
+        sc.putString(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_SELECTED_GROUPS_SINGLE, (single != null ? single : "g0"));
+        sc.putStringSet(PreferenceKeys.ACTIVE_MISSION_CONFIGURATION_SELECTED_GROUPS_MULTI, selected);
+
+        for (int x = 0; x < groupCount; x++) {
+            sc.getInt(PreferenceKeys.VOLUME_LEFT_FOR_GROUP_BASE_NAME + "g" + x, 100);
+            sc.getInt(PreferenceKeys.VOLUME_RIGHT_FOR_GROUP_BASE_NAME + "g" + x, 100);
+        }
+
+        for (int step = 0; step < 20; step++) {
+            sc.putInt(PreferenceKeys.VOLUME_LEFT_FOR_GROUP_BASE_NAME + "g1", 50 + step);
+            sc.putInt(PreferenceKeys.VOLUME_RIGHT_FOR_GROUP_BASE_NAME + "g1", 50 + step);
+        }
+
+        // The debounce timer going off
+        sc.flush();
+    }
+
+    @Test
+    public void missionSwitch_readsAndWritesBeforeAndAfter() {
+        CountingPreferences legacySp = seededPreferences();
+        SettingsCache legacy = new SettingsCache(legacySp, false, 0, SCHEDULER);
+        switchMission(legacy, "{\"id\":\"m1\"}", 8);
+        switchMission(legacy, "{\"id\":\"m2\"}", 8);
+
+        CountingPreferences cachedSp = seededPreferences();
+        SettingsCache cached = new SettingsCache(cachedSp, true, 60000, SCHEDULER);
+        switchMission(cached, "{\"id\":\"m1\"}", 8);
+        int firstSwitchReads = cachedSp.reads;
+        switchMission(cached, "{\"id\":\"m2\"}", 8);
+
+        // One bulk read up front and nothing after that; two transactions per switch (mission + everything else)
+        assertEquals(1, firstSwitchReads);
+        assertEquals(1, cachedSp.reads);
+        assertEquals(4, cachedSp.transactions);
+        assertTrue(legacySp.reads > 100);
+        assertTrue(legacySp.transactions > 80);
+
+        // And both end up with the same thing stored
+        assertEquals(legacySp.values, cachedSp.values);
+    }
+
+    @Test
+    public void userSettings_sameWithAndWithoutCaching() {
+        UserSettings a = new SettingsCache(seededPreferences(), false, 0, SCHEDULER).getUserSettings(true);
+        UserSettings b = new SettingsCache(seededPreferences(), true, 0, SCHEDULER).getUserSettings(true);
+
+        assertEquals(0.25f, b.pttToneLevel, 0.0001f);
+        assertEquals(0.5f, b.errorToneLevel, 0.0001f);
+        assertEquals(3, b.microphoneAgcLevel);
+        assertEquals(30, b.locationIntervalSecs);
+        assertEquals(12.5f, b.locationMinDisplacement, 0.0001f);
+        assertEquals(Constants.DEFAULT_CROSS_MUTE_LOCATION_ID, b.crossMuteLocationId);
+        assertEquals(1, b.uiMode);
+        assertFalse(b.enableVibrations);
+        assertTrue(b.pttLatching);
+
+        assertEquals(a.pttToneLevel, b.pttToneLevel, 0.0f);
+        assertEquals(a.locationMinDisplacement, b.locationMinDisplacement, 0.0f);
+        assertEquals(a.microphoneAgcLevel, b.microphoneAgcLevel);
+        assertEquals(a.crossMuteLocationId, b.crossMuteLocationId);
+        assertEquals(a.uiMode, b.uiMode);
+        assertEquals(a.enableVibrations, b.enableVibrations);
+        assertEquals(a.userDisplayName, b.userDisplayName);
+        assertEquals(a.networkInterfaceName, b.networkInterfaceName);
+    }
+
+    @Test
+    public void safeInt_readsIntsAndStrings() {
+        SettingsCache sc = new SettingsCache(seededPreferences(), true, 0, SCHEDULER);
+        assertEquals(80, sc.getInt(PreferenceKeys.VOLUME_LEFT_FOR_GROUP_BASE_NAME + "g0", 100));
+        assertEquals(70, sc.getInt(PreferenceKeys.VOLUME_RIGHT_FOR_GROUP_BASE_NAME + "g0", 100));
+        assertEquals(100, sc.getInt(PreferenceKeys.VOLUME_RIGHT_FOR_GROUP_BASE_NAME + "nope", 100));
+    }
+
+    @Test
+    public void userSettings_reusedUntilSomethingChanges() {
+        CountingPreferences sp = seededPreferences();
+        SettingsCache sc = new SettingsCache(sp, true, 60000, SCHEDULER);
+
+        UserSettings first = sc.getUserSettings(false);
+        assertSame(first, sc.getUserSettings(false));
+
+        sc.putString(PreferenceKeys.USER_DISPLAY_NAME, "Alice");
+        UserSettings second = sc.getUserSettings(false);
+        assertNotSame(first, second);
+        assertEquals("Alice", second.userDisplayName);
+        assertEquals(1, sp.reads);
+    }
+
+    @Test
+    public void externalChange_isPickedUp() {
+        CountingPreferences sp = seededPreferences();
+        SettingsCache sc = new SettingsCache(sp, true, 60000, SCHEDULER);
+
+        assertEquals("Bob", sc.getString(PreferenceKeys.USER_DISPLAY_NAME, ""));
+
+        // e.g. the settings screen
+        sp.edit().putString(PreferenceKeys.USER_DISPLAY_NAME, "Carol").putString(PreferenceKeys.USER_TONE_LEVEL_PTT, "0.75").apply();
+
+        assertEquals("Carol", sc.getString(PreferenceKeys.USER_DISPLAY_NAME, ""));
+        assertEquals(0.75f, sc.getUserSettings(false).pttToneLevel, 0.0001f);
+        assertEquals(2, sp.reads);
+        assertTrue(sc.getStats().invalidations >= 1);
+    }
+
+    @Test
+    public void externalChange_winsOverQueuedWrite() {
+        CountingPreferences sp = seededPreferences();
+        SettingsCache sc = new SettingsCache(sp, true, 60000, SCHEDULER);
+
+        sc.putString(PreferenceKeys.USER_DISPLAY_NAME, "Mine");
+        sc.putString(PreferenceKeys.USER_ID, "me");
+        sp.edit().putString(PreferenceKeys.USER_DISPLAY_NAME, "Theirs").apply();
+        sc.flush();
+
+        assertEquals("Theirs", sp.values.get(PreferenceKeys.USER_DISPLAY_NAME));
+        assertEquals("me", sp.values.get(PreferenceKeys.USER_ID));
+        assertEquals("Theirs", sc.getString(PreferenceKeys.USER_DISPLAY_NAME, ""));
+    }
+
+    @Test
+    public void unchangedWrite_doesNotHideALaterExternalChange() {
+        CountingPreferences sp = seededPreferences();
+        SettingsCache sc = new SettingsCache(sp, true, 60000, SCHEDULER);
+
+        // Neither of these changes anything so nobody is told about them
+        sc.putString(PreferenceKeys.USER_DISPLAY_NAME, "Bob");
+        sc.remove(PreferenceKeys.USER_ID);
+        sc.flush();
+        assertEquals("Bob", sc.getString(PreferenceKeys.USER_DISPLAY_NAME, ""));
+
+        sp.edit().putString(PreferenceKeys.USER_DISPLAY_NAME, "Dave").putString(PreferenceKeys.USER_ID, "dave").apply();
+
+        assertEquals("Dave", sc.getString(PreferenceKeys.USER_DISPLAY_NAME, ""));
+        assertEquals("dave", sc.getString(PreferenceKeys.USER_ID, ""));
+    }
+
+    @Test
+    public void changedWrite_isNotTakenAsExternal() {
+        CountingPreferences sp = seededPreferences();
+        SettingsCache sc = new SettingsCache(sp, true, 60000, SCHEDULER);
+
+        sc.putString(PreferenceKeys.USER_DISPLAY_NAME, "Erin");
+        sc.flush();
+        assertEquals("Erin", sp.values.get(PreferenceKeys.USER_DISPLAY_NAME));
+        assertEquals(0, sc.getStats().invalidations);
+        assertEquals("Erin", sc.getString(PreferenceKeys.USER_DISPLAY_NAME, ""));
+        assertEquals(1, sp.reads);
+    }
+
+    @Test
+    public void queuedWrites_visibleBeforeFlushAndSurviveReload() {
+        CountingPreferences sp = seededPreferences();
+        SettingsCache sc = new SettingsCache(sp, true, 60000, SCHEDULER);
+
+        sc.putInt(PreferenceKeys.VOLUME_LEFT_FOR_GROUP_BASE_NAME + "g5", 42);
+        sc.remove(PreferenceKeys.USER_DISPLAY_NAME);
+        assertEquals(0, sp.transactions);
+
+        // An unrelated external change makes us reload - our queued writes still win
+        sp.edit().putBoolean(PreferenceKeys.USER_NOTIFY_VIBRATIONS, true).apply();
+        assertEquals(42, sc.getInt(PreferenceKeys.VOLUME_LEFT_FOR_GROUP_BASE_NAME + "g5", 100));
+        assertEquals("", sc.getString(PreferenceKeys.USER_DISPLAY_NAME, ""));
+        assertTrue(sc.getBoolean(PreferenceKeys.USER_NOTIFY_VIBRATIONS, false));
+
+        sc.flush();
+        assertEquals(42, sp.values.get(PreferenceKeys.VOLUME_LEFT_FOR_GROUP_BASE_NAME + "g5"));
+        assertFalse(sp.values.containsKey(PreferenceKeys.USER_DISPLAY_NAME));
+    }
+
+    @Test
+    public void debouncedFlush_batchesWrites() throws Exception {
+        CountingPreferences sp = seededPreferences();
+        SettingsCache sc = new SettingsCache(sp, true, 50, SCHEDULER);
+
+        for (int x = 0; x < 25; x++) {
+            sc.putInt(PreferenceKeys.VOLUME_LEFT_FOR_GROUP_BASE_NAME + "g0", x);
+        }
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (System.currentTimeMillis() < deadline) {
+            if (sp.transactions > 0) {
+                break;
+            }
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, sp.transactions);
+        assertEquals(24, sp.values.get(PreferenceKeys.VOLUME_LEFT_FOR_GROUP_BASE_NAME + "g0"));
+        sc.close();
+    }
+}
@@ -0,0 +1,58 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+// Pooled GZIP and reusable-buffer Base91 against the allocate-per-call implementations
+public class StreamCodecBenchmark {
+    @Test
+    public void pooledVersusLegacy() throws Exception {
+        Random rnd = new Random(42);
+        byte[] small = StreamCodecTest.randomData(rnd, 900);
+        byte[] compressible = new byte[16384];
+        for (int x = 0; x < compressible.length; x++) {
+            compressible[x] = small[x % small.length];
+        }
+
+        final int iterations = 2000;
+        for (int pass = 0; pass < 2; pass++) {
+            long t0 = System.nanoTime();
+            for (int x = 0; x < iterations; x++) {
+                StreamCodecTest.legacyInflate(StreamCodecTest.legacyCompress(compressible));
+            }
+            long t1 = System.nanoTime();
+            for (int x = 0; x < iterations; x++) {
+                byte[] c = GzipCodec.compress(compressible, 0, compressible.length);
+                GzipCodec.inflate(c, 0, c.length);
+            }
+            long t2 = System.nanoTime();
+
+            byte[] encoded = Base91.encode(compressible);
+            Base91.Encoder enc = new Base91.Encoder();
+            Base91.Decoder dec = new Base91.Decoder();
+            byte[] encBuf = new byte[Base91.maxEncodedLength(compressible.length)];
+            byte[] decBuf = new byte[Base91.maxDecodedLength(encoded.length)];
+
+            long t3 = System.nanoTime();
+            for (int x = 0; x < iterations; x++) {
+                Base91.decode(Base91.encode(compressible));
+            }
+            long t4 = System.nanoTime();
+            for (int x = 0; x < iterations; x++) {
+                int n = enc.update(compressible, 0, compressible.length, encBuf, 0);
+                n += enc.finish(encBuf, n);
+                int d = dec.update(encBuf, 0, n, decBuf, 0);
+                dec.finish(decBuf, d);
+            }
+            long t5 = System.nanoTime();
+
+            if (pass == 1) {
+                System.out.println(String.format("gzip round trip (16KB): legacy %.1f us, pooled %.1f us",
+                        (t1 - t0) / 1000.0 / iterations, (t2 - t1) / 1000.0 / iterations));
+                System.out.println(String.format("base91 round trip (16KB): legacy %.1f us, reusable buffers %.1f us",
+                        (t4 - t3) / 1000.0 / iterations, (t5 - t4) / 1000.0 / iterations));
+            }
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class StreamCodecTest {
+    private static final int FUZZ_ROUNDS = 500;
+
+    // Half the time random noise, half the time something that compresses like JSON does
+    static byte[] randomData(Random rnd, int len) {
+        byte[] rc = new byte[len];
+        if (rnd.nextBoolean()) {
+            rnd.nextBytes(rc);
+        } else {
+            byte[] words = "{\"id\":\"\",\"rx\":{\"address\":\"239.42.43.1\",\"port\":49000},\"type\":1}".getBytes();
+            for (int x = 0; x < len; x++) {
+                rc[x] = (rnd.nextInt(10) == 0 ? (byte) rnd.nextInt(256) : words[(x + rnd.nextInt(3)) % words.length]);
+            }
+        }
+        return rc;
+    }
+
+    static byte[] legacyCompress(byte[] data) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(bos);
+        gzip.write(data);
+        gzip.close();
+        return bos.toByteArray();
+    }
+
+    static byte[] legacyInflate(byte[] data) throws Exception {
+        GZIPInputStream gis = new GZIPInputStream(new ByteArrayInputStream(data));
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int len;
+        while ((len = gis.read(buffer)) != -1) {
+            bos.write(buffer, 0, len);
+        }
+        return bos.toByteArray();
+    }
+
+    private static void writeInChunks(OutputStream os, byte[] data, Random rnd) throws Exception {
+        int pos = 0;
+        while (pos < data.length) {
+            int n = Math.min(data.length - pos, 1 + rnd.nextInt(700));
+            if (n == 1) {
+                os.write(data[pos]);
+            } else {
+                os.write(data, pos, n);
+            }
+            pos += n;
+        }
+    }
+
+    private static byte[] readInChunks(InputStream is, Random rnd) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buf = new byte[1024];
+        while (true) {
+            if (rnd.nextInt(8) == 0) {
+                int b = is.read();
+                if (b < 0) {
+                    break;
+                }
+                bos.write(b);
+            } else {
+                int n = is.read(buf, 0, 1 + rnd.nextInt(buf.length));
+                if (n < 0) {
+                    break;
+                }
+                bos.write(buf, 0, n);
+            }
+        }
+        return bos.toByteArray();
+    }
+
+    private static byte[] remaining(ByteBuffer bb) {
+        byte[] rc = new byte[bb.remaining()];
+        bb.get(rc);
+        return rc;
+    }
+
+    @Test
+    public void base91_arrayAndBufferPathsMatchReference() {
+        Random rnd = new Random(91);
+        Base91.Encoder enc = new Base91.Encoder();
+        Base91.Decoder dec = new Base91.Decoder();
+
+        for (int round = 0; round < FUZZ_ROUNDS; round++) {
+            byte[] data = randomData(rnd, rnd.nextInt(3000));
+            byte[] expected = Base91.encode(data);
+
+            byte[] out = new byte[Base91.maxEncodedLength(data.length)];
+            int n = 0;
+            int pos = 0;
+            while (pos < data.length) {
+                int chunk = Math.min(data.length - pos, 1 + rnd.nextInt(300));
+                n += enc.update(data, pos, chunk, out, n);
+                pos += chunk;
+            }
+            n += enc.finish(out, n);
+            assertArrayEquals(expected, Arrays.copyOf(out, n));
+
+            ByteBuffer src = rnd.nextBoolean() ? ByteBuffer.wrap(data) : ByteBuffer.allocateDirect(data.length).put(data);
+            src.rewind();
+            ByteBuffer dst = ByteBuffer.allocate(Base91.maxEncodedLength(data.length));
+            enc.update(src, dst);
+            enc.finish(dst);
+            dst.flip();
+            assertArrayEquals(expected, remaining(dst));
+
+            byte[] back = new byte[Base91.maxDecodedLength(expected.length)];
+            n = 0;
+            pos = 0;
+            while (pos < expected.length) {
+                int chunk = Math.min(expected.length - pos, 1 + rnd.nextInt(300));
+                n += dec.update(expected, pos, chunk, back, n);
+                pos += chunk;
+            }
+            n += dec.finish(back, n);
+            assertArrayEquals(data, Arrays.copyOf(back, n));
+
+            ByteBuffer dsrc = ByteBuffer.wrap(expected);
+            ByteBuffer ddst = ByteBuffer.allocateDirect(Base91.maxDecodedLength(expected.length));
+            dec.update(dsrc, ddst);
+            dec.finish(ddst);
+            ddst.flip();
+            assertArrayEquals(data, remaining(ddst));
+            assertArrayEquals(data, Base91.decode(expected));
+
+            String qr = Utils.base91Encode(data);
+            assertEquals(new String(expected, Utils.getEngageCharSet()), qr);
+            assertArrayEquals(data, Utils.base91Decode(qr));
+        }
+    }
+
+    @Test
+    public void base91_streamsMatchReference() throws Exception {
+        Random rnd = new Random(1991);
+
+        for (int round = 0; round < FUZZ_ROUNDS; round++) {
+            byte[] data = randomData(rnd, rnd.nextInt(20000));
+            byte[] expected = Base91.encode(data);
+
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            Base91.EncodingOutputStream eos = new Base91.EncodingOutputStream(bos);
+            writeInChunks(eos, data, rnd);
+            eos.close();
+            assertArrayEquals(expected, bos.toByteArray());
+
+            Base91.DecodingInputStream dis = new Base91.DecodingInputStream(new ByteArrayInputStream(expected));
+            assertArrayEquals(data, readInChunks(dis, rnd));
+            dis.close();
+        }
+    }
+
+    @Test
+    public void base91_decodeIgnoresCharactersOutsideTheAlphabet() {
+        byte[] data = "engage".getBytes();
+        byte[] encoded = Base91.encode(data);
+        byte[] noisy = new byte[encoded.length + 2];
+        noisy[0] = (byte) 0xe9;
+        System.arraycopy(encoded, 0, noisy, 1, encoded.length);
+        noisy[noisy.length - 1] = (byte) 0x80;
+
+        assertArrayEquals(data, Base91.decode(noisy));
+    }
+
+    @Test
+    public void gzip_interoperatesWithJavaUtilZip() throws Exception {
+        Random rnd = new Random(1952);
+
+        for (int round = 0; round < FUZZ_ROUNDS; round++) {
+            byte[] data = randomData(rnd, rnd.nextInt(40000));
+            int ofs = rnd.nextInt(8);
+            byte[] padded = new byte[data.length + ofs + 3];
+            System.arraycopy(data, 0, padded, ofs, data.length);
+
+            byte[] ours = GzipCodec.compress(padded, ofs, data.length);
+            assertArrayEquals(data, legacyInflate(ours));
+            assertArrayEquals(data, GzipCodec.inflate(ours, 0, ours.length));
+
+            byte[] theirs = legacyCompress(data);
+            assertArrayEquals(data, GzipCodec.inflate(theirs, 0, theirs.length));
+            assertArrayEquals(data, Utils.inflate(Utils.compress(data, 0, data.length)));
+        }
+    }
+
+    @Test
+    public void gzip_bufferPathsRoundTrip() throws Exception {
+        Random rnd = new Random(2025);
+
+        for (int round = 0; round < FUZZ_ROUNDS; round++) {
+            byte[] data = randomData(rnd, rnd.nextInt(40000));
+
+            ByteBuffer src = rnd.nextBoolean() ? ByteBuffer.wrap(data) : ByteBuffer.allocateDirect(data.length).put(data);
+            src.rewind();
+            ByteBuffer dst = rnd.nextBoolean() ? ByteBuffer.allocate(data.length + 1024) : ByteBuffer.allocateDirect(data.length + 1024);
+            int n = GzipCodec.compress(src, dst);
+            assertTrue(n > 0);
+            assertFalse(src.hasRemaining());
+            dst.flip();
+            byte[] compressed = remaining(dst);
+            assertEquals(n, compressed.length);
+            assertArrayEquals(data, legacyInflate(compressed));
+
+            ByteBuffer csrc = rnd.nextBoolean() ? ByteBuffer.wrap(compressed) : ByteBuffer.allocateDirect(compressed.length).put(compressed);
+            csrc.rewind();
+            ByteBuffer out = rnd.nextBoolean() ? ByteBuffer.allocate(data.length + 16) : ByteBuffer.allocateDirect(data.length + 16);
+            assertEquals(data.length, GzipCodec.inflate(csrc, out));
+            assertFalse(csrc.hasRemaining());
+            out.flip();
+            assertArrayEquals(data, remaining(out));
+        }
+    }
+
+    @Test
+    public void gzip_bufferPathsReportNoRoom() throws Exception {
+        byte[] data = randomData(new Random(7), 5000);
+        byte[] compressed = GzipCodec.compress(data, 0, data.length);
+
+        ByteBuffer small = ByteBuffer.allocate(compressed.length / 2);
+        small.position(3);
+        assertEquals(-1, GzipCodec.compress(ByteBuffer.wrap(data), small));
+        assertEquals(3, small.position());
+
+        ByteBuffer tooSmall = ByteBuffer.allocateDirect(data.length - 1);
+        assertEquals(-1, GzipCodec.inflate(ByteBuffer.wrap(compressed), tooSmall));
+        assertEquals(0, tooSmall.position());
+    }
+
+    @Test
+    public void gzip_streamsRoundTrip() throws Exception {
+        Random rnd = new Random(8192);
+
+        for (int round = 0; round < FUZZ_ROUNDS; round++) {
+            byte[] data = randomData(rnd, rnd.nextInt(60000));
+
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            OutputStream os = GzipCodec.openCompressingStream(bos);
+            writeInChunks(os, data, rnd);
+            os.close();
+            assertArrayEquals(data, legacyInflate(bos.toByteArray()));
+
+            InputStream is = GzipCodec.openInflatingStream(new ByteArrayInputStream(legacyCompress(data)));
+            assertArrayEquals(data, readInChunks(is, rnd));
+            is.close();
+        }
+    }
+
+    @Test
+    public void gzip_inflatesEveryMember() throws Exception {
+        Random rnd = new Random(1996);
+        byte[] a = randomData(rnd, 3000);
+        byte[] b = randomData(rnd, 5000);
+        byte[] ca = GzipCodec.compress(a, 0, a.length);
+        byte[] cb = legacyCompress(b);
+
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        joined.write(ca);
+        joined.write(cb);
+        byte[] both = joined.toByteArray();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(a);
+        expected.write(b);
+        assertArrayEquals(expected.toByteArray(), GzipCodec.inflate(both, 0, both.length));
+        assertArrayEquals(legacyInflate(both), GzipCodec.inflate(both, 0, both.length));
+
+        ByteBuffer src = ByteBuffer.allocateDirect(both.length).put(both);
+        src.rewind();
+        ByteBuffer dst = ByteBuffer.allocate(a.length + b.length);
+        assertEquals(a.length + b.length, GzipCodec.inflate(src, dst));
+        assertFalse(src.hasRemaining());
+        dst.flip();
+        assertArrayEquals(expected.toByteArray(), remaining(dst));
+
+        InputStream is = GzipCodec.openInflatingStream(new ByteArrayInputStream(both));
+        assertArrayEquals(expected.toByteArray(), readInChunks(is, rnd));
+        is.close();
+
+        // A damaged second member is an error rather than being quietly dropped
+        both[ca.length + cb.length - 6] ^= 0x01;
+        try {
+            GzipCodec.inflate(both, 0, both.length);
+            fail("bad crc in second member accepted");
+        } catch (java.io.IOException e) {
+            // expected
+        }
+
+        // Trailing bytes that aren't a member are ignored
+        byte[] padded = new byte[ca.length + 4];
+        System.arraycopy(ca, 0, padded, 0, ca.length);
+        assertArrayEquals(a, GzipCodec.inflate(padded, 0, padded.length));
+        is = GzipCodec.openInflatingStream(new ByteArrayInputStream(padded));
+        assertArrayEquals(a, readInChunks(is, rnd));
+        is.close();
+    }
+
+    @Test
+    public void gzip_rejectsDamagedInput() throws Exception {
+        byte[] data = randomData(new Random(3), 4000);
+        byte[] good = GzipCodec.compress(data, 0, data.length);
+
+        try {
+            GzipCodec.inflate(good, 0, good.length - 5);
+            fail("truncated input accepted");
+        } catch (java.io.IOException e) {
+            // expected
+        }
+
+        byte[] badCrc = good.clone();
+        badCrc[badCrc.length - 6] ^= 0x01;
+        try {
+            GzipCodec.inflate(badCrc, 0, badCrc.length);
+            fail("bad crc accepted");
+        } catch (java.io.IOException e) {
+            // expected
+        }
+
+        assertNull(Utils.inflate(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12}));
+    }
+
+    @Test
+    public void gzip_reusesPooledCodecs() throws Exception {
+        byte[] data = randomData(new Random(11), 2000);
+        GzipCodec.Stats before = GzipCodec.getStats();
+
+        for (int x = 0; x < 50; x++) {
+            byte[] c = GzipCodec.compress(data, 0, data.length);
+            GzipCodec.inflate(c, 0, c.length);
+        }
+
+        GzipCodec.Stats after = GzipCodec.getStats();
+        assertTrue(after.deflatersReused - before.deflatersReused >= 49);
+        assertTrue(after.inflatersReused - before.inflatersReused >= 49);
+    }
+}
@@ -0,0 +1,38 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+// What it costs to push a few thousand short tasks through the pool
+public class TaskSchedulerBenchmark {
+    @Test
+    public void shortTasks() throws Exception {
+        TaskScheduler s = new TaskScheduler(2);
+        final int tasks = 5000;
+        final CountDownLatch done = new CountDownLatch(tasks);
+        Runnable r = new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        };
+
+        long t0 = System.nanoTime();
+        for (int x = 0; x < tasks; x++) {
+            s.execute(this, TaskScheduler.Category.general, "short", r);
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        long t1 = System.nanoTime();
+
+        ArrayList<TaskScheduler.TaskStats> stats = s.getTaskStats();
+        assertEquals(1, stats.size());
+        System.out.println(String.format("TaskScheduler: %.2f us per task, average lateness %d us",
+                (t1 - t0) / 1000.0 / tasks, stats.get(0).getAverageLateUs()));
+        s.shutdown();
+    }
+}
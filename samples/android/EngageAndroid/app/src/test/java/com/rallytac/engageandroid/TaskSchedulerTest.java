@@ -0,0 +1,191 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TaskSchedulerTest {
+    private static TaskScheduler.TaskStats find(TaskScheduler s, String name) {
+        for (TaskScheduler.TaskStats ts : s.getTaskStats()) {
+            if (ts.name.equals(name)) {
+                return ts;
+            }
+        }
+        return null;
+    }
+
+    private static void waitFor(TaskScheduler s, Object owner) throws InterruptedException {
+        for (int x = 0; x < 200 && s.getPendingCount(owner) > 0; x++) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void schedule_runsOnceAndForgetsTheTask() throws Exception {
+        TaskScheduler s = new TaskScheduler(1);
+        Object owner = new Object();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        s.schedule(owner, TaskScheduler.Category.general, "once", new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        }, 10);
+
+        assertEquals(1, s.getPendingCount(owner));
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        waitFor(s, owner);
+        assertEquals(0, s.getPendingCount(owner));
+
+        TaskScheduler.TaskStats ts = find(s, "once");
+        assertNotNull(ts);
+        assertEquals(1, ts.runs);
+        assertEquals(TaskScheduler.Category.general, ts.category);
+        s.shutdown();
+    }
+
+    @Test
+    public void fixedRate_keepsRunningUntilCancelled() throws Exception {
+        TaskScheduler s = new TaskScheduler(1);
+        final AtomicInteger count = new AtomicInteger();
+        final CountDownLatch three = new CountDownLatch(3);
+
+        TaskScheduler.Task t = s.scheduleAtFixedRate(this, TaskScheduler.Category.groups, "tick", new Runnable() {
+            @Override
+            public void run() {
+                count.incrementAndGet();
+                three.countDown();
+            }
+        }, 0, 5);
+
+        assertTrue(three.await(2, TimeUnit.SECONDS));
+        t.cancel();
+        assertTrue(t.isCancelled());
+        assertEquals(0, s.getPendingCount(this));
+
+        int after = count.get();
+        Thread.sleep(50);
+        assertTrue(count.get() <= after + 1);
+        s.shutdown();
+    }
+
+    @Test
+    public void cancelAll_onlyTouchesThatOwner() throws Exception {
+        TaskScheduler s = new TaskScheduler(2);
+        Object activityA = new Object();
+        Object activityB = new Object();
+        final AtomicInteger ranA = new AtomicInteger();
+        final CountDownLatch ranB = new CountDownLatch(1);
+
+        Runnable a = new Runnable() {
+            @Override
+            public void run() {
+                ranA.incrementAndGet();
+            }
+        };
+
+        s.schedule(activityA, TaskScheduler.Category.ui, "a1", a, 100);
+        s.schedule(activityA, TaskScheduler.Category.ui, "a2", a, 100);
+        s.scheduleAtFixedRate(activityA, TaskScheduler.Category.ui, "a3", a, 100, 100);
+        s.schedule(activityB, TaskScheduler.Category.ui, "b1", new Runnable() {
+            @Override
+            public void run() {
+                ranB.countDown();
+            }
+        }, 20);
+
+        assertEquals(3, s.cancelAll(activityA));
+        assertEquals(0, s.getPendingCount(activityA));
+        assertEquals(0, s.cancelAll(activityA));
+
+        assertTrue(ranB.await(2, TimeUnit.SECONDS));
+        Thread.sleep(150);
+        assertEquals(0, ranA.get());
+        s.shutdown();
+    }
+
+    @Test
+    public void failingPeriodicTask_isCountedAndKeepsGoing() throws Exception {
+        TaskScheduler s = new TaskScheduler(1);
+        final CountDownLatch runs = new CountDownLatch(3);
+
+        TaskScheduler.Task t = s.scheduleAtFixedRate(this, TaskScheduler.Category.general, "flaky", new Runnable() {
+            @Override
+            public void run() {
+                runs.countDown();
+                throw new IllegalStateException("expected by the test");
+            }
+        }, 0, 5);
+
+        assertTrue(runs.await(2, TimeUnit.SECONDS));
+        t.cancel();
+
+        TaskScheduler.TaskStats ts = find(s, "flaky");
+        assertTrue(ts.runs >= 2);
+        assertEquals(ts.runs, ts.failures);
+        s.shutdown();
+    }
+
+    @Test
+    public void task_canCancelItselfFromWithin() throws Exception {
+        TaskScheduler s = new TaskScheduler(1);
+        final AtomicInteger count = new AtomicInteger();
+        final TaskScheduler.Task[] self = new TaskScheduler.Task[1];
+
+        synchronized (self) {
+            self[0] = s.scheduleAtFixedRate(this, TaskScheduler.Category.ui, "waitForSomething", new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (self) {
+                        if (count.incrementAndGet() == 2) {
+                            self[0].cancel();
+                        }
+                    }
+                }
+            }, 0, 5);
+        }
+
+        waitFor(s, this);
+        Thread.sleep(30);
+        assertEquals(2, count.get());
+        s.shutdown();
+    }
+
+    @Test
+    public void lateness_isMeasuredWhenThePoolIsBusy() throws Exception {
+        TaskScheduler s = new TaskScheduler(1);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        // Hog the only thread so the next task has to wait its turn
+        s.execute(this, TaskScheduler.Category.general, "hog", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(60);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        s.schedule(this, TaskScheduler.Category.general, "victim", new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        }, 10);
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        waitFor(s, this);
+
+        TaskScheduler.TaskStats hog = find(s, "hog");
+        TaskScheduler.TaskStats victim = find(s, "victim");
+        assertTrue(hog.maxRunUs >= 50000);
+        assertTrue(victim.maxLateUs >= 30000);
+        s.shutdown();
+    }
+}
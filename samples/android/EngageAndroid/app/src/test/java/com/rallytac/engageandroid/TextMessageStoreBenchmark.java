@@ -0,0 +1,28 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+// Repeated reads of a full group's messages - each one is a snapshot rather than a copy
+public class TextMessageStoreBenchmark {
+    @Test
+    public void snapshotReads() {
+        TextMessageStore store = new TextMessageStore(5000, 0, 0);
+        long now = System.currentTimeMillis();
+
+        for (int x = 0; x < 5000; x++) {
+            store.append(TextMessageStoreTest.message("g1", x, now));
+        }
+
+        long start = System.nanoTime();
+        int total = 0;
+        for (int x = 0; x < 10000; x++) {
+            total += store.getMessages("g1").size();
+        }
+        long elapsedUs = (System.nanoTime() - start) / 1000;
+
+        System.out.println("TextMessageStore: 10000 snapshot reads of 5000 messages took " + elapsedUs + "us");
+        assertEquals(10000 * 5000, total);
+    }
+}
@@ -0,0 +1,303 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TextMessageStoreTest {
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    static TextMessage message(String groupId, int n, long ts) {
+        TextMessage tm = new TextMessage();
+        tm._groupId = groupId;
+        tm._ts = new Date(ts);
+        tm._direction = (n % 2 == 0 ? TextMessage.Direction.sent : TextMessage.Direction.received);
+        tm._sourceNodeId = "node-" + (n % 3);
+        tm._sourceDisplayName = (n % 2 == 0 ? null : "Someone " + n);
+        tm._messageText = "message " + n;
+        return tm;
+    }
+
+    private static File tempSegment() throws Exception {
+        File f = File.createTempFile("tms", ".seg");
+        f.delete();
+        f.deleteOnExit();
+        return f;
+    }
+
+    @Test
+    public void append_evictsOldestBeyondLimit() {
+        TextMessageStore store = new TextMessageStore(100, 0, 0);
+        long now = System.currentTimeMillis();
+
+        for (int x = 0; x < 1000; x++) {
+            store.append(message("g1", x, now));
+        }
+
+        TextMessageStore.Snapshot snap = store.getMessages("g1");
+        assertEquals(100, snap.size());
+        assertEquals("message 900", snap.get(0)._messageText);
+        assertEquals("message 999", snap.get(99)._messageText);
+        assertEquals(900, store.getStats().messagesEvicted);
+        assertNull(store.getMessages("g2"));
+    }
+
+    @Test
+    public void snapshot_isUnaffectedByLaterAppendsAndEviction() {
+        TextMessageStore store = new TextMessageStore(10, 0, 0);
+        long now = System.currentTimeMillis();
+
+        for (int x = 0; x < 10; x++) {
+            store.append(message("g1", x, now));
+        }
+
+        TextMessageStore.Snapshot before = store.getMessages("g1");
+
+        for (int x = 10; x < 500; x++) {
+            store.append(message("g1", x, now));
+        }
+
+        assertEquals(10, before.size());
+        for (int x = 0; x < 10; x++) {
+            assertEquals("message " + x, before.get(x)._messageText);
+        }
+        assertEquals("message 490", store.getMessages("g1").get(0)._messageText);
+    }
+
+    @Test
+    public void pagedRead_returnsClampedWindow() {
+        TextMessageStore store = new TextMessageStore(1000, 0, 0);
+        long now = System.currentTimeMillis();
+
+        for (int x = 0; x < 150; x++) {
+            store.append(message("g1", x, now));
+        }
+
+        List<TextMessage> page = store.getMessages("g1", 100, 50);
+        assertEquals(50, page.size());
+        assertEquals("message 100", page.get(0)._messageText);
+
+        assertEquals(30, store.getMessages("g1", 120, 50).size());
+        assertEquals(0, store.getMessages("g1", 500, 50).size());
+        assertEquals(0, store.getMessages("nope", 0, 50).size());
+    }
+
+    @Test
+    public void expire_dropsMessagesOlderThanMaxAge() {
+        TextMessageStore store = new TextMessageStore(1000, DAY_MS, 0);
+        long now = System.currentTimeMillis();
+
+        store.append(message("g1", 0, now - (3 * DAY_MS)));
+        store.append(message("g1", 1, now - (2 * DAY_MS)));
+        store.append(message("g1", 2, now));
+        store.append(message("g2", 3, now - (2 * DAY_MS)));
+
+        store.expire();
+
+        assertEquals(1, store.getMessageCount("g1"));
+        assertEquals("message 2", store.getMessages("g1").get(0)._messageText);
+        assertNull(store.getMessages("g2"));
+    }
+
+    @Test
+    public void segment_survivesReopen() throws Exception {
+        File f = tempSegment();
+        long now = System.currentTimeMillis();
+
+        TextMessageStore store = new TextMessageStore(50, DAY_MS, 0);
+        store.open(f);
+        for (int x = 0; x < 80; x++) {
+            store.append(message((x % 2 == 0 ? "even" : "odd"), x, now));
+        }
+        assertTrue(store.flush(5000));
+        store.close();
+        assertNull(store.getMessages("even"));
+
+        TextMessageStore reopened = new TextMessageStore(30, DAY_MS, 0);
+        reopened.open(f);
+
+        // Replayed through the (smaller) bound - only the newest stay on the heap
+        TextMessageStore.Snapshot even = reopened.getMessages("even");
+        assertEquals(30, even.size());
+        assertEquals("message 78", even.get(29)._messageText);
+        assertEquals(TextMessage.Direction.sent, even.get(29)._direction);
+        assertNull(even.get(29)._sourceDisplayName);
+        assertEquals("Someone 79", reopened.getMessages("odd").get(29)._sourceDisplayName);
+        assertEquals(80, reopened.getStats().messagesLoaded);
+        reopened.close();
+    }
+
+    @Test
+    public void segment_truncatesTornTail() throws Exception {
+        File f = tempSegment();
+        long now = System.currentTimeMillis();
+
+        TextMessageStore store = new TextMessageStore(50, 0, 0);
+        store.open(f);
+        for (int x = 0; x < 5; x++) {
+            store.append(message("g1", x, now));
+        }
+        store.close();
+
+        long good = f.length();
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.setLength(good - 3);
+        }
+
+        store.open(f);
+        assertEquals(4, store.getMessageCount("g1"));
+        assertEquals(1, store.getStats().corruptRecords);
+
+        store.append(message("g1", 5, now));
+        store.close();
+
+        store.open(f);
+        assertEquals(5, store.getMessageCount("g1"));
+        assertEquals("message 5", store.getMessages("g1").get(4)._messageText);
+        store.close();
+    }
+
+    @Test
+    public void segment_isCompactedWhenItOutgrowsTheLimit() throws Exception {
+        File f = tempSegment();
+        long now = System.currentTimeMillis();
+
+        TextMessageStore store = new TextMessageStore(20, 0, 4096);
+        store.open(f);
+        for (int x = 0; x < 2000; x++) {
+            store.append(message("g1", x, now));
+        }
+        assertTrue(store.flush(5000));
+        store.close();
+
+        assertTrue(f.length() < 4096 * 2);
+
+        store.open(f);
+        TextMessageStore.Snapshot snap = store.getMessages("g1");
+        assertEquals(20, snap.size());
+        assertEquals("message 1999", snap.get(19)._messageText);
+        store.close();
+    }
+
+    @Test
+    public void segment_isNotRecompactedOnEveryWriteOnceRetainedExceedsTheLimit() throws Exception {
+        File f = tempSegment();
+        long now = System.currentTimeMillis();
+
+        // 100 retained messages are well past a 1 KB limit on their own - rewriting on every
+        // append would mean hundreds of compactions
+        TextMessageStore store = new TextMessageStore(100, 0, 1024);
+        store.open(f);
+        for (int x = 0; x < 1000; x++) {
+            store.append(message("g1", x, now));
+        }
+        assertTrue(store.flush(5000));
+
+        long compactions = store.getStats().compactions;
+        assertTrue(compactions > 0);
+        assertTrue(compactions < 100);
+        store.close();
+
+        store.open(f);
+        assertEquals(100, store.getMessageCount("g1"));
+        store.close();
+    }
+
+    @Test
+    public void longText_isPersistedAndOversizedFieldsAreCapped() throws Exception {
+        File f = tempSegment();
+        long now = System.currentTimeMillis();
+
+        StringBuilder sb = new StringBuilder();
+        for (int x = 0; x < 70000; x++) {
+            sb.append((char) ('a' + (x % 26)));
+        }
+        StringBuilder name = new StringBuilder();
+        for (int x = 0; x < 2000; x++) {
+            name.append('\u00e9');
+        }
+
+        TextMessageStore store = new TextMessageStore(50, 0, 0);
+        store.open(f);
+        TextMessage big = message("g1", 1, now);
+        big._messageText = sb.toString();
+        big._sourceDisplayName = name.toString();
+        store.append(big);
+        store.append(message("g1", 2, now));
+        assertTrue(store.flush(5000));
+        assertEquals(0, store.getStats().writeFailures);
+        assertEquals(1, store.getStats().truncatedFields);
+        store.close();
+
+        store.open(f);
+        TextMessageStore.Snapshot snap = store.getMessages("g1");
+        assertEquals(2, snap.size());
+        assertEquals(sb.toString(), snap.get(0)._messageText);
+
+        // Cut back to a whole character
+        String capped = snap.get(0)._sourceDisplayName;
+        assertEquals(512, capped.length());
+        assertTrue(name.toString().startsWith(capped));
+        assertEquals("message 2", snap.get(1)._messageText);
+        store.close();
+    }
+
+    @Test
+    public void writer_keepsGoingAfterAFailedWrite() throws Exception {
+        File f = tempSegment();
+        long now = System.currentTimeMillis();
+
+        TextMessageStore store = new TextMessageStore(1000, 0, 512);
+        store.open(f);
+        store.append(message("g1", 0, now));
+        assertTrue(store.flush(5000));
+
+        // Something non-empty in the way of the segment means the rewrite can't land
+        assertTrue(f.delete());
+        assertTrue(f.mkdir());
+        File blocker = new File(f, "x");
+        assertTrue(blocker.createNewFile());
+
+        for (int x = 1; x < 50; x++) {
+            store.append(message("g1", x, now));
+        }
+        assertTrue(store.flush(5000));
+        assertTrue(store.getStats().writeFailures > 0);
+
+        // Once it's out of the way the next append rebuilds everything from memory
+        assertTrue(blocker.delete());
+        assertTrue(f.delete());
+        store.append(message("g1", 50, now));
+        assertTrue(store.flush(5000));
+        store.close();
+
+        store.open(f);
+        assertEquals(51, store.getMessageCount("g1"));
+        assertEquals("message 50", store.getMessages("g1").get(50)._messageText);
+        store.close();
+    }
+
+    @Test
+    public void read_onlyExpiresTheGroupAskedFor() throws Exception {
+        TextMessageStore store = new TextMessageStore(1000, 1000, 0);
+        long now = System.currentTimeMillis();
+
+        store.append(message("g1", 0, now - 900));
+        store.append(message("g1", 1, now + DAY_MS));
+        store.append(message("g2", 2, now - 900));
+
+        // Let the older ones age out while they sit in the store
+        Thread.sleep(300);
+
+        assertEquals(1, store.getMessages("g1").size());
+        assertEquals(1, store.getStats().messagesEvicted);
+
+        assertNull(store.getMessages("g2"));
+        assertEquals(2, store.getStats().messagesEvicted);
+    }
+}
@@ -0,0 +1,31 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+// How long mixing a burst takes with a handful of overlapping tones
+public class ToneMixerBenchmark {
+    private static final int RATE = 48000;
+
+    @Test
+    public void mixBurst() {
+        ToneMixer m = new ToneMixer(RATE);
+        m.addTone(1, ToneMixerTest.constant((short) 3000, RATE * 60));
+        for (int x = 0; x < 4; x++) {
+            m.play(1, 0.25f, false, 0, null, null);
+        }
+
+        short[] out = new short[256];
+        final int bursts = 5000;
+        for (int pass = 0; pass < 2; pass++) {
+            long t0 = System.nanoTime();
+            for (int x = 0; x < bursts; x++) {
+                m.mix(out, 0, out.length, 0, 0);
+            }
+            long t1 = System.nanoTime();
+
+            if (pass == 1) {
+                System.out.println(String.format("ToneMixer: 4 voices, %.2f us per 256-sample burst", (t1 - t0) / 1000.0 / bursts));
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.rallytac.engageandroid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class ToneMixerTest {
+    private static final int RATE = 48000;
+
+    static short[] constant(short value, int samples) {
+        short[] rc = new short[samples];
+        for (int x = 0; x < samples; x++) {
+            rc[x] = value;
+        }
+        return rc;
+    }
+
+    private static class Recorder implements ToneMixer.IToneListener {
+        final ArrayList<String> events = new ArrayList<>();
+
+        @Override
+        public void onToneFinished(int id, Object tag, boolean interrupted) {
+            events.add(id + (interrupted ? ":interrupted" : ":done"));
+        }
+    }
+
+    @Test
+    public void idle_mixesSilence() {
+        ToneMixer m = new ToneMixer(RATE);
+        short[] out = constant((short) 7, 64);
+
+        assertEquals(0, m.mix(out, 0, out.length, 0, 0));
+        for (short s : out) {
+            assertEquals(0, s);
+        }
+    }
+
+    @Test
+    public void unknownTone_isRefused() {
+        ToneMixer m = new ToneMixer(RATE);
+        assertFalse(m.play(1, 1.0f, false, 0, null, null));
+        assertFalse(m.isActive());
+    }
+
+    @Test
+    public void tone_playsToCompletionAcrossBlocks() {
+        ToneMixer m = new ToneMixer(RATE);
+        Recorder r = new Recorder();
+        m.addTone(1, constant((short) 1000, 100));
+
+        assertTrue(m.play(1, 1.0f, false, 0, r, null));
+
+        short[] out = new short[64];
+        assertEquals(1, m.mix(out, 0, 64, 0, 0));
+        assertEquals(1000, out[63]);
+        assertTrue(r.events.isEmpty());
+
+        assertEquals(0, m.mix(out, 0, 64, 0, 0));
+        assertEquals(1000, out[35]);
+        assertEquals(0, out[36]);
+        assertTrue(r.events.isEmpty());
+
+        assertEquals(1, m.releasePlayedOut(128));
+        assertEquals(1, r.events.size());
+        assertEquals("1:done", r.events.get(0));
+    }
+
+    @Test
+    public void completion_waitsForPlayout() {
+        ToneMixer m = new ToneMixer(RATE);
+        Recorder r = new Recorder();
+        m.addTone(1, constant((short) 1000, 100));
+        m.play(1, 1.0f, false, 0, r, null);
+
+        short[] out = new short[256];
+        m.mix(out, 0, out.length, 0, 0);
+        assertFalse(m.isActive());
+        assertEquals(256, m.getPosition());
+
+        // The last sample went out at position 99
+        assertEquals(0, m.releasePlayedOut(99));
+        assertTrue(r.events.isEmpty());
+        assertEquals(1, m.releasePlayedOut(100));
+        assertEquals("1:done", r.events.get(0));
+        assertEquals(0, m.releasePlayedOut(1000));
+    }
+
+    @Test
+    public void stopAll_reportsToneNotYetPlayedOutAsInterrupted() {
+        ToneMixer m = new ToneMixer(RATE);
+        Recorder r = new Recorder();
+        m.addTone(1, constant((short) 1000, 10));
+        m.play(1, 1.0f, false, 0, r, null);
+
+        short[] out = new short[16];
+        m.mix(out, 0, out.length, 0, 0);
+
+        assertEquals(0, m.stopAll());
+        assertEquals("1:interrupted", r.events.get(0));
+        assertEquals(0, m.releasePlayedOut(Long.MAX_VALUE));
+        assertEquals(1, r.events.size());
+    }
+
+    @Test
+    public void resetPosition_finishesPendingAndStartsOver() {
+        ToneMixer m = new ToneMixer(RATE);
+        Recorder r = new Recorder();
+        m.addTone(1, constant((short) 1000, 10));
+        m.play(1, 1.0f, false, 0, r, null);
+
+        short[] out = new short[16];
+        m.mix(out, 0, out.length, 0, 0);
+
+        m.resetPosition();
+        assertEquals("1:done", r.events.get(0));
+        assertEquals(0, m.getPosition());
+    }
+
+    @Test
+    public void overlappingTones_areSummedAndClipped() {
+        ToneMixer m = new ToneMixer(RATE);
+        m.addTone(1, constant((short) 20000, 32));
+        m.addTone(2, constant((short) 20000, 16));
+        m.addTone(3, constant((short) -1000, 8));
+
+        m.play(1, 1.0f, false, 0, null, null);
+        m.play(2, 1.0f, false, 0, null, null);
+        m.play(3, 1.0f, false, 0, null, null);
+        assertEquals(3, m.getActiveCount());
+
+        short[] out = new short[32];
+        m.mix(out, 0, 32, 0, 0);
+
+        assertEquals(Short.MAX_VALUE, out[0]);
+        assertEquals(Short.MAX_VALUE, out[15]);
+        assertEquals(20000, out[16]);
+        assertFalse(m.isActive());
+    }
+
+    @Test
+    public void gain_scalesSamples() {
+        ToneMixer m = new ToneMixer(RATE);
+        m.addTone(1, constant((short) 10000, 4));
+        m.play(1, 0.5f, false, 0, null, null);
+
+        short[] out = new short[4];
+        m.mix(out, 0, 4, 0, 0);
+        assertEquals(5000, out[0]);
+    }
+
+    @Test
+    public void stop_interruptsOnlyThatTone() {
+        ToneMixer m = new ToneMixer(RATE);
+        Recorder r = new Recorder();
+        m.addTone(1, constant((short) 100, 1000));
+        m.addTone(2, constant((short) 200, 1000));
+
+        m.play(1, 1.0f, false, 0, r, null);
+        m.play(2, 1.0f, false, 0, r, null);
+        m.play(1, 1.0f, false, 0, r, null);
+
+        assertEquals(2, m.stop(1));
+        assertEquals(1, m.getActiveCount());
+        assertEquals(2, r.events.size());
+        assertEquals("1:interrupted", r.events.get(0));
+
+        short[] out = new short[4];
+        m.mix(out, 0, 4, 0, 0);
+        assertEquals(200, out[0]);
+    }
+
+    @Test
+    public void interruptingPlay_replacesEverythingPlaying() {
+        ToneMixer m = new ToneMixer(RATE);
+        Recorder r = new Recorder();
+        m.addTone(1, constant((short) 100, 1000));
+        m.addTone(2, constant((short) 200, 1000));
+
+        m.play(1, 1.0f, false, 0, r, null);
+        m.play(2, 1.0f, true, 0, r, null);
+
+        assertEquals(1, m.getActiveCount());
+        assertEquals("1:interrupted", r.events.get(0));
+
+        assertEquals(1, m.stopAll());
+        assertEquals("2:interrupted", r.events.get(1));
+    }
+
+    @Test
+    public void listener_canPlayAnotherToneWhenFinished() {
+        final ToneMixer m = new ToneMixer(RATE);
+        m.addTone(1, constant((short) 100, 8));
+        m.addTone(2, constant((short) 200, 8));
+
+        m.play(1, 1.0f, false, 0, new ToneMixer.IToneListener() {
+            @Override
+            public void onToneFinished(int id, Object tag, boolean interrupted) {
+                m.play(2, 1.0f, false, 0, null, null);
+            }
+        }, null);
+
+        short[] out = new short[8];
+        m.mix(out, 0, 8, 0, 0);
+        m.releasePlayedOut(m.getPosition());
+        assertEquals(1, m.getActiveCount());
+        m.mix(out, 0, 8, 0, 0);
+        assertEquals(200, out[0]);
+    }
+
+    @Test
+    public void latency_includesWaitAndQueuedAudio() {
+        ToneMixer m = new ToneMixer(RATE);
+        m.addTone(1, constant((short) 100, 10000));
+
+        // Requested at t=1ms, mixed at t=3ms with 10ms (480 samples) already queued in the output
+        m.play(1, 1.0f, false, 1000000L, null, null);
+        short[] out = new short[256];
+        m.mix(out, 0, out.length, 3000000L, 480);
+
+        // Only the first block counts
+        m.mix(out, 0, out.length, 9000000L, 480);
+
+        ToneMixer.LatencyStats ls = m.getLatencyStats(1);
+        assertNotNull(ls);
+        assertEquals(1, ls.count);
+        assertEquals(12000, ls.lastUs);
+
+        m.stopAll();
+        m.play(1, 1.0f, false, 20000000L, null, null);
+        m.mix(out, 0, out.length, 20500000L, 0);
+
+        ls = m.getLatencyStats(1);
+        assertEquals(2, ls.count);
+        assertEquals(500, ls.minUs);
+        assertEquals(12000, ls.maxUs);
+        assertEquals(6250, ls.getAverageUs());
+        assertNull(m.getLatencyStats(2));
+    }
+}